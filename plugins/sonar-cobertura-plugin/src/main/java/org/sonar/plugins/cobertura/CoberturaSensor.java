@@ -24,6 +24,7 @@ import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.CoverageExtension;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Project;
@@ -32,6 +33,7 @@ import org.sonar.plugins.cobertura.api.AbstractCoberturaParser;
 
 import java.io.File;
 
+@ThreadSafe
 public class CoberturaSensor implements Sensor, CoverageExtension {
 
   public boolean shouldExecuteOnProject(Project project) {
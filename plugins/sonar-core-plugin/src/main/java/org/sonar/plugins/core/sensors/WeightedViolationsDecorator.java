@@ -28,6 +28,7 @@ import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.config.Settings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
@@ -52,6 +53,7 @@ import java.util.Map;
         global = true,
         category = CoreProperties.CATEGORY_GENERAL)
 )
+@ThreadSafe
 public class WeightedViolationsDecorator implements Decorator {
 
   private Settings settings;
@@ -19,44 +19,147 @@
  */
 package org.sonar.plugins.core.timemachine;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchExtension;
+import org.sonar.api.CoreProperties;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.DatabaseSession;
+import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.database.model.ResourceModel;
 import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.database.model.SnapshotSource;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Metric;
+import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 
 import javax.persistence.Query;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Data of the previous analysis, used to track violations.
+ * <p>
+ * When a project is given, the snapshot ids of all the resources of the previous analysis of the project, and their violations, are
+ * preloaded by the first call, in a few queries instead of several queries per file. The number of preloaded violations is limited by
+ * the property {@value #PRELOADED_VIOLATIONS_PROPERTY} : violations of the files beyond this limit are loaded file by file.
+ * Preloaded violations of a resource are released once they are returned.
+ * </p>
+ */
+@Properties(
+    @Property(
+        key = ReferenceAnalysis.PRELOADED_VIOLATIONS_PROPERTY,
+        defaultValue = "" + ReferenceAnalysis.PRELOADED_VIOLATIONS_DEFAULT_VALUE,
+        name = "Preloaded violations",
+        description = "Maximum number of violations of the previous analysis loaded in memory at once to track violations. "
+          + "Violations of files beyond this limit are loaded file by file. Set to 0 to load all violations file by file.",
+        project = true,
+        global = true,
+        category = CoreProperties.CATEGORY_GENERAL,
+        type = PropertyType.INTEGER)
+)
 public class ReferenceAnalysis implements BatchExtension {
 
+  public static final String PRELOADED_VIOLATIONS_PROPERTY = "sonar.violationTracking.preloadedViolations";
+  public static final int PRELOADED_VIOLATIONS_DEFAULT_VALUE = 100000;
+
+  private static final Logger LOG = LoggerFactory.getLogger(ReferenceAnalysis.class);
+
+  /**
+   * Maximum number of parameters of a "in" clause, see Oracle limitations.
+   */
+  private static final int MAX_IN_ELEMENTS = 1000;
+
   private DatabaseSession session;
+  private Project project;
+  private int maxPreloadedViolations;
+
+  // null until preloaded. Published last, once the preloaded violations are complete.
+  private volatile Map<String, Integer> snapshotIdsByKey;
+  // preloaded violations, removed once returned
+  private ConcurrentMap<Integer, List<RuleFailureModel>> violationsBySnapshotId;
+  // null until resolved
+  private volatile Integer lineHashesMetricId;
 
   public ReferenceAnalysis(DatabaseSession session) {
     this.session = session;
   }
 
+  public ReferenceAnalysis(DatabaseSession session, Project project, Settings settings) {
+    this(session);
+    this.project = project;
+    this.maxPreloadedViolations = settings.getInt(PRELOADED_VIOLATIONS_PROPERTY);
+  }
+
   public List<RuleFailureModel> getViolations(Resource resource) {
-    Snapshot snapshot = getSnapshot(resource);
-    if (snapshot != null) {
-      return session.getResults(RuleFailureModel.class, "snapshotId", snapshot.getId());
+    preload();
+    Integer snapshotId = getSnapshotId(resource);
+    if (snapshotId != null) {
+      List<RuleFailureModel> violations = violationsBySnapshotId != null ? violationsBySnapshotId.remove(snapshotId) : null;
+      if (violations != null) {
+        return violations;
+      }
+      // not preloaded, or already returned
+      return session.getResults(RuleFailureModel.class, "snapshotId", snapshotId);
     }
     return Collections.emptyList();
   }
 
-  public String getSource(Resource resource) {
-    Snapshot snapshot = getSnapshot(resource);
-    if (snapshot != null) {
-      SnapshotSource source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshot.getId());
-      if (source != null) {
-        return source.getData();
+  /**
+   * Hashes of lines are read from the measure {@link CoreMetrics#LINE_HASHES_DATA}. When the previous analysis
+   * did not save it, they are computed from the source. The measure is saved only for the files with violations.
+   *
+   * @return hashes of lines, or null if the resource does not exist in the previous analysis
+   * @see SourceChecksum#lineHashesOfFile(String)
+   */
+  public long[] getLineHashes(Resource resource) {
+    preload();
+    Integer snapshotId = getSnapshotId(resource);
+    if (snapshotId == null) {
+      return null;
+    }
+    Integer metricId = getLineHashesMetricId();
+    MeasureModel measure = metricId != null ? session.getSingleResult(MeasureModel.class, "snapshotId", snapshotId, "metricId", metricId) : null;
+    if (measure != null) {
+      String data = measure.getData(CoreMetrics.LINE_HASHES_DATA);
+      long[] hashes = data != null ? SourceChecksum.decodeLineHashes(data) : null;
+      if (hashes != null) {
+        return hashes;
       }
     }
-    return "";
+    SnapshotSource source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshotId);
+    return source != null ? SourceChecksum.lineHashesOfFile(source.getData()) : null;
+  }
+
+  private Integer getLineHashesMetricId() {
+    if (lineHashesMetricId == null) {
+      Metric metric = session.getSingleResult(Metric.class, "key", CoreMetrics.LINE_HASHES_DATA_KEY);
+      lineHashesMetricId = metric != null ? metric.getId() : null;
+    }
+    return lineHashesMetricId;
+  }
+
+  private Integer getSnapshotId(Resource resource) {
+    if (snapshotIdsByKey != null) {
+      return snapshotIdsByKey.get(resource.getEffectiveKey());
+    }
+    Snapshot snapshot = getSnapshot(resource);
+    return snapshot != null ? snapshot.getId() : null;
   }
 
   private Snapshot getSnapshot(Resource resource) {
@@ -66,4 +169,109 @@ public class ReferenceAnalysis implements BatchExtension {
     query.setParameter("last", Boolean.TRUE);
     return session.getSingleResult(query, null);
   }
+
+  private void preload() {
+    if (project == null || maxPreloadedViolations <= 0 || snapshotIdsByKey != null) {
+      return;
+    }
+    synchronized (this) {
+      if (snapshotIdsByKey == null) {
+        load();
+      }
+    }
+  }
+
+  /**
+   * Fields are assigned only when everything is loaded, so that a failure does not leave partially loaded data.
+   */
+  @SuppressWarnings("unchecked")
+  private void load() {
+    long start = System.currentTimeMillis();
+    Map<String, Integer> snapshotIds = Maps.newHashMap();
+    ConcurrentMap<Integer, List<RuleFailureModel>> violationsBySnapshot = new ConcurrentHashMap<Integer, List<RuleFailureModel>>();
+
+    Snapshot projectSnapshot = getSnapshot(project);
+    if (projectSnapshot == null) {
+      // first analysis : all the violations are new
+      violationsBySnapshotId = violationsBySnapshot;
+      snapshotIdsByKey = snapshotIds;
+      return;
+    }
+    snapshotIds.put(project.getEffectiveKey(), projectSnapshot.getId());
+    Integer rootId = projectSnapshot.getRootId() != null ? projectSnapshot.getRootId() : projectSnapshot.getId();
+    String path = StringUtils.defaultString(projectSnapshot.getPath()) + projectSnapshot.getId() + ".%";
+
+    Query query = session.createQuery("select s.id, r.key, s.path, s.scope from " + Snapshot.class.getSimpleName() + " s, "
+      + ResourceModel.class.getSimpleName() + " r where r.id=s.resourceId and s.last=:last and s.rootId=:rootId and s.path like :path");
+    setDescendantsParameters(query, rootId, path);
+    List<Object[]> rows = query.getResultList();
+    Set<String> subProjectSnapshotIds = Sets.newHashSet();
+    for (Object[] row : rows) {
+      if (Scopes.PROJECT.equals(row[3])) {
+        subProjectSnapshotIds.add(row[0].toString());
+      }
+    }
+    int pathPrefixLength = path.length() - 1;
+    for (Object[] row : rows) {
+      // resources of sub-projects are tracked by their own project
+      if (!isInSubProject((String) row[2], pathPrefixLength, subProjectSnapshotIds)) {
+        snapshotIds.put((String) row[1], (Integer) row[0]);
+      }
+    }
+    // resources without violations
+    for (Integer snapshotId : snapshotIds.values()) {
+      violationsBySnapshot.put(snapshotId, Collections.<RuleFailureModel> emptyList());
+    }
+
+    query = session.createQuery("select f.snapshotId, count(f.id) from " + RuleFailureModel.class.getSimpleName() + " f where f.snapshotId in (select s.id from "
+      + Snapshot.class.getSimpleName() + " s where s.last=:last and s.rootId=:rootId and s.path like :path) group by f.snapshotId");
+    setDescendantsParameters(query, rootId, path);
+    List<Integer> snapshotIdsWithViolations = Lists.newArrayList();
+    long violations = 0;
+    for (Object[] row : (List<Object[]>) query.getResultList()) {
+      Integer snapshotId = (Integer) row[0];
+      long count = ((Number) row[1]).longValue();
+      if (!violationsBySnapshot.containsKey(snapshotId)) {
+        continue;
+      }
+      if (violations + count <= maxPreloadedViolations) {
+        violations += count;
+        snapshotIdsWithViolations.add(snapshotId);
+        violationsBySnapshot.put(snapshotId, Lists.<RuleFailureModel> newArrayList());
+      } else {
+        // loaded on demand
+        violationsBySnapshot.remove(snapshotId);
+      }
+    }
+
+    for (List<Integer> ids : Lists.partition(snapshotIdsWithViolations, MAX_IN_ELEMENTS)) {
+      query = session.createQuery("from " + RuleFailureModel.class.getSimpleName() + " f where f.snapshotId in (:ids)");
+      query.setParameter("ids", ids);
+      for (RuleFailureModel violation : (List<RuleFailureModel>) query.getResultList()) {
+        violationsBySnapshot.get(violation.getSnapshotId()).add(violation);
+      }
+    }
+    violationsBySnapshotId = violationsBySnapshot;
+    snapshotIdsByKey = snapshotIds;
+    LOG.debug("{} violations of {} resources of the previous analysis preloaded in {} ms", new Object[] {violations, snapshotIds.size(),
+      System.currentTimeMillis() - start});
+  }
+
+  private static boolean isInSubProject(String path, int pathPrefixLength, Set<String> subProjectSnapshotIds) {
+    if (subProjectSnapshotIds.isEmpty()) {
+      return false;
+    }
+    for (String parentSnapshotId : StringUtils.split(path.substring(pathPrefixLength), '.')) {
+      if (subProjectSnapshotIds.contains(parentSnapshotId)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static void setDescendantsParameters(Query query, Integer rootId, String path) {
+    query.setParameter("last", Boolean.TRUE);
+    query.setParameter("rootId", rootId);
+    query.setParameter("path", path);
+  }
 }
@@ -20,6 +20,7 @@
 package org.sonar.plugins.core.timemachine;
 
 import com.google.common.collect.Lists;
+import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.StringUtils;
 
@@ -29,6 +30,9 @@ public final class SourceChecksum {
 
   private static final String SPACE_CHARS = "\t\n\r ";
 
+  private static final long FNV_64_OFFSET_BASIS = 0xcbf29ce484222325L;
+  private static final long FNV_64_PRIME = 0x100000001b3L;
+
   private SourceChecksum() {
     // only static methods
   }
@@ -60,4 +64,76 @@ public final class SourceChecksum {
     return DigestUtils.md5Hex(reducedLine);
   }
 
+  /**
+   * Computes 64-bit hashes (FNV-1a) of the lines of a file, ignoring whitespaces. Lines are terminated by "\n", "\r\n" or "\r",
+   * a terminator at the end of file does not start a new line.
+   * Unlike {@link #lineChecksumsOfFile(String)}, lines are not extracted, so no string is allocated.
+   */
+  public static long[] lineHashesOfFile(String file) {
+    if (file == null) {
+      return new long[0];
+    }
+    long[] result = new long[16];
+    int lines = 0;
+    int length = file.length();
+    int i = 0;
+    while (i < length) {
+      long hash = FNV_64_OFFSET_BASIS;
+      for (; i < length; i++) {
+        char c = file.charAt(i);
+        if (c == '\n' || c == '\r') {
+          i += (c == '\r' && i + 1 < length && file.charAt(i + 1) == '\n') ? 2 : 1;
+          break;
+        }
+        if (!Character.isWhitespace(c)) {
+          hash ^= c;
+          hash *= FNV_64_PRIME;
+        }
+      }
+      if (lines == result.length) {
+        long[] newResult = new long[lines * 2];
+        System.arraycopy(result, 0, newResult, 0, lines);
+        result = newResult;
+      }
+      result[lines++] = hash;
+    }
+    long[] hashes = new long[lines];
+    System.arraycopy(result, 0, hashes, 0, lines);
+    return hashes;
+  }
+
+  /**
+   * @return hashes packed in big-endian order and encoded in Base64, see {@link org.sonar.api.measures.CoreMetrics#LINE_HASHES_DATA}
+   */
+  public static String encodeLineHashes(long[] hashes) {
+    byte[] bytes = new byte[hashes.length * 8];
+    for (int i = 0; i < hashes.length; i++) {
+      long hash = hashes[i];
+      for (int j = 7; j >= 0; j--) {
+        bytes[i * 8 + j] = (byte) hash;
+        hash >>>= 8;
+      }
+    }
+    return org.apache.commons.codec.binary.StringUtils.newStringUsAscii(Base64.encodeBase64(bytes));
+  }
+
+  /**
+   * @return hashes encoded by {@link #encodeLineHashes(long[])}, or null if data is not valid
+   */
+  public static long[] decodeLineHashes(String data) {
+    byte[] bytes = Base64.decodeBase64(org.apache.commons.codec.binary.StringUtils.getBytesUsAscii(data));
+    if (bytes.length % 8 != 0) {
+      return null;
+    }
+    long[] hashes = new long[bytes.length / 8];
+    for (int i = 0; i < hashes.length; i++) {
+      long hash = 0;
+      for (int j = 0; j < 8; j++) {
+        hash = (hash << 8) | (bytes[i * 8 + j] & 0xff);
+      }
+      hashes[i] = hash;
+    }
+    return hashes;
+  }
+
 }
@@ -20,20 +20,25 @@
 package org.sonar.plugins.core.timemachine;
 
 import org.sonar.api.batch.*;
-import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.violations.ViolationQuery;
 import org.sonar.batch.index.ResourcePersister;
+import org.sonar.batch.index.ViolationPersister;
 import org.sonar.core.NotDryRun;
 
 import java.util.List;
 
+/**
+ * Violations are buffered by {@link ViolationPersister} and inserted by JDBC batches. The remaining ones are inserted
+ * when the project is decorated.
+ */
 @NotDryRun
 @DependsUpon({ DecoratorBarriers.END_OF_VIOLATION_TRACKING, DecoratorBarriers.START_VIOLATION_PERSISTENCE })
 @DependedUpon(DecoratorBarriers.END_OF_VIOLATION_PERSISTENCE)
@@ -42,13 +47,14 @@ public class ViolationPersisterDecorator implements Decorator {
   private ViolationTrackingDecorator tracker;
   private ResourcePersister persister;
   private RuleFinder ruleFinder;
-  private DatabaseSession session;
+  private ViolationPersister violationPersister;
 
-  public ViolationPersisterDecorator(ViolationTrackingDecorator tracker, ResourcePersister persister, RuleFinder ruleFinder, DatabaseSession session) {
+  public ViolationPersisterDecorator(ViolationTrackingDecorator tracker, ResourcePersister persister, RuleFinder ruleFinder,
+      ViolationPersister violationPersister) {
     this.tracker = tracker;
     this.persister = persister;
     this.ruleFinder = ruleFinder;
-    this.session = session;
+    this.violationPersister = violationPersister;
   }
 
   public boolean shouldExecuteOnProject(Project project) {
@@ -57,34 +63,40 @@ public class ViolationPersisterDecorator implements Decorator {
 
   public void decorate(Resource resource, DecoratorContext context) {
     saveViolations(context.getProject(), context.getViolations(ViolationQuery.create().forResource(resource).setSwitchMode(ViolationQuery.SwitchMode.BOTH)));
+    if (Scopes.isProject(resource)) {
+      // the project is the last decorated resource
+      violationPersister.flush();
+    }
   }
 
   void saveViolations(Project project, List<Violation> violations) {
+    Resource resource = null;
+    Snapshot snapshot = null;
     for (Violation violation : violations) {
+      if (snapshot == null || violation.getResource() != resource) {
+        resource = violation.getResource();
+        snapshot = persister.saveResource(project, resource);
+      }
       RuleFailureModel referenceViolation = tracker.getReferenceViolation(violation);
-      save(project, violation, referenceViolation);
+      save(snapshot, violation, referenceViolation);
     }
-    session.commit();
   }
 
   public void save(Project project, Violation violation, RuleFailureModel referenceViolation) {
-    Snapshot snapshot = persister.saveResource(project, violation.getResource());
+    save(persister.saveResource(project, violation.getResource()), violation, referenceViolation);
+  }
 
+  private void save(Snapshot snapshot, Violation violation, RuleFailureModel referenceViolation) {
     RuleFailureModel model = createModel(violation);
     if (referenceViolation != null) {
       model.setPermanentId(referenceViolation.getPermanentId());
     }
     model.setSnapshotId(snapshot.getId());
-    session.saveWithoutFlush(model);
-
-    if (model.getPermanentId() == null) {
-      model.setPermanentId(model.getId());
-      session.saveWithoutFlush(model);
-    }
+    // new violations get their id as permanent id when inserted
+    violationPersister.saveViolation(model);
     violation.setMessage(model.getMessage());// the message can be changed in the class RuleFailure (truncate + trim)
   }
 
-
   private RuleFailureModel createModel(Violation violation) {
     RuleFailureModel model = new RuleFailureModel();
     Rule rule = ruleFinder.findByKey(violation.getRule().getRepositoryKey(), violation.getRule().getKey());
@@ -19,25 +19,27 @@
  */
 package org.sonar.plugins.core.timemachine;
 
-import org.sonar.plugins.core.timemachine.tracking.HashedSequence;
-import org.sonar.plugins.core.timemachine.tracking.HashedSequenceComparator;
-import org.sonar.plugins.core.timemachine.tracking.StringText;
-import org.sonar.plugins.core.timemachine.tracking.StringTextComparator;
+import org.sonar.plugins.core.timemachine.tracking.LineHashSequence;
+import org.sonar.plugins.core.timemachine.tracking.LineHashSequenceComparator;
 
 public class ViolationTrackingBlocksRecognizer {
 
-  private final HashedSequence<StringText> a;
-  private final HashedSequence<StringText> b;
-  private final HashedSequenceComparator<StringText> cmp;
+  private final LineHashSequence a;
+  private final LineHashSequence b;
+  private final LineHashSequenceComparator cmp;
 
   public ViolationTrackingBlocksRecognizer(String referenceSource, String source) {
-    this(new StringText(referenceSource), new StringText(source), StringTextComparator.IGNORE_WHITESPACE);
+    this(SourceChecksum.lineHashesOfFile(referenceSource), SourceChecksum.lineHashesOfFile(source));
   }
 
-  private ViolationTrackingBlocksRecognizer(StringText a, StringText b, StringTextComparator cmp) {
-    this.a = HashedSequence.wrap(a, cmp);
-    this.b = HashedSequence.wrap(b, cmp);
-    this.cmp = new HashedSequenceComparator<StringText>(cmp);
+  /**
+   * @param referenceLineHashes hashes of lines of the reference source, see {@link SourceChecksum#lineHashesOfFile(String)}
+   * @param lineHashes hashes of lines of the source
+   */
+  public ViolationTrackingBlocksRecognizer(long[] referenceLineHashes, long[] lineHashes) {
+    this.a = new LineHashSequence(referenceLineHashes);
+    this.b = new LineHashSequence(lineHashes);
+    this.cmp = LineHashSequenceComparator.INSTANCE;
   }
 
   public boolean isValidLineInReference(int line) {
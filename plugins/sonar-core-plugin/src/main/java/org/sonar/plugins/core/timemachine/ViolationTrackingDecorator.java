@@ -25,8 +25,12 @@ import org.apache.commons.lang.ObjectUtils;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.*;
 import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.measures.PersistenceMode;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.violations.ViolationQuery;
 
@@ -36,7 +40,17 @@ import java.util.*;
 @DependedUpon(DecoratorBarriers.END_OF_VIOLATION_TRACKING)
 public class ViolationTrackingDecorator implements Decorator {
   private ReferenceAnalysis referenceAnalysis;
-  private Map<Violation, RuleFailureModel> referenceViolationsMap = Maps.newIdentityHashMap();
+
+  /**
+   * Reference violations of the resource being decorated by the current thread. Decorators can be executed
+   * in parallel, but all the decorators of a resource are executed by the same thread.
+   */
+  private final ThreadLocal<Map<Violation, RuleFailureModel>> referenceViolationsOfResource = new ThreadLocal<Map<Violation, RuleFailureModel>>() {
+    @Override
+    protected Map<Violation, RuleFailureModel> initialValue() {
+      return Maps.newIdentityHashMap();
+    }
+  };
   private SonarIndex index;
   private Project project;
 
@@ -51,14 +65,24 @@ public class ViolationTrackingDecorator implements Decorator {
   }
 
   public void decorate(Resource resource, DecoratorContext context) {
-    referenceViolationsMap.clear();
+    referenceViolationsOfResource.get().clear();
 
     ViolationQuery violationQuery = ViolationQuery.create().forResource(resource).setSwitchMode(ViolationQuery.SwitchMode.BOTH);
     if (context.getViolations(violationQuery).isEmpty()) {
       return;
     }
 
-    String source = index.getSource(resource);
+    String source = null;
+    long[] lineHashes = null;
+    if (Scopes.isFile(resource)) {
+      source = index.getSource(resource);
+      if (source != null) {
+        // saved for the tracking of the next analysis, which reads them only for the files which had violations
+        lineHashes = SourceChecksum.lineHashesOfFile(source);
+        context.saveMeasure(new Measure(CoreMetrics.LINE_HASHES_DATA, SourceChecksum.encodeLineHashes(lineHashes))
+            .setPersistenceMode(PersistenceMode.DATABASE));
+      }
+    }
 
     // Load new violations
     List<Violation> newViolations = prepareNewViolations(context, source);
@@ -67,7 +91,7 @@ public class ViolationTrackingDecorator implements Decorator {
     List<RuleFailureModel> referenceViolations = referenceAnalysis.getViolations(resource);
 
     // Map new violations with old ones
-    mapViolations(newViolations, referenceViolations, source, resource);
+    mapViolations(newViolations, referenceViolations, lineHashes, resource);
   }
 
   private List<Violation> prepareNewViolations(DecoratorContext context, String source) {
@@ -81,7 +105,7 @@ public class ViolationTrackingDecorator implements Decorator {
   }
 
   public RuleFailureModel getReferenceViolation(Violation violation) {
-    return referenceViolationsMap.get(violation);
+    return referenceViolationsOfResource.get().get(violation);
   }
 
   @VisibleForTesting
@@ -90,7 +114,8 @@ public class ViolationTrackingDecorator implements Decorator {
   }
 
   @VisibleForTesting
-  Map<Violation, RuleFailureModel> mapViolations(List<Violation> newViolations, List<RuleFailureModel> pastViolations, String source, Resource resource) {
+  Map<Violation, RuleFailureModel> mapViolations(List<Violation> newViolations, List<RuleFailureModel> pastViolations, long[] lineHashes, Resource resource) {
+    Map<Violation, RuleFailureModel> referenceViolationsMap = referenceViolationsOfResource.get();
     Multimap<Integer, RuleFailureModel> pastViolationsByRule = LinkedHashMultimap.create();
     for (RuleFailureModel pastViolation : pastViolations) {
       pastViolationsByRule.put(pastViolation.getRuleId(), pastViolation);
@@ -117,10 +142,10 @@ public class ViolationTrackingDecorator implements Decorator {
 
       // SONAR-3072
       ViolationTrackingBlocksRecognizer rec = null;
-      if (source != null && resource != null) {
-        String referenceSource = referenceAnalysis.getSource(resource);
-        if (referenceSource != null) {
-          rec = new ViolationTrackingBlocksRecognizer(referenceSource, source);
+      if (lineHashes != null && resource != null && !pastViolations.isEmpty()) {
+        long[] referenceLineHashes = referenceAnalysis.getLineHashes(resource);
+        if (referenceLineHashes != null) {
+          rec = new ViolationTrackingBlocksRecognizer(referenceLineHashes, lineHashes);
 
           List<ViolationPair> possiblePairs = Lists.newArrayList();
           for (Violation newViolation : newViolations) {
@@ -0,0 +1,41 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.core.timemachine.tracking;
+
+/**
+ * Lines are considered as equal when their hashes are equal.
+ */
+public final class LineHashSequenceComparator implements SequenceComparator<LineHashSequence> {
+
+  public static final LineHashSequenceComparator INSTANCE = new LineHashSequenceComparator();
+
+  private LineHashSequenceComparator() {
+  }
+
+  public boolean equals(LineHashSequence a, int ai, LineHashSequence b, int bi) {
+    return a.hashes[ai] == b.hashes[bi];
+  }
+
+  public int hash(LineHashSequence seq, int i) {
+    long hash = seq.hashes[i];
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+}
@@ -20,11 +20,14 @@
 package org.sonar.plugins.core.timemachine;
 
 import org.junit.Test;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 
 public class ReferenceAnalysisTest extends AbstractDbUnitTestCase {
@@ -39,11 +42,87 @@ public class ReferenceAnalysisTest extends AbstractDbUnitTestCase {
 
     resource.setEffectiveKey("project:org.foo.Bar");
     assertThat(referenceAnalysis.getViolations(resource).size(), is(1));
-    assertThat(referenceAnalysis.getSource(resource), is("this is the file content"));
 
     resource.setEffectiveKey("project:no-such-resource");
     assertThat(referenceAnalysis.getViolations(resource).size(), is(0));
-    assertThat(referenceAnalysis.getSource(resource), is(""));
   }
 
+  @Test
+  public void shouldPreloadViolationsOfProject() {
+    setupData("preload");
+
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession(), new Project("project"), preloadedViolations(10));
+
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Bar")).size(), is(1));
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Baz")).size(), is(2));
+    // preloaded violations are released once returned, then loaded on demand
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Baz")).size(), is(2));
+    assertThat(referenceAnalysis.getViolations(newFile("project:no-such-resource")).size(), is(0));
+
+    // tracked by the module
+    assertThat(referenceAnalysis.getViolations(newFile("project:module:org.foo.Qux")).size(), is(0));
+  }
+
+  @Test
+  public void shouldPreloadViolationsOfModule() {
+    setupData("preload");
+
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession(), new Project("project:module"), preloadedViolations(10));
+
+    assertThat(referenceAnalysis.getViolations(newFile("project:module:org.foo.Qux")).size(), is(1));
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Bar")).size(), is(0));
+  }
+
+  @Test
+  public void shouldLoadViolationsOnDemandBeyondLimit() {
+    setupData("preload");
+
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession(), new Project("project"), preloadedViolations(1));
+
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Bar")).size(), is(1));
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Baz")).size(), is(2));
+  }
+
+  @Test
+  public void shouldNotPreloadViolationsWhenDisabled() {
+    setupData("preload");
+
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession(), new Project("project"), preloadedViolations(0));
+
+    assertThat(referenceAnalysis.getViolations(newFile("project:org.foo.Baz")).size(), is(2));
+    assertThat(referenceAnalysis.getViolations(newFile("project:module:org.foo.Qux")).size(), is(1));
+  }
+
+  @Test
+  public void shouldNotFailOnFirstAnalysis() {
+    setupData("preload");
+
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession(), new Project("new-project"), preloadedViolations(10));
+
+    assertThat(referenceAnalysis.getViolations(newFile("new-project:org.foo.Bar")).size(), is(0));
+  }
+
+  @Test
+  public void shouldGetLineHashes() {
+    setupData("lineHashes");
+
+    ReferenceAnalysis referenceAnalysis = new ReferenceAnalysis(getSession());
+    long[] expected = SourceChecksum.lineHashesOfFile("first line\nsecond line");
+
+    // saved by the previous analysis
+    assertThat(referenceAnalysis.getLineHashes(newFile("project:org.foo.Bar")), is(expected));
+    // previous analysis did not save hashes
+    assertThat(referenceAnalysis.getLineHashes(newFile("project:org.foo.Baz")), is(expected));
+    assertThat(referenceAnalysis.getLineHashes(newFile("project:no-such-resource")), nullValue());
+  }
+
+  private static Settings preloadedViolations(int max) {
+    return new Settings().setProperty(ReferenceAnalysis.PRELOADED_VIOLATIONS_PROPERTY, max);
+  }
+
+  private static Resource newFile(String effectiveKey) {
+    Resource resource = new JavaFile("");
+    resource.setEffectiveKey(effectiveKey);
+    return resource;
+  }
 }
@@ -59,4 +59,33 @@ public class SourceChecksumTest {
     assertThat(SourceChecksum.lineChecksum("\tvoid  method()  {\n"),
         equalTo(SourceChecksum.lineChecksum("  void method() {")));
   }
+
+  @Test
+  public void shouldComputeLineHashes() {
+    assertThat(SourceChecksum.lineHashesOfFile(null).length, is(0));
+    assertThat(SourceChecksum.lineHashesOfFile("").length, is(0));
+    assertThat(SourceChecksum.lineHashesOfFile("Hello\n").length, is(1));
+
+    long[] crlf = SourceChecksum.lineHashesOfFile("Hello\r\n\r\nWorld");
+    assertThat(crlf.length, is(3));
+    assertThat(crlf[0], not(equalTo(crlf[2])));
+    assertThat(SourceChecksum.lineHashesOfFile("Hello\n\nWorld"), is(crlf));
+    assertThat(SourceChecksum.lineHashesOfFile("Hello\r\rWorld"), is(crlf));
+
+    assertThat(SourceChecksum.lineHashesOfFile("\tvoid  method()  {\n"),
+        is(SourceChecksum.lineHashesOfFile("  void method() {")));
+  }
+
+  @Test
+  public void shouldEncodeLineHashes() {
+    long[] hashes = SourceChecksum.lineHashesOfFile("first line\nsecond line");
+    String data = SourceChecksum.encodeLineHashes(hashes);
+    assertThat(data, is("jmutJ/Pe3nuqWYXlM8o8rw=="));
+    assertThat(SourceChecksum.decodeLineHashes(data), is(hashes));
+
+    assertThat(SourceChecksum.decodeLineHashes(SourceChecksum.encodeLineHashes(new long[] {Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE})),
+        is(new long[] {Long.MIN_VALUE, -1L, 0L, Long.MAX_VALUE}));
+    assertThat(SourceChecksum.decodeLineHashes("").length, is(0));
+    assertThat(SourceChecksum.decodeLineHashes("AAAA"), nullValue());
+  }
 }
@@ -21,6 +21,8 @@ package org.sonar.plugins.core.timemachine;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.resources.JavaFile;
@@ -29,15 +31,25 @@ import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.utils.DateUtils;
+import org.sonar.api.violations.ViolationQuery;
 import org.sonar.batch.index.ResourcePersister;
+import org.sonar.batch.index.ViolationPersister;
 import org.sonar.core.rule.DefaultRuleFinder;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ViolationPersisterDecoratorTest extends AbstractDbUnitTestCase {
@@ -48,16 +60,19 @@ public class ViolationPersisterDecoratorTest extends AbstractDbUnitTestCase {
   private JavaFile javaFile = new JavaFile("org.foo.Bar");
   Project project = new Project("project");
   private ViolationTrackingDecorator tracker;
+  private ResourcePersister resourcePersister;
+  private ViolationPersister violationPersister;
 
   @Before
   public void before() {
     setupData("shared");
     Snapshot snapshot = getSession().getSingleResult(Snapshot.class, "id", 1000);
-    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    resourcePersister = mock(ResourcePersister.class);
     when(resourcePersister.saveResource(any(Project.class), eq(javaFile))).thenReturn(snapshot);
     when(resourcePersister.getSnapshot(javaFile)).thenReturn(snapshot);
     tracker = mock(ViolationTrackingDecorator.class);
-    decorator = new ViolationPersisterDecorator(tracker, resourcePersister, new DefaultRuleFinder(getSessionFactory()), getSession());
+    violationPersister = mock(ViolationPersister.class);
+    decorator = new ViolationPersisterDecorator(tracker, resourcePersister, new DefaultRuleFinder(getSessionFactory()), violationPersister);
   }
 
   @Test
@@ -72,7 +87,24 @@ public class ViolationPersisterDecoratorTest extends AbstractDbUnitTestCase {
 
     decorator.saveViolations(project, Arrays.asList(violation1a, violation1b, violation2));
 
-    checkTables("shouldSaveViolations", "rule_failures");
+    List<RuleFailureModel> models = savedViolations(3);
+    assertThat(models.get(0).getSnapshotId(), is(1000));
+    assertThat(models.get(0).getRuleId(), is(30));
+    assertThat(models.get(0).getPriority(), is(RulePriority.CRITICAL));
+    assertThat(models.get(0).getLine(), is(20));
+    assertThat(models.get(0).getCost(), is(55.6));
+    assertThat(models.get(0).getMessage(), is("the message"));
+    assertThat(models.get(0).getChecksum(), is("checksum"));
+    assertThat(models.get(0).getCreatedAt(), is(DateUtils.parseDate("2010-12-25")));
+    assertThat(models.get(0).getPermanentId(), nullValue());
+    assertThat(models.get(1).getLine(), is(50));
+    assertThat(models.get(2).getRuleId(), is(31));
+    assertThat(models.get(2).getPriority(), is(RulePriority.MINOR));
+    assertThat(models.get(2).isSwitchedOff(), is(true));
+
+    // the snapshot is loaded once per resource
+    verify(resourcePersister, times(1)).saveResource(project, javaFile);
+    verify(violationPersister, never()).flush();
   }
 
   @Test
@@ -83,6 +115,28 @@ public class ViolationPersisterDecoratorTest extends AbstractDbUnitTestCase {
 
     decorator.saveViolations(project, Arrays.asList(violation));
 
-    checkTables("shouldCopyPermanentIdFromReferenceViolation", "rule_failures");
+    RuleFailureModel model = savedViolations(1).get(0);
+    assertThat(model.getPermanentId(), is(1));
+    assertThat(model.getPriority(), is(RulePriority.MAJOR));
+    assertThat(model.getMessage(), is("new message"));
+  }
+
+  @Test
+  public void shouldFlushViolationsWhenDecoratingProject() {
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getProject()).thenReturn(project);
+    when(context.getViolations(any(ViolationQuery.class))).thenReturn(Collections.<Violation>emptyList());
+
+    decorator.decorate(javaFile, context);
+    verify(violationPersister, never()).flush();
+
+    decorator.decorate(project, context);
+    verify(violationPersister).flush();
+  }
+
+  private List<RuleFailureModel> savedViolations(int count) {
+    ArgumentCaptor<RuleFailureModel> captor = ArgumentCaptor.forClass(RuleFailureModel.class);
+    verify(violationPersister, times(count)).saveViolation(captor.capture());
+    return captor.getAllValues();
   }
 }
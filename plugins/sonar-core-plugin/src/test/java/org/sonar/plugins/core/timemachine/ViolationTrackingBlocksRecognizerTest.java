@@ -34,6 +34,17 @@ public class ViolationTrackingBlocksRecognizerTest {
     assertThat(compute(t("bcde"), t("abcde"), 2, 3), is(4));
   }
 
+  @Test
+  public void shouldComputeFromLineHashes() {
+    long[] a = SourceChecksum.lineHashesOfFile(t("abcde"));
+    long[] b = SourceChecksum.lineHashesOfFile(t("xbcdy"));
+    ViolationTrackingBlocksRecognizer rec = new ViolationTrackingBlocksRecognizer(a, b);
+    assertThat(rec.isValidLineInReference(4), is(true));
+    assertThat(rec.isValidLineInReference(5), is(false));
+    assertThat(rec.computeLengthOfMaximalBlock(2, 2), is(3));
+    assertThat(rec.computeLengthOfMaximalBlock(0, 0), is(0));
+  }
+
   private static int compute(String a, String b, int ai, int bi) {
     ViolationTrackingBlocksRecognizer rec = new ViolationTrackingBlocksRecognizer(a, b);
     return rec.computeLengthOfMaximalBlock(ai, bi);
@@ -22,11 +22,20 @@ package org.sonar.plugins.core.timemachine;
 import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.api.batch.DecoratorContext;
+import org.sonar.api.batch.SonarIndex;
 import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.api.measures.CoreMetrics;
+import org.sonar.api.measures.Measure;
+import org.sonar.api.resources.JavaFile;
+import org.sonar.api.resources.JavaPackage;
 import org.sonar.api.resources.Project;
+import org.sonar.api.resources.Resource;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.Violation;
 import org.sonar.api.utils.DateUtils;
+import org.sonar.api.violations.ViolationQuery;
 
 import java.util.Collections;
 import java.util.Date;
@@ -36,17 +45,21 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ViolationTrackingDecoratorTest {
 
   private ViolationTrackingDecorator decorator;
+  private Project project;
   private final Date analysisDate = DateUtils.parseDate("2010-12-25");
 
   @Before
   public void setUp() {
-    Project project = mock(Project.class);
+    project = mock(Project.class);
     when(project.getAnalysisDate()).thenReturn(analysisDate);
     decorator = new ViolationTrackingDecorator(project, null, null);
   }
@@ -204,6 +217,47 @@ public class ViolationTrackingDecoratorTest {
     assertThat(newViolation.isNew(), is(false));
   }
 
+  @Test
+  public void shouldSaveLineHashesOfFile() {
+    JavaFile file = new JavaFile("org.foo.Bar");
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getSource(file)).thenReturn("first line\nsecond line");
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getViolations(any(ViolationQuery.class))).thenReturn(Lists.newArrayList(newViolation("message", 1, 50)));
+
+    new ViolationTrackingDecorator(project, mock(ReferenceAnalysis.class), index).decorate(file, context);
+
+    ArgumentCaptor<Measure> measure = ArgumentCaptor.forClass(Measure.class);
+    verify(context).saveMeasure(measure.capture());
+    assertThat(measure.getValue().getMetric(), is(CoreMetrics.LINE_HASHES_DATA));
+    assertThat(measure.getValue().getData(), is(SourceChecksum.encodeLineHashes(SourceChecksum.lineHashesOfFile("first line\nsecond line"))));
+  }
+
+  @Test
+  public void shouldNotSaveLineHashesOfFileWithoutViolations() {
+    JavaFile file = new JavaFile("org.foo.Bar");
+    SonarIndex index = mock(SonarIndex.class);
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getViolations(any(ViolationQuery.class))).thenReturn(Collections.<Violation> emptyList());
+
+    new ViolationTrackingDecorator(project, mock(ReferenceAnalysis.class), index).decorate(file, context);
+
+    verify(index, never()).getSource(any(Resource.class));
+    verify(context, never()).saveMeasure(any(Measure.class));
+  }
+
+  @Test
+  public void shouldNotLoadSourceOfDirectory() {
+    SonarIndex index = mock(SonarIndex.class);
+    DecoratorContext context = mock(DecoratorContext.class);
+    when(context.getViolations(any(ViolationQuery.class))).thenReturn(Collections.<Violation> emptyList());
+
+    new ViolationTrackingDecorator(project, mock(ReferenceAnalysis.class), index).decorate(new JavaPackage("org.foo"), context);
+
+    verify(index, never()).getSource(any(Resource.class));
+    verify(context, never()).saveMeasure(any(Measure.class));
+  }
+
   private Violation newViolation(String message, Integer lineId, int ruleId) {
     Rule rule = Rule.create().setKey("rule");
     rule.setId(ruleId);
@@ -59,8 +59,8 @@ public class ViolationTrackingTest {
 
   @Test
   public void pastViolationNotAssiciatedWithLineShouldNotCauseNPE() throws Exception {
-    when(referenceAnalysis.getSource(project)).thenReturn(load("example2-v1"));
-    String source = load("example2-v2");
+    when(referenceAnalysis.getLineHashes(project)).thenReturn(lineHashes("example2-v1"));
+    long[] lineHashes = lineHashes("example2-v2");
 
     RuleFailureModel referenceViolation1 = newReferenceViolation("2 branches need to be covered", null, 50);
 
@@ -70,7 +70,7 @@ public class ViolationTrackingTest {
     Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(
         Arrays.asList(newViolation1),
         Arrays.asList(referenceViolation1),
-        source, project);
+        lineHashes, project);
 
     assertThat(mapping.isEmpty(), is(true));
     assertThat(newViolation1.isNew(), is(true));
@@ -78,8 +78,8 @@ public class ViolationTrackingTest {
 
   @Test
   public void newViolationNotAssiciatedWithLineShouldNotCauseNPE() throws Exception {
-    when(referenceAnalysis.getSource(project)).thenReturn(load("example2-v1"));
-    String source = load("example2-v2");
+    when(referenceAnalysis.getLineHashes(project)).thenReturn(lineHashes("example2-v1"));
+    long[] lineHashes = lineHashes("example2-v2");
 
     RuleFailureModel referenceViolation1 = newReferenceViolation("Indentation", 7, 50);
 
@@ -89,7 +89,7 @@ public class ViolationTrackingTest {
     Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(
         Arrays.asList(newViolation1),
         Arrays.asList(referenceViolation1),
-        source, project);
+        lineHashes, project);
 
     assertThat(mapping.isEmpty(), is(true));
     assertThat(newViolation1.isNew(), is(true));
@@ -100,8 +100,8 @@ public class ViolationTrackingTest {
    */
   @Test
   public void violationNotAssociatedWithLine() throws Exception {
-    when(referenceAnalysis.getSource(project)).thenReturn(load("example2-v1"));
-    String source = load("example2-v2");
+    when(referenceAnalysis.getLineHashes(project)).thenReturn(lineHashes("example2-v1"));
+    long[] lineHashes = lineHashes("example2-v2");
 
     RuleFailureModel referenceViolation1 = newReferenceViolation("2 branches need to be covered", null, 50);
 
@@ -110,7 +110,7 @@ public class ViolationTrackingTest {
     Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(
         Arrays.asList(newViolation1),
         Arrays.asList(referenceViolation1),
-        source, project);
+        lineHashes, project);
 
     assertThat(newViolation1.isNew(), is(false));
     assertThat(mapping.get(newViolation1), equalTo(referenceViolation1));
@@ -121,8 +121,8 @@ public class ViolationTrackingTest {
    */
   @Test
   public void example1() throws Exception {
-    when(referenceAnalysis.getSource(project)).thenReturn(load("example1-v1"));
-    String source = load("example1-v2");
+    when(referenceAnalysis.getLineHashes(project)).thenReturn(lineHashes("example1-v1"));
+    long[] lineHashes = lineHashes("example1-v2");
 
     RuleFailureModel referenceViolation1 = newReferenceViolation("Indentation", 7, 50);
     RuleFailureModel referenceViolation2 = newReferenceViolation("Indentation", 11, 50);
@@ -135,7 +135,7 @@ public class ViolationTrackingTest {
     Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(
         Arrays.asList(newViolation1, newViolation2, newViolation3, newViolation4),
         Arrays.asList(referenceViolation1, referenceViolation2),
-        source, project);
+        lineHashes, project);
 
     assertThat(newViolation1.isNew(), is(true));
     assertThat(newViolation2.isNew(), is(true));
@@ -150,8 +150,8 @@ public class ViolationTrackingTest {
    */
   @Test
   public void example2() throws Exception {
-    when(referenceAnalysis.getSource(project)).thenReturn(load("example2-v1"));
-    String source = load("example2-v2");
+    when(referenceAnalysis.getLineHashes(project)).thenReturn(lineHashes("example2-v1"));
+    long[] lineHashes = lineHashes("example2-v2");
 
     RuleFailureModel referenceViolation1 = newReferenceViolation("SystemPrintln", 5, 50);
 
@@ -162,7 +162,7 @@ public class ViolationTrackingTest {
     Map<Violation, RuleFailureModel> mapping = decorator.mapViolations(
         Arrays.asList(newViolation1, newViolation2, newViolation3),
         Arrays.asList(referenceViolation1),
-        source, project);
+        lineHashes, project);
 
     assertThat(newViolation1.isNew(), is(true));
     assertThat(newViolation2.isNew(), is(false));
@@ -187,6 +187,10 @@ public class ViolationTrackingTest {
 
   private int violationId = 0;
 
+  private static long[] lineHashes(String name) throws IOException {
+    return SourceChecksum.lineHashesOfFile(load(name));
+  }
+
   private static String load(String name) throws IOException {
     return Resources.toString(ViolationTrackingTest.class.getResource("ViolationTrackingTest/" + name + ".txt"), Charsets.UTF_8);
   }
@@ -23,6 +23,7 @@ import com.google.common.collect.ImmutableList;
 import org.sonar.api.*;
 import org.sonar.plugins.cpd.decorators.DuplicationDensityDecorator;
 import org.sonar.plugins.cpd.decorators.SumDuplicationsDecorator;
+import org.sonar.plugins.cpd.index.CrossProjectUnits;
 import org.sonar.plugins.cpd.index.IndexFactory;
 
 import java.util.List;
@@ -37,7 +38,28 @@ import java.util.List;
     module = true,
     global = true,
     category = CoreProperties.CATEGORY_DUPLICATIONS,
-    type = PropertyType.BOOLEAN)
+    type = PropertyType.BOOLEAN),
+  @Property(
+    key = IndexFactory.MAX_PRELOADED_UNITS_PROPERTY,
+    defaultValue = IndexFactory.MAX_PRELOADED_UNITS_DEFAULT + "",
+    name = "Maximum number of preloaded units for cross project duplication detection",
+    description = "Units of other projects are loaded at once and shared by all the modules of the analysis, unless there are more than this number. "
+      + "In this case, or when 0, they are loaded file by file.",
+    project = true,
+    module = false,
+    global = true,
+    category = CoreProperties.CATEGORY_DUPLICATIONS,
+    type = PropertyType.INTEGER),
+  @Property(
+    key = SonarEngine.THREADS_PROPERTY,
+    defaultValue = "1",
+    name = "Threads of duplication detection",
+    description = "Number of threads used to index files and to detect duplications.",
+    project = true,
+    module = true,
+    global = true,
+    category = CoreProperties.CATEGORY_DUPLICATIONS,
+    type = PropertyType.INTEGER)
 })
 public final class CpdPlugin extends SonarPlugin {
 
@@ -47,6 +69,7 @@ public final class CpdPlugin extends SonarPlugin {
       SumDuplicationsDecorator.class,
       DuplicationDensityDecorator.class,
       IndexFactory.class,
+      CrossProjectUnits.class,
       SonarEngine.class,
       SonarBridgeEngine.class);
   }
@@ -20,10 +20,12 @@
 package org.sonar.plugins.cpd;
 
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.ResourceModel;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
@@ -34,7 +36,6 @@ import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.BlockChunker;
 import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
 import org.sonar.duplications.index.CloneGroup;
-import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.ClonePart;
 import org.sonar.duplications.java.JavaStatementBuilder;
 import org.sonar.duplications.java.JavaTokenProducer;
@@ -50,8 +51,10 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.*;
@@ -67,12 +70,23 @@ public class SonarEngine extends CpdEngine {
    */
   private static final int TIMEOUT = 5 * 60;
 
+  /**
+   * Number of threads used to build the index and to detect duplications.
+   */
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+
   private final IndexFactory indexFactory;
+  private int threads = 1;
 
   public SonarEngine(IndexFactory indexFactory) {
     this.indexFactory = indexFactory;
   }
 
+  public SonarEngine(IndexFactory indexFactory, Settings settings) {
+    this(indexFactory);
+    this.threads = Math.max(1, settings.getInt(THREADS_PROPERTY));
+  }
+
   @Override
   public boolean isLanguageSupported(Language language) {
     return Java.INSTANCE.equals(language);
@@ -92,80 +106,159 @@ public class SonarEngine extends CpdEngine {
     if (inputFiles.isEmpty()) {
       return;
     }
-    SonarDuplicationsIndex index = createIndex(project, inputFiles);
-    detect(index, context, project, inputFiles);
+    ExecutorService executorService = Executors.newFixedThreadPool(threads);
+    try {
+      SonarDuplicationsIndex index = createIndex(project, inputFiles, executorService);
+      detect(index, context, project, inputFiles, executorService);
+    } finally {
+      executorService.shutdownNow();
+    }
   }
 
-  private SonarDuplicationsIndex createIndex(Project project, List<InputFile> inputFiles) {
+  /**
+   * Files are tokenized and chunked concurrently, then blocks are inserted in the index in the order of files.
+   */
+  private SonarDuplicationsIndex createIndex(Project project, List<InputFile> inputFiles, ExecutorService executorService) {
     final SonarDuplicationsIndex index = indexFactory.create(project);
+    // chunkers are not thread-safe
+    ThreadLocal<Chunkers> chunkers = new ThreadLocal<Chunkers>() {
+      @Override
+      protected Chunkers initialValue() {
+        return new Chunkers();
+      }
+    };
 
-    TokenChunker tokenChunker = JavaTokenProducer.build();
-    StatementChunker statementChunker = JavaStatementBuilder.build();
-    BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
-
+    LinkedList<ChunkTask> window = Lists.newLinkedList();
     for (InputFile inputFile : inputFiles) {
-      LOG.debug("Populating index from {}", inputFile.getFile());
       Resource resource = getResource(inputFile);
-      String resourceKey = getFullKey(project, resource);
+      ChunkTask task = new ChunkTask(inputFile, getFullKey(project, resource), project.getFileSystem().getSourceCharset(), chunkers);
+      task.resource = resource;
+      task.future = executorService.submit(task);
+      window.add(task);
+      if (window.size() >= 2 * threads) {
+        insert(index, window.removeFirst());
+      }
+    }
+    while (!window.isEmpty()) {
+      insert(index, window.removeFirst());
+    }
 
+    return index;
+  }
+
+  private static void insert(SonarDuplicationsIndex index, ChunkTask task) {
+    try {
+      index.insert(task.resource, task.future.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException(e);
+    } catch (ExecutionException e) {
+      throw new SonarException(e);
+    }
+  }
+
+  private static final class Chunkers {
+    private final TokenChunker tokenChunker = JavaTokenProducer.build();
+    private final StatementChunker statementChunker = JavaStatementBuilder.build();
+    private final BlockChunker blockChunker = new BlockChunker(BLOCK_SIZE);
+  }
+
+  static class ChunkTask implements Callable<List<Block>> {
+    private final InputFile inputFile;
+    private final String resourceKey;
+    private final Charset charset;
+    private final ThreadLocal<Chunkers> chunkers;
+    private Resource resource;
+    private Future<List<Block>> future;
+
+    ChunkTask(InputFile inputFile, String resourceKey, Charset charset, ThreadLocal<Chunkers> chunkers) {
+      this.inputFile = inputFile;
+      this.resourceKey = resourceKey;
+      this.charset = charset;
+      this.chunkers = chunkers;
+    }
+
+    public List<Block> call() {
+      LOG.debug("Populating index from {}", inputFile.getFile());
+      Chunkers threadChunkers = chunkers.get();
       List<Statement> statements;
 
       Reader reader = null;
       try {
-        reader = new InputStreamReader(new FileInputStream(inputFile.getFile()), project.getFileSystem().getSourceCharset());
-        statements = statementChunker.chunk(tokenChunker.chunk(reader));
+        reader = new InputStreamReader(new FileInputStream(inputFile.getFile()), charset);
+        statements = threadChunkers.statementChunker.chunk(threadChunkers.tokenChunker.chunk(reader));
       } catch (FileNotFoundException e) {
         throw new SonarException(e);
       } finally {
         IOUtils.closeQuietly(reader);
       }
 
-      List<Block> blocks = blockChunker.chunk(resourceKey, statements);
-      index.insert(resource, blocks);
+      return threadChunkers.blockChunker.chunk(resourceKey, statements);
     }
+  }
 
-    return index;
+  /**
+   * When the index supports concurrent queries, duplications of several files are detected at the same time. Results
+   * are saved in the order of files. The timeout is applied to each file, from the start of its detection.
+   */
+  private void detect(SonarDuplicationsIndex index, SensorContext context, Project project, List<InputFile> inputFiles, ExecutorService executorService) {
+    int windowSize = index.isThreadSafe() ? threads : 1;
+    LinkedList<Task> window = Lists.newLinkedList();
+    for (InputFile inputFile : inputFiles) {
+      Resource resource = getResource(inputFile);
+      Task task = new Task(index, inputFile, resource, getFullKey(project, resource));
+      task.future = executorService.submit(task);
+      window.add(task);
+      if (window.size() >= windowSize) {
+        Task done = window.removeFirst();
+        save(context, done.resource, waitFor(done));
+      }
+    }
+    while (!window.isEmpty()) {
+      Task done = window.removeFirst();
+      save(context, done.resource, waitFor(done));
+    }
   }
 
-  private void detect(SonarDuplicationsIndex index, SensorContext context, Project project, List<InputFile> inputFiles) {
-    ExecutorService executorService = Executors.newSingleThreadExecutor();
+  private static List<CloneGroup> waitFor(Task task) {
     try {
-      for (InputFile inputFile : inputFiles) {
-        LOG.debug("Detection of duplications for {}", inputFile.getFile());
-        Resource resource = getResource(inputFile);
-        String resourceKey = getFullKey(project, resource);
-
-        Collection<Block> fileBlocks = index.getByResource(resource, resourceKey);
-
-        List<CloneGroup> clones;
-        try {
-          clones = executorService.submit(new Task(index, fileBlocks)).get(TIMEOUT, TimeUnit.SECONDS);
-        } catch (TimeoutException e) {
-          clones = null;
-          LOG.warn("Timeout during detection of duplications for " + inputFile.getFile(), e);
-        } catch (InterruptedException e) {
-          throw new SonarException(e);
-        } catch (ExecutionException e) {
-          throw new SonarException(e);
-        }
-
-        save(context, resource, clones);
+      long startNanos = task.startNanos;
+      long timeout = TimeUnit.SECONDS.toNanos(TIMEOUT);
+      if (startNanos != 0L) {
+        timeout = Math.max(0L, startNanos + timeout - System.nanoTime());
       }
-    } finally {
-      executorService.shutdown();
+      return task.future.get(timeout, TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      task.future.cancel(true);
+      LOG.warn("Timeout during detection of duplications for " + task.inputFile.getFile(), e);
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException(e);
+    } catch (ExecutionException e) {
+      throw new SonarException(e);
     }
   }
 
   static class Task implements Callable<List<CloneGroup>> {
-    private final CloneIndex index;
-    private final Collection<Block> fileBlocks;
+    private final SonarDuplicationsIndex index;
+    private final InputFile inputFile;
+    private final Resource resource;
+    private final String resourceKey;
+    private volatile long startNanos = 0L;
+    private Future<List<CloneGroup>> future;
 
-    public Task(CloneIndex index, Collection<Block> fileBlocks) {
+    public Task(SonarDuplicationsIndex index, InputFile inputFile, Resource resource, String resourceKey) {
       this.index = index;
-      this.fileBlocks = fileBlocks;
+      this.inputFile = inputFile;
+      this.resource = resource;
+      this.resourceKey = resourceKey;
     }
 
     public List<CloneGroup> call() {
+      startNanos = System.nanoTime();
+      LOG.debug("Detection of duplications for {}", inputFile.getFile());
+      Collection<Block> fileBlocks = index.getByResource(resource, resourceKey);
       return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks);
     }
   }
@@ -23,6 +23,7 @@ import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.DependedUpon;
 import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.Metric;
@@ -32,6 +33,7 @@ import org.sonar.api.resources.Resource;
 import java.util.Arrays;
 import java.util.List;
 
+@ThreadSafe
 public class DuplicationDensityDecorator implements Decorator {
 
   @DependsUpon
@@ -0,0 +1,99 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.cpd.index;
+
+import com.google.common.collect.Maps;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.BatchExtension;
+import org.sonar.api.batch.InstantiationStrategy;
+import org.sonar.api.config.Settings;
+import org.sonar.core.duplication.DuplicationDao;
+import org.sonar.core.duplication.DuplicationUnitDto;
+
+import java.util.Map;
+
+/**
+ * Units of the last snapshots of all the projects, loaded at once for cross-project analysis. They are loaded once per
+ * analysis and per language, and shared by all the modules. Each module ignores the units of its own previous analysis.
+ *
+ * @since 3.3
+ */
+@InstantiationStrategy(InstantiationStrategy.PER_BATCH)
+public class CrossProjectUnits implements BatchExtension {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CrossProjectUnits.class);
+
+  private final Settings settings;
+  private final DuplicationDao dao;
+
+  // the value is null when units of the language are loaded file by file
+  private final Map<String, PackedUnitsIndex> indexByLanguage = Maps.newHashMap();
+
+  public CrossProjectUnits(Settings settings, DuplicationDao dao) {
+    this.settings = settings;
+    this.dao = dao;
+  }
+
+  /**
+   * @return null if units must be loaded file by file, because preloading is disabled or because there are too many units
+   */
+  synchronized PackedUnitsIndex get(String languageKey) {
+    if (!indexByLanguage.containsKey(languageKey)) {
+      indexByLanguage.put(languageKey, load(languageKey));
+    }
+    return indexByLanguage.get(languageKey);
+  }
+
+  private PackedUnitsIndex load(String languageKey) {
+    int maxUnits = settings.getInt(IndexFactory.MAX_PRELOADED_UNITS_PROPERTY);
+    if (maxUnits <= 0) {
+      return null;
+    }
+    int count = dao.countLastUnits(null, languageKey);
+    if (count > maxUnits) {
+      LOG.info("Too many units for cross-project analysis ({} > {}), they will be loaded file by file", count, maxUnits);
+      return null;
+    }
+    final PackedUnitsIndex index = new PackedUnitsIndex(count);
+    final boolean[] valid = {true};
+    dao.selectLastUnits(null, languageKey, new ResultHandler() {
+      public void handleResult(ResultContext context) {
+        DuplicationUnitDto unit = (DuplicationUnitDto) context.getResultObject();
+        if (!index.insert(unit.getHash(), unit.getProjectSnapshotId(), unit.getSnapshotId(), unit.getIndexInFile(), unit.getStartLine(), unit.getEndLine())) {
+          valid[0] = false;
+          context.stop();
+        }
+      }
+    });
+    if (!valid[0]) {
+      LOG.info("Unexpected format of units for cross-project analysis, they will be loaded file by file");
+      return null;
+    }
+    for (DuplicationUnitDto resource : dao.selectLastUnitResources(null, languageKey)) {
+      index.setResourceKey(resource.getSnapshotId(), resource.getResourceKey());
+    }
+    index.sort();
+    LOG.debug("{} units loaded for cross-project analysis", index.size());
+    return index;
+  }
+}
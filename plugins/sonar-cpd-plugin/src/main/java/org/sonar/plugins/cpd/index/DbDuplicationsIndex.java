@@ -30,6 +30,8 @@ import org.sonar.core.duplication.DuplicationUnitDto;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -46,7 +48,19 @@ public class DbDuplicationsIndex {
 
   private DuplicationDao dao;
 
+  /**
+   * Units of other projects loaded at once, or null if they are loaded file by file.
+   */
+  private final PackedUnitsIndex preloaded;
+
   public DbDuplicationsIndex(ResourcePersister resourcePersister, Project currentProject, DuplicationDao dao) {
+    this(resourcePersister, currentProject, dao, null);
+  }
+
+  /**
+   * @param preloaded units of all the projects loaded at once, or null to load units file by file
+   */
+  public DbDuplicationsIndex(ResourcePersister resourcePersister, Project currentProject, DuplicationDao dao, @Nullable PackedUnitsIndex preloaded) {
     this.dao = dao;
     this.resourcePersister = resourcePersister;
     Snapshot currentSnapshot = resourcePersister.getSnapshotOrFail(currentProject);
@@ -54,6 +68,14 @@ public class DbDuplicationsIndex {
     this.currentProjectSnapshotId = currentSnapshot.getId();
     this.lastSnapshotId = lastSnapshot == null ? null : lastSnapshot.getId();
     this.languageKey = currentProject.getLanguageKey();
+    this.preloaded = preloaded;
+  }
+
+  /**
+   * @return true if units of other projects were loaded at once, so that {@link #getByHash(ByteArray)} can be called concurrently
+   */
+  public boolean isPreloaded() {
+    return preloaded != null;
   }
 
   int getSnapshotIdFor(Resource resource) {
@@ -61,6 +83,9 @@ public class DbDuplicationsIndex {
   }
 
   public void prepareCache(Resource resource) {
+    if (preloaded != null) {
+      return;
+    }
     int resourceSnapshotId = getSnapshotIdFor(resource);
     List<DuplicationUnitDto> units = dao.selectCandidates(resourceSnapshotId, lastSnapshotId, languageKey);
     cache.clear();
@@ -91,6 +116,10 @@ public class DbDuplicationsIndex {
   }
 
   public Collection<Block> getByHash(ByteArray hash) {
+    if (preloaded != null) {
+      // units of the previous analysis of this module are not candidates
+      return preloaded.getByHash(hash, lastSnapshotId);
+    }
     Collection<Block> result = cache.get(hash);
     if (result != null) {
       return result;
@@ -34,9 +34,17 @@ public class IndexFactory implements BatchExtension {
 
   private static final Logger LOG = LoggerFactory.getLogger(IndexFactory.class);
 
+  /**
+   * Maximal number of units of other projects loaded at once for cross-project analysis.
+   * Above this limit, or when 0, units are loaded file by file.
+   */
+  public static final String MAX_PRELOADED_UNITS_PROPERTY = "sonar.cpd.cross_project.maxPreloadedUnits";
+  public static final int MAX_PRELOADED_UNITS_DEFAULT = 0;
+
   private final Settings settings;
   private final ResourcePersister resourcePersister;
   private final DuplicationDao dao;
+  private final CrossProjectUnits crossProjectUnits;
 
   /**
    * For dry run, where is no access to database.
@@ -45,18 +53,21 @@ public class IndexFactory implements BatchExtension {
     this.settings = settings;
     this.resourcePersister = null;
     this.dao = null;
+    this.crossProjectUnits = null;
   }
 
-  public IndexFactory(Settings settings, ResourcePersister resourcePersister, DuplicationDao dao) {
+  public IndexFactory(Settings settings, ResourcePersister resourcePersister, DuplicationDao dao, CrossProjectUnits crossProjectUnits) {
     this.settings = settings;
     this.resourcePersister = resourcePersister;
     this.dao = dao;
+    this.crossProjectUnits = crossProjectUnits;
   }
 
   public SonarDuplicationsIndex create(Project project) {
     if (isCrossProject(project)) {
       LOG.info("Cross-project analysis enabled");
-      return new SonarDuplicationsIndex(new DbDuplicationsIndex(resourcePersister, project, dao));
+      PackedUnitsIndex preloaded = crossProjectUnits.get(project.getLanguageKey());
+      return new SonarDuplicationsIndex(new DbDuplicationsIndex(resourcePersister, project, dao, preloaded));
     } else {
       LOG.info("Cross-project analysis disabled");
       return new SonarDuplicationsIndex();
@@ -69,7 +80,7 @@ public class IndexFactory implements BatchExtension {
   @VisibleForTesting
   boolean isCrossProject(Project project) {
     return settings.getBoolean(CoreProperties.CPD_CROSS_RPOJECT)
-      && resourcePersister != null && dao != null
+      && resourcePersister != null && dao != null && crossProjectUnits != null
       && StringUtils.isBlank(project.getBranch());
   }
 
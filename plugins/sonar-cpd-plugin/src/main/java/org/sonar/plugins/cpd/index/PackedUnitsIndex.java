@@ -0,0 +1,189 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.cpd.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.DataUtils;
+
+import javax.annotation.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Units of other projects, packed in a flat array and sorted by hash, in the spirit of
+ * {@link org.sonar.duplications.index.PackedMemoryCloneIndex}. Resources are stored by snapshot id,
+ * keys are resolved only when blocks are returned. Units keep the snapshot id of their project, so that
+ * an index shared by all the modules can ignore the units of the module being analyzed.
+ * <p>
+ * Insertions are not thread-safe, but once {@link #sort()} was called, queries can be executed concurrently.
+ * </p>
+ */
+final class PackedUnitsIndex {
+
+  private static final int HASH_INTS = 2;
+  private static final int UNIT_INTS = HASH_INTS + 5;
+
+  private final Map<Integer, String> resourceKeys = Maps.newHashMap();
+  private int[] data;
+  private int size;
+
+  PackedUnitsIndex(int initialCapacity) {
+    this.data = new int[Math.max(1, initialCapacity) * UNIT_INTS];
+    this.size = 0;
+  }
+
+  int size() {
+    return size;
+  }
+
+  /**
+   * @return false if hash can not be stored in this index
+   */
+  boolean insert(String hash, int projectSnapshotId, int resourceSnapshotId, int indexInFile, int startLine, int endLine) {
+    if (hash.length() != HASH_INTS * 8) {
+      return false;
+    }
+    ensureCapacity();
+    int offset = size * UNIT_INTS;
+    for (int i = 0; i < HASH_INTS; i++) {
+      int value = 0;
+      for (int j = i * 8; j < (i + 1) * 8; j++) {
+        int digit = Character.digit(hash.charAt(j), 16);
+        if (digit < 0) {
+          return false;
+        }
+        value = (value << 4) | digit;
+      }
+      data[offset++] = value;
+    }
+    data[offset++] = projectSnapshotId;
+    data[offset++] = resourceSnapshotId;
+    data[offset++] = indexInFile;
+    data[offset++] = startLine;
+    data[offset] = endLine;
+    size++;
+    return true;
+  }
+
+  void setResourceKey(int resourceSnapshotId, String resourceKey) {
+    resourceKeys.put(resourceSnapshotId, resourceKey);
+  }
+
+  void sort() {
+    DataUtils.sort(new DataUtils.Sortable() {
+      public int size() {
+        return size;
+      }
+
+      public void swap(int i, int j) {
+        i *= UNIT_INTS;
+        j *= UNIT_INTS;
+        for (int k = 0; k < UNIT_INTS; k++, i++, j++) {
+          int tmp = data[i];
+          data[i] = data[j];
+          data[j] = tmp;
+        }
+      }
+
+      public boolean isLess(int i, int j) {
+        i *= UNIT_INTS;
+        j *= UNIT_INTS;
+        for (int k = 0; k < HASH_INTS; k++, i++, j++) {
+          if (data[i] != data[j]) {
+            return data[i] < data[j];
+          }
+        }
+        return false;
+      }
+    });
+  }
+
+  /**
+   * @param excludedProjectSnapshotId units of this project snapshot are not returned, null to return all the units
+   */
+  Collection<Block> getByHash(ByteArray hash, @Nullable Integer excludedProjectSnapshotId) {
+    int[] value = hash.toIntArray();
+    if (value.length != HASH_INTS) {
+      return Lists.newArrayList();
+    }
+    List<Block> result = Lists.newArrayList();
+    for (int index = lowerBound(value); index < size && compare(index, value) == 0; index++) {
+      int offset = index * UNIT_INTS + HASH_INTS;
+      int projectSnapshotId = data[offset++];
+      if (excludedProjectSnapshotId != null && excludedProjectSnapshotId == projectSnapshotId) {
+        continue;
+      }
+      String resourceKey = resourceKeys.get(data[offset++]);
+      if (resourceKey == null) {
+        // resource was removed between selection of units and selection of resources
+        continue;
+      }
+      int indexInFile = data[offset++];
+      int startLine = data[offset++];
+      int endLine = data[offset];
+      result.add(Block.builder()
+          .setResourceId(resourceKey)
+          .setBlockHash(hash)
+          .setIndexInFile(indexInFile)
+          .setLines(startLine, endLine)
+          .build());
+    }
+    return result;
+  }
+
+  private int lowerBound(int[] value) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compare(mid, value) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
+
+  private int compare(int index, int[] value) {
+    int offset = index * UNIT_INTS;
+    for (int k = 0; k < HASH_INTS; k++, offset++) {
+      if (data[offset] != value[k]) {
+        return data[offset] < value[k] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private void ensureCapacity() {
+    if ((size + 1) * UNIT_INTS <= data.length) {
+      return;
+    }
+    int[] oldData = data;
+    data = new int[(oldData.length / UNIT_INTS * 3 / 2 + 1) * UNIT_INTS];
+    System.arraycopy(oldData, 0, data, 0, size * UNIT_INTS);
+  }
+
+}
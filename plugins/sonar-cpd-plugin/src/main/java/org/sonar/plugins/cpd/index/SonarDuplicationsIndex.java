@@ -24,7 +24,7 @@ import org.sonar.api.resources.Resource;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.index.AbstractCloneIndex;
-import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.BlockCursor;
 import org.sonar.duplications.index.PackedMemoryCloneIndex;
 
 import java.util.Collection;
@@ -32,7 +32,7 @@ import java.util.List;
 
 public class SonarDuplicationsIndex extends AbstractCloneIndex {
 
-  private final CloneIndex mem = new PackedMemoryCloneIndex();
+  private final PackedMemoryCloneIndex mem = new PackedMemoryCloneIndex();
   private final DbDuplicationsIndex db;
 
   public SonarDuplicationsIndex() {
@@ -69,6 +69,21 @@ public class SonarDuplicationsIndex extends AbstractCloneIndex {
     }
   }
 
+  @Override
+  public BlockCursor cursorBySequenceHash(ByteArray hash) {
+    if (db == null) {
+      return mem.cursorBySequenceHash(hash);
+    }
+    return super.cursorBySequenceHash(hash);
+  }
+
+  /**
+   * Blocks of the project can be queried concurrently, but the cross-project index only when its units were preloaded.
+   */
+  public boolean isThreadSafe() {
+    return db == null || db.isPreloaded();
+  }
+
   public Collection<Block> getByResourceId(String resourceId) {
     throw new UnsupportedOperationException();
   }
@@ -0,0 +1,84 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.cpd.index;
+
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.config.Settings;
+import org.sonar.core.duplication.DuplicationDao;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CrossProjectUnitsTest {
+
+  private Settings settings;
+  private DuplicationDao dao;
+
+  @Before
+  public void setUp() {
+    settings = new Settings();
+    dao = mock(DuplicationDao.class);
+  }
+
+  @Test
+  public void should_not_preload_by_default() {
+    CrossProjectUnits units = new CrossProjectUnits(settings, dao);
+
+    assertThat(units.get("java"), nullValue());
+    verify(dao, never()).countLastUnits(any(Integer.class), anyString());
+  }
+
+  @Test
+  public void should_preload_once_per_language() {
+    settings.setProperty(IndexFactory.MAX_PRELOADED_UNITS_PROPERTY, 10);
+    when(dao.countLastUnits(null, "java")).thenReturn(5);
+    CrossProjectUnits units = new CrossProjectUnits(settings, dao);
+
+    PackedUnitsIndex index = units.get("java");
+    assertThat(index, notNullValue());
+    assertThat(units.get("java"), sameInstance(index));
+    verify(dao, times(1)).selectLastUnits(any(Integer.class), anyString(), any(ResultHandler.class));
+  }
+
+  @Test
+  public void should_not_preload_too_many_units() {
+    settings.setProperty(IndexFactory.MAX_PRELOADED_UNITS_PROPERTY, 10);
+    when(dao.countLastUnits(null, "java")).thenReturn(11);
+    CrossProjectUnits units = new CrossProjectUnits(settings, dao);
+
+    assertThat(units.get("java"), nullValue());
+    assertThat(units.get("java"), nullValue());
+    verify(dao, times(1)).countLastUnits(null, "java");
+    verify(dao, never()).selectLastUnits(any(Integer.class), anyString(), any(ResultHandler.class));
+  }
+
+}
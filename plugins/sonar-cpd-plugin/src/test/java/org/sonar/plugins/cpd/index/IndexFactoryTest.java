@@ -45,14 +45,14 @@ public class IndexFactoryTest {
   @Test
   public void crossProjectEnabled() {
     settings.setProperty(CoreProperties.CPD_CROSS_RPOJECT, "true");
-    IndexFactory factory = new IndexFactory(settings, mock(ResourcePersister.class), mock(DuplicationDao.class));
+    IndexFactory factory = new IndexFactory(settings, mock(ResourcePersister.class), mock(DuplicationDao.class), mock(CrossProjectUnits.class));
     assertThat(factory.isCrossProject(project), is(true));
   }
 
   @Test
   public void noCrossProjectWithBranch() {
     settings.setProperty(CoreProperties.CPD_CROSS_RPOJECT, "true");
-    IndexFactory factory = new IndexFactory(settings, mock(ResourcePersister.class), mock(DuplicationDao.class));
+    IndexFactory factory = new IndexFactory(settings, mock(ResourcePersister.class), mock(DuplicationDao.class), mock(CrossProjectUnits.class));
     project.setBranch("branch");
     assertThat(factory.isCrossProject(project), is(false));
   }
@@ -67,7 +67,7 @@ public class IndexFactoryTest {
   @Test
   public void crossProjectDisabled() {
     settings.setProperty(CoreProperties.CPD_CROSS_RPOJECT, "false");
-    IndexFactory factory = new IndexFactory(settings, mock(ResourcePersister.class), mock(DuplicationDao.class));
+    IndexFactory factory = new IndexFactory(settings, mock(ResourcePersister.class), mock(DuplicationDao.class), mock(CrossProjectUnits.class));
     assertThat(factory.isCrossProject(project), is(false));
   }
 
@@ -0,0 +1,83 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.plugins.cpd.index;
+
+import org.junit.Test;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+import java.util.Collection;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PackedUnitsIndexTest {
+
+  @Test
+  public void should_find_units_by_hash() {
+    PackedUnitsIndex index = new PackedUnitsIndex(1);
+    assertThat(index.insert(new ByteArray(3L).toString(), 1, 10, 0, 1, 5), is(true));
+    assertThat(index.insert(new ByteArray(1L).toString(), 1, 10, 1, 2, 6), is(true));
+    assertThat(index.insert(new ByteArray(3L).toString(), 2, 20, 2, 3, 7), is(true));
+    assertThat(index.insert(new ByteArray(-1L).toString(), 2, 30, 3, 4, 8), is(true));
+    index.setResourceKey(10, "foo");
+    index.setResourceKey(20, "bar");
+    index.setResourceKey(30, "baz");
+    index.sort();
+
+    assertThat(index.size(), is(4));
+    ByteArray hash = new ByteArray(3L);
+    Collection<Block> blocks = index.getByHash(hash, null);
+    assertThat(blocks.size(), is(2));
+    for (Block block : blocks) {
+      assertThat(block.getBlockHash(), sameInstance(hash));
+    }
+    Block block = index.getByHash(new ByteArray(-1L), null).iterator().next();
+    assertThat(block.getResourceId(), is("baz"));
+    assertThat(block.getIndexInFile(), is(3));
+    assertThat(block.getStartLine(), is(4));
+    assertThat(block.getEndLine(), is(8));
+    assertThat(index.getByHash(new ByteArray(2L), null).size(), is(0));
+  }
+
+  @Test
+  public void should_exclude_units_of_project_snapshot() {
+    PackedUnitsIndex index = new PackedUnitsIndex(1);
+    index.insert(new ByteArray(3L).toString(), 1, 10, 0, 1, 5);
+    index.insert(new ByteArray(3L).toString(), 2, 20, 1, 2, 6);
+    index.setResourceKey(10, "foo");
+    index.setResourceKey(20, "bar");
+    index.sort();
+
+    Collection<Block> blocks = index.getByHash(new ByteArray(3L), 1);
+    assertThat(blocks.size(), is(1));
+    assertThat(blocks.iterator().next().getResourceId(), is("bar"));
+    assertThat(index.getByHash(new ByteArray(3L), 3).size(), is(2));
+  }
+
+  @Test
+  public void should_reject_unexpected_hash() {
+    PackedUnitsIndex index = new PackedUnitsIndex(1);
+    assertThat(index.insert("aa", 1, 10, 0, 1, 5), is(false));
+    assertThat(index.size(), is(0));
+  }
+
+}
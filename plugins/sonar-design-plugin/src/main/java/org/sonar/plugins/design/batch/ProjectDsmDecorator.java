@@ -70,11 +70,8 @@ public class ProjectDsmDecorator implements Decorator {
   }
 
   private Dsm<Resource> getDsm(Collection<Resource> subProjects) {
-    CycleDetector<Resource> cycleDetector = new CycleDetector<Resource>(index, subProjects);
-    Set<Cycle> cycles = cycleDetector.getCycles();
-
-    MinimumFeedbackEdgeSetSolver solver = new MinimumFeedbackEdgeSetSolver(cycles);
-    Set<Edge> feedbackEdges = solver.getEdges();
+    StronglyConnectedComponentsFESSolver<Resource> solver = new StronglyConnectedComponentsFESSolver<Resource>(index, subProjects);
+    Set<Edge> feedbackEdges = solver.getFeedbackEdgeSet();
 
     Dsm<Resource> dsm = new Dsm<Resource>(index, subProjects, feedbackEdges);
     DsmTopologicalSorter.sort(dsm);
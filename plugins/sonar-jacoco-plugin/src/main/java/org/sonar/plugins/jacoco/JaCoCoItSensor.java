@@ -22,6 +22,7 @@ package org.sonar.plugins.jacoco;
 import org.apache.commons.lang.StringUtils;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.resources.JavaFile;
@@ -35,6 +36,7 @@ import java.util.Collection;
  *
  * @author Evgeny Mandrikov
  */
+@ThreadSafe
 public class JaCoCoItSensor implements Sensor {
   private JacocoConfiguration configuration;
 
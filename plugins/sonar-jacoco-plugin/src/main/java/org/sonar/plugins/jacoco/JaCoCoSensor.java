@@ -22,6 +22,7 @@ package org.sonar.plugins.jacoco;
 import org.sonar.api.batch.CoverageExtension;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.JavaFile;
@@ -32,6 +33,7 @@ import java.util.Collection;
 /**
  * @author Evgeny Mandrikov
  */
+@ThreadSafe
 public class JaCoCoSensor implements Sensor, CoverageExtension {
 
   private JacocoConfiguration configuration;
@@ -26,6 +26,7 @@ import org.sonar.api.batch.AbstractCoverageExtension;
 import org.sonar.api.batch.DependsUpon;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.resources.Java;
 import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Project;
@@ -35,6 +36,7 @@ import org.sonar.plugins.surefire.api.SurefireUtils;
 
 import java.io.File;
 
+@ThreadSafe
 public class SurefireSensor implements Sensor {
 
   private static Logger logger = LoggerFactory.getLogger(SurefireSensor.class);
@@ -67,8 +67,10 @@ public class BatchModule extends Module {
       addCoreSingleton(MemoryOptimizer.class);
       addCoreSingleton(DefaultResourcePersister.class);
       addCoreSingleton(SourcePersister.class);
+      addCoreSingleton(ViolationPersister.class);
     }
 
+    addCoreSingleton(PersistenceProfiler.class);
     addCoreSingleton(Plugins.class);
     addCoreSingleton(MeasuresDao.class);
     addCoreSingleton(CacheRuleFinder.class);
@@ -34,8 +34,10 @@ import org.sonar.batch.*;
 import org.sonar.batch.components.TimeMachineConfiguration;
 import org.sonar.batch.config.ProjectSettings;
 import org.sonar.batch.events.EventBus;
+import org.sonar.batch.events.FiredEventsCounter;
 import org.sonar.batch.index.DefaultIndex;
 import org.sonar.batch.index.DefaultResourcePersister;
+import org.sonar.batch.phases.AnalysisProfiler;
 import org.sonar.batch.phases.Phases;
 import org.sonar.batch.phases.PhasesTimeProfiler;
 import org.sonar.core.qualitymodel.DefaultModelFinder;
@@ -95,9 +97,11 @@ public class ProjectModule extends Module {
   }
 
   private void addCoreComponents() {
+    addCoreSingleton(FiredEventsCounter.class);
     addCoreSingleton(EventBus.class);
     addCoreSingleton(Phases.class);
     addCoreSingleton(PhasesTimeProfiler.class);
+    addCoreSingleton(AnalysisProfiler.class);
     for (Class clazz : Phases.getPhaseClasses(dryRun)) {
       addCoreSingleton(clazz);
     }
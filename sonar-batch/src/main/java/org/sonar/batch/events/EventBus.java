@@ -20,9 +20,16 @@
 package org.sonar.batch.events;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.lang.SystemUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.sonar.api.batch.events.EventHandler;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Dispatches {@link BatchEvent}s. Eases decoupling by allowing objects to interact without having direct dependencies upon one another, and
@@ -30,10 +37,53 @@ import java.util.List;
  */
 public class EventBus {
 
+  private static final Logger LOG = LoggerFactory.getLogger(EventBus.class);
+
   private EventHandler[] registeredHandlers;
 
+  // handlers by handler type. Events can be fired concurrently, see SensorsExecutor and DecoratorsExecutor.
+  private final ConcurrentMap<Class, EventHandler[]> handlersByType = new ConcurrentHashMap<Class, EventHandler[]>();
+  private final FiredEventsCounter firedEventsCounter;
+
   public EventBus(EventHandler[] handlers) {
+    this(handlers, new FiredEventsCounter());
+  }
+
+  /**
+   * @since 3.3
+   */
+  public EventBus(EventHandler[] handlers, FiredEventsCounter firedEventsCounter) {
     this.registeredHandlers = handlers;
+    this.firedEventsCounter = firedEventsCounter;
+    indexHandlers();
+  }
+
+  private void indexHandlers() {
+    Map<Class, List<EventHandler>> index = Maps.newHashMap();
+    for (EventHandler handler : registeredHandlers) {
+      indexHandler(handler, handler.getClass(), index);
+    }
+    for (Map.Entry<Class, List<EventHandler>> entry : index.entrySet()) {
+      handlersByType.put(entry.getKey(), entry.getValue().toArray(new EventHandler[entry.getValue().size()]));
+    }
+  }
+
+  private static void indexHandler(EventHandler handler, Class type, Map<Class, List<EventHandler>> index) {
+    if (type == null || !EventHandler.class.isAssignableFrom(type)) {
+      return;
+    }
+    List<EventHandler> handlers = index.get(type);
+    if (handlers == null) {
+      handlers = Lists.newArrayList();
+      index.put(type, handlers);
+    }
+    if (!handlers.contains(handler)) {
+      handlers.add(handler);
+    }
+    indexHandler(handler, type.getSuperclass(), index);
+    for (Class anInterface : type.getInterfaces()) {
+      indexHandler(handler, anInterface, index);
+    }
   }
 
   /**
@@ -44,20 +94,48 @@ public class EventBus {
   }
 
   private void doFireEvent(BatchEvent event) {
-    List<EventHandler> handlers = getDispatchList(event.getType());
-    for (EventHandler handler : handlers) {
+    firedEventsCounter.count(event);
+    for (EventHandler handler : getDispatchList(event.getType())) {
       event.dispatch(handler);
     }
   }
 
-  private List<EventHandler> getDispatchList(Class<? extends EventHandler> handlerType) {
-    List<EventHandler> result = Lists.newArrayList();
-    for (EventHandler handler : registeredHandlers) {
-      if (handlerType.isAssignableFrom(handler.getClass())) {
-        result.add(handler);
+  private EventHandler[] getDispatchList(Class<? extends EventHandler> handlerType) {
+    EventHandler[] handlers = handlersByType.get(handlerType);
+    if (handlers == null) {
+      // handler types that are not known at construction, for example classes
+      List<EventHandler> result = Lists.newArrayList();
+      for (EventHandler handler : registeredHandlers) {
+        if (handlerType.isAssignableFrom(handler.getClass())) {
+          result.add(handler);
+        }
+      }
+      handlers = result.toArray(new EventHandler[result.size()]);
+      handlersByType.putIfAbsent(handlerType, handlers);
+    }
+    return handlers;
+  }
+
+  /**
+   * Number of fired events by type of event
+   *
+   * @since 3.3
+   */
+  public Map<Class, Long> getFiredEvents() {
+    return firedEventsCounter.getFiredEvents();
+  }
+
+  /**
+   * @since 3.3
+   */
+  public void logFiredEvents() {
+    if (LOG.isDebugEnabled()) {
+      StringBuilder sb = new StringBuilder("Fired events:").append(SystemUtils.LINE_SEPARATOR);
+      for (Map.Entry<Class, Long> entry : getFiredEvents().entrySet()) {
+        sb.append("\t").append(entry.getKey().getSimpleName()).append(": ").append(entry.getValue()).append(SystemUtils.LINE_SEPARATOR);
       }
+      LOG.debug(sb.toString());
     }
-    return result;
   }
 
 }
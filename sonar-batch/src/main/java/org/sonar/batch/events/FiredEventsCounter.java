@@ -0,0 +1,56 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.events;
+
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of events fired by the {@link EventBus}, by type of event. It's a component on its own so that event handlers,
+ * for example the profiling report, can read it without depending on the event bus.
+ *
+ * @since 3.3
+ */
+public class FiredEventsCounter {
+
+  // events can be fired concurrently, see SensorsExecutor and DecoratorsExecutor
+  private final ConcurrentMap<Class, AtomicLong> counterByEventType = new ConcurrentHashMap<Class, AtomicLong>();
+
+  void count(BatchEvent event) {
+    AtomicLong counter = counterByEventType.get(event.getClass());
+    if (counter == null) {
+      counterByEventType.putIfAbsent(event.getClass(), new AtomicLong());
+      counter = counterByEventType.get(event.getClass());
+    }
+    counter.incrementAndGet();
+  }
+
+  public Map<Class, Long> getFiredEvents() {
+    Map<Class, Long> result = Maps.newLinkedHashMap();
+    for (Map.Entry<Class, AtomicLong> entry : counterByEventType.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    return result;
+  }
+}
@@ -0,0 +1,248 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.sonar.api.utils.SonarException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local storage of the data of evicted measures. Data are appended to a memory-mapped file, and the most recently
+ * read values are kept in a heap cache bounded by a number of characters. The segments of the file are recycled
+ * by {@link #clear()}, so the file is as large as the data of the biggest module, and it's unmapped and deleted by
+ * {@link #close()}.
+ *
+ * @since 3.3
+ */
+final class DataMeasureStore {
+
+  static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+  private static final String ENCODING = "UTF-8";
+
+  private final File file;
+  private final RandomAccessFile randomAccessFile;
+  private final FileChannel channel;
+  private final List<MappedByteBuffer> segments = Lists.newArrayList();
+  private final int segmentSize;
+  private int currentSegment = 0;
+  private long fileSize = 0L;
+
+  // measure id -> {segment index, offset in segment, length in bytes}
+  private final Map<Long, int[]> locations = Maps.newHashMap();
+  private final DataCache cache;
+
+  private long hits = 0L;
+  private long misses = 0L;
+  private long evictions = 0L;
+  private long writes = 0L;
+
+  DataMeasureStore(File file, int maxCachedChars) {
+    this(file, maxCachedChars, SEGMENT_SIZE);
+  }
+
+  DataMeasureStore(File file, int maxCachedChars, int segmentSize) {
+    this.file = file;
+    this.segmentSize = segmentSize;
+    this.cache = new DataCache(maxCachedChars);
+    try {
+      this.randomAccessFile = new RandomAccessFile(file, "rw");
+      this.channel = randomAccessFile.getChannel();
+    } catch (IOException e) {
+      throw new SonarException("Can not open the file " + file, e);
+    }
+  }
+
+  /**
+   * The data is kept in the heap cache until it's evicted by more recent values.
+   */
+  void put(long measureId, String data) {
+    byte[] bytes = toBytes(data);
+    MappedByteBuffer segment = segmentWithRemaining(bytes.length);
+    locations.put(measureId, new int[]{currentSegment, segment.position(), bytes.length});
+    segment.put(bytes);
+    cache.put(measureId, data);
+    writes++;
+  }
+
+  /**
+   * @return null if the measure has not been stored
+   */
+  String get(long measureId) {
+    String data = cache.get(measureId);
+    if (data != null) {
+      hits++;
+      return data;
+    }
+    int[] location = locations.get(measureId);
+    if (location == null) {
+      return null;
+    }
+    misses++;
+    ByteBuffer buffer = segments.get(location[0]).duplicate();
+    buffer.position(location[1]);
+    byte[] bytes = new byte[location[2]];
+    buffer.get(bytes);
+    data = toString(bytes);
+    cache.put(measureId, data);
+    return data;
+  }
+
+  boolean contains(long measureId) {
+    return locations.containsKey(measureId);
+  }
+
+  long getHits() {
+    return hits;
+  }
+
+  long getMisses() {
+    return misses;
+  }
+
+  long getEvictions() {
+    return evictions;
+  }
+
+  long getWrites() {
+    return writes;
+  }
+
+  long getFileSize() {
+    return fileSize;
+  }
+
+  /**
+   * Forgets all the stored data. Segments already mapped are overwritten by the next values.
+   */
+  void clear() {
+    locations.clear();
+    cache.clear();
+    for (MappedByteBuffer segment : segments) {
+      segment.clear();
+    }
+    currentSegment = 0;
+  }
+
+  void close() {
+    clear();
+    for (MappedByteBuffer segment : segments) {
+      unmap(segment);
+    }
+    segments.clear();
+    IOUtils.closeQuietly(randomAccessFile);
+    FileUtils.deleteQuietly(file);
+  }
+
+  /**
+   * A mapped buffer is otherwise released only when it's garbage collected, so the file could not be deleted,
+   * for example on Windows. The cleaner is not part of the public API, so it's called by reflection when available.
+   */
+  private static void unmap(MappedByteBuffer buffer) {
+    try {
+      Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+      cleanerMethod.setAccessible(true);
+      Object cleaner = cleanerMethod.invoke(buffer);
+      if (cleaner != null) {
+        cleaner.getClass().getMethod("clean").invoke(cleaner);
+      }
+    } catch (Exception e) {
+      // not supported by the JVM, the buffer is released by the garbage collector
+    }
+  }
+
+  private MappedByteBuffer segmentWithRemaining(int length) {
+    for (; currentSegment < segments.size(); currentSegment++) {
+      MappedByteBuffer segment = segments.get(currentSegment);
+      if (segment.remaining() >= length) {
+        return segment;
+      }
+    }
+    // values larger than the default size get their own segment
+    int size = Math.max(segmentSize, length);
+    try {
+      MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_WRITE, fileSize, size);
+      fileSize += size;
+      segments.add(segment);
+      currentSegment = segments.size() - 1;
+      return segment;
+    } catch (IOException e) {
+      throw new SonarException("Can not extend the file " + file, e);
+    }
+  }
+
+  private static byte[] toBytes(String s) {
+    try {
+      return s.getBytes(ENCODING);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toString(byte[] bytes) {
+    try {
+      return new String(bytes, ENCODING);
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private final class DataCache extends LinkedHashMap<Long, String> {
+    private final int maxChars;
+    private int chars = 0;
+
+    private DataCache(int maxChars) {
+      super(16, 0.75f, true);
+      this.maxChars = maxChars;
+    }
+
+    @Override
+    public String put(Long key, String value) {
+      String previous = super.put(key, value);
+      chars += value.length() - (previous != null ? previous.length() : 0);
+      while (chars > maxChars && !isEmpty()) {
+        Map.Entry<Long, String> eldest = entrySet().iterator().next();
+        chars -= eldest.getValue().length();
+        remove(eldest.getKey());
+        evictions++;
+      }
+      return previous;
+    }
+
+    @Override
+    public void clear() {
+      super.clear();
+      chars = 0;
+    }
+  }
+}
@@ -136,7 +136,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public Measure getMeasure(Resource resource, Metric metric) {
+  public synchronized Measure getMeasure(Resource resource, Metric metric) {
     Bucket bucket = buckets.get(resource);
     if (bucket != null) {
       Measure measure = bucket.getMeasures(MeasuresFilters.metric(metric));
@@ -148,7 +148,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public <M> M getMeasures(Resource resource, MeasuresFilter<M> filter) {
+  public synchronized <M> M getMeasures(Resource resource, MeasuresFilter<M> filter) {
     Bucket bucket = buckets.get(resource);
     if (bucket != null) {
       // TODO the data measures which are not kept in memory are not reloaded yet. Use getMeasure().
@@ -161,7 +161,7 @@ public class DefaultIndex extends SonarIndex {
    * the measure is updated if it's already registered.
    */
   @Override
-  public Measure addMeasure(Resource resource, Measure measure) {
+  public synchronized Measure addMeasure(Resource resource, Measure measure) {
     Bucket bucket = checkIndexed(resource);
     if (bucket != null && !bucket.isExcluded()) {
       Metric metric = metricFinder.findByKey(measure.getMetricKey());
@@ -187,7 +187,7 @@ public class DefaultIndex extends SonarIndex {
   //
 
   @Override
-  public Dependency addDependency(Dependency dependency) {
+  public synchronized Dependency addDependency(Dependency dependency) {
     Dependency existingDep = getEdge(dependency.getFrom(), dependency.getTo());
     if (existingDep != null) {
       return existingDep;
@@ -240,7 +240,7 @@ public class DefaultIndex extends SonarIndex {
     return dependencies;
   }
 
-  public Dependency getEdge(Resource from, Resource to) {
+  public synchronized Dependency getEdge(Resource from, Resource to) {
     Map<Resource, Dependency> map = outgoingDependenciesByResource.get(from);
     if (map != null) {
       return map.get(to);
@@ -248,7 +248,7 @@ public class DefaultIndex extends SonarIndex {
     return null;
   }
 
-  public boolean hasEdge(Resource from, Resource to) {
+  public synchronized boolean hasEdge(Resource from, Resource to) {
     return getEdge(from, to) != null;
   }
 
@@ -256,18 +256,20 @@ public class DefaultIndex extends SonarIndex {
     return buckets.keySet();
   }
 
-  public Collection<Dependency> getOutgoingEdges(Resource from) {
+  public synchronized Collection<Dependency> getOutgoingEdges(Resource from) {
     Map<Resource, Dependency> deps = outgoingDependenciesByResource.get(from);
     if (deps != null) {
-      return deps.values();
+      // copy, as the view would not be protected by the lock
+      return Lists.newArrayList(deps.values());
     }
     return Collections.emptyList();
   }
 
-  public Collection<Dependency> getIncomingEdges(Resource to) {
+  public synchronized Collection<Dependency> getIncomingEdges(Resource to) {
     Map<Resource, Dependency> deps = incomingDependenciesByResource.get(to);
     if (deps != null) {
-      return deps.values();
+      // copy, as the view would not be protected by the lock
+      return Lists.newArrayList(deps.values());
     }
     return Collections.emptyList();
   }
@@ -294,7 +296,7 @@ public class DefaultIndex extends SonarIndex {
    * {@inheritDoc}
    */
   @Override
-  public List<Violation> getViolations(ViolationQuery violationQuery) {
+  public synchronized List<Violation> getViolations(ViolationQuery violationQuery) {
     Resource resource = violationQuery.getResource();
     if (resource == null) {
       throw new IllegalArgumentException("A resource must be set on the ViolationQuery in order to search for violations.");
@@ -322,7 +324,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public void addViolation(Violation violation, boolean force) {
+  public synchronized void addViolation(Violation violation, boolean force) {
     Resource resource = violation.getResource();
     if (resource == null) {
       violation.setResource(currentProject);
@@ -374,12 +376,12 @@ public class DefaultIndex extends SonarIndex {
   //
 
   @Override
-  public void addLink(ProjectLink link) {
+  public synchronized void addLink(ProjectLink link) {
     persistence.saveLink(currentProject, link);
   }
 
   @Override
-  public void deleteLink(String key) {
+  public synchronized void deleteLink(String key) {
     persistence.deleteLink(currentProject, key);
   }
 
@@ -392,18 +394,18 @@ public class DefaultIndex extends SonarIndex {
   //
 
   @Override
-  public List<Event> getEvents(Resource resource) {
+  public synchronized List<Event> getEvents(Resource resource) {
     // currently events are not cached in memory
     return persistence.getEvents(resource);
   }
 
   @Override
-  public void deleteEvent(Event event) {
+  public synchronized void deleteEvent(Event event) {
     persistence.deleteEvent(event);
   }
 
   @Override
-  public Event addEvent(Resource resource, String name, String description, String category, Date date) {
+  public synchronized Event addEvent(Resource resource, String name, String description, String category, Date date) {
     Event event = new Event(name, description, category);
     event.setDate(date);
     event.setCreatedAt(new Date());
@@ -413,7 +415,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public void setSource(Resource reference, String source) {
+  public synchronized void setSource(Resource reference, String source) {
     Bucket bucket = checkIndexed(reference);
     if (bucket != null && !bucket.isExcluded()) {
       persistence.setSource(reference, source);
@@ -421,7 +423,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public String getSource(Resource resource) {
+  public synchronized String getSource(Resource resource) {
     return persistence.getSource(resource);
   }
 
@@ -429,13 +431,13 @@ public class DefaultIndex extends SonarIndex {
    * Does nothing if the resource is already registered.
    */
   @Override
-  public Resource addResource(Resource resource) {
+  public synchronized Resource addResource(Resource resource) {
     Bucket bucket = doIndex(resource);
     return bucket != null ? bucket.getResource() : null;
   }
 
   @Override
-  public <R extends Resource> R getResource(R reference) {
+  public synchronized <R extends Resource> R getResource(R reference) {
     Bucket bucket = buckets.get(reference);
     if (bucket != null) {
       return (R) bucket.getResource();
@@ -463,11 +465,11 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public List<Resource> getChildren(Resource resource) {
+  public synchronized List<Resource> getChildren(Resource resource) {
     return getChildren(resource, false);
   }
 
-  public List<Resource> getChildren(Resource resource, boolean acceptExcluded) {
+  public synchronized List<Resource> getChildren(Resource resource, boolean acceptExcluded) {
     List<Resource> children = Lists.newLinkedList();
     Bucket bucket = getBucket(resource, acceptExcluded);
     if (bucket != null) {
@@ -481,7 +483,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public Resource getParent(Resource resource) {
+  public synchronized Resource getParent(Resource resource) {
     Bucket bucket = getBucket(resource, false);
     if (bucket != null && bucket.getParent() != null) {
       return bucket.getParent().getResource();
@@ -490,7 +492,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public boolean index(Resource resource) {
+  public synchronized boolean index(Resource resource) {
     Bucket bucket = doIndex(resource);
     return bucket != null && !bucket.isExcluded();
   }
@@ -503,7 +505,7 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public boolean index(Resource resource, Resource parentReference) {
+  public synchronized boolean index(Resource resource, Resource parentReference) {
     Bucket bucket = doIndex(resource, parentReference);
     return bucket != null && !bucket.isExcluded();
   }
@@ -566,13 +568,13 @@ public class DefaultIndex extends SonarIndex {
   }
 
   @Override
-  public boolean isExcluded(Resource reference) {
+  public synchronized boolean isExcluded(Resource reference) {
     Bucket bucket = getBucket(reference, true);
     return bucket != null && bucket.isExcluded();
   }
 
   @Override
-  public boolean isIndexed(Resource reference, boolean acceptExcluded) {
+  public synchronized boolean isIndexed(Resource reference, boolean acceptExcluded) {
     return getBucket(reference, acceptExcluded) != null;
   }
 
@@ -38,19 +38,30 @@ public final class DefaultPersistenceManager implements PersistenceManager {
   private DependencyPersister dependencyPersister;
   private LinkPersister linkPersister;
   private EventPersister eventPersister;
+  private PersistenceProfiler profiler;
 
   public DefaultPersistenceManager(ResourcePersister resourcePersister, SourcePersister sourcePersister,
                                    MeasurePersister measurePersister, DependencyPersister dependencyPersister,
                                    LinkPersister linkPersister, EventPersister eventPersister) {
+    this(resourcePersister, sourcePersister, measurePersister, dependencyPersister, linkPersister, eventPersister, new PersistenceProfiler());
+  }
+
+  public DefaultPersistenceManager(ResourcePersister resourcePersister, SourcePersister sourcePersister,
+                                   MeasurePersister measurePersister, DependencyPersister dependencyPersister,
+                                   LinkPersister linkPersister, EventPersister eventPersister, PersistenceProfiler profiler) {
     this.resourcePersister = resourcePersister;
     this.sourcePersister = sourcePersister;
     this.measurePersister = measurePersister;
     this.dependencyPersister = dependencyPersister;
     this.linkPersister = linkPersister;
     this.eventPersister = eventPersister;
+    this.profiler = profiler;
   }
 
   public void clear() {
+    long start = System.nanoTime();
+    measurePersister.clear();
+    profiler.add(MeasurePersister.class, start);
     resourcePersister.clear();
     sourcePersister.clear();
   }
@@ -60,22 +71,31 @@ public final class DefaultPersistenceManager implements PersistenceManager {
   }
 
   public void dump() {
+    long start = System.nanoTime();
     measurePersister.dump();
+    profiler.add(MeasurePersister.class, start);
   }
 
   public void saveProject(Project project, Project parent) {
+    long start = System.nanoTime();
     resourcePersister.saveProject(project, parent);
+    profiler.add(resourcePersister.getClass(), start);
   }
 
   public Snapshot saveResource(Project project, Resource resource, Resource parent) {
     if (ResourceUtils.isPersistable(resource)) {
-      return resourcePersister.saveResource(project, resource, parent);
+      long start = System.nanoTime();
+      Snapshot snapshot = resourcePersister.saveResource(project, resource, parent);
+      profiler.add(resourcePersister.getClass(), start);
+      return snapshot;
     }
     return null;
   }
 
   public void setSource(Resource file, String source) {
+    long start = System.nanoTime();
     sourcePersister.saveSource(file, source);
+    profiler.add(SourcePersister.class, start);
   }
 
   public String getSource(Resource resource) {
@@ -84,7 +104,9 @@ public final class DefaultPersistenceManager implements PersistenceManager {
 
   public void saveMeasure(Resource resource, Measure measure) {
     if (ResourceUtils.isPersistable(resource)) {
+      long start = System.nanoTime();
       measurePersister.saveMeasure(resource, measure);
+      profiler.add(MeasurePersister.class, start);
     }
   }
 
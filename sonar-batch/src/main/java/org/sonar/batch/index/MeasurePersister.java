@@ -22,9 +22,14 @@ package org.sonar.batch.index;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.LinkedHashMultimap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.SetMultimap;
 import org.apache.ibatis.session.SqlSession;
 import org.slf4j.LoggerFactory;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
+import org.sonar.api.config.Settings;
+import org.sonar.api.database.model.MeasureData;
 import org.sonar.api.database.model.MeasureMapper;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.database.model.Snapshot;
@@ -35,25 +40,60 @@ import org.sonar.api.resources.ResourceUtils;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RuleFinder;
 import org.sonar.api.utils.SonarException;
+import org.sonar.core.persistence.BatchSession;
 import org.sonar.core.persistence.MyBatis;
 
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
+@Property(key = MeasurePersister.BATCH_INSERT_PROPERTY, defaultValue = "false", name = "Batch insert of measures",
+  description = "Buffer the measures without data and insert them by JDBC batches. Their ids are loaded only when they are updated. "
+    + "The data of the measures saved at the end of the analysis are also inserted by JDBC batches.",
+  global = true, project = true, type = PropertyType.BOOLEAN)
 public final class MeasurePersister {
+
+  static final String BATCH_INSERT_PROPERTY = "sonar.measures.batchInsert";
+
+  /**
+   * Number of buffered measures that are inserted and committed at once.
+   */
+  static final int FLUSH_SIZE = 4 * BatchSession.MAX_BATCH_SIZE;
+
   private final MyBatis mybatis;
   private final ResourcePersister resourcePersister;
   private final RuleFinder ruleFinder;
   private final MemoryOptimizer memoryOptimizer;
+  private final PersistenceProfiler profiler;
   private final SetMultimap<Resource, Measure> unsavedMeasuresByResource = LinkedHashMultimap.create();
+  private final List<MeasureModel> batchedModels = Lists.newArrayList();
+  private final List<MeasureData> batchedData = Lists.newArrayList();
+
+  // only the columns used to load the id are kept. The measures are referenced by the index until the end of the module anyway.
+  private final Map<Measure, MeasureModel> keysOfMeasuresWithoutId = Maps.newIdentityHashMap();
   private boolean delayedMode = false;
+  private boolean batchMode = false;
 
   public MeasurePersister(MyBatis mybatis, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer) {
+    this(mybatis, resourcePersister, ruleFinder, memoryOptimizer, new PersistenceProfiler());
+  }
+
+  MeasurePersister(MyBatis mybatis, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer, PersistenceProfiler profiler) {
     this.mybatis = mybatis;
     this.resourcePersister = resourcePersister;
     this.ruleFinder = ruleFinder;
     this.memoryOptimizer = memoryOptimizer;
+    this.profiler = profiler;
+  }
+
+  public MeasurePersister(MyBatis mybatis, ResourcePersister resourcePersister, RuleFinder ruleFinder, MemoryOptimizer memoryOptimizer, Settings settings,
+      PersistenceProfiler profiler) {
+    this(mybatis, resourcePersister, ruleFinder, memoryOptimizer, profiler);
+    this.batchMode = settings.getBoolean(BATCH_INSERT_PROPERTY);
+  }
+
+  void setBatchMode(boolean batchMode) {
+    this.batchMode = batchMode;
   }
 
   public void setDelayedMode(boolean delayedMode) {
@@ -68,6 +108,42 @@ public final class MeasurePersister {
     LoggerFactory.getLogger(getClass()).debug("{} measures to dump", unsavedMeasuresByResource.size());
 
     insert(getMeasuresToSave());
+    flush();
+  }
+
+  /**
+   * Inserts the buffered measures and data. They are committed at once.
+   */
+  public void flush() {
+    if (batchedModels.isEmpty() && batchedData.isEmpty()) {
+      return;
+    }
+    BatchSession session = mybatis.openBatchSession();
+    try {
+      MeasureMapper mapper = session.getMapper(MeasureMapper.class);
+      for (MeasureModel model : batchedModels) {
+        mapper.batchInsert(model);
+      }
+      for (MeasureData data : batchedData) {
+        mapper.batchInsertData(data);
+      }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+    profiler.addBatch(MeasurePersister.class, batchedModels.size() + batchedData.size());
+    batchedModels.clear();
+    batchedData.clear();
+  }
+
+  /**
+   * Inserts the buffered measures and forgets the measures whose id has not been loaded, as well as the data
+   * spilled to the local file.
+   */
+  public void clear() {
+    flush();
+    keysOfMeasuresWithoutId.clear();
+    memoryOptimizer.clear();
   }
 
   public void saveMeasure(Resource resource, Measure measure) {
@@ -84,10 +160,17 @@ public final class MeasurePersister {
 
   private MeasureModel insertOrUpdate(Resource resource, Measure measure) {
     Snapshot snapshot = resourcePersister.getSnapshotOrFail(resource);
+    if (measure.getId() == null && keysOfMeasuresWithoutId.containsKey(measure)) {
+      loadId(measure);
+    }
     if (measure.getId() != null) {
       return update(measure, snapshot);
     }
     if (shouldPersistMeasure(resource, measure)) {
+      if (batchMode && measure.getData() == null) {
+        addToBatch(measure, model(measure).setSnapshotId(snapshot.getId()));
+        return null;
+      }
       MeasureModel insert = insert(measure, snapshot);
       measure.setId(insert.getId());
       return insert;
@@ -105,8 +188,12 @@ public final class MeasurePersister {
       !(ResourceUtils.isEntity(resource) && measure.isBestValue());
   }
 
+  /**
+   * Measures without data are added to the batch, the others are returned because their generated id is required
+   * to insert data.
+   */
   private List<MeasureModel> getMeasuresToSave() {
-    List<MeasureModel> measures = Lists.newArrayList();
+    List<MeasureModel> measuresWithData = Lists.newArrayList();
 
     Map<Resource, Collection<Measure>> map = unsavedMeasuresByResource.asMap();
     for (Map.Entry<Resource, Collection<Measure>> entry : map.entrySet()) {
@@ -114,13 +201,48 @@ public final class MeasurePersister {
       Snapshot snapshot = resourcePersister.getSnapshot(entry.getKey());
       for (Measure measure : entry.getValue()) {
         if (shouldPersistMeasure(resource, measure)) {
-          measures.add(model(measure).setSnapshotId(snapshot.getId()));
+          MeasureModel model = model(measure).setSnapshotId(snapshot.getId());
+          if (model.getMeasureData() != null) {
+            measuresWithData.add(model);
+          } else {
+            addToBatch(measure, model);
+          }
         }
       }
     }
 
     unsavedMeasuresByResource.clear();
-    return measures;
+    return measuresWithData;
+  }
+
+  private void addToBatch(Measure measure, MeasureModel model) {
+    batchedModels.add(model);
+    keysOfMeasuresWithoutId.put(measure, keyOf(model));
+    if (batchedModels.size() >= FLUSH_SIZE) {
+      flush();
+    }
+  }
+
+  private void loadId(Measure measure) {
+    flush();
+    MeasureModel key = keysOfMeasuresWithoutId.remove(measure);
+    SqlSession session = mybatis.openSession();
+    try {
+      measure.setId(session.getMapper(MeasureMapper.class).selectId(key));
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  private static MeasureModel keyOf(MeasureModel model) {
+    MeasureModel key = new MeasureModel();
+    key.setSnapshotId(model.getSnapshotId());
+    key.setMetricId(model.getMetricId());
+    key.setRuleId(model.getRuleId());
+    key.setRulePriority(model.getRulePriority());
+    key.setCharacteristic(model.getCharacteristic());
+    key.setPersonId(model.getPersonId());
+    return key;
   }
 
   private MeasureModel model(Measure measure) {
@@ -158,6 +280,9 @@ public final class MeasurePersister {
     return model;
   }
 
+  /**
+   * In batch mode, the data are inserted by the next flush, once the ids of the measures are generated.
+   */
   private void insert(Iterable<MeasureModel> values) {
     SqlSession session = mybatis.openSession();
     try {
@@ -166,7 +291,11 @@ public final class MeasurePersister {
       for (MeasureModel value : values) {
         mapper.insert(value);
         if (value.getMeasureData() != null) {
-          mapper.insertData(value.getMeasureData());
+          if (batchMode) {
+            batchedData.add(value.getMeasureData());
+          } else {
+            mapper.insertData(value.getMeasureData());
+          }
         }
       }
 
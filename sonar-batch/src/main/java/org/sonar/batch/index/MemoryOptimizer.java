@@ -31,60 +31,97 @@ import org.sonar.api.database.model.MeasureData;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.PersistenceMode;
+import org.sonar.batch.bootstrap.TempDirectories;
 
 import java.util.List;
 import java.util.Map;
 
 /**
+ * All the methods are synchronized: measures are reloaded under the lock of the index, while memory is flushed
+ * by event handlers, possibly from other threads when decorators are executed in parallel.
+ *
  * @since 2.7
  */
 public class MemoryOptimizer implements SensorExecutionHandler, DecoratorExecutionHandler, DecoratorsPhaseHandler {
 
   private static final Logger LOG = LoggerFactory.getLogger(MemoryOptimizer.class);
 
+  /**
+   * Maximum number of characters of the spilled data kept in memory
+   */
+  static final int MAX_CACHED_CHARS = 4 * 1024 * 1024;
+
   private List<Measure> loadedMeasures = Lists.newArrayList();
   private Map<Long, Integer> dataIdByMeasureId = Maps.newHashMap();
   private DatabaseSession session;
+  private DataMeasureStore store;
+
+  // data reloaded for a decorator may still be read by another one, so memory is flushed only when no decorator is running
+  private int runningDecorators = 0;
 
   public MemoryOptimizer(DatabaseSession session) {
     this.session = session;
   }
 
+  /**
+   * Evicted data are spilled to a local file, so they are reloaded without database requests.
+   */
+  public MemoryOptimizer(DatabaseSession session, TempDirectories tempDirectories) {
+    this(session);
+    this.store = new DataMeasureStore(tempDirectories.getFile("measures", "data.bin"), MAX_CACHED_CHARS);
+  }
+
+  MemoryOptimizer(DatabaseSession session, DataMeasureStore store) {
+    this(session);
+    this.store = store;
+  }
+
   /**
    * Remove data of a database measure from memory.
    */
-  public void evictDataMeasure(Measure measure, MeasureModel model) {
+  public synchronized void evictDataMeasure(Measure measure, MeasureModel model) {
     if (PersistenceMode.DATABASE.equals(measure.getPersistenceMode())) {
       MeasureData data = model.getMeasureData();
       if (data != null && data.getId() != null) {
         if (LOG.isDebugEnabled()) {
           LOG.debug("Remove data measure from memory: " + measure.getMetricKey() + ", id=" + measure.getId());
         }
+        if (store != null && measure.getData() != null) {
+          store.put(measure.getId(), measure.getData());
+        }
         measure.unsetData();
         dataIdByMeasureId.put(measure.getId(), data.getId());
       }
     }
   }
 
-  public Measure reloadMeasure(Measure measure) {
+  public synchronized Measure reloadMeasure(Measure measure) {
     if (measure.getId() != null && dataIdByMeasureId.containsKey(measure.getId()) && !measure.hasData()) {
-      Integer dataId = dataIdByMeasureId.get(measure.getId());
-      MeasureData data = session.getSingleResult(MeasureData.class, "id", dataId);
-      if (data == null) {
-        LoggerFactory.getLogger(getClass()).error("The MEASURE_DATA row with id " + dataId + " is lost");
-
-      } else {
+      String text = (store != null ? store.get(measure.getId()) : null);
+      if (text == null) {
+        text = loadData(dataIdByMeasureId.get(measure.getId()));
+      }
+      if (text != null) {
         if (LOG.isDebugEnabled()) {
           LOG.debug("Reload the data measure: " + measure.getMetricKey() + ", id=" + measure.getId());
         }
-        measure.setData(data.getText());
+        measure.setData(text);
         loadedMeasures.add(measure);
       }
     }
     return measure;
   }
 
-  public void flushMemory() {
+  private String loadData(Integer dataId) {
+    MeasureData data = session.getSingleResult(MeasureData.class, "id", dataId);
+    if (data == null) {
+      LoggerFactory.getLogger(getClass()).error("The MEASURE_DATA row with id " + dataId + " is lost");
+      return null;
+    }
+    return data.getText();
+  }
+
+  public synchronized void flushMemory() {
     if (LOG.isDebugEnabled() && !loadedMeasures.isEmpty()) {
       LOG.debug("Flush " + loadedMeasures.size() + " data measures from memory: ");
     }
@@ -94,7 +131,17 @@ public class MemoryOptimizer implements SensorExecutionHandler, DecoratorExecuti
     loadedMeasures.clear();
   }
 
-  boolean isTracked(Long measureId) {
+  /**
+   * Executed when a module is done. The spilled data of its measures are dropped, they are reloaded from
+   * the database if they are still requested.
+   */
+  public synchronized void clear() {
+    if (store != null) {
+      store.clear();
+    }
+  }
+
+  synchronized boolean isTracked(Long measureId) {
     return dataIdByMeasureId.get(measureId) != null;
   }
 
@@ -105,15 +152,35 @@ public class MemoryOptimizer implements SensorExecutionHandler, DecoratorExecuti
     }
   }
 
-  public void onDecoratorExecution(DecoratorExecutionEvent event) {
-    if (event.isEnd()) {
-      flushMemory();
+  public synchronized void onDecoratorExecution(DecoratorExecutionEvent event) {
+    if (event.isStart()) {
+      runningDecorators++;
+    } else {
+      runningDecorators--;
+      if (runningDecorators == 0) {
+        flushMemory();
+      }
     }
   }
 
   public void onDecoratorsPhase(DecoratorsPhaseEvent event) {
     if (event.isEnd()) {
+      flushMemory();
       session.commit();
+      if (store != null && LOG.isDebugEnabled()) {
+        LOG.debug("Spilled data measures: {} writes, {} cache hits, {} cache misses, {} cache evictions, {} bytes mapped",
+            new Object[]{store.getWrites(), store.getHits(), store.getMisses(), store.getEvictions(), store.getFileSize()});
+      }
+    }
+  }
+
+  /**
+   * This method is executed by picocontainer during shutdown.
+   */
+  public synchronized void stop() {
+    if (store != null) {
+      store.close();
+      store = null;
     }
   }
 
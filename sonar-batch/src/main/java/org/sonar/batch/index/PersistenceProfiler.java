@@ -0,0 +1,70 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.Maps;
+import org.sonar.api.BatchComponent;
+
+import java.util.Map;
+
+/**
+ * Cumulated execution times of the persisters, in nanoseconds, and number of rows and batches written by the persisters
+ * inserting rows by JDBC batches.
+ *
+ * @since 3.3
+ */
+public class PersistenceProfiler implements BatchComponent {
+
+  private final Map<String, Long> nanosByPersister = Maps.newLinkedHashMap();
+  private final Map<String, Long> rowsByPersister = Maps.newLinkedHashMap();
+  private final Map<String, Long> batchesByPersister = Maps.newLinkedHashMap();
+
+  /**
+   * @param startNanos the value of {@link System#nanoTime()} when the persister was called
+   */
+  public synchronized void add(Class persister, long startNanos) {
+    increment(nanosByPersister, persister, System.nanoTime() - startNanos);
+  }
+
+  /**
+   * @param rows the number of rows written at once, for example in a transaction
+   */
+  public synchronized void addBatch(Class persister, int rows) {
+    increment(rowsByPersister, persister, rows);
+    increment(batchesByPersister, persister, 1L);
+  }
+
+  public synchronized Map<String, Long> getNanosByPersister() {
+    return Maps.newLinkedHashMap(nanosByPersister);
+  }
+
+  public synchronized Map<String, Long> getRowsByPersister() {
+    return Maps.newLinkedHashMap(rowsByPersister);
+  }
+
+  public synchronized Map<String, Long> getBatchesByPersister() {
+    return Maps.newLinkedHashMap(batchesByPersister);
+  }
+
+  private static void increment(Map<String, Long> map, Class persister, long value) {
+    Long total = map.get(persister.getSimpleName());
+    map.put(persister.getSimpleName(), (total != null ? total : 0L) + value);
+  }
+}
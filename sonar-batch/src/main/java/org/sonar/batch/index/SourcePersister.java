@@ -19,54 +19,195 @@
  */
 package org.sonar.batch.index;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import org.hibernate.Session;
 import org.sonar.api.database.DatabaseSession;
 import org.sonar.api.database.model.Snapshot;
 import org.sonar.api.database.model.SnapshotSource;
 import org.sonar.api.resources.DuplicatedSourceException;
 import org.sonar.api.resources.Resource;
+import org.sonar.api.utils.SonarException;
 
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
 
+/**
+ * Sources are committed by groups of {@link #COMMIT_SIZE} files. They are detached from the database session as soon
+ * as they are written. Up to {@link #MAX_CACHED_BYTES} of the sources saved during the analysis are kept in memory,
+ * deflate-compressed, so that they are read without database queries. A cached source is dropped once it has been read.
+ */
 public final class SourcePersister {
 
+  /**
+   * Number of files saved in a single transaction.
+   */
+  static final int COMMIT_SIZE = 50;
+
+  /**
+   * Maximum size of the compressed sources kept in memory. The oldest ones are dropped first.
+   */
+  static final long MAX_CACHED_BYTES = 16L * 1024 * 1024;
+
+  private static final String ENCODING = "UTF-8";
+
   private DatabaseSession session;
-  private Set<Integer> savedSnapshotIds = Sets.newHashSet();
   private ResourcePersister resourcePersister;
+  private final long maxCachedBytes;
+  private final Set<Integer> savedSnapshotIds = Sets.newHashSet();
+  private final Map<Integer, CompressedSource> cachedSources = Maps.newLinkedHashMap();
+  private long cachedBytes = 0;
+  private int uncommitted = 0;
 
   public SourcePersister(DatabaseSession session, ResourcePersister resourcePersister) {
+    this(session, resourcePersister, MAX_CACHED_BYTES);
+  }
+
+  SourcePersister(DatabaseSession session, ResourcePersister resourcePersister, long maxCachedBytes) {
     this.session = session;
     this.resourcePersister = resourcePersister;
+    this.maxCachedBytes = maxCachedBytes;
   }
 
   public void saveSource(Resource resource, String source) {
     Snapshot snapshot = resourcePersister.getSnapshotOrFail(resource);
-    if (isCached(snapshot)) {
+    if (!savedSnapshotIds.add(snapshot.getId())) {
       throw new DuplicatedSourceException(resource);
     }
-    session.save(new SnapshotSource(snapshot.getId(), source));
-    session.commit();
-    addToCache(snapshot);
+    SnapshotSource entity = new SnapshotSource(snapshot.getId(), source);
+    session.saveWithoutFlush(entity);
+    detach(entity);
+    uncommitted++;
+    if (uncommitted >= COMMIT_SIZE) {
+      commit();
+    }
+    addToCache(snapshot, source);
+  }
+
+  /**
+   * The row is written in the current transaction, then the entity is evicted so that the session does not keep
+   * the source in memory until the commit.
+   */
+  private void detach(SnapshotSource entity) {
+    session.getEntityManager().flush();
+    ((Session) session.getEntityManager().getDelegate()).evict(entity);
   }
 
   public String getSource(Resource resource) {
-    SnapshotSource source = null;
     Snapshot snapshot = resourcePersister.getSnapshot(resource);
-    if (snapshot!=null && snapshot.getId()!=null) {
-      source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshot.getId());
+    if (snapshot == null || snapshot.getId() == null) {
+      return null;
     }
-    return source!=null ? source.getData() : null;
+    CompressedSource cached = cachedSources.remove(snapshot.getId());
+    if (cached != null) {
+      cachedBytes -= cached.size();
+      return cached.decompress();
+    }
+    SnapshotSource source = session.getSingleResult(SnapshotSource.class, "snapshotId", snapshot.getId());
+    return source != null ? source.getData() : null;
   }
 
-  private boolean isCached(Snapshot snapshot) {
-    return savedSnapshotIds.contains(snapshot.getId());
+  private void addToCache(Snapshot snapshot, String source) {
+    CompressedSource compressed = CompressedSource.compress(source);
+    cachedSources.put(snapshot.getId(), compressed);
+    cachedBytes += compressed.size();
+    Iterator<CompressedSource> oldest = cachedSources.values().iterator();
+    while (cachedBytes > maxCachedBytes && oldest.hasNext()) {
+      cachedBytes -= oldest.next().size();
+      oldest.remove();
+    }
   }
 
-  private void addToCache(Snapshot snapshot) {
-    savedSnapshotIds.add(snapshot.getId());
+  boolean isCached(Resource resource) {
+    Snapshot snapshot = resourcePersister.getSnapshot(resource);
+    return snapshot != null && cachedSources.containsKey(snapshot.getId());
+  }
+
+  /**
+   * Commits the sources which are not committed yet.
+   */
+  public void commit() {
+    if (uncommitted > 0) {
+      session.commit();
+      uncommitted = 0;
+    }
   }
 
   public void clear() {
+    commit();
     savedSnapshotIds.clear();
+    cachedSources.clear();
+    cachedBytes = 0;
+  }
+
+  static final class CompressedSource {
+    private final byte[] data;
+    private final int length;
+
+    private CompressedSource(byte[] data, int length) {
+      this.data = data;
+      this.length = length;
+    }
+
+    static CompressedSource compress(String source) {
+      if (source == null) {
+        return new CompressedSource(null, 0);
+      }
+      byte[] bytes = toBytes(source);
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try {
+        deflater.setInput(bytes);
+        deflater.finish();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 4 + 16);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+          int count = deflater.deflate(buffer);
+          output.write(buffer, 0, count);
+        }
+        return new CompressedSource(output.toByteArray(), bytes.length);
+      } finally {
+        deflater.end();
+      }
+    }
+
+    int size() {
+      return data != null ? data.length : 0;
+    }
+
+    String decompress() {
+      if (data == null) {
+        return null;
+      }
+      Inflater inflater = new Inflater();
+      try {
+        inflater.setInput(data);
+        byte[] bytes = new byte[length];
+        int offset = 0;
+        while (offset < length && !inflater.finished()) {
+          offset += inflater.inflate(bytes, offset, length - offset);
+        }
+        return new String(bytes, 0, offset, ENCODING);
+      } catch (DataFormatException e) {
+        throw new SonarException("Fail to decompress source", e);
+      } catch (UnsupportedEncodingException e) {
+        throw new SonarException(e);
+      } finally {
+        inflater.end();
+      }
+    }
+
+    private static byte[] toBytes(String source) {
+      try {
+        return source.getBytes(ENCODING);
+      } catch (UnsupportedEncodingException e) {
+        throw new SonarException(e);
+      }
+    }
   }
 }
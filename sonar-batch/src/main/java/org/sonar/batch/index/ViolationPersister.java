@@ -0,0 +1,99 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import org.sonar.api.BatchComponent;
+import org.sonar.api.database.model.RuleFailureMapper;
+import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.core.persistence.BatchSession;
+import org.sonar.core.persistence.MyBatis;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Buffers violations, possibly of several resources, and inserts them by JDBC batches. Violations without permanent id get
+ * their own id as permanent id once inserted. Violations can be saved concurrently, for example by parallel decorators.
+ *
+ * @since 3.3
+ */
+public class ViolationPersister implements BatchComponent {
+
+  /**
+   * Number of buffered violations that are inserted and committed at once.
+   */
+  static final int FLUSH_SIZE = 4 * BatchSession.MAX_BATCH_SIZE;
+
+  /**
+   * Maximum number of parameters of a "in" clause, see Oracle limitations.
+   */
+  private static final int MAX_IN_ELEMENTS = 1000;
+
+  private final MyBatis mybatis;
+  private final PersistenceProfiler profiler;
+  private final List<RuleFailureModel> batchedModels = Lists.newArrayList();
+
+  public ViolationPersister(MyBatis mybatis, PersistenceProfiler profiler) {
+    this.mybatis = mybatis;
+    this.profiler = profiler;
+  }
+
+  /**
+   * The id of the violation is not loaded.
+   */
+  public synchronized void saveViolation(RuleFailureModel model) {
+    batchedModels.add(model);
+    if (batchedModels.size() >= FLUSH_SIZE) {
+      flush();
+    }
+  }
+
+  /**
+   * Inserts the buffered violations. They are committed at once.
+   */
+  public synchronized void flush() {
+    if (batchedModels.isEmpty()) {
+      return;
+    }
+    long start = System.nanoTime();
+    Set<Integer> snapshotIdsWithNewViolations = Sets.newLinkedHashSet();
+    BatchSession session = mybatis.openBatchSession();
+    try {
+      RuleFailureMapper mapper = session.getMapper(RuleFailureMapper.class);
+      for (RuleFailureModel model : batchedModels) {
+        mapper.batchInsert(model);
+        if (model.getPermanentId() == null) {
+          snapshotIdsWithNewViolations.add(model.getSnapshotId());
+        }
+      }
+      for (List<Integer> snapshotIds : Lists.partition(Lists.newArrayList(snapshotIdsWithNewViolations), MAX_IN_ELEMENTS)) {
+        mapper.updatePermanentIds(snapshotIds);
+      }
+      session.commit();
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+    profiler.addBatch(ViolationPersister.class, batchedModels.size());
+    profiler.add(ViolationPersister.class, start);
+    batchedModels.clear();
+  }
+}
@@ -0,0 +1,325 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.phases;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.FileUtils;
+import org.hibernate.ejb.HibernateEntityManagerFactory;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
+import org.sonar.api.batch.events.DecoratorExecutionHandler;
+import org.sonar.api.batch.events.DecoratorsPhaseHandler;
+import org.sonar.api.batch.events.MavenPluginExecutionHandler;
+import org.sonar.api.batch.events.ProjectAnalysisHandler;
+import org.sonar.api.batch.events.SensorExecutionHandler;
+import org.sonar.api.batch.events.SensorsPhaseHandler;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
+import org.sonar.batch.events.FiredEventsCounter;
+import org.sonar.batch.index.PersistenceProfiler;
+import org.sonar.core.persistence.MyBatis;
+import org.sonar.core.persistence.StatementCounter;
+import org.sonar.jpa.session.DatabaseConnector;
+
+import java.io.File;
+import javax.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a JSON report of the execution times of sensors, decorators, Maven plugins and persisters, with the number of
+ * SQL statements executed through MyBatis and Hibernate and the used heap at each phase boundary. The number of rows and batches written by persisters is reported
+ * when they insert by JDBC batches, as well as the number of fired events by type. The report is written in the working
+ * directory of each module.
+ *
+ * @since 3.3
+ */
+@Property(key = AnalysisProfiler.ENABLED_PROPERTY, defaultValue = "false", name = "Profiling report",
+  description = "Write the file profiling.json in the working directory of each module.",
+  global = true, project = true, type = PropertyType.BOOLEAN)
+public class AnalysisProfiler implements ProjectAnalysisHandler, SensorsPhaseHandler, SensorExecutionHandler, DecoratorsPhaseHandler,
+    DecoratorExecutionHandler, MavenPluginExecutionHandler {
+
+  static final String ENABLED_PROPERTY = "sonar.profiling.report";
+  static final String REPORT_FILENAME = "profiling.json";
+
+  private static final Logger LOG = LoggerFactory.getLogger(AnalysisProfiler.class);
+
+  private final boolean enabled;
+  private final StatementCounter statementCounter;
+  private final Statistics jpaStatistics;
+  private final PersistenceProfiler persistenceProfiler;
+  private final FiredEventsCounter firedEventsCounter;
+
+  private long startNanos;
+  private Map<String, Long> persistenceNanosAtStart;
+  private Map<String, Long> persistenceRowsAtStart;
+  private Map<String, Long> persistenceBatchesAtStart;
+  private final List<PhaseBoundary> boundaries = Lists.newArrayList();
+  private final Map<String, Long> sensorNanos = Maps.newLinkedHashMap();
+  private final Map<String, Long> decoratorNanos = Maps.newLinkedHashMap();
+  private final Map<String, Long> mavenPluginNanos = Maps.newLinkedHashMap();
+
+  // sensors and decorators can be executed concurrently, see SensorsExecutor and DecoratorsExecutor
+  private final ThreadLocal<Long> sensorStart = new ThreadLocal<Long>();
+  private final ThreadLocal<Long> decoratorStart = new ThreadLocal<Long>();
+  private final ThreadLocal<Long> mavenPluginStart = new ThreadLocal<Long>();
+
+  public AnalysisProfiler(Settings settings, MyBatis myBatis, DatabaseConnector connector, PersistenceProfiler persistenceProfiler,
+      FiredEventsCounter firedEventsCounter) {
+    this(settings.getBoolean(ENABLED_PROPERTY), myBatis.getStatementCounter(), getHibernateStatistics(connector), persistenceProfiler, firedEventsCounter);
+  }
+
+  /**
+   * @param jpaStatistics null if the statements executed by Hibernate are not counted
+   */
+  AnalysisProfiler(boolean enabled, StatementCounter statementCounter, Statistics jpaStatistics, PersistenceProfiler persistenceProfiler,
+      FiredEventsCounter firedEventsCounter) {
+    this.enabled = enabled;
+    this.statementCounter = statementCounter;
+    this.jpaStatistics = jpaStatistics;
+    this.persistenceProfiler = persistenceProfiler;
+    this.firedEventsCounter = firedEventsCounter;
+    if (enabled && jpaStatistics != null) {
+      jpaStatistics.setStatisticsEnabled(true);
+    }
+  }
+
+  private static Statistics getHibernateStatistics(DatabaseConnector connector) {
+    EntityManagerFactory factory = connector.getEntityManagerFactory();
+    if (factory instanceof HibernateEntityManagerFactory) {
+      return ((HibernateEntityManagerFactory) factory).getSessionFactory().getStatistics();
+    }
+    return null;
+  }
+
+  public void onProjectAnalysis(ProjectAnalysisEvent event) {
+    if (!enabled) {
+      return;
+    }
+    if (event.isStart()) {
+      startNanos = System.nanoTime();
+      persistenceNanosAtStart = persistenceProfiler.getNanosByPersister();
+      persistenceRowsAtStart = persistenceProfiler.getRowsByPersister();
+      persistenceBatchesAtStart = persistenceProfiler.getBatchesByPersister();
+      addBoundary("analysis.start");
+    } else {
+      addBoundary("analysis.end");
+      writeReport(event.getProject());
+    }
+  }
+
+  public void onSensorsPhase(SensorsPhaseEvent event) {
+    if (enabled) {
+      addBoundary(event.isStart() ? "sensors.start" : "sensors.end");
+    }
+  }
+
+  public void onDecoratorsPhase(DecoratorsPhaseEvent event) {
+    if (enabled) {
+      addBoundary(event.isStart() ? "decorators.start" : "decorators.end");
+    }
+  }
+
+  public void onSensorExecution(SensorExecutionEvent event) {
+    if (enabled) {
+      measure(event.isStart(), sensorStart, sensorNanos, event.getSensor().toString());
+    }
+  }
+
+  public void onDecoratorExecution(DecoratorExecutionEvent event) {
+    if (enabled) {
+      measure(event.isStart(), decoratorStart, decoratorNanos, event.getDecorator().toString());
+    }
+  }
+
+  public void onMavenPluginExecution(MavenPluginExecutionEvent event) {
+    if (enabled) {
+      measure(event.isStart(), mavenPluginStart, mavenPluginNanos, event.getMavenPluginHandler().getArtifactId());
+    }
+  }
+
+  private void measure(boolean start, ThreadLocal<Long> startHolder, Map<String, Long> nanos, String name) {
+    if (start) {
+      startHolder.set(System.nanoTime());
+    } else {
+      long duration = System.nanoTime() - startHolder.get();
+      synchronized (this) {
+        Long total = nanos.get(name);
+        nanos.put(name, (total != null ? total : 0L) + duration);
+      }
+    }
+  }
+
+  private synchronized void addBoundary(String name) {
+    Runtime runtime = Runtime.getRuntime();
+    long jpaStatements = 0L;
+    long jpaUpdates = 0L;
+    if (jpaStatistics != null) {
+      jpaStatements = jpaStatistics.getPrepareStatementCount();
+      jpaUpdates = jpaStatistics.getEntityInsertCount() + jpaStatistics.getEntityUpdateCount() + jpaStatistics.getEntityDeleteCount();
+    }
+    boundaries.add(new PhaseBoundary(name, System.nanoTime() - startNanos, runtime.totalMemory() - runtime.freeMemory(),
+        statementCounter.getSelects(), statementCounter.getUpdates(), jpaStatements, jpaUpdates));
+  }
+
+  private synchronized void writeReport(Project project) {
+    File file = new File(project.getFileSystem().getSonarWorkingDirectory(), REPORT_FILENAME);
+    try {
+      FileUtils.writeStringToFile(file, toJson(project.getKey()), "UTF-8");
+      LOG.info("Profiling report: " + file.getAbsolutePath());
+    } catch (IOException e) {
+      throw new SonarException("Fail to write the profiling report: " + file, e);
+    } finally {
+      boundaries.clear();
+      sensorNanos.clear();
+      decoratorNanos.clear();
+      mavenPluginNanos.clear();
+    }
+  }
+
+  synchronized String toJson(String projectKey) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("{\"project\":");
+    appendString(sb, projectKey);
+    sb.append(",\"phases\":[");
+    for (int i = 0; i < boundaries.size(); i++) {
+      PhaseBoundary boundary = boundaries.get(i);
+      sb.append(i > 0 ? "," : "").append("{\"name\":");
+      appendString(sb, boundary.name);
+      sb.append(",\"nanos\":").append(boundary.nanos)
+          .append(",\"heapUsed\":").append(boundary.heapUsed)
+          .append(",\"sqlSelects\":").append(boundary.sqlSelects)
+          .append(",\"sqlUpdates\":").append(boundary.sqlUpdates)
+          .append(",\"jpaStatements\":").append(boundary.jpaStatements)
+          .append(",\"jpaUpdates\":").append(boundary.jpaUpdates)
+          .append('}');
+    }
+    sb.append("],\"sensors\":");
+    appendNanos(sb, sensorNanos);
+    sb.append(",\"mavenPlugins\":");
+    appendNanos(sb, mavenPluginNanos);
+    sb.append(",\"decorators\":");
+    appendNanos(sb, decoratorNanos);
+    sb.append(",\"persisters\":");
+    appendNanos(sb, ofModule(persistenceProfiler.getNanosByPersister(), persistenceNanosAtStart),
+        ofModule(persistenceProfiler.getRowsByPersister(), persistenceRowsAtStart),
+        ofModule(persistenceProfiler.getBatchesByPersister(), persistenceBatchesAtStart));
+    sb.append(",\"events\":[");
+    boolean first = true;
+    // the event bus is created for each module, so counters are not shared by modules
+    for (Map.Entry<String, Long> entry : firedEventsByName().entrySet()) {
+      sb.append(first ? "" : ",").append("{\"name\":");
+      appendString(sb, entry.getKey());
+      sb.append(",\"count\":").append(entry.getValue()).append('}');
+      first = false;
+    }
+    sb.append("]}");
+    return sb.toString();
+  }
+
+  private Map<String, Long> firedEventsByName() {
+    Map<String, Long> result = Maps.newTreeMap();
+    for (Map.Entry<Class, Long> entry : firedEventsCounter.getFiredEvents().entrySet()) {
+      result.put(entry.getKey().getSimpleName(), entry.getValue());
+    }
+    return result;
+  }
+
+  /**
+   * Persisters are shared by modules, so their totals at the start of the module analysis are subtracted.
+   */
+  private static Map<String, Long> ofModule(Map<String, Long> totals, Map<String, Long> totalsAtStart) {
+    if (totalsAtStart != null) {
+      for (Map.Entry<String, Long> entry : totals.entrySet()) {
+        Long before = totalsAtStart.get(entry.getKey());
+        if (before != null) {
+          entry.setValue(entry.getValue() - before);
+        }
+      }
+    }
+    return totals;
+  }
+
+  private static void appendNanos(StringBuilder sb, Map<String, Long> nanosByName) {
+    appendNanos(sb, nanosByName, Collections.<String, Long>emptyMap(), Collections.<String, Long>emptyMap());
+  }
+
+  private static void appendNanos(StringBuilder sb, Map<String, Long> nanosByName, Map<String, Long> rowsByName, Map<String, Long> batchesByName) {
+    sb.append('[');
+    boolean first = true;
+    for (Map.Entry<String, Long> entry : nanosByName.entrySet()) {
+      sb.append(first ? "" : ",").append("{\"name\":");
+      appendString(sb, entry.getKey());
+      sb.append(",\"nanos\":").append(entry.getValue());
+      Long rows = rowsByName.get(entry.getKey());
+      if (rows != null) {
+        sb.append(",\"rows\":").append(rows).append(",\"batches\":").append(batchesByName.get(entry.getKey()));
+      }
+      sb.append('}');
+      first = false;
+    }
+    sb.append(']');
+  }
+
+  private static void appendString(StringBuilder sb, String s) {
+    sb.append('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    sb.append('"');
+  }
+
+  private static final class PhaseBoundary {
+    private final String name;
+    private final long nanos;
+    private final long heapUsed;
+    private final long sqlSelects;
+    private final long sqlUpdates;
+    // all the JDBC statements prepared by Hibernate, and the entities it inserted, updated or deleted
+    private final long jpaStatements;
+    private final long jpaUpdates;
+
+    private PhaseBoundary(String name, long nanos, long heapUsed, long sqlSelects, long sqlUpdates, long jpaStatements, long jpaUpdates) {
+      this.name = name;
+      this.nanos = nanos;
+      this.heapUsed = heapUsed;
+      this.sqlSelects = sqlSelects;
+      this.sqlUpdates = sqlUpdates;
+      this.jpaStatements = jpaStatements;
+      this.jpaUpdates = jpaUpdates;
+    }
+  }
+}
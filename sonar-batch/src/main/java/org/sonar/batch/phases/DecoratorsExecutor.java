@@ -21,10 +21,15 @@ package org.sonar.batch.phases;
 
 import com.google.common.collect.Lists;
 import org.sonar.api.BatchComponent;
+import org.sonar.api.Properties;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
 import org.sonar.api.utils.SonarException;
@@ -34,13 +39,30 @@ import org.sonar.batch.events.EventBus;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+@Properties({
+  @Property(key = DecoratorsExecutor.PARALLEL_PROPERTY, defaultValue = "false", name = "Parallel decorators",
+    description = "Decorate independent subtrees of resources concurrently. Only decorators annotated with @ThreadSafe are executed concurrently, the other ones are executed by one thread at a time.",
+    global = true, project = true, type = PropertyType.BOOLEAN),
+  @Property(key = DecoratorsExecutor.THREADS_PROPERTY, name = "Decorator threads",
+    description = "Number of threads used by parallel decorators. Default is the number of available processors.",
+    global = true, project = true, type = PropertyType.INTEGER)
+})
 public class DecoratorsExecutor implements BatchComponent {
 
+  static final String PARALLEL_PROPERTY = "sonar.decorators.parallel";
+  static final String THREADS_PROPERTY = "sonar.decorators.threads";
+
   private DecoratorsSelector decoratorsSelector;
   private SonarIndex index;
   private EventBus eventBus;
   private Project project;
+  private int threads = 1;
 
   public DecoratorsExecutor(BatchExtensionDictionnary extensionDictionnary, Project project, SonarIndex index, EventBus eventBus) {
     this.decoratorsSelector = new DecoratorsSelector(extensionDictionnary);
@@ -49,10 +71,22 @@ public class DecoratorsExecutor implements BatchComponent {
     this.project = project;
   }
 
+  public DecoratorsExecutor(BatchExtensionDictionnary extensionDictionnary, Project project, SonarIndex index, EventBus eventBus, Settings settings) {
+    this(extensionDictionnary, project, index, eventBus);
+    if (settings.getBoolean(PARALLEL_PROPERTY)) {
+      int configuredThreads = settings.getInt(THREADS_PROPERTY);
+      this.threads = configuredThreads > 0 ? configuredThreads : Runtime.getRuntime().availableProcessors();
+    }
+  }
+
   public void execute() {
     Collection<Decorator> decorators = decoratorsSelector.select(project);
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), true));
-    decorateResource(project, decorators, true);
+    if (threads > 1) {
+      decorateInParallel(project, decorators);
+    } else {
+      decorateResource(project, decorators, true);
+    }
     eventBus.fireEvent(new DecoratorsPhaseEvent(Lists.newArrayList(decorators), false));
   }
 
@@ -73,16 +107,120 @@ public class DecoratorsExecutor implements BatchComponent {
     return context;
   }
 
+  /**
+   * Resources are decorated level by level, from the deepest one to the project. All the resources of a level
+   * are independent, so they are decorated concurrently. A level starts only when the previous one is complete,
+   * so children are always decorated before their parent.
+   */
+  void decorateInParallel(Resource root, Collection<Decorator> decorators) {
+    List<List<ResourceNode>> levels = Lists.newArrayList();
+    indexLevels(new ResourceNode(root, true), 0, levels);
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (int depth = levels.size() - 1; depth >= 0; depth--) {
+        decorateLevel(levels.get(depth), decorators, executor);
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void indexLevels(ResourceNode node, int depth, List<List<ResourceNode>> levels) {
+    if (levels.size() <= depth) {
+      levels.add(Lists.<ResourceNode>newArrayList());
+    }
+    levels.get(depth).add(node);
+    for (Resource child : index.getChildren(node.resource)) {
+      ResourceNode childNode = new ResourceNode(child, !(child instanceof Project));
+      node.children.add(childNode);
+      indexLevels(childNode, depth + 1, levels);
+    }
+  }
+
+  private void decorateLevel(List<ResourceNode> nodes, final Collection<Decorator> decorators, ExecutorService executor) {
+    List<Future<?>> futures = Lists.newArrayListWithCapacity(nodes.size());
+    for (final ResourceNode node : nodes) {
+      futures.add(executor.submit(new Callable<Object>() {
+        public Object call() {
+          decorateNode(node, decorators);
+          return null;
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      waitFor(future);
+    }
+  }
+
+  private void decorateNode(ResourceNode node, Collection<Decorator> decorators) {
+    List<DecoratorContext> childrenContexts = Lists.newArrayListWithCapacity(node.children.size());
+    for (ResourceNode child : node.children) {
+      childrenContexts.add(child.context.setReadOnly(true));
+    }
+    node.context = new DefaultDecoratorContext(node.resource, index, childrenContexts);
+    if (node.executeDecorators) {
+      for (Decorator decorator : decorators) {
+        if (decorator.getClass().isAnnotationPresent(ThreadSafe.class)) {
+          executeDecorator(decorator, node.context, node.resource);
+        } else {
+          // decorators can share state, for example the database session, so they are all serialized by the lock
+          // of the index. The index uses the same lock to persist measures saved by the thread-safe decorators.
+          synchronized (index) {
+            executeDecorator(decorator, node.context, node.resource);
+          }
+        }
+      }
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Decorators have been interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new SonarException(e.getCause());
+    }
+  }
+
   void executeDecorator(Decorator decorator, DefaultDecoratorContext context, Resource resource) {
     try {
-      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, true));
+      fireEvent(new DecoratorExecutionEvent(decorator, true));
       decorator.decorate(resource, context);
-      eventBus.fireEvent(new DecoratorExecutionEvent(decorator, false));
-      
+      fireEvent(new DecoratorExecutionEvent(decorator, false));
+
     } catch (Exception e) {
       // SONAR-2278 the resource should not be lost in exception stacktrace.
       throw new SonarException("Fail to decorate '" + resource + "'", e);
     }
   }
 
+  private void fireEvent(DecoratorExecutionEvent event) {
+    if (threads > 1) {
+      // event handlers are not expected to be thread-safe
+      synchronized (eventBus) {
+        eventBus.fireEvent(event);
+      }
+    } else {
+      eventBus.fireEvent(event);
+    }
+  }
+
+  private static final class ResourceNode {
+    private final Resource resource;
+    private final boolean executeDecorators;
+    private final List<ResourceNode> children = Lists.newArrayList();
+    private DefaultDecoratorContext context;
+
+    private ResourceNode(Resource resource, boolean executeDecorators) {
+      this.resource = resource;
+      this.executeDecorators = executeDecorators;
+    }
+  }
+
 }
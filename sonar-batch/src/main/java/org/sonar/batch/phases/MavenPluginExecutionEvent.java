@@ -0,0 +1,49 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.phases;
+
+import org.sonar.api.batch.events.MavenPluginExecutionHandler;
+import org.sonar.api.batch.maven.MavenPluginHandler;
+
+class MavenPluginExecutionEvent extends AbstractPhaseEvent<MavenPluginExecutionHandler>
+    implements org.sonar.api.batch.events.MavenPluginExecutionHandler.MavenPluginExecutionEvent {
+
+  private final MavenPluginHandler handler;
+
+  MavenPluginExecutionEvent(MavenPluginHandler handler, boolean start) {
+    super(start);
+    this.handler = handler;
+  }
+
+  public MavenPluginHandler getMavenPluginHandler() {
+    return handler;
+  }
+
+  @Override
+  public void dispatch(MavenPluginExecutionHandler handler) {
+    handler.onMavenPluginExecution(this);
+  }
+
+  @Override
+  public Class getType() {
+    return MavenPluginExecutionHandler.class;
+  }
+
+}
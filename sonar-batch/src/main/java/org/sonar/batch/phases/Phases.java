@@ -103,6 +103,7 @@ public final class Phases {
     }
     cleanMemory();
     eventBus.fireEvent(new ProjectAnalysisEvent(project, false));
+    eventBus.logFiredEvents();
   }
 
   private void cleanMemory() {
@@ -39,7 +39,13 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, DecoratorExec
 
   private static final Logger LOG = LoggerFactory.getLogger(PhasesTimeProfiler.class);
 
-  private TimeProfiler profiler = new TimeProfiler(LOG);
+  // sensors can be executed concurrently, see SensorsExecutor
+  private ThreadLocal<TimeProfiler> profiler = new ThreadLocal<TimeProfiler>() {
+    @Override
+    protected TimeProfiler initialValue() {
+      return new TimeProfiler(LOG);
+    }
+  };
   private DecoratorsProfiler decoratorsProfiler = new DecoratorsProfiler();
 
   public void onSensorsPhase(SensorsPhaseEvent event) {
@@ -50,9 +56,9 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, DecoratorExec
 
   public void onSensorExecution(SensorExecutionEvent event) {
     if (event.isStart()) {
-      profiler.start("Sensor " + event.getSensor());
+      profiler.get().start("Sensor " + event.getSensor());
     } else {
-      profiler.stop();
+      profiler.get().stop();
     }
   }
 
@@ -78,33 +84,35 @@ public class PhasesTimeProfiler implements SensorExecutionHandler, DecoratorExec
   static class DecoratorsProfiler {
     List<Decorator> decorators = Lists.newArrayList();
     Map<Decorator, Long> durations = new IdentityHashMap<Decorator, Long>();
-    long startTime;
-    Decorator currentDecorator;
+    // decorators can be executed concurrently, see DecoratorsExecutor
+    ThreadLocal<Long> startTime = new ThreadLocal<Long>();
+    ThreadLocal<Decorator> currentDecorator = new ThreadLocal<Decorator>();
 
     DecoratorsProfiler() {
     }
 
     void start(Decorator decorator) {
-      this.startTime = System.currentTimeMillis();
-      this.currentDecorator = decorator;
+      this.startTime.set(System.currentTimeMillis());
+      this.currentDecorator.set(decorator);
     }
 
-    void stop() {
+    synchronized void stop() {
+      Decorator decorator = currentDecorator.get();
       final Long cumulatedDuration;
-      if (durations.containsKey(currentDecorator)) {
-        cumulatedDuration = durations.get(currentDecorator);
+      if (durations.containsKey(decorator)) {
+        cumulatedDuration = durations.get(decorator);
       } else {
-        decorators.add(currentDecorator);
+        decorators.add(decorator);
         cumulatedDuration = 0L;
       }
-      durations.put(currentDecorator, cumulatedDuration + (System.currentTimeMillis() - startTime));
+      durations.put(decorator, cumulatedDuration + (System.currentTimeMillis() - startTime.get()));
     }
 
     void log() {
       LOG.debug(getMessage());
     }
 
-    String getMessage() {
+    synchronized String getMessage() {
       StringBuilder sb = new StringBuilder("Decorator time:").append(SystemUtils.LINE_SEPARATOR);
       for (Decorator decorator : decorators) {
         sb.append("\t").append(decorator.toString()).append(": ").append(durations.get(decorator)).append("ms")
@@ -20,30 +20,54 @@
 package org.sonar.batch.phases;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.sonar.api.BatchComponent;
+import org.sonar.api.Property;
+import org.sonar.api.PropertyType;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Sensor;
 import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.ThreadSafe;
 import org.sonar.api.batch.bootstrap.ProjectDefinition;
 import org.sonar.api.batch.maven.DependsUponMavenPlugin;
 import org.sonar.api.batch.maven.MavenPluginHandler;
+import org.sonar.api.config.Settings;
 import org.sonar.api.resources.Project;
+import org.sonar.api.utils.SonarException;
 import org.sonar.api.utils.TimeProfiler;
 import org.sonar.batch.MavenPluginExecutor;
+import org.sonar.batch.events.BatchEvent;
 import org.sonar.batch.events.EventBus;
 
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+@Property(key = SensorsExecutor.PARALLELISM_PROPERTY, defaultValue = "1", name = "Sensors parallelism",
+  description = "Maximum number of sensors executed concurrently. Sensors are started as soon as the sensors they depend upon are done. "
+    + "Only sensors annotated with @ThreadSafe are executed concurrently, the other ones are always executed alone, by the main thread.",
+  global = true, project = true, type = PropertyType.INTEGER)
 public class SensorsExecutor implements BatchComponent {
   private static final Logger LOG = LoggerFactory.getLogger(SensorsExecutor.class);
 
+  static final String PARALLELISM_PROPERTY = "sonar.sensors.parallelism";
+
   private MavenPluginExecutor mavenExecutor;
   private EventBus eventBus;
   private Project project;
   private ProjectDefinition projectDefinition;
   private BatchExtensionDictionnary selector;
+  private int parallelism = 1;
 
   public SensorsExecutor(BatchExtensionDictionnary selector, Project project, ProjectDefinition projectDefinition, MavenPluginExecutor mavenExecutor, EventBus eventBus) {
     this.selector = selector;
@@ -53,27 +77,119 @@ public class SensorsExecutor implements BatchComponent {
     this.projectDefinition = projectDefinition;
   }
 
+  public SensorsExecutor(BatchExtensionDictionnary selector, Project project, ProjectDefinition projectDefinition, MavenPluginExecutor mavenExecutor, EventBus eventBus,
+      Settings settings) {
+    this(selector, project, projectDefinition, mavenExecutor, eventBus);
+    this.parallelism = Math.max(1, settings.getInt(PARALLELISM_PROPERTY));
+  }
+
   public void execute(SensorContext context) {
     Collection<Sensor> sensors = selector.select(Sensor.class, project, true);
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), true));
 
-    for (Sensor sensor : sensors) {
-      executeMavenPlugin(sensor);
-
-      eventBus.fireEvent(new SensorExecutionEvent(sensor, true));
-      sensor.analyse(project, context);
-      eventBus.fireEvent(new SensorExecutionEvent(sensor, false));
+    if (parallelism > 1 && sensors.size() > 1) {
+      executeInParallel(sensors, context);
+    } else {
+      for (Sensor sensor : sensors) {
+        executeSensor(sensor, context);
+      }
     }
 
     eventBus.fireEvent(new SensorsPhaseEvent(Lists.newArrayList(sensors), false));
   }
 
+  private void executeSensor(Sensor sensor, SensorContext context) {
+    executeMavenPlugin(sensor);
+
+    fireEvent(new SensorExecutionEvent(sensor, true));
+    sensor.analyse(project, context);
+    fireEvent(new SensorExecutionEvent(sensor, false));
+  }
+
+  /**
+   * Sensors are started in the sorted order as soon as all the sensors they depend upon, directly or not, are done.
+   * Thread-safe sensors are executed by the pool, the other ones are executed alone by the calling thread.
+   */
+  void executeInParallel(Collection<Sensor> sensors, final SensorContext context) {
+    Map<Sensor, Set<Sensor>> prerequisites = selector.getPrerequisites(sensors);
+    List<Sensor> pending = Lists.newLinkedList(sensors);
+    Set<Sensor> done = Sets.newHashSet();
+    int running = 0;
+
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+    CompletionService<Sensor> completionService = new ExecutorCompletionService<Sensor>(executor);
+    try {
+      while (!pending.isEmpty() || running > 0) {
+        Sensor exclusiveSensor = null;
+        Iterator<Sensor> it = pending.iterator();
+        while (it.hasNext() && running < parallelism && exclusiveSensor == null) {
+          final Sensor sensor = it.next();
+          if (done.containsAll(prerequisites.get(sensor))) {
+            if (sensor.getClass().isAnnotationPresent(ThreadSafe.class)) {
+              it.remove();
+              running++;
+              completionService.submit(new Callable<Sensor>() {
+                public Sensor call() {
+                  executeSensor(sensor, context);
+                  return sensor;
+                }
+              });
+            } else if (running == 0) {
+              it.remove();
+              exclusiveSensor = sensor;
+            }
+          }
+        }
+        if (exclusiveSensor != null) {
+          executeSensor(exclusiveSensor, context);
+          done.add(exclusiveSensor);
+        } else if (running == 0) {
+          throw new IllegalStateException("Sensors can not be scheduled: " + pending);
+        } else {
+          done.add(waitForNextSensor(completionService));
+          running--;
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Sensor waitForNextSensor(CompletionService<Sensor> completionService) {
+    try {
+      return completionService.take().get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SonarException("Sensors have been interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new SonarException(e.getCause());
+    }
+  }
+
+  private void fireEvent(BatchEvent event) {
+    if (parallelism > 1) {
+      // event handlers are not expected to be thread-safe
+      synchronized (eventBus) {
+        eventBus.fireEvent(event);
+      }
+    } else {
+      eventBus.fireEvent(event);
+    }
+  }
+
   private void executeMavenPlugin(Sensor sensor) {
     if (sensor instanceof DependsUponMavenPlugin) {
       MavenPluginHandler handler = ((DependsUponMavenPlugin) sensor).getMavenPluginHandler(project);
       if (handler != null) {
         TimeProfiler profiler = new TimeProfiler(LOG).start("Execute maven plugin " + handler.getArtifactId());
-        mavenExecutor.execute(project, projectDefinition, handler);
+        synchronized (mavenExecutor) {
+          fireEvent(new MavenPluginExecutionEvent(handler, true));
+          mavenExecutor.execute(project, projectDefinition, handler);
+          fireEvent(new MavenPluginExecutionEvent(handler, false));
+        }
         profiler.stop();
       }
     }
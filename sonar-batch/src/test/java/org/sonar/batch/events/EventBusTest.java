@@ -21,6 +21,7 @@ package org.sonar.batch.events;
 
 import org.sonar.api.batch.events.EventHandler;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 
@@ -43,6 +44,35 @@ public class EventBusTest {
     verify(secondHandler).onEvent(secondEvent);
   }
 
+  @Test
+  public void shouldCountFiredEvents() {
+    EventBus eventBus = new EventBus(new EventHandler[] { mock(FirstHandler.class) });
+
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new FirstEvent());
+    eventBus.fireEvent(new SecondEvent());
+
+    assertThat(eventBus.getFiredEvents().get(FirstEvent.class)).isEqualTo(2L);
+    assertThat(eventBus.getFiredEvents().get(SecondEvent.class)).isEqualTo(1L);
+  }
+
+  @Test
+  public void shouldNotifyHandlersOfSubInterfaces() {
+    BothHandler handler = mock(BothHandler.class);
+    EventBus eventBus = new EventBus(new EventHandler[] { handler });
+
+    FirstEvent firstEvent = new FirstEvent();
+    eventBus.fireEvent(firstEvent);
+    SecondEvent secondEvent = new SecondEvent();
+    eventBus.fireEvent(secondEvent);
+
+    verify(handler).onEvent(firstEvent);
+    verify(handler).onEvent(secondEvent);
+  }
+
+  interface BothHandler extends FirstHandler, SecondHandler {
+  }
+
   interface FirstHandler extends EventHandler {
     void onEvent(FirstEvent event);
   }
@@ -0,0 +1,119 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class DataMeasureStoreTest {
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
+  private DataMeasureStore store;
+
+  @Before
+  public void createStore() throws IOException {
+    store = new DataMeasureStore(temp.newFile("data.bin"), 10, 16);
+  }
+
+  @After
+  public void closeStore() {
+    store.close();
+  }
+
+  @Test
+  public void should_return_null_if_not_stored() {
+    assertThat(store.get(1L)).isNull();
+    assertThat(store.contains(1L)).isFalse();
+  }
+
+  @Test
+  public void should_read_from_cache() {
+    store.put(1L, "1=2;3=4");
+
+    assertThat(store.get(1L)).isEqualTo("1=2;3=4");
+    assertThat(store.getHits()).isEqualTo(1L);
+    assertThat(store.getMisses()).isEqualTo(0L);
+  }
+
+  @Test
+  public void should_read_from_file_when_evicted_from_cache() {
+    store.put(1L, "1=2;3=4");
+    store.put(2L, "5=6;7=8");
+
+    assertThat(store.getEvictions()).isEqualTo(1L);
+    assertThat(store.get(1L)).isEqualTo("1=2;3=4");
+    assertThat(store.getMisses()).isEqualTo(1L);
+    assertThat(store.get(2L)).isEqualTo("5=6;7=8");
+    assertThat(store.getWrites()).isEqualTo(2L);
+  }
+
+  @Test
+  public void should_store_values_larger_than_segments() {
+    String large = "0123456789012345678901234567890123456789";
+    store.put(1L, "1=2");
+    store.put(2L, large);
+    store.put(3L, "é=à");
+
+    assertThat(store.get(2L)).isEqualTo(large);
+    assertThat(store.get(1L)).isEqualTo("1=2");
+    assertThat(store.get(3L)).isEqualTo("é=à");
+  }
+
+  @Test
+  public void should_recycle_segments_when_cleared() {
+    store.put(1L, "0123456789");
+    store.put(2L, "0123456789");
+    store.put(3L, "0123456789");
+    long fileSize = store.getFileSize();
+
+    store.clear();
+    assertThat(store.contains(1L)).isFalse();
+    assertThat(store.get(1L)).isNull();
+
+    store.put(4L, "abcdefghij");
+    store.put(5L, "klmnopqrst");
+    store.put(6L, "uvwxyz0123");
+    assertThat(store.getFileSize()).isEqualTo(fileSize);
+    assertThat(store.get(4L)).isEqualTo("abcdefghij");
+    assertThat(store.get(5L)).isEqualTo("klmnopqrst");
+    assertThat(store.get(6L)).isEqualTo("uvwxyz0123");
+  }
+
+  @Test
+  public void should_delete_file_when_closed() throws IOException {
+    File file = temp.newFile("other.bin");
+    DataMeasureStore other = new DataMeasureStore(file, 10, 16);
+    other.put(1L, "1=2");
+
+    other.close();
+
+    assertThat(file.exists()).isFalse();
+  }
+}
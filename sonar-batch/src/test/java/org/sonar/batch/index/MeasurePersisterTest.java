@@ -96,6 +96,13 @@ public class MeasurePersisterTest extends AbstractDaoTestCase {
     verify(memoryOptimizer).reloadMeasure(measure);
   }
 
+  @Test
+  public void should_clear_spilled_data_when_module_is_done() {
+    measurePersister.clear();
+
+    verify(memoryOptimizer).clear();
+  }
+
   @Test
   public void should_insert_rule_measure() {
     setupData("empty");
@@ -203,6 +210,68 @@ public class MeasurePersisterTest extends AbstractDaoTestCase {
     checkTables("shouldInsertMeasure", "project_measures");
   }
 
+  @Test
+  public void should_insert_measures_by_batch() {
+    setupData("empty");
+
+    Measure measure = new Measure(ncloc()).setValue(1234.0);
+    measurePersister.setBatchMode(true);
+    measurePersister.saveMeasure(project, measure);
+
+    assertEmptyTables("project_measures");
+    assertThat(measure.getId()).isNull();
+
+    measurePersister.flush();
+    checkTables("shouldInsertMeasure", "project_measures");
+  }
+
+  @Test
+  public void should_load_id_when_updating_batched_measure() {
+    setupData("empty");
+
+    Measure measure = new Measure(ncloc());
+    measurePersister.setBatchMode(true);
+    measurePersister.saveMeasure(project, measure.setValue(200.0));
+    measurePersister.saveMeasure(project, measure.setValue(300.0));
+
+    assertThat(measure.getId()).isNotNull();
+    checkTables("shouldAddDelayedMeasureSeveralTimes", "project_measures");
+  }
+
+  @Test
+  public void should_load_greatest_id_when_measure_is_inserted_several_times() {
+    setupData("empty");
+
+    Measure first = new Measure(ncloc()).setValue(100.0);
+    Measure second = new Measure(ncloc()).setValue(200.0);
+    measurePersister.setBatchMode(true);
+    measurePersister.saveMeasure(project, first);
+    measurePersister.saveMeasure(project, second);
+    measurePersister.saveMeasure(project, second.setValue(300.0));
+
+    assertThat(first.getId()).isNull();
+    assertThat(second.getId()).isNotNull();
+  }
+
+  @Test
+  public void should_insert_data_by_batch_when_dumping_delayed_measures() {
+    setupData("empty");
+
+    PersistenceProfiler profiler = new PersistenceProfiler();
+    measurePersister = new MeasurePersister(getMyBatis(), resourcePersister, ruleFinder, memoryOptimizer, profiler);
+    measurePersister.setBatchMode(true);
+    measurePersister.setDelayedMode(true);
+    measurePersister.saveMeasure(project, new Measure(ncloc()).setValue(1234.0).setData(SHORT));
+    measurePersister.saveMeasure(aPackage, new Measure(ncloc()).setValue(50.0).setData(LONG));
+
+    measurePersister.dump();
+
+    checkTables("shouldInsertDataByBatch", "project_measures", "measure_data");
+    // the measure with short data and the data of the other measure
+    assertThat(profiler.getRowsByPersister().get("MeasurePersister")).isEqualTo(2L);
+    assertThat(profiler.getBatchesByPersister().get("MeasurePersister")).isEqualTo(1L);
+  }
+
   @Test
   public void should_not_save_best_value_measures_in_delayed_mode() {
     setupData("empty");
@@ -19,7 +19,10 @@
  */
 package org.sonar.batch.index;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.batch.events.DecoratorExecutionHandler;
 import org.sonar.api.database.model.MeasureData;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.api.measures.CoreMetrics;
@@ -27,13 +30,20 @@ import org.sonar.api.measures.Measure;
 import org.sonar.api.measures.PersistenceMode;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
+import java.io.IOException;
+
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class MemoryOptimizerTest extends AbstractDbUnitTestCase {
 
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+
   @Test
   public void shouldEvictDatabaseOnlyMeasure() {
     MemoryOptimizer optimizer = new MemoryOptimizer(getSession());
@@ -83,6 +93,72 @@ public class MemoryOptimizerTest extends AbstractDbUnitTestCase {
     assertThat(measure.getData(), nullValue());
   }
 
+  @Test
+  public void shouldReloadSpilledMeasureWithoutDatabase() throws IOException {
+    DataMeasureStore store = new DataMeasureStore(temp.newFile("data.bin"), MemoryOptimizer.MAX_CACHED_CHARS);
+    MemoryOptimizer optimizer = new MemoryOptimizer(getSession(), store);
+    Measure measure = new Measure(CoreMetrics.CONDITIONS_BY_LINE)
+        .setData("10=23")
+        .setPersistenceMode(PersistenceMode.DATABASE)
+        .setId(12345L);
+
+    optimizer.evictDataMeasure(measure, newPersistedModel());
+    assertThat(measure.getData(), nullValue());
+
+    optimizer.reloadMeasure(measure);
+    assertThat(measure.getData(), is("10=23"));
+    assertThat(store.getWrites(), is(1L));
+
+    optimizer.stop();
+  }
+
+  @Test
+  public void shouldDropSpilledMeasuresOnClear() throws IOException {
+    DataMeasureStore store = new DataMeasureStore(temp.newFile("data.bin"), MemoryOptimizer.MAX_CACHED_CHARS);
+    MemoryOptimizer optimizer = new MemoryOptimizer(getSession(), store);
+    Measure measure = new Measure(CoreMetrics.CONDITIONS_BY_LINE)
+        .setData("10=23")
+        .setPersistenceMode(PersistenceMode.DATABASE)
+        .setId(12345L);
+    optimizer.evictDataMeasure(measure, newPersistedModel());
+
+    optimizer.clear();
+
+    assertThat(store.contains(12345L), is(false));
+    // still reloaded from database
+    assertThat(optimizer.isTracked(12345L), is(true));
+    optimizer.stop();
+  }
+
+  @Test
+  public void shouldNotFlushMemoryWhileDecoratorsAreRunning() {
+    setupData("shouldReloadEvictedMeasure");
+    MemoryOptimizer optimizer = new MemoryOptimizer(getSession());
+    Measure measure = new Measure(CoreMetrics.CONDITIONS_BY_LINE)
+        .setData("initial")
+        .setPersistenceMode(PersistenceMode.DATABASE)
+        .setId(12345L);
+    optimizer.evictDataMeasure(measure, newPersistedModel());
+
+    optimizer.onDecoratorExecution(decoratorEvent(true));
+    optimizer.onDecoratorExecution(decoratorEvent(true));
+    optimizer.reloadMeasure(measure);
+    optimizer.onDecoratorExecution(decoratorEvent(false));
+
+    // the second decorator is still running
+    assertThat(measure.getData().length(), greaterThan(5));
+
+    optimizer.onDecoratorExecution(decoratorEvent(false));
+    assertThat(measure.getData(), nullValue());
+  }
+
+  private static DecoratorExecutionHandler.DecoratorExecutionEvent decoratorEvent(boolean start) {
+    DecoratorExecutionHandler.DecoratorExecutionEvent event = mock(DecoratorExecutionHandler.DecoratorExecutionEvent.class);
+    when(event.isStart()).thenReturn(start);
+    when(event.isEnd()).thenReturn(!start);
+    return event;
+  }
+
   private MeasureModel newPersistedModel() {
     MeasureModel model = new MeasureModel();
     model.setId(12345L);
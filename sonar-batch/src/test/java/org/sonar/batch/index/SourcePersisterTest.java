@@ -19,6 +19,7 @@
  */
 package org.sonar.batch.index;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.api.database.model.Snapshot;
@@ -27,29 +28,75 @@ import org.sonar.api.resources.JavaFile;
 import org.sonar.api.resources.Resource;
 import org.sonar.jpa.test.AbstractDbUnitTestCase;
 
+import static org.fest.assertions.Assertions.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class SourcePersisterTest extends AbstractDbUnitTestCase {
 
+  private ResourcePersister resourcePersister;
   private SourcePersister sourcePersister;
 
   @Before
   public void before() {
     setupData("shared");
     Snapshot snapshot = getSession().getSingleResult(Snapshot.class, "id", 1000);
-    ResourcePersister resourcePersister = mock(ResourcePersister.class);
+    resourcePersister = mock(ResourcePersister.class);
     when(resourcePersister.getSnapshotOrFail(any(Resource.class))).thenReturn(snapshot);
+    when(resourcePersister.getSnapshot(any(Resource.class))).thenReturn(snapshot);
     sourcePersister = new SourcePersister(getSession(), resourcePersister);
   }
 
   @Test
   public void shouldSaveSource() {
     sourcePersister.saveSource(new JavaFile("org.foo.Bar"), "this is the file content");
+    sourcePersister.commit();
     checkTables("shouldSaveSource", "snapshot_sources");
   }
 
+  @Test
+  public void shouldReadSavedSourceFromCache() {
+    JavaFile file = new JavaFile("org.foo.Bar");
+    String source = StringUtils.repeat("public class Bar { /* \u00e9t\u00e9 */ }\n", 100);
+    sourcePersister.saveSource(file, source);
+
+    assertThat(sourcePersister.getSource(file)).isEqualTo(source);
+  }
+
+  @Test
+  public void shouldDropCachedSourceOnceRead() {
+    JavaFile file = new JavaFile("org.foo.Bar");
+    sourcePersister.saveSource(file, "this is the file content");
+    assertThat(sourcePersister.isCached(file)).isTrue();
+
+    assertThat(sourcePersister.getSource(file)).isEqualTo("this is the file content");
+    assertThat(sourcePersister.isCached(file)).isFalse();
+
+    // read from database
+    assertThat(sourcePersister.getSource(file)).isEqualTo("this is the file content");
+  }
+
+  @Test
+  public void shouldNotCacheSourcesBeyondMaxSize() {
+    sourcePersister = new SourcePersister(getSession(), resourcePersister, 0L);
+    JavaFile file = new JavaFile("org.foo.Bar");
+    sourcePersister.saveSource(file, "this is the file content");
+
+    assertThat(sourcePersister.isCached(file)).isFalse();
+    assertThat(sourcePersister.getSource(file)).isEqualTo("this is the file content");
+  }
+
+  @Test
+  public void shouldCompressSources() {
+    String source = StringUtils.repeat("int i = 0;\n", 1000);
+    SourcePersister.CompressedSource compressed = SourcePersister.CompressedSource.compress(source);
+
+    assertThat(compressed.decompress()).isEqualTo(source);
+    assertThat(SourcePersister.CompressedSource.compress(null).decompress()).isNull();
+    assertThat(SourcePersister.CompressedSource.compress("").decompress()).isEqualTo("");
+  }
+
   @Test(expected = DuplicatedSourceException.class)
   public void shouldFailIfSourceSavedSeveralTimes() {
     JavaFile file = new JavaFile("org.foo.Bar");
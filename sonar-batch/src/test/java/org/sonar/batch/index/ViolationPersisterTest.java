@@ -0,0 +1,94 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.index;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.sonar.api.database.model.RuleFailureModel;
+import org.sonar.api.rules.RulePriority;
+import org.sonar.api.utils.DateUtils;
+import org.sonar.core.persistence.AbstractDaoTestCase;
+
+import static org.fest.assertions.Assertions.assertThat;
+
+public class ViolationPersisterTest extends AbstractDaoTestCase {
+
+  private PersistenceProfiler profiler = new PersistenceProfiler();
+  private ViolationPersister persister;
+
+  @Before
+  public void setUp() {
+    persister = new ViolationPersister(getMyBatis(), profiler);
+  }
+
+  @Test
+  public void should_insert_violations_when_flushed() {
+    setupData("shared");
+
+    RuleFailureModel newViolation1 = violation(30, RulePriority.CRITICAL, 20, "the message");
+    newViolation1.setCost(55.6);
+    newViolation1.setChecksum("checksum");
+    newViolation1.setCreatedAt(DateUtils.parseDate("2010-12-25"));
+    RuleFailureModel newViolation2 = violation(31, RulePriority.MINOR, null, null).setSwitchedOff(true);
+    RuleFailureModel trackedViolation = violation(30, RulePriority.MAJOR, 10, "new message");
+    trackedViolation.setPermanentId(1);
+
+    persister.saveViolation(newViolation1);
+    persister.saveViolation(newViolation2);
+    persister.saveViolation(trackedViolation);
+    checkTables("shared", "rule_failures");
+
+    persister.flush();
+    checkTables("shouldInsertViolations", "rule_failures");
+    assertThat(profiler.getRowsByPersister().get("ViolationPersister")).isEqualTo(3L);
+    assertThat(profiler.getBatchesByPersister().get("ViolationPersister")).isEqualTo(1L);
+  }
+
+  @Test
+  public void should_flush_when_buffer_is_full() {
+    setupData("shared");
+
+    for (int i = 0; i < ViolationPersister.FLUSH_SIZE + 1; i++) {
+      persister.saveViolation(violation(30, RulePriority.MAJOR, i, "message"));
+    }
+
+    assertThat(profiler.getRowsByPersister().get("ViolationPersister")).isEqualTo((long) ViolationPersister.FLUSH_SIZE);
+    persister.flush();
+    assertThat(profiler.getRowsByPersister().get("ViolationPersister")).isEqualTo(ViolationPersister.FLUSH_SIZE + 1L);
+    assertThat(profiler.getBatchesByPersister().get("ViolationPersister")).isEqualTo(2L);
+  }
+
+  @Test
+  public void should_not_flush_empty_buffer() {
+    persister.flush();
+
+    assertThat(profiler.getRowsByPersister().isEmpty()).isTrue();
+  }
+
+  private static RuleFailureModel violation(int ruleId, RulePriority severity, Integer line, String message) {
+    RuleFailureModel model = new RuleFailureModel();
+    model.setSnapshotId(1001);
+    model.setRuleId(ruleId);
+    model.setPriority(severity);
+    model.setLine(line);
+    model.setMessage(message);
+    return model;
+  }
+}
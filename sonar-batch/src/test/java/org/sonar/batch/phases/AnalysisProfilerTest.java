@@ -0,0 +1,121 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.phases;
+
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.sonar.api.batch.Decorator;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.events.EventHandler;
+import org.sonar.api.resources.Project;
+import org.sonar.batch.events.EventBus;
+import org.sonar.batch.events.FiredEventsCounter;
+import org.sonar.batch.index.PersistenceProfiler;
+import org.sonar.batch.index.ViolationPersister;
+import org.sonar.core.persistence.StatementCounter;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AnalysisProfilerTest {
+
+  @Test
+  public void should_report_sensors_decorators_and_phases() {
+    AnalysisProfiler profiler = new AnalysisProfiler(true, new StatementCounter(), null, new PersistenceProfiler(), new FiredEventsCounter());
+    Sensor sensor = mock(Sensor.class);
+    when(sensor.toString()).thenReturn("FooSensor");
+    Decorator decorator = mock(Decorator.class);
+    when(decorator.toString()).thenReturn("Bar\"Decorator");
+
+    profiler.onProjectAnalysis(new ProjectAnalysisEvent(new Project("org:foo"), true));
+    profiler.onSensorsPhase(new SensorsPhaseEvent(null, true));
+    profiler.onSensorExecution(new SensorExecutionEvent(sensor, true));
+    profiler.onSensorExecution(new SensorExecutionEvent(sensor, false));
+    profiler.onSensorsPhase(new SensorsPhaseEvent(null, false));
+    profiler.onDecoratorExecution(new DecoratorExecutionEvent(decorator, true));
+    profiler.onDecoratorExecution(new DecoratorExecutionEvent(decorator, false));
+
+    String json = profiler.toJson("org:foo");
+    assertThat(json).startsWith("{\"project\":\"org:foo\",\"phases\":[{\"name\":\"analysis.start\"");
+    assertThat(json).contains("{\"name\":\"sensors.start\"");
+    assertThat(json).contains("{\"name\":\"sensors.end\"");
+    assertThat(json).contains("\"sensors\":[{\"name\":\"FooSensor\",\"nanos\":");
+    assertThat(json).contains("\"decorators\":[{\"name\":\"Bar\\\"Decorator\",\"nanos\":");
+    assertThat(json).contains("\"heapUsed\":");
+    assertThat(json).contains("\"sqlSelects\":0");
+  }
+
+  @Test
+  public void should_report_statements_executed_by_hibernate() {
+    Statistics statistics = mock(Statistics.class);
+    when(statistics.getPrepareStatementCount()).thenReturn(12L);
+    when(statistics.getEntityInsertCount()).thenReturn(3L);
+    when(statistics.getEntityUpdateCount()).thenReturn(2L);
+    AnalysisProfiler profiler = new AnalysisProfiler(true, new StatementCounter(), statistics, new PersistenceProfiler(), new FiredEventsCounter());
+
+    profiler.onProjectAnalysis(new ProjectAnalysisEvent(new Project("org:foo"), true));
+
+    verify(statistics).setStatisticsEnabled(true);
+    assertThat(profiler.toJson("org:foo")).contains("\"jpaStatements\":12,\"jpaUpdates\":5");
+  }
+
+  @Test
+  public void should_report_rows_and_batches_of_persisters() {
+    PersistenceProfiler persistenceProfiler = new PersistenceProfiler();
+    AnalysisProfiler profiler = new AnalysisProfiler(true, new StatementCounter(), null, persistenceProfiler, new FiredEventsCounter());
+
+    // rows written by a previous module are not reported
+    persistenceProfiler.add(ViolationPersister.class, System.nanoTime());
+    persistenceProfiler.addBatch(ViolationPersister.class, 50);
+    profiler.onProjectAnalysis(new ProjectAnalysisEvent(new Project("org:foo"), true));
+    persistenceProfiler.add(ViolationPersister.class, System.nanoTime());
+    persistenceProfiler.addBatch(ViolationPersister.class, 1000);
+    persistenceProfiler.add(ViolationPersister.class, System.nanoTime());
+    persistenceProfiler.addBatch(ViolationPersister.class, 20);
+
+    String json = profiler.toJson("org:foo");
+    assertThat(json).contains("\"persisters\":[{\"name\":\"ViolationPersister\",\"nanos\":");
+    assertThat(json).contains("\"rows\":1020,\"batches\":2}");
+  }
+
+  @Test
+  public void should_report_fired_events() {
+    FiredEventsCounter firedEventsCounter = new FiredEventsCounter();
+    AnalysisProfiler profiler = new AnalysisProfiler(true, new StatementCounter(), null, new PersistenceProfiler(), firedEventsCounter);
+    EventBus eventBus = new EventBus(new EventHandler[] {profiler}, firedEventsCounter);
+
+    eventBus.fireEvent(new ProjectAnalysisEvent(new Project("org:foo"), true));
+    eventBus.fireEvent(new SensorsPhaseEvent(null, true));
+    eventBus.fireEvent(new SensorsPhaseEvent(null, false));
+
+    assertThat(profiler.toJson("org:foo")).endsWith(
+        "\"events\":[{\"name\":\"ProjectAnalysisEvent\",\"count\":1},{\"name\":\"SensorsPhaseEvent\",\"count\":2}]}");
+  }
+
+  @Test
+  public void should_not_record_if_disabled() {
+    AnalysisProfiler profiler = new AnalysisProfiler(false, new StatementCounter(), null, new PersistenceProfiler(), new FiredEventsCounter());
+    profiler.onSensorsPhase(new SensorsPhaseEvent(null, true));
+
+    assertThat(profiler.toJson("foo")).isEqualTo("{\"project\":\"foo\",\"phases\":[],\"sensors\":[],\"mavenPlugins\":[],\"decorators\":[],\"persisters\":[],\"events\":[]}");
+  }
+}
@@ -19,11 +19,15 @@
  */
 package org.sonar.batch.phases;
 
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.sonar.api.batch.BatchExtensionDictionnary;
 import org.sonar.api.batch.Decorator;
 import org.sonar.api.batch.DecoratorContext;
 import org.sonar.api.batch.SonarIndex;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.config.Settings;
+import org.sonar.api.resources.Directory;
 import org.sonar.api.resources.File;
 import org.sonar.api.resources.Project;
 import org.sonar.api.resources.Resource;
@@ -31,6 +35,15 @@ import org.sonar.api.utils.SonarException;
 import org.sonar.batch.DefaultDecoratorContext;
 import org.sonar.batch.events.EventBus;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.hamcrest.number.OrderingComparisons.greaterThan;
 import static org.hamcrest.number.OrderingComparisons.greaterThanOrEqualTo;
 import static org.hamcrest.number.OrderingComparisons.lessThan;
 import static org.junit.Assert.assertThat;
@@ -40,9 +53,17 @@ import static org.mockito.Matchers.any;
 
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class DecoratorsExecutorTest {
 
+  private Project project = new Project("key");
+  private Directory dir1 = new Directory("org/foo");
+  private Directory dir2 = new Directory("org/bar");
+  private File file1 = new File("org/foo/A.java");
+  private File file2 = new File("org/foo/B.java");
+  private File file3 = new File("org/bar/C.java");
+
   @Test
   public void shouldProfileExecutionTime() {
     Decorator1 decorator1 = new Decorator1();
@@ -76,6 +97,124 @@ public class DecoratorsExecutorTest {
     }
   }
 
+  @Test
+  public void shouldDecorateChildrenBeforeParentInParallel() {
+    RecordingDecorator decorator = new RecordingDecorator();
+    newParallelExecutor().decorateInParallel(project, Arrays.<Decorator>asList(decorator));
+
+    List<Resource> decorated = decorator.resources;
+    assertThat(decorated).hasSize(6);
+    assertThat(decorated.indexOf(dir1), greaterThan(decorated.indexOf(file1)));
+    assertThat(decorated.indexOf(dir1), greaterThan(decorated.indexOf(file2)));
+    assertThat(decorated.indexOf(dir2), greaterThan(decorated.indexOf(file3)));
+    assertThat(decorated.indexOf(project), greaterThan(decorated.indexOf(dir1)));
+    assertThat(decorated.indexOf(project), greaterThan(decorated.indexOf(dir2)));
+  }
+
+  @Test
+  public void shouldNotExecuteConcurrentlyDecoratorsWhichAreNotThreadSafe() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    SlowDecorator decorator1 = new SlowDecorator(running, maxRunning);
+    SlowDecorator decorator2 = new SlowDecorator(running, maxRunning);
+
+    newParallelExecutor().decorateInParallel(project, Arrays.<Decorator>asList(decorator1, decorator2));
+
+    assertThat(decorator1.calls.get()).isEqualTo(6);
+    assertThat(decorator2.calls.get()).isEqualTo(6);
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldExecuteConcurrentlyThreadSafeDecorators() {
+    // each file waits for the two other ones, so the three files must be decorated at the same time
+    ThreadSafeDecorator decorator = new ThreadSafeDecorator(new CountDownLatch(3));
+
+    newParallelExecutor().decorateInParallel(project, Arrays.<Decorator>asList(decorator));
+
+    assertThat(decorator.concurrentFiles.get()).isEqualTo(3);
+  }
+
+  private DecoratorsExecutor newParallelExecutor() {
+    SonarIndex index = mock(SonarIndex.class);
+    when(index.getChildren(project)).thenReturn(Arrays.<Resource>asList(dir1, dir2));
+    when(index.getChildren(dir1)).thenReturn(Arrays.<Resource>asList(file1, file2));
+    when(index.getChildren(dir2)).thenReturn(Arrays.<Resource>asList(file3));
+
+    Settings settings = new Settings();
+    settings.setProperty(DecoratorsExecutor.PARALLEL_PROPERTY, true);
+    settings.setProperty(DecoratorsExecutor.THREADS_PROPERTY, 4);
+    return new DecoratorsExecutor(mock(BatchExtensionDictionnary.class), project, index, mock(EventBus.class), settings);
+  }
+
+  static class SlowDecorator implements Decorator {
+    AtomicInteger calls = new AtomicInteger();
+    AtomicInteger running;
+    AtomicInteger maxRunning;
+
+    SlowDecorator(AtomicInteger running, AtomicInteger maxRunning) {
+      this.running = running;
+      this.maxRunning = maxRunning;
+    }
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      int current = running.incrementAndGet();
+      synchronized (maxRunning) {
+        maxRunning.set(Math.max(maxRunning.get(), current));
+      }
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      calls.incrementAndGet();
+      running.decrementAndGet();
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  @ThreadSafe
+  static class ThreadSafeDecorator implements Decorator {
+    CountDownLatch files;
+    AtomicInteger concurrentFiles = new AtomicInteger();
+
+    ThreadSafeDecorator(CountDownLatch files) {
+      this.files = files;
+    }
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      if (resource instanceof File) {
+        files.countDown();
+        try {
+          if (files.await(10, TimeUnit.SECONDS)) {
+            concurrentFiles.incrementAndGet();
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  static class RecordingDecorator implements Decorator {
+    List<Resource> resources = Collections.synchronizedList(Lists.<Resource>newArrayList());
+
+    public void decorate(Resource resource, DecoratorContext context) {
+      resources.add(resource);
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
   static class Decorator1 implements Decorator {
     public void decorate(Resource resource, DecoratorContext context) {
     }
@@ -0,0 +1,229 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.batch.phases;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+import org.sonar.api.batch.BatchExtensionDictionnary;
+import org.sonar.api.batch.DependedUpon;
+import org.sonar.api.batch.DependsUpon;
+import org.sonar.api.batch.Sensor;
+import org.sonar.api.batch.SensorContext;
+import org.sonar.api.batch.ThreadSafe;
+import org.sonar.api.batch.bootstrap.ProjectDefinition;
+import org.sonar.api.config.Settings;
+import org.sonar.api.platform.ComponentContainer;
+import org.sonar.api.resources.Project;
+import org.sonar.batch.MavenPluginExecutor;
+import org.sonar.batch.events.EventBus;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.fest.assertions.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class SensorsExecutorTest {
+
+  @Test
+  public void shouldExecuteSensorsAfterTheirDependenciesInParallel() {
+    List<String> executions = Collections.synchronizedList(Lists.<String>newArrayList());
+    ComponentContainer container = new ComponentContainer();
+    container.addSingleton(new ConsumerSensor(executions));
+    container.addSingleton(new ProducerSensor(executions));
+    container.addSingleton(new IndependentSensor(executions));
+
+    Settings settings = new Settings().setProperty(SensorsExecutor.PARALLELISM_PROPERTY, 3);
+    SensorsExecutor executor = new SensorsExecutor(new BatchExtensionDictionnary(container), new Project("key"), ProjectDefinition.create(),
+        mock(MavenPluginExecutor.class), mock(EventBus.class), settings);
+    executor.execute(mock(SensorContext.class));
+
+    assertThat(executions).hasSize(3);
+    assertThat(executions.indexOf("producer")).isLessThan(executions.indexOf("consumer"));
+  }
+
+  @Test
+  public void shouldExecuteAloneSensorsWhichAreNotThreadSafe() {
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    ComponentContainer container = new ComponentContainer();
+    container.addSingleton(new SlowSensor(running, maxRunning));
+    container.addSingleton(new OtherSlowSensor(running, maxRunning));
+
+    newParallelExecutor(container).execute(mock(SensorContext.class));
+
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  @Test
+  public void shouldExecuteSensorsWhichAreNotThreadSafeInCallingThread() {
+    List<Thread> threads = Lists.newArrayList();
+    ComponentContainer container = new ComponentContainer();
+    container.addSingleton(new ThreadRecordingSensor(threads));
+    container.addSingleton(new IndependentSensor(Lists.<String>newArrayList()));
+
+    newParallelExecutor(container).execute(mock(SensorContext.class));
+
+    assertThat(threads).containsOnly(Thread.currentThread());
+  }
+
+  @Test
+  public void shouldExecuteConcurrentlyThreadSafeSensors() {
+    // each sensor waits for the other one
+    CountDownLatch latch = new CountDownLatch(2);
+    AtomicInteger concurrentSensors = new AtomicInteger();
+    ComponentContainer container = new ComponentContainer();
+    container.addSingleton(new ThreadSafeSensor(latch, concurrentSensors));
+    container.addSingleton(new OtherThreadSafeSensor(latch, concurrentSensors));
+
+    newParallelExecutor(container).execute(mock(SensorContext.class));
+
+    assertThat(concurrentSensors.get()).isEqualTo(2);
+  }
+
+  private static SensorsExecutor newParallelExecutor(ComponentContainer container) {
+    Settings settings = new Settings().setProperty(SensorsExecutor.PARALLELISM_PROPERTY, 2);
+    return new SensorsExecutor(new BatchExtensionDictionnary(container), new Project("key"), ProjectDefinition.create(),
+        mock(MavenPluginExecutor.class), mock(EventBus.class), settings);
+  }
+
+  static class SlowSensor implements Sensor {
+    private final AtomicInteger running;
+    private final AtomicInteger maxRunning;
+
+    SlowSensor(AtomicInteger running, AtomicInteger maxRunning) {
+      this.running = running;
+      this.maxRunning = maxRunning;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      int current = running.incrementAndGet();
+      synchronized (maxRunning) {
+        maxRunning.set(Math.max(maxRunning.get(), current));
+      }
+      try {
+        Thread.sleep(20);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      running.decrementAndGet();
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  static class OtherSlowSensor extends SlowSensor {
+    OtherSlowSensor(AtomicInteger running, AtomicInteger maxRunning) {
+      super(running, maxRunning);
+    }
+  }
+
+  @ThreadSafe
+  static class ThreadSafeSensor implements Sensor {
+    private final CountDownLatch latch;
+    private final AtomicInteger concurrentSensors;
+
+    ThreadSafeSensor(CountDownLatch latch, AtomicInteger concurrentSensors) {
+      this.latch = latch;
+      this.concurrentSensors = concurrentSensors;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      latch.countDown();
+      try {
+        if (latch.await(10, TimeUnit.SECONDS)) {
+          concurrentSensors.incrementAndGet();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  @ThreadSafe
+  static class OtherThreadSafeSensor extends ThreadSafeSensor {
+    OtherThreadSafeSensor(CountDownLatch latch, AtomicInteger concurrentSensors) {
+      super(latch, concurrentSensors);
+    }
+  }
+
+  static class RecordingSensor implements Sensor {
+    private final String name;
+    private final List<String> executions;
+
+    RecordingSensor(String name, List<String> executions) {
+      this.name = name;
+      this.executions = executions;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      executions.add(name);
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  static class ThreadRecordingSensor implements Sensor {
+    private final List<Thread> threads;
+
+    ThreadRecordingSensor(List<Thread> threads) {
+      this.threads = threads;
+    }
+
+    public void analyse(Project project, SensorContext context) {
+      threads.add(Thread.currentThread());
+    }
+
+    public boolean shouldExecuteOnProject(Project project) {
+      return true;
+    }
+  }
+
+  @DependedUpon("data")
+  static class ProducerSensor extends RecordingSensor {
+    ProducerSensor(List<String> executions) {
+      super("producer", executions);
+    }
+  }
+
+  @DependsUpon("data")
+  static class ConsumerSensor extends RecordingSensor {
+    ConsumerSensor(List<String> executions) {
+      super("consumer", executions);
+    }
+  }
+
+  static class IndependentSensor extends RecordingSensor {
+    IndependentSensor(List<String> executions) {
+      super("independent", executions);
+    }
+  }
+}
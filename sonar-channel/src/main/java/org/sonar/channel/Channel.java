@@ -32,4 +32,15 @@ public abstract class Channel<OUTPUT> {
    * @return false if the Channel doesn't want to consume the character stream, true otherwise.
    */
   public abstract boolean consume(CodeReader code, OUTPUT output);
+
+  /**
+   * Characters which can start the character stream consumed by this Channel. The {@link ChannelDispatcher} only tries to consume the
+   * character stream with this Channel when the next character is one of them, so they must not depend on the state of the Channel.
+   * 
+   * @return any character by default
+   * @since 3.3
+   */
+  public StartCharacters getStartCharacters() {
+    return StartCharacters.any();
+  }
 }
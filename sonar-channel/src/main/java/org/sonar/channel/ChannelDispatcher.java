@@ -30,10 +30,16 @@ import org.slf4j.LoggerFactory;
 public class ChannelDispatcher<OUTPUT> extends Channel<OUTPUT> {
 
   private static final Logger LOG = LoggerFactory.getLogger(ChannelDispatcher.class);
+  private static final int ASCII = 128;
   private final boolean failIfNoChannelToConsumeOneCharacter;
 
   private final Channel<OUTPUT>[] channels;
 
+  /**
+   * For each ASCII character, the channels which can start with this character. Other characters are tried on all channels.
+   */
+  private final Channel<OUTPUT>[][] channelsByCharacter;
+
   /**
    * @deprecated in version 2.9. Please use the builder() method
    */
@@ -59,20 +65,43 @@ public class ChannelDispatcher<OUTPUT> extends Channel<OUTPUT> {
   @Deprecated
   public ChannelDispatcher(List<Channel> channels, boolean failIfNoChannelToConsumeOneCharacter) {
     this.channels = channels.toArray(new Channel[channels.size()]);
+    this.channelsByCharacter = dispatchByCharacter(this.channels);
     this.failIfNoChannelToConsumeOneCharacter = failIfNoChannelToConsumeOneCharacter;
   }
 
   private ChannelDispatcher(Builder builder) {
     this.channels = builder.channels.toArray(new Channel[builder.channels.size()]);
+    this.channelsByCharacter = dispatchByCharacter(this.channels);
     this.failIfNoChannelToConsumeOneCharacter = builder.failIfNoChannelToConsumeOneCharacter;
   }
 
+  @SuppressWarnings("unchecked")
+  private static <OUTPUT> Channel<OUTPUT>[][] dispatchByCharacter(Channel<OUTPUT>[] channels) {
+    StartCharacters[] startCharacters = new StartCharacters[channels.length];
+    for (int i = 0; i < channels.length; i++) {
+      startCharacters[i] = channels[i].getStartCharacters();
+    }
+    Channel<OUTPUT>[][] result = new Channel[ASCII][];
+    List<Channel<OUTPUT>> candidates = new ArrayList<Channel<OUTPUT>>();
+    for (int c = 0; c < ASCII; c++) {
+      candidates.clear();
+      for (int i = 0; i < channels.length; i++) {
+        if (startCharacters[i].contains(c)) {
+          candidates.add(channels[i]);
+        }
+      }
+      result[c] = candidates.size() == channels.length ? channels : candidates.toArray(new Channel[candidates.size()]);
+    }
+    return result;
+  }
+
   @Override
   public boolean consume(CodeReader code, OUTPUT output) {
     int nextChar = code.peek();
     while (nextChar != -1) {
       boolean characterConsumed = false;
-      for (Channel<OUTPUT> channel : channels) {
+      Channel<OUTPUT>[] candidates = nextChar < ASCII ? channelsByCharacter[nextChar] : channels;
+      for (Channel<OUTPUT> channel : candidates) {
         if (channel.consume(code, output)) {
           characterConsumed = true;
           break;
@@ -35,6 +35,9 @@ import org.apache.commons.io.IOUtils;
  * <li>Read without consuming character at the specified index after the cursor</li>
  * <li>Position of the pending cursor : line and column</li>
  * </ul>
+ * By default the whole character stream is read when the CodeBuffer is created. When a window size is set in the
+ * {@link CodeReaderConfiguration}, the character stream is read on demand, and only the characters after the cursor are kept in memory :
+ * at least the window size when available, and more when they are looked at.
  */
 public class CodeBuffer implements CharSequence {
 
@@ -42,6 +45,11 @@ public class CodeBuffer implements CharSequence {
   private Cursor cursor;
   private char[] buffer;
   private int bufferPosition = 0;
+  private int bufferLength;
+  private Reader reader;
+  private int windowSize;
+  private int windowCapacity;
+  private char[] chunk;
   private static final char LF = '\n';
   private static final char CR = '\r';
   private int tabWidth;
@@ -49,15 +57,22 @@ public class CodeBuffer implements CharSequence {
   private boolean recordingMode = false;
   private StringBuilder recordedCharacters = new StringBuilder();
 
+  /**
+   * Size of the reads on the character stream when it is read on demand, as when it is read at once.
+   */
+  private static final int CHUNK_SIZE = 4096;
+
   protected CodeBuffer(String code, CodeReaderConfiguration configuration) {
     this(new StringReader(code), configuration);
   }
   
   /**
-   * Note that this constructor will read everything from reader and will close it.
+   * Note that this constructor will read everything from reader and will close it, unless a window size is configured. In this case
+   * the reader is closed when the end of the stream is reached, or by {@link #close()}.
    */
   protected CodeBuffer(Reader initialCodeReader, CodeReaderConfiguration configuration) {
     Reader reader = null;
+    boolean readOnDemand = false;
 
     try {
       lastChar = -1;
@@ -70,21 +85,90 @@ public class CodeBuffer implements CharSequence {
         reader = new Filter(reader, codeReaderFilter, configuration);
       }
 
-      buffer = IOUtils.toCharArray(reader);
+      windowSize = configuration.getWindowSize();
+      if (windowSize > 0) {
+        this.reader = reader;
+        windowCapacity = 2 * (windowSize + CHUNK_SIZE);
+        buffer = new char[windowCapacity];
+        chunk = new char[CHUNK_SIZE];
+        readOnDemand = true;
+      } else {
+        buffer = IOUtils.toCharArray(reader);
+        bufferLength = buffer.length;
+      }
     } catch (IOException e) {
       throw new ChannelException(e.getMessage(), e);
     } finally {
-      IOUtils.closeQuietly(reader);
+      if ( !readOnDemand) {
+        IOUtils.closeQuietly(reader);
+      }
+    }
+  }
+
+  /**
+   * Reads the character stream until the given number of characters is available after the cursor, or until the end of the stream.
+   */
+  private void fill(int required) {
+    try {
+      while (reader != null && bufferLength - bufferPosition < required) {
+        int read = reader.read(chunk, 0, chunk.length);
+        if (read <= 0) {
+          close();
+        } else {
+          ensureCapacity(read);
+          System.arraycopy(chunk, 0, buffer, bufferLength, read);
+          bufferLength += read;
+        }
+      }
+    } catch (IOException e) {
+      throw new ChannelException(e.getMessage(), e);
     }
   }
 
+  /**
+   * Drops the consumed characters when there is not enough space at the end of the buffer. The buffer is grown if it would be more
+   * than half full, and shrunk back to its initial capacity when possible.
+   */
+  private void ensureCapacity(int additional) {
+    if (bufferLength + additional <= buffer.length) {
+      return;
+    }
+    int remaining = bufferLength - bufferPosition;
+    int needed = remaining + additional;
+    char[] target = buffer;
+    if (needed > buffer.length / 2) {
+      target = new char[Math.max(buffer.length, needed) * 2];
+    } else if (buffer.length > windowCapacity && needed <= windowCapacity / 2) {
+      target = new char[windowCapacity];
+    }
+    System.arraycopy(buffer, bufferPosition, target, 0, remaining);
+    buffer = target;
+    bufferPosition = 0;
+    bufferLength = remaining;
+  }
+
+  /**
+   * Reads more characters of the stream after the cursor, when the stream is read on demand.
+   * 
+   * @return false if no character could be added, because the end of the stream is reached
+   * @since 3.3
+   */
+  protected final boolean extendLookahead() {
+    if (reader == null) {
+      return false;
+    }
+    int remaining = bufferLength - bufferPosition;
+    fill(Math.max(windowSize, remaining * 2));
+    return bufferLength - bufferPosition > remaining;
+  }
+
   /**
    * Read and consume the next character
    * 
    * @return the next character or -1 if the end of the stream is reached
    */
   public final int pop() {
-    if (bufferPosition >= buffer.length) {
+    if (bufferPosition >= bufferLength && intAt(0) == -1) {
       return -1;
     }
     int character = buffer[bufferPosition++];
@@ -127,10 +211,11 @@ public class CodeBuffer implements CharSequence {
   }
 
   /**
-   * @deprecated in 2.12, do not use anymore.
+   * Closes the reader of the character stream when it is read on demand. Useless otherwise, as the stream is already closed.
    */
-  @Deprecated
   public final void close() {
+    IOUtils.closeQuietly(reader);
+    reader = null;
   }
   
   /**
@@ -190,17 +275,22 @@ public class CodeBuffer implements CharSequence {
   }
 
   protected final int intAt(int index) {
-    if (bufferPosition + index >= buffer.length) {
-      return -1;
+    if (bufferPosition + index >= bufferLength) {
+      fill(Math.max(index + 1, windowSize));
+      if (bufferPosition + index >= bufferLength) {
+        return -1;
+      }
     }
     return buffer[bufferPosition + index];
   }
 
   /**
-   * Returns the relative length of the string (i.e. excluding the popped chars)
+   * Returns the relative length of the string (i.e. excluding the popped chars). When the character stream is read on demand, only the
+   * characters which are already read are counted, at least the window size when available.
    */
   public final int length() {
-    return buffer.length - bufferPosition;
+    fill(windowSize);
+    return bufferLength - bufferPosition;
   }
 
   public final CharSequence subSequence(int start, int end) {
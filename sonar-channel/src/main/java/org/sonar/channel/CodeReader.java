@@ -175,15 +175,21 @@ public class CodeReader extends CodeBuffer {
    */
   public final int popTo(Matcher matcher, Matcher afterMatcher, Appendable appendable) {
     try {
-      matcher.reset(this);
-      if (matcher.lookingAt()) {
-        if (afterMatcher != null) {
+      boolean matched;
+      boolean hitEnd;
+      // when the stream is read on demand, the match is retried with more characters as long as the Matchers need them
+      do {
+        matcher.reset(this);
+        matched = matcher.lookingAt();
+        hitEnd = matcher.hitEnd();
+        if (matched && afterMatcher != null) {
           afterMatcher.reset(this);
           afterMatcher.region(matcher.end(), length());
-          if ( !afterMatcher.lookingAt()) {
-            return -1;
-          }
+          matched = afterMatcher.lookingAt();
+          hitEnd |= afterMatcher.hitEnd();
         }
+      } while (hitEnd && extendLookahead());
+      if (matched) {
         previousCursor = getCursor().clone();
         for (int i = 0; i < matcher.end(); i++) {
           appendable.append((char) pop());
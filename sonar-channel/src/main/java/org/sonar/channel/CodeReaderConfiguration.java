@@ -38,6 +38,8 @@ public class CodeReaderConfiguration {
 
   private int tabWidth = DEFAULT_TAB_WIDTH;
 
+  private int windowSize = 0;
+
   private List<CodeReaderFilter<?>> codeReaderFilters = new ArrayList<CodeReaderFilter<?>>();
 
   /**
@@ -73,6 +75,29 @@ public class CodeReaderConfiguration {
     this.tabWidth = tabWidth;
   }
 
+  /**
+   * @return the number of characters kept in memory after the cursor, or 0 if the whole character stream is read at once
+   * @since 3.3
+   */
+  public int getWindowSize() {
+    return windowSize;
+  }
+
+  /**
+   * Reads the character stream on demand instead of at once, which bounds the memory used for very large sources. The window is extended
+   * when a regular expression needs more characters to match, so tokens longer than the window are still consumed.
+   * 
+   * @param windowSize
+   *          the number of characters kept in memory after the cursor, or 0 (default) to read the whole character stream at once
+   * @since 3.3
+   */
+  public void setWindowSize(int windowSize) {
+    if (windowSize < 0) {
+      throw new IllegalArgumentException("The window size must be positive or zero: " + windowSize);
+    }
+    this.windowSize = windowSize;
+  }
+
   /**
    * @return the codeReaderFilters
    */
@@ -102,6 +127,7 @@ public class CodeReaderConfiguration {
   public CodeReaderConfiguration cloneWithoutCodeReaderFilters() {
     CodeReaderConfiguration clone = new CodeReaderConfiguration();
     clone.setTabWidth(tabWidth);
+    clone.setWindowSize(windowSize);
     return clone;
   }
 
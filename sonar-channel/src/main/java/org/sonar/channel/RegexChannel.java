@@ -30,6 +30,7 @@ public abstract class RegexChannel<OUTPUT> extends Channel<OUTPUT> {
   private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
   private final String regex;
+  private final StartCharacters startCharacters;
 
   /**
    * Create a RegexChannel object with the required regular expression
@@ -40,6 +41,7 @@ public abstract class RegexChannel<OUTPUT> extends Channel<OUTPUT> {
   public RegexChannel(String regex) {
     matcher = Pattern.compile(regex).matcher("");
     this.regex = regex;
+    this.startCharacters = StartCharacters.ofRegex(regex);
   }
 
   @Override
@@ -61,6 +63,11 @@ public abstract class RegexChannel<OUTPUT> extends Channel<OUTPUT> {
     }
   }
 
+  @Override
+  public StartCharacters getStartCharacters() {
+    return startCharacters;
+  }
+
   /**
    * The consume method is called each time the regular expression used to create the RegexChannel object matches the next characters in the
    * character streams.
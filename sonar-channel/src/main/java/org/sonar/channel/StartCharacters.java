@@ -0,0 +1,336 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import java.util.regex.Pattern;
+
+/**
+ * Characters which can start the character stream consumed by a {@link Channel}. Characters out of the ASCII range are
+ * not distinguished: they are either all included, or all excluded.
+ *
+ * @since 3.3
+ */
+public final class StartCharacters {
+
+  private static final int ASCII = 128;
+  private static final StartCharacters ANY = new StartCharacters(-1L, -1L, true);
+  private static final StartCharacters NONE = new StartCharacters(0L, 0L, false);
+
+  private final long low;
+  private final long high;
+  private final boolean nonAscii;
+
+  private StartCharacters(long low, long high, boolean nonAscii) {
+    this.low = low;
+    this.high = high;
+    this.nonAscii = nonAscii;
+  }
+
+  public static StartCharacters any() {
+    return ANY;
+  }
+
+  public static StartCharacters none() {
+    return NONE;
+  }
+
+  public static StartCharacters of(String characters) {
+    StartCharacters result = NONE;
+    for (int i = 0; i < characters.length(); i++) {
+      result = result.union(character(characters.charAt(i)));
+    }
+    return result;
+  }
+
+  /**
+   * Characters which can start a non-empty match of the given regular expression. The analysis is conservative:
+   * when a construct is not supported, like flags, lookarounds or backreferences, all characters are returned.
+   */
+  public static StartCharacters ofRegex(String regex) {
+    try {
+      return new RegexAnalyzer(regex).analyze();
+    } catch (RuntimeException e) {
+      // unsupported or invalid expression
+      return ANY;
+    }
+  }
+
+  public boolean contains(int c) {
+    if (c < 0) {
+      return false;
+    }
+    if (c >= ASCII) {
+      return nonAscii;
+    }
+    return c < 64 ? (low & (1L << c)) != 0 : (high & (1L << (c - 64))) != 0;
+  }
+
+  public boolean isAny() {
+    return low == -1L && high == -1L && nonAscii;
+  }
+
+  public StartCharacters union(StartCharacters other) {
+    return new StartCharacters(low | other.low, high | other.high, nonAscii || other.nonAscii);
+  }
+
+  private static StartCharacters character(char c) {
+    if (c >= ASCII) {
+      return new StartCharacters(0L, 0L, true);
+    }
+    return c < 64 ? new StartCharacters(1L << c, 0L, false) : new StartCharacters(0L, 1L << (c - 64), false);
+  }
+
+  /**
+   * Tests all ASCII characters against a regular expression which matches a single character.
+   */
+  private static StartCharacters matching(String singleCharacterRegex) {
+    Pattern pattern = Pattern.compile(singleCharacterRegex);
+    long low = 0L;
+    long high = 0L;
+    for (int c = 0; c < ASCII; c++) {
+      if (pattern.matcher(String.valueOf((char) c)).matches()) {
+        if (c < 64) {
+          low |= 1L << c;
+        } else {
+          high |= 1L << (c - 64);
+        }
+      }
+    }
+    return new StartCharacters(low, high, true);
+  }
+
+  @Override
+  public String toString() {
+    if (isAny()) {
+      return "any";
+    }
+    StringBuilder sb = new StringBuilder("[");
+    for (int c = 0; c < ASCII; c++) {
+      if (contains(c)) {
+        sb.append((char) c);
+      }
+    }
+    if (nonAscii) {
+      sb.append("<non-ASCII>");
+    }
+    return sb.append(']').toString();
+  }
+
+  private static final class UnsupportedRegexException extends RuntimeException {
+  }
+
+  /**
+   * Computes the first characters of a regular expression, with a recursive descent on alternations, sequences and
+   * quantified atoms. Atoms which match a single character, like character classes or escapes, are compiled and tested
+   * on all ASCII characters.
+   */
+  private static final class RegexAnalyzer {
+
+    private final String regex;
+    private int pos = 0;
+
+    /**
+     * Result of the last parsed construct: true if it can match the empty string.
+     */
+    private boolean nullable;
+
+    RegexAnalyzer(String regex) {
+      this.regex = regex;
+    }
+
+    StartCharacters analyze() {
+      StartCharacters result = alternation();
+      if (pos != regex.length()) {
+        throw new UnsupportedRegexException();
+      }
+      return result;
+    }
+
+    private StartCharacters alternation() {
+      StartCharacters result = sequence();
+      boolean alternationNullable = nullable;
+      while (pos < regex.length() && regex.charAt(pos) == '|') {
+        pos++;
+        result = result.union(sequence());
+        alternationNullable |= nullable;
+      }
+      nullable = alternationNullable;
+      return result;
+    }
+
+    private StartCharacters sequence() {
+      StartCharacters result = NONE;
+      boolean sequenceNullable = true;
+      while (pos < regex.length() && regex.charAt(pos) != '|' && regex.charAt(pos) != ')') {
+        StartCharacters atom = atom();
+        boolean atomNullable = nullable;
+        if (quantifierAllowsZero()) {
+          atomNullable = true;
+        }
+        if (sequenceNullable) {
+          result = result.union(atom);
+        }
+        sequenceNullable &= atomNullable;
+      }
+      nullable = sequenceNullable;
+      return result;
+    }
+
+    private StartCharacters atom() {
+      char c = regex.charAt(pos);
+      switch (c) {
+        case '(':
+          return group();
+        case '[':
+          return characterClass();
+        case '\\':
+          return escape();
+        case '^':
+        case '$':
+          pos++;
+          nullable = true;
+          return NONE;
+        case '.':
+          pos++;
+          nullable = false;
+          return matching(".");
+        case '*':
+        case '+':
+        case '?':
+        case '{':
+          throw new UnsupportedRegexException();
+        default:
+          pos++;
+          nullable = false;
+          return character(c);
+      }
+    }
+
+    private StartCharacters group() {
+      pos++;
+      if (regex.startsWith("?:", pos) || regex.startsWith("?>", pos)) {
+        pos += 2;
+      } else if (pos < regex.length() && regex.charAt(pos) == '?') {
+        // lookarounds, flags and named groups
+        throw new UnsupportedRegexException();
+      }
+      StartCharacters result = alternation();
+      expect(')');
+      return result;
+    }
+
+    private StartCharacters characterClass() {
+      int start = pos;
+      pos++;
+      int depth = 1;
+      while (depth > 0) {
+        char c = regex.charAt(pos);
+        if (c == '\\') {
+          if (regex.startsWith("Q", pos + 1)) {
+            throw new UnsupportedRegexException();
+          }
+          pos += 2;
+        } else {
+          if (c == '[') {
+            depth++;
+          } else if (c == ']') {
+            depth--;
+          }
+          pos++;
+        }
+      }
+      nullable = false;
+      return matching(regex.substring(start, pos));
+    }
+
+    private StartCharacters escape() {
+      int start = pos;
+      char c = regex.charAt(pos + 1);
+      pos += 2;
+      if ( !Character.isLetterOrDigit(c)) {
+        nullable = false;
+        return character(c);
+      }
+      if ("bBAGZz".indexOf(c) >= 0) {
+        nullable = true;
+        return NONE;
+      }
+      if ((c >= '1' && c <= '9') || "QEkRXN".indexOf(c) >= 0) {
+        throw new UnsupportedRegexException();
+      }
+      if ((c == 'p' || c == 'P' || c == 'x') && pos < regex.length() && regex.charAt(pos) == '{') {
+        pos = regex.indexOf('}', pos) + 1;
+        if (pos == 0) {
+          throw new UnsupportedRegexException();
+        }
+      } else if (c == 'p' || c == 'P' || c == 'c') {
+        pos++;
+      } else if (c == 'x') {
+        pos += 2;
+      } else if (c == 'u') {
+        pos += 4;
+      } else if (c == '0') {
+        while (pos < regex.length() && pos < start + 5 && regex.charAt(pos) >= '0' && regex.charAt(pos) <= '7') {
+          pos++;
+        }
+      }
+      nullable = false;
+      return matching(regex.substring(start, pos));
+    }
+
+    private boolean quantifierAllowsZero() {
+      if (pos >= regex.length()) {
+        return false;
+      }
+      char c = regex.charAt(pos);
+      boolean allowsZero;
+      if (c == '*' || c == '?') {
+        pos++;
+        allowsZero = true;
+      } else if (c == '+') {
+        pos++;
+        allowsZero = false;
+      } else if (c == '{') {
+        int end = regex.indexOf('}', pos);
+        if (end < 0) {
+          throw new UnsupportedRegexException();
+        }
+        String min = regex.substring(pos + 1, end).split(",", -1)[0];
+        allowsZero = Integer.parseInt(min.trim()) == 0;
+        pos = end + 1;
+      } else {
+        return false;
+      }
+      // lazy or possessive quantifier
+      if (pos < regex.length() && (regex.charAt(pos) == '?' || regex.charAt(pos) == '+')) {
+        pos++;
+      }
+      return allowsZero;
+    }
+
+    private void expect(char c) {
+      if (pos >= regex.length() || regex.charAt(pos) != c) {
+        throw new UnsupportedRegexException();
+      }
+      pos++;
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Lexes Java files with the regular expressions of the Java tokenizer of sonar-duplications, with a {@link ChannelDispatcher} which
+ * selects channels by start character, and with one which tries all channels. Not executed during build, run it with "main" and the
+ * directory of Java sources to lex, by default the current directory.
+ */
+public final class ChannelDispatcherBenchmark {
+
+  private static final String EXP = "([Ee][+-]?+[0-9_]++)";
+  private static final String BINARY_EXP = "([Pp][+-]?+[0-9_]++)";
+  private static final String FLOAT_SUFFIX = "[fFdD]";
+  private static final String INT_SUFFIX = "[lL]";
+
+  private static final String[] JAVA_REGEXES = {
+    "\\s",
+    "//[^\\n\\r]*+",
+    "/\\*[\\s\\S]*?\\*/",
+    "\"([^\"\\\\]*+(\\\\[\\s\\S])?+)*+\"",
+    "'([^'\\n\\\\]*+(\\\\.)?+)*+'",
+    "\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+",
+    "[0-9_]++\\.([0-9_]++)?+" + EXP + "?+" + FLOAT_SUFFIX + "?+",
+    "\\.[0-9_]++" + EXP + "?+" + FLOAT_SUFFIX + "?+",
+    "[0-9_]++" + EXP + FLOAT_SUFFIX + "?+",
+    "0[xX][0-9a-fA-F_]++\\.[0-9a-fA-F_]*+" + BINARY_EXP + "?+" + FLOAT_SUFFIX + "?+",
+    "0[xX][0-9a-fA-F_]++" + BINARY_EXP + FLOAT_SUFFIX + "?+",
+    "0[xX][0-9a-fA-F_]++" + INT_SUFFIX + "?+",
+    "0[bB][01_]++" + INT_SUFFIX + "?+",
+    "[0-9_]++" + INT_SUFFIX + "?+",
+    "."};
+
+  private ChannelDispatcherBenchmark() {
+  }
+
+  public static void main(String[] args) throws IOException {
+    File dir = new File(args.length > 0 ? args[0] : ".");
+    List<String> sources = new ArrayList<String>();
+    long size = 0;
+    for (File file : (Collection<File>) FileUtils.listFiles(dir, new String[] {"java"}, true)) {
+      String source = FileUtils.readFileToString(file, "UTF-8");
+      sources.add(source);
+      size += source.length();
+    }
+    System.out.println(sources.size() + " files, " + size / 1024 + " KB");
+
+    for (int i = 0; i < 5; i++) {
+      run("dispatched by start character", dispatcher(false), sources);
+      run("all channels", dispatcher(true), sources);
+    }
+  }
+
+  private static ChannelDispatcher<int[]> dispatcher(boolean tryAllChannels) {
+    ChannelDispatcher.Builder builder = ChannelDispatcher.builder();
+    for (String regex : JAVA_REGEXES) {
+      Channel<int[]> channel = new CountingChannel(regex);
+      builder.addChannel(tryAllChannels ? new UndeclaredChannel(channel) : channel);
+    }
+    return builder.build();
+  }
+
+  private static void run(String name, ChannelDispatcher<int[]> dispatcher, List<String> sources) {
+    long start = System.nanoTime();
+    int[] tokens = new int[1];
+    for (String source : sources) {
+      dispatcher.consume(new CodeReader(source), tokens);
+    }
+    System.out.println(name + ": " + (System.nanoTime() - start) / 1000000 + " ms (" + tokens[0] + " tokens)");
+  }
+
+  private static final class CountingChannel extends RegexChannel<int[]> {
+    CountingChannel(String regex) {
+      super(regex);
+    }
+
+    @Override
+    protected void consume(CharSequence token, int[] output) {
+      output[0]++;
+    }
+  }
+
+  /**
+   * Does not declare start characters, as channels did before.
+   */
+  private static final class UndeclaredChannel extends Channel<int[]> {
+    private final Channel<int[]> channel;
+
+    UndeclaredChannel(Channel<int[]> channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public boolean consume(CodeReader code, int[] output) {
+      return channel.consume(code, output);
+    }
+  }
+
+}
@@ -48,6 +48,37 @@ public class ChannelDispatcherTest {
     dispatcher.consume(new CodeReader("two words"), new StringBuilder());
   }
 
+  @Test
+  public void shouldOnlyTryChannelsWhichCanStartWithNextCharacter() {
+    ChannelDispatcher<StringBuilder> dispatcher = ChannelDispatcher.builder()
+        .addChannels(new StartCharacterChannel('a'), new StartCharacterChannel('b'))
+        .addChannel(new SpaceDeletionChannel())
+        .build();
+    StringBuilder output = new StringBuilder();
+    dispatcher.consume(new CodeReader("ab \u00e9"), output);
+    assertThat(output.toString(), is("[a][b][\u00e9]"));
+  }
+
+  private static class StartCharacterChannel extends Channel<StringBuilder> {
+    private final char character;
+
+    StartCharacterChannel(char character) {
+      this.character = character;
+    }
+
+    @Override
+    public boolean consume(CodeReader code, StringBuilder output) {
+      // consumes any character, but declares to start with a single one
+      output.append('[').append((char) code.pop()).append(']');
+      return true;
+    }
+
+    @Override
+    public StartCharacters getStartCharacters() {
+      return StartCharacters.of(String.valueOf(character));
+    }
+  }
+
   private static class SpaceDeletionChannel extends Channel<StringBuilder> {
     @Override
     public boolean consume(CodeReader code, StringBuilder output) {
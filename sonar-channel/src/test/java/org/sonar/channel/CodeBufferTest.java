@@ -257,6 +257,107 @@ public class CodeBufferTest {
     assertThat(code.pop(), is( -1));
   }
 
+  @Test
+  public void testPopAndPeekWithWindow() {
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      source.append((char) ('a' + i % 26));
+    }
+    CodeBuffer code = new CodeBuffer(source.toString(), windowedConfiguration(4));
+    assertThat(code.charAt(9999), is((char) ('a' + 9999 % 26)));
+    assertThat(code.intAt(10000), is( -1));
+    for (int i = 0; i < 10000; i++) {
+      assertThat((char) code.peek(), is((char) ('a' + i % 26)));
+      assertThat((char) code.pop(), is((char) ('a' + i % 26)));
+    }
+    assertThat(code.peek(), is( -1));
+    assertThat(code.pop(), is( -1));
+  }
+
+  @Test
+  public void testLengthWithWindow() {
+    CodeBuffer code = new CodeBuffer("0123456789", windowedConfiguration(4));
+    assertThat(code.length() >= 4, is(true));
+    assertThat(code.charAt(code.length() - 1), is((char) ('0' + code.length() - 1)));
+    for (int i = 0; i < 8; i++) {
+      code.pop();
+    }
+    assertThat(code.length(), is(2));
+  }
+
+  @Test
+  public void testGetColumnAndLinePositionWithWindow() {
+    CodeBuffer reader = new CodeBuffer("pa\nc\r\ns\r\n", windowedConfiguration(1));
+    reader.pop(); // p
+    reader.pop(); // a
+    reader.pop(); // \n
+    assertThat(reader.getColumnPosition(), is(0));
+    assertThat(reader.getLinePosition(), is(2));
+    reader.pop(); // c
+    reader.pop(); // \r
+    assertThat(reader.getLinePosition(), is(2));
+    reader.pop(); // \n
+    assertThat(reader.getColumnPosition(), is(0));
+    assertThat(reader.getLinePosition(), is(3));
+  }
+
+  @Test
+  public void testRecordingWithWindow() {
+    CodeBuffer code = new CodeBuffer("abcdef", windowedConfiguration(2));
+    code.pop();
+    code.startRecording();
+    code.pop();
+    code.pop();
+    code.pop();
+    assertThat(code.stopRecording().toString(), is("bcd"));
+    code.startRecording();
+    code.pop();
+    assertThat(code.stopRecording().toString(), is("e"));
+  }
+
+  @Test
+  public void testSeveralCodeReaderFilterWithWindow() throws Exception {
+    CodeReaderConfiguration configuration = windowedConfiguration(2);
+    configuration.setCodeReaderFilters(new ReplaceNumbersFilter(), new ReplaceCharFilter());
+    CodeBuffer code = new CodeBuffer("abcd12efgh34", configuration);
+    StringBuilder result = new StringBuilder();
+    while (code.peek() != -1) {
+      result.append((char) code.pop());
+    }
+    assertThat(result.toString(), is("****--****--"));
+  }
+
+  @Test
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  public void testChannelCodeReaderFilterWithWindow() throws Exception {
+    CodeReaderConfiguration configuration = windowedConfiguration(3);
+    configuration.setCodeReaderFilters(new ChannelCodeReaderFilter(new Object(), new WindowingChannel()));
+    CodeBuffer code = new CodeBuffer("0123456789\nABCDEFGHIJ", configuration);
+    StringBuilder result = new StringBuilder();
+    while (code.peek() != -1) {
+      result.append((char) code.pop());
+    }
+    assertThat(result.toString(), is("234567\nCDEFGH"));
+  }
+
+  @Test(timeout = 1000)
+  public void testWrongEndOfStreamFilterWithWindow() {
+    CodeReaderConfiguration configuration = windowedConfiguration(10);
+    configuration.setCodeReaderFilters(new WrongEndOfStreamFilter());
+    assertThat(new CodeBuffer("foo", configuration).pop(), is( -1));
+  }
+
+  @Test
+  public void shouldCopyWindowSizeToFilterConfiguration() {
+    assertThat(windowedConfiguration(10).cloneWithoutCodeReaderFilters().getWindowSize(), is(10));
+  }
+
+  private static CodeReaderConfiguration windowedConfiguration(int windowSize) {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setWindowSize(windowSize);
+    return configuration;
+  }
+
   /**
    * Backward compatibility with a COBOL plugin: filter returns 0 instead of -1, when end of the stream has been reached.
    */
@@ -105,4 +105,32 @@ public class CodeReaderTest {
     assertEquals(3, new CodeReader(new StringReader("123ABC")).popTo(digitMatcher, alphabeticMatcher, token));
     assertEquals("123", token.toString());
   }
+
+  @Test
+  public void testPopToWithRegexLongerThanWindow() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setWindowSize(2);
+    StringBuilder source = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      source.append('a');
+    }
+    CodeReader reader = new CodeReader(new StringReader(source + " b"), configuration);
+    StringBuilder token = new StringBuilder();
+    assertEquals(10000, reader.popTo(Pattern.compile("\\w+").matcher(new String()), token));
+    assertEquals(source.toString(), token.toString());
+    assertEquals(10000, reader.getColumnPosition());
+    assertEquals(' ', reader.peek());
+  }
+
+  @Test
+  public void testPopToWithRegexAndFollowingMatcherBeyondWindow() {
+    CodeReaderConfiguration configuration = new CodeReaderConfiguration();
+    configuration.setWindowSize(1);
+    Matcher digitMatcher = Pattern.compile("\\d+").matcher(new String());
+    Matcher alphabeticMatcher = Pattern.compile("[a-zA-Z]{3}").matcher(new String());
+    StringBuilder token = new StringBuilder();
+    assertEquals( -1, new CodeReader(new StringReader("123AB"), configuration).popTo(digitMatcher, alphabeticMatcher, token));
+    assertEquals(3, new CodeReader(new StringReader("123ABC"), configuration).popTo(digitMatcher, alphabeticMatcher, token));
+    assertEquals("123", token.toString());
+  }
 }
@@ -0,0 +1,91 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.channel;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+public class StartCharactersTest {
+
+  @Test
+  public void shouldContainCharacters() {
+    StartCharacters startCharacters = StartCharacters.of("a/\u00e9");
+    assertThat(startCharacters.contains('a'), is(true));
+    assertThat(startCharacters.contains('/'), is(true));
+    assertThat(startCharacters.contains('\u00e8'), is(true));
+    assertThat(startCharacters.contains('b'), is(false));
+    assertThat(startCharacters.contains(-1), is(false));
+    assertThat(StartCharacters.any().contains('b'), is(true));
+    assertThat(StartCharacters.none().contains('b'), is(false));
+  }
+
+  @Test
+  public void shouldComputeStartCharactersOfLiterals() {
+    assertThat(StartCharacters.ofRegex("//[^\\n\\r]*+").toString(), is("[/]"));
+    assertThat(StartCharacters.ofRegex("\\.[0-9]++").toString(), is("[.]"));
+    assertThat(StartCharacters.ofRegex("a|b|(?:c|d)").toString(), is("[abcd]"));
+  }
+
+  @Test
+  public void shouldComputeStartCharactersOfOptionalAtoms() {
+    assertThat(StartCharacters.ofRegex("a?b").toString(), is("[ab]"));
+    assertThat(StartCharacters.ofRegex("a*+b{0,2}c").toString(), is("[abc]"));
+    assertThat(StartCharacters.ofRegex("a{1,2}b").toString(), is("[a]"));
+    assertThat(StartCharacters.ofRegex("(a|)b").toString(), is("[ab]"));
+    assertThat(StartCharacters.ofRegex("^\\ba").toString(), is("[a]"));
+  }
+
+  @Test
+  public void shouldComputeStartCharactersOfCharacterClasses() {
+    StartCharacters startCharacters = StartCharacters.ofRegex("[0-9_]++\\.");
+    assertThat(startCharacters.contains('5'), is(true));
+    assertThat(startCharacters.contains('_'), is(true));
+    assertThat(startCharacters.contains('.'), is(false));
+    assertThat(startCharacters.contains('\u00e9'), is(true));
+
+    startCharacters = StartCharacters.ofRegex("\\p{javaJavaIdentifierStart}++\\p{javaJavaIdentifierPart}*+");
+    assertThat(startCharacters.contains('a'), is(true));
+    assertThat(startCharacters.contains('$'), is(true));
+    assertThat(startCharacters.contains('1'), is(false));
+
+    startCharacters = StartCharacters.ofRegex("[^\\[\\]a]");
+    assertThat(startCharacters.contains('b'), is(true));
+    assertThat(startCharacters.contains('a'), is(false));
+    assertThat(startCharacters.contains(']'), is(false));
+
+    startCharacters = StartCharacters.ofRegex("\\s");
+    assertThat(startCharacters.contains(' '), is(true));
+    assertThat(startCharacters.contains('\n'), is(true));
+    assertThat(startCharacters.contains('a'), is(false));
+  }
+
+  @Test
+  public void shouldReturnAnyCharacterWhenNotSupported() {
+    assertThat(StartCharacters.ofRegex("(?i)a").isAny(), is(true));
+    assertThat(StartCharacters.ofRegex("(?=a)a").isAny(), is(true));
+    assertThat(StartCharacters.ofRegex("(a)\\1").isAny(), is(true));
+    assertThat(StartCharacters.ofRegex("\\Qa\\E").isAny(), is(true));
+    assertThat(StartCharacters.ofRegex("a)").isAny(), is(true));
+    assertThat(StartCharacters.ofRegex("[a").isAny(), is(true));
+  }
+
+}
@@ -19,11 +19,14 @@
  */
 package org.sonar.core.duplication;
 
+import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.SqlSession;
 import org.sonar.api.BatchComponent;
 import org.sonar.api.ServerComponent;
 import org.sonar.core.persistence.MyBatis;
 
+import javax.annotation.Nullable;
+
 import java.util.Collection;
 import java.util.List;
 
@@ -45,6 +48,49 @@ public class DuplicationDao implements BatchComponent, ServerComponent {
     }
   }
 
+  /**
+   * Counts units of last snapshots of the given language, excluding units of the given project snapshot.
+   * @since 3.3
+   */
+  public int countLastUnits(@Nullable Integer lastSnapshotId, String language) {
+    SqlSession session = mybatis.openSession();
+    try {
+      DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+      return mapper.countLastUnits(lastSnapshotId, language);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  /**
+   * Streams units of last snapshots of the given language, excluding units of the given project snapshot.
+   * Units are passed to the handler as {@link DuplicationUnitDto} without resource key, see {@link #selectLastUnitResources(Integer, String)}.
+   * @since 3.3
+   */
+  public void selectLastUnits(@Nullable Integer lastSnapshotId, String language, ResultHandler handler) {
+    SqlSession session = mybatis.openSession();
+    try {
+      DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+      mapper.selectLastUnits(lastSnapshotId, language, handler);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
+  /**
+   * @return snapshot id and resource key of resources, which have units selected by {@link #selectLastUnits(Integer, String, ResultHandler)}
+   * @since 3.3
+   */
+  public List<DuplicationUnitDto> selectLastUnitResources(@Nullable Integer lastSnapshotId, String language) {
+    SqlSession session = mybatis.openSession();
+    try {
+      DuplicationMapper mapper = session.getMapper(DuplicationMapper.class);
+      return mapper.selectLastUnitResources(lastSnapshotId, language);
+    } finally {
+      MyBatis.closeQuietly(session);
+    }
+  }
+
   /**
    * Insert rows in the table DUPLICATIONS_INDEX.
    * Note that generated ids are not returned.
@@ -20,6 +20,7 @@
 package org.sonar.core.duplication;
 
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.util.List;
 
@@ -30,6 +31,19 @@ public interface DuplicationMapper {
       @Param("last_project_snapshot_id") Integer lastSnapshotId,
       @Param("language") String language);
 
+  int countLastUnits(
+      @Param("last_project_snapshot_id") Integer lastSnapshotId,
+      @Param("language") String language);
+
+  void selectLastUnits(
+      @Param("last_project_snapshot_id") Integer lastSnapshotId,
+      @Param("language") String language,
+      ResultHandler handler);
+
+  List<DuplicationUnitDto> selectLastUnitResources(
+      @Param("last_project_snapshot_id") Integer lastSnapshotId,
+      @Param("language") String language);
+
   void batchInsert(DuplicationUnitDto unit);
 
 }
@@ -33,6 +33,8 @@ import org.sonar.api.ServerComponent;
 import org.sonar.api.config.Settings;
 import org.sonar.api.database.model.MeasureData;
 import org.sonar.api.database.model.MeasureMapper;
+import org.sonar.api.database.model.RuleFailureMapper;
+import org.sonar.api.database.model.RuleFailureModel;
 import org.sonar.api.database.model.MeasureModel;
 import org.sonar.core.config.Logback;
 import org.sonar.core.dashboard.*;
@@ -66,6 +68,7 @@ public class MyBatis implements BatchComponent, ServerComponent {
   private final Settings settings;
   private final Logback logback;
   private SqlSessionFactory sessionFactory;
+  private final StatementCounter statementCounter = new StatementCounter();
 
   public MyBatis(Database database, Settings settings, Logback logback) {
     this.database = database;
@@ -82,6 +85,7 @@ public class MyBatis implements BatchComponent, ServerComponent {
     conf.setUseGeneratedKeys(true);
     conf.setLazyLoadingEnabled(false);
     conf.setJdbcTypeForNull(JdbcType.NULL);
+    conf.addInterceptor(statementCounter);
     conf.getVariables().setProperty("_true", database.getDialect().getTrueSqlValue());
     conf.getVariables().setProperty("_false", database.getDialect().getFalseSqlValue());
 
@@ -112,12 +116,13 @@ public class MyBatis implements BatchComponent, ServerComponent {
     loadAlias(conf, "WidgetProperty", WidgetPropertyDto.class);
     loadAlias(conf, "MeasureModel", MeasureModel.class);
     loadAlias(conf, "MeasureData", MeasureData.class);
+    loadAlias(conf, "RuleFailureModel", RuleFailureModel.class);
 
     Class<?>[] mappers = {ActiveDashboardMapper.class, AuthorMapper.class, FilterMapper.class, CriterionMapper.class, FilterColumnMapper.class, DashboardMapper.class,
       DependencyMapper.class, DuplicationMapper.class, LoadedTemplateMapper.class, PropertiesMapper.class, PurgeMapper.class,
       ResourceKeyUpdaterMapper.class, ResourceIndexerMapper.class, ResourceMapper.class, ResourceSnapshotMapper.class, ReviewCommentMapper.class,
       ReviewMapper.class, RoleMapper.class, RuleMapper.class, SchemaMigrationMapper.class, UserMapper.class, WidgetMapper.class, WidgetPropertyMapper.class,
-      MeasureMapper.class};
+      MeasureMapper.class, RuleFailureMapper.class};
     loadMappers(conf, mappers);
     configureLogback(mappers);
 
@@ -129,6 +134,13 @@ public class MyBatis implements BatchComponent, ServerComponent {
     return sessionFactory;
   }
 
+  /**
+   * @since 3.3
+   */
+  public StatementCounter getStatementCounter() {
+    return statementCounter;
+  }
+
   public SqlSession openSession() {
     return sessionFactory.openSession(ExecutorType.REUSE);
   }
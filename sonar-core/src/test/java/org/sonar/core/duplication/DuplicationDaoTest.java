@@ -19,6 +19,9 @@
  */
 package org.sonar.core.duplication;
 
+import com.google.common.collect.Lists;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.core.persistence.AbstractDaoTestCase;
@@ -57,6 +60,33 @@ public class DuplicationDaoTest extends AbstractDaoTestCase {
     assertThat(blocks.size(), is(2));
   }
 
+  @Test
+  public void shouldSelectLastUnits() throws Exception {
+    setupData("shouldGetByHash");
+
+    assertThat(dao.countLastUnits(7, "java"), is(1));
+    assertThat(dao.countLastUnits(null, "java"), is(2));
+
+    final List<DuplicationUnitDto> units = Lists.newArrayList();
+    dao.selectLastUnits(7, "java", new ResultHandler() {
+      public void handleResult(ResultContext context) {
+        units.add((DuplicationUnitDto) context.getResultObject());
+      }
+    });
+    assertThat(units.size(), is(1));
+    DuplicationUnitDto unit = units.get(0);
+    assertThat(unit.getProjectSnapshotId(), is(3));
+    assertThat(unit.getSnapshotId(), is(4));
+    assertThat(unit.getHash(), is("aa"));
+    assertThat(unit.getStartLine(), is(1));
+    assertThat(unit.getEndLine(), is(2));
+
+    List<DuplicationUnitDto> resources = dao.selectLastUnitResources(7, "java");
+    assertThat(resources.size(), is(1));
+    assertThat(resources.get(0).getSnapshotId(), is(4));
+    assertThat(resources.get(0).getResourceKey(), is("bar-last"));
+  }
+
   @Test
   public void shouldInsert() throws Exception {
     setupData("shouldInsert");
@@ -23,6 +23,7 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.BlockCursor;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.CloneIndex;
 import org.sonar.duplications.index.ClonePart;
@@ -83,10 +84,12 @@ public final class OriginalCloneDetectionAlgorithm {
     for (Map.Entry<ByteArray, BlocksGroup> entry : groupsByHash.entrySet()) {
       ByteArray hash = entry.getKey();
       BlocksGroup group = entry.getValue();
-      for (Block blockFromIndex : cloneIndex.getBySequenceHash(hash)) {
+      // blocks are materialized only when they come from other files
+      BlockCursor cursor = BlockCursor.bySequenceHash(cloneIndex, hash);
+      while (cursor.next()) {
         // Godin: skip blocks for this file if they come from index
-        if (!originResourceId.equals(blockFromIndex.getResourceId())) {
-          group.blocks.add(blockFromIndex);
+        if (!originResourceId.equals(cursor.getResourceId())) {
+          group.blocks.add(cursor.getBlock());
         }
       }
       Collections.sort(group.blocks, BlocksGroup.BlockComparator.INSTANCE);
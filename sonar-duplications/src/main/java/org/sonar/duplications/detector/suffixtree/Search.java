@@ -66,6 +66,7 @@ public final class Search {
     LinkedList<Node> stack = Lists.newLinkedList();
     stack.add(tree.getRootNode());
     while (!stack.isEmpty()) {
+      SuffixTreeCloneDetectionAlgorithm.checkInterrupted();
       Node node = stack.removeLast();
       node.startSize = list.size();
       if (node.getEdges().isEmpty()) { // leaf
@@ -99,6 +100,7 @@ public final class Search {
    */
   private void visitInnerNodes() {
     for (Node node : innerNodes) {
+      SuffixTreeCloneDetectionAlgorithm.checkInterrupted();
       if (containsOrigin(node)) {
         report(node);
       }
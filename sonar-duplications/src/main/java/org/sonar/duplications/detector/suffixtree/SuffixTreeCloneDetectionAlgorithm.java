@@ -21,8 +21,10 @@ package org.sonar.duplications.detector.suffixtree;
 
 import java.util.*;
 
+import org.sonar.duplications.DuplicationsException;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.BlockCursor;
 import org.sonar.duplications.index.CloneGroup;
 import org.sonar.duplications.index.CloneIndex;
 
@@ -46,6 +48,17 @@ public final class SuffixTreeCloneDetectionAlgorithm {
   private SuffixTreeCloneDetectionAlgorithm() {
   }
 
+  /**
+   * Detection is CPU-bound, so it polls this method to stop as soon as its thread is interrupted,
+   * for example when the future of the detection is cancelled.
+   */
+  static void checkInterrupted() {
+    if (Thread.interrupted()) {
+      Thread.currentThread().interrupt();
+      throw new DuplicationsException("Detection of duplications interrupted");
+    }
+  }
+
   private static TextSet createTextSet(CloneIndex index, Collection<Block> fileBlocks) {
     Set<ByteArray> hashes = Sets.newHashSet();
     for (Block fileBlock : fileBlocks) {
@@ -89,17 +102,19 @@ public final class SuffixTreeCloneDetectionAlgorithm {
   private static Map<String, List<Block>> retrieveFromIndex(CloneIndex index, String originResourceId, Set<ByteArray> hashes) {
     Map<String, List<Block>> collection = Maps.newHashMap();
     for (ByteArray hash : hashes) {
-      Collection<Block> blocks = index.getBySequenceHash(hash);
-      for (Block blockFromIndex : blocks) {
+      checkInterrupted();
+      // blocks are materialized only when they come from other files
+      BlockCursor cursor = BlockCursor.bySequenceHash(index, hash);
+      while (cursor.next()) {
         // Godin: skip blocks for this file if they come from index
-        String resourceId = blockFromIndex.getResourceId();
+        String resourceId = cursor.getResourceId();
         if (!originResourceId.equals(resourceId)) {
           List<Block> list = collection.get(resourceId);
           if (list == null) {
             list = Lists.newArrayList();
             collection.put(resourceId, list);
           }
-          list.add(blockFromIndex);
+          list.add(cursor.getBlock());
         }
       }
     }
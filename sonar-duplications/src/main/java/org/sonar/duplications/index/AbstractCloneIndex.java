@@ -19,6 +19,18 @@
  */
 package org.sonar.duplications.index;
 
+import org.sonar.duplications.block.ByteArray;
+
 public abstract class AbstractCloneIndex implements CloneIndex {
 
+  /**
+   * Performs search of blocks for specified hash value.
+   * Default implementation iterates over {@link #getBySequenceHash(ByteArray)}, subclasses can avoid materialization of blocks.
+   *
+   * @since 3.3
+   */
+  public BlockCursor cursorBySequenceHash(ByteArray hash) {
+    return BlockCursor.of(getBySequenceHash(hash));
+  }
+
 }
@@ -0,0 +1,142 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.duplications.index;
+
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Flyweight over blocks found in a {@link CloneIndex}, which allows to inspect them without materialization of {@link Block} objects.
+ * Values returned by getters are valid only until next call of {@link #next()}.
+ * <p>
+ * Usage:
+ * <pre>
+ * BlockCursor cursor = BlockCursor.bySequenceHash(index, hash);
+ * while (cursor.next()) {
+ *   if (accept(cursor.getResourceId())) {
+ *     blocks.add(cursor.getBlock());
+ *   }
+ * }
+ * </pre>
+ * </p>
+ *
+ * @since 3.3
+ */
+public abstract class BlockCursor {
+
+  /**
+   * @return cursor over blocks with specified hash, which avoids materialization of blocks if index supports this
+   */
+  public static BlockCursor bySequenceHash(CloneIndex index, ByteArray hash) {
+    if (index instanceof AbstractCloneIndex) {
+      return ((AbstractCloneIndex) index).cursorBySequenceHash(hash);
+    }
+    return of(index.getBySequenceHash(hash));
+  }
+
+  /**
+   * @return cursor over specified blocks
+   */
+  public static BlockCursor of(Collection<Block> blocks) {
+    return new CollectionCursor(blocks);
+  }
+
+  /**
+   * Moves cursor to the next block.
+   *
+   * @return false, if there is no more blocks
+   */
+  public abstract boolean next();
+
+  public abstract String getResourceId();
+
+  public abstract int getIndexInFile();
+
+  public abstract int getStartLine();
+
+  public abstract int getEndLine();
+
+  public abstract int getStartUnit();
+
+  public abstract int getEndUnit();
+
+  /**
+   * @return current block as an object
+   */
+  public abstract Block getBlock();
+
+  private static final class CollectionCursor extends BlockCursor {
+    private final Iterator<Block> iterator;
+    private Block current;
+
+    CollectionCursor(Collection<Block> blocks) {
+      this.iterator = blocks.iterator();
+    }
+
+    @Override
+    public boolean next() {
+      if (iterator.hasNext()) {
+        current = iterator.next();
+        return true;
+      }
+      current = null;
+      return false;
+    }
+
+    @Override
+    public String getResourceId() {
+      return current.getResourceId();
+    }
+
+    @Override
+    public int getIndexInFile() {
+      return current.getIndexInFile();
+    }
+
+    @Override
+    public int getStartLine() {
+      return current.getStartLine();
+    }
+
+    @Override
+    public int getEndLine() {
+      return current.getEndLine();
+    }
+
+    @Override
+    public int getStartUnit() {
+      return current.getStartUnit();
+    }
+
+    @Override
+    public int getEndUnit() {
+      return current.getEndUnit();
+    }
+
+    @Override
+    public Block getBlock() {
+      return current;
+    }
+  }
+
+}
@@ -40,6 +40,9 @@ import java.util.List;
  * <p>
  * Note that this implementation currently does not support deletion, however it's possible to implement.
  * </p>
+ * <p>
+ * Insertions are not thread-safe, but once all blocks are inserted, queries can be executed concurrently.
+ * </p>
  */
 public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
@@ -54,7 +57,7 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
   /**
    * Indicates that index requires sorting to perform queries.
    */
-  private boolean sorted;
+  private volatile boolean sorted;
 
   /**
    * Current number of blocks in index.
@@ -66,8 +69,6 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
 
   private int[] resourceIdsIndex;
 
-  private final Block.Builder blockBuilder = Block.builder();
-
   public PackedMemoryCloneIndex() {
     this(8, DEFAULT_INITIAL_CAPACITY);
   }
@@ -93,84 +94,160 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
    * </p>
    */
   public Collection<Block> getByResourceId(String resourceId) {
-    ensureSorted();
-
-    // prepare resourceId for binary search
-    resourceIds[size] = resourceId;
-    resourceIdsIndex[size] = size;
+    return toList(cursorByResourceId(resourceId));
+  }
 
-    int index = DataUtils.binarySearch(byResourceId);
+  /**
+   * {@inheritDoc}
+   */
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    return toList(cursorBySequenceHash(sequenceHash));
+  }
 
+  private static List<Block> toList(BlockCursor cursor) {
     List<Block> result = Lists.newArrayList();
-    int realIndex = resourceIdsIndex[index];
-    while (index < size && FastStringComparator.INSTANCE.compare(resourceIds[realIndex], resourceId) == 0) {
-      // extract block (note that there is no need to extract resourceId)
-      int offset = realIndex * blockInts;
-      int[] hash = new int[hashInts];
-      for (int j = 0; j < hashInts; j++) {
-        hash[j] = blockData[offset++];
-      }
-      int indexInFile = blockData[offset++];
-      int firstLineNumber = blockData[offset++];
-      int lastLineNumber = blockData[offset++];
-      int startUnit = blockData[offset++];
-      int endUnit = blockData[offset];
-
-      Block block = blockBuilder
-          .setResourceId(resourceId)
-          .setBlockHash(new ByteArray(hash))
-          .setIndexInFile(indexInFile)
-          .setLines(firstLineNumber, lastLineNumber)
-          .setUnit(startUnit, endUnit)
-          .build();
-      result.add(block);
-
-      index++;
-      realIndex = resourceIdsIndex[index];
+    while (cursor.next()) {
+      result.add(cursor.getBlock());
     }
     return result;
   }
 
   /**
-   * {@inheritDoc}
+   * Iterates over blocks of specified resource directly in packed data, without materialization of blocks.
+   *
+   * @since 3.3
    */
-  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+  public BlockCursor cursorByResourceId(String resourceId) {
+    ensureSorted();
+    return new ResourceCursor(resourceId, lowerBoundByResourceId(resourceId));
+  }
+
+  /**
+   * Iterates over blocks with specified hash directly in packed data, without materialization of blocks.
+   *
+   * @since 3.3
+   */
+  @Override
+  public BlockCursor cursorBySequenceHash(ByteArray sequenceHash) {
     ensureSorted();
 
-    // prepare hash for binary search
     int[] hash = sequenceHash.toIntArray();
     if (hash.length != hashInts) {
       throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
     }
-    int offset = size * blockInts;
-    for (int i = 0; i < hashInts; i++) {
-      blockData[offset++] = hash[i];
+    return new HashCursor(sequenceHash, hash, lowerBoundByHash(hash));
+  }
+
+  /**
+   * Position in {@link #blockData} is given by subclasses.
+   */
+  private abstract class PackedCursor extends BlockCursor {
+    /**
+     * Offset in {@link #blockData} of the current block, excluding hash.
+     */
+    protected int offset;
+
+    @Override
+    public int getIndexInFile() {
+      return blockData[offset];
     }
 
-    int index = DataUtils.binarySearch(byBlockHash);
+    @Override
+    public int getStartLine() {
+      return blockData[offset + 1];
+    }
 
-    List<Block> result = Lists.newArrayList();
-    while (index < size && !isLessByHash(size, index)) {
-      // extract block (note that there is no need to extract hash)
-      String resourceId = resourceIds[index];
-      offset = index * blockInts + hashInts;
-      int indexInFile = blockData[offset++];
-      int firstLineNumber = blockData[offset++];
-      int lastLineNumber = blockData[offset++];
-      int startUnit = blockData[offset++];
-      int endUnit = blockData[offset];
-
-      Block block = blockBuilder
-          .setResourceId(resourceId)
-          .setBlockHash(sequenceHash)
-          .setIndexInFile(indexInFile)
-          .setLines(firstLineNumber, lastLineNumber)
-          .setUnit(startUnit, endUnit)
+    @Override
+    public int getEndLine() {
+      return blockData[offset + 2];
+    }
+
+    @Override
+    public int getStartUnit() {
+      return blockData[offset + 3];
+    }
+
+    @Override
+    public int getEndUnit() {
+      return blockData[offset + 4];
+    }
+
+    protected Block getBlock(ByteArray hash) {
+      return Block.builder()
+          .setResourceId(getResourceId())
+          .setBlockHash(hash)
+          .setIndexInFile(getIndexInFile())
+          .setLines(getStartLine(), getEndLine())
+          .setUnit(getStartUnit(), getEndUnit())
           .build();
-      result.add(block);
-      index++;
     }
-    return result;
+  }
+
+  private final class HashCursor extends PackedCursor {
+    private final ByteArray sequenceHash;
+    private final int[] hash;
+    private int index;
+
+    HashCursor(ByteArray sequenceHash, int[] hash, int lowerBound) {
+      this.sequenceHash = sequenceHash;
+      this.hash = hash;
+      this.index = lowerBound - 1;
+    }
+
+    @Override
+    public boolean next() {
+      if (index < size && ++index < size && compareHash(index, hash) == 0) {
+        offset = index * blockInts + hashInts;
+        return true;
+      }
+      index = size;
+      return false;
+    }
+
+    @Override
+    public String getResourceId() {
+      return resourceIds[index];
+    }
+
+    @Override
+    public Block getBlock() {
+      // note that there is no need to extract hash
+      return getBlock(sequenceHash);
+    }
+  }
+
+  private final class ResourceCursor extends PackedCursor {
+    private final String resourceId;
+    private int position;
+
+    ResourceCursor(String resourceId, int lowerBound) {
+      this.resourceId = resourceId;
+      this.position = lowerBound - 1;
+    }
+
+    @Override
+    public boolean next() {
+      if (position < size && ++position < size
+        && FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[position]], resourceId) == 0) {
+        offset = resourceIdsIndex[position] * blockInts + hashInts;
+        return true;
+      }
+      position = size;
+      return false;
+    }
+
+    @Override
+    public String getResourceId() {
+      // note that there is no need to extract resourceId
+      return resourceId;
+    }
+
+    @Override
+    public Block getBlock() {
+      int[] hash = new int[hashInts];
+      System.arraycopy(blockData, offset - hashInts, hash, 0, hashInts);
+      return getBlock(new ByteArray(hash));
+    }
   }
 
   /**
@@ -230,16 +307,70 @@ public class PackedMemoryCloneIndex extends AbstractCloneIndex {
     if (sorted) {
       return;
     }
+    synchronized (this) {
+      if (sorted) {
+        return;
+      }
 
-    ensureCapacity();
+      ensureCapacity();
+
+      DataUtils.sort(byBlockHash);
+      for (int i = 0; i < size; i++) {
+        resourceIdsIndex[i] = i;
+      }
+      DataUtils.sort(byResourceId);
+
+      sorted = true;
+    }
+  }
+
+  /**
+   * Binary search that does not modify data, so that it can be executed concurrently.
+   *
+   * @return index of first block with the given hash, or index of the first greater block
+   */
+  private int lowerBoundByHash(int[] hash) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (compareHash(mid, hash) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
+  }
 
-    DataUtils.sort(byBlockHash);
-    for (int i = 0; i < size; i++) {
-      resourceIdsIndex[i] = i;
+  private int compareHash(int index, int[] hash) {
+    int offset = index * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      if (blockData[offset] < hash[k]) {
+        return -1;
+      }
+      if (blockData[offset] > hash[k]) {
+        return 1;
+      }
     }
-    DataUtils.sort(byResourceId);
+    return 0;
+  }
 
-    sorted = true;
+  /**
+   * @return position in {@link #resourceIdsIndex} of the first block of the given resource, or of the first greater block
+   */
+  private int lowerBoundByResourceId(String resourceId) {
+    int lower = 0;
+    int upper = size;
+    while (lower < upper) {
+      int mid = (lower + upper) >>> 1;
+      if (FastStringComparator.INSTANCE.compare(resourceIds[resourceIdsIndex[mid]], resourceId) < 0) {
+        lower = mid + 1;
+      } else {
+        upper = mid;
+      }
+    }
+    return lower;
   }
 
   private boolean isLessByHash(int i, int j) {
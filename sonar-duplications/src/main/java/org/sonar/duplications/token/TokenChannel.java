@@ -25,15 +25,18 @@ import java.util.regex.Pattern;
 import org.sonar.channel.Channel;
 import org.sonar.channel.CodeBuffer.Cursor;
 import org.sonar.channel.CodeReader;
+import org.sonar.channel.StartCharacters;
 
 class TokenChannel extends Channel<TokenQueue> {
 
   private final StringBuilder tmpBuilder = new StringBuilder();
   private final Matcher matcher;
+  private final StartCharacters startCharacters;
   private String normalizationValue;
 
   public TokenChannel(String regex) {
     matcher = Pattern.compile(regex).matcher("");
+    startCharacters = StartCharacters.ofRegex(regex);
   }
 
   public TokenChannel(String regex, String normalizationValue) {
@@ -41,6 +44,11 @@ class TokenChannel extends Channel<TokenQueue> {
     this.normalizationValue = normalizationValue;
   }
 
+  @Override
+  public StartCharacters getStartCharacters() {
+    return startCharacters;
+  }
+
   @Override
   public boolean consume(CodeReader code, TokenQueue output) {
     if (code.popTo(matcher, tmpBuilder) > 0) {
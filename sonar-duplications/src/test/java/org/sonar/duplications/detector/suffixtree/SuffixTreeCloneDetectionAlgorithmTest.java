@@ -20,6 +20,7 @@
 package org.sonar.duplications.detector.suffixtree;
 
 import org.junit.Test;
+import org.sonar.duplications.DuplicationsException;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 import org.sonar.duplications.detector.DetectorTestCase;
@@ -33,6 +34,8 @@ import java.util.List;
 import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.sonar.duplications.detector.CloneGroupMatcher.hasCloneGroup;
 
 public class SuffixTreeCloneDetectionAlgorithmTest extends DetectorTestCase {
@@ -73,6 +76,21 @@ public class SuffixTreeCloneDetectionAlgorithmTest extends DetectorTestCase {
     assertEquals(1, result.size());
   }
 
+  @Test
+  public void shouldStopWhenThreadIsInterrupted() {
+    CloneIndex index = createIndex();
+    Block[] fileBlocks = newBlocks("x", "a 2 b 2 c 2 2 2");
+    Thread.currentThread().interrupt();
+    try {
+      detect(index, fileBlocks);
+      fail();
+    } catch (DuplicationsException e) {
+      assertTrue(Thread.currentThread().isInterrupted());
+    } finally {
+      Thread.interrupted();
+    }
+  }
+
   /**
    * Given:
    * <pre>
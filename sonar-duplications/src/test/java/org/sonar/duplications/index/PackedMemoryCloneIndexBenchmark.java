@@ -0,0 +1,119 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.duplications.index;
+
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+
+import java.util.Random;
+
+/**
+ * Compares retrieval of blocks by {@link PackedMemoryCloneIndex#getBySequenceHash(ByteArray)} and by
+ * {@link PackedMemoryCloneIndex#cursorBySequenceHash(ByteArray)}, as done by detection algorithms:
+ * blocks of the origin file are skipped.
+ * <p>
+ * Not executed during build, run with {@code main}. Default corpus is close to JDK: 7000 files of 200 blocks,
+ * with 10% of hashes shared between files.
+ * </p>
+ */
+public final class PackedMemoryCloneIndexBenchmark {
+
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int ITERATIONS = 10;
+
+  private PackedMemoryCloneIndexBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    int files = args.length > 0 ? Integer.parseInt(args[0]) : 7000;
+    int blocksPerFile = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+    PackedMemoryCloneIndex index = new PackedMemoryCloneIndex();
+    ByteArray[][] hashes = new ByteArray[files][blocksPerFile];
+    String[] resourceIds = new String[files];
+    Random random = new Random(0);
+    for (int f = 0; f < files; f++) {
+      resourceIds[f] = "org/example/File" + f + ".java";
+      for (int b = 0; b < blocksPerFile; b++) {
+        long hash = random.nextInt(10) == 0 ? random.nextInt(1000) : random.nextLong();
+        hashes[f][b] = new ByteArray(hash);
+        index.insert(Block.builder()
+            .setResourceId(resourceIds[f])
+            .setBlockHash(hashes[f][b])
+            .setIndexInFile(b)
+            .setLines(b, b + 10)
+            .setUnit(b, b + 10)
+            .build());
+      }
+    }
+    System.out.println("Blocks: " + files * blocksPerFile);
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      byCollections(index, resourceIds, hashes);
+      byCursors(index, resourceIds, hashes);
+    }
+    long collectionsNanos = 0;
+    long cursorsNanos = 0;
+    long checksum = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      long start = System.nanoTime();
+      checksum += byCollections(index, resourceIds, hashes);
+      collectionsNanos += System.nanoTime() - start;
+      start = System.nanoTime();
+      checksum -= byCursors(index, resourceIds, hashes);
+      cursorsNanos += System.nanoTime() - start;
+    }
+    if (checksum != 0) {
+      throw new IllegalStateException("APIs return different blocks");
+    }
+    System.out.println("getBySequenceHash:    " + collectionsNanos / ITERATIONS / 1000000 + " ms/op");
+    System.out.println("cursorBySequenceHash: " + cursorsNanos / ITERATIONS / 1000000 + " ms/op");
+  }
+
+  private static long byCollections(PackedMemoryCloneIndex index, String[] resourceIds, ByteArray[][] hashes) {
+    long found = 0;
+    for (int f = 0; f < hashes.length; f++) {
+      for (ByteArray hash : hashes[f]) {
+        for (Block block : index.getBySequenceHash(hash)) {
+          if (!resourceIds[f].equals(block.getResourceId())) {
+            found += block.getIndexInFile();
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+  private static long byCursors(PackedMemoryCloneIndex index, String[] resourceIds, ByteArray[][] hashes) {
+    long found = 0;
+    for (int f = 0; f < hashes.length; f++) {
+      for (ByteArray hash : hashes[f]) {
+        BlockCursor cursor = index.cursorBySequenceHash(hash);
+        while (cursor.next()) {
+          if (!resourceIds[f].equals(cursor.getResourceId())) {
+            found += cursor.getIndexInFile();
+          }
+        }
+      }
+    }
+    return found;
+  }
+
+}
@@ -19,12 +19,18 @@
  */
 package org.sonar.duplications.index;
 
+import com.google.common.collect.Lists;
 import org.junit.Before;
 import org.junit.Test;
 import org.sonar.duplications.block.Block;
 import org.sonar.duplications.block.ByteArray;
 
 import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.sameInstance;
@@ -77,6 +83,39 @@ public class PackedMemoryCloneIndexTest {
     }
   }
 
+  /**
+   * When: iterate with cursors.
+   * Expected: same blocks as with queries, without materialization until requested.
+   */
+  @Test
+  public void should_iterate_with_cursors() {
+    index.insert(newBlock("a", 1));
+    index.insert(newBlock("b", 2));
+    index.insert(newBlock("c", 1));
+
+    BlockCursor cursor = index.cursorBySequenceHash(new ByteArray(1L));
+    int count = 0;
+    while (cursor.next()) {
+      assertThat(cursor.getResourceId().equals("a") || cursor.getResourceId().equals("c"), is(true));
+      assertThat(cursor.getIndexInFile(), is(1));
+      assertThat(cursor.getStartLine(), is(1));
+      assertThat(cursor.getEndLine(), is(2));
+      count++;
+    }
+    assertThat(count, is(2));
+    assertThat(cursor.next(), is(false));
+
+    cursor = index.cursorByResourceId("b");
+    assertThat(cursor.next(), is(true));
+    Block block = cursor.getBlock();
+    assertThat(block.getResourceId(), is("b"));
+    assertThat(block.getBlockHash(), is(new ByteArray(2L)));
+    assertThat(cursor.next(), is(false));
+
+    assertThat(index.cursorByResourceId("d").next(), is(false));
+    assertThat(BlockCursor.bySequenceHash(index, new ByteArray(3L)).next(), is(false));
+  }
+
   /**
    * Given: index with initial capacity 1.
    * Expected: size and capacity should be increased after insertion of two blocks.
@@ -109,6 +148,35 @@ public class PackedMemoryCloneIndexTest {
     index.getBySequenceHash(new ByteArray(1L));
   }
 
+  /**
+   * Given: populated index.
+   * Expected: concurrent queries return the same results as sequential ones.
+   */
+  @Test
+  public void should_support_concurrent_queries() throws Exception {
+    for (int i = 0; i < 1000; i++) {
+      index.insert(newBlock("r" + (i % 10), i % 100));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> results = Lists.newArrayList();
+      for (int i = 0; i < 100; i++) {
+        final long hash = i;
+        final String resourceId = "r" + (i % 10);
+        results.add(executor.submit(new Callable<Integer>() {
+          public Integer call() {
+            return index.getBySequenceHash(new ByteArray(hash)).size() + index.getByResourceId(resourceId).size();
+          }
+        }));
+      }
+      for (Future<Integer> result : results) {
+        assertThat(result.get(), is(10 + 100));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private static Block newBlock(String resourceId, long hash) {
     return Block.builder()
         .setResourceId(resourceId)
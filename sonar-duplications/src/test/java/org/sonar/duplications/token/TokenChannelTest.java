@@ -89,4 +89,12 @@ public class TokenChannelTest {
     assertThat(codeReader.getColumnPosition(), is(1));
   }
 
+  @Test
+  public void shouldDeclareStartCharacters() {
+    TokenChannel channel = new TokenChannel("[0-9]++|ABC");
+    assertThat(channel.getStartCharacters().contains('A'), is(true));
+    assertThat(channel.getStartCharacters().contains('5'), is(true));
+    assertThat(channel.getStartCharacters().contains('B'), is(false));
+  }
+
 }
@@ -0,0 +1,277 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Memory efficient alternative to {@link DirectedGraph}, for large graphs which are built once and then only read. Vertices are mapped
+ * to int ids, and edges are stored in primitive arrays in compressed sparse row format, outgoing edges of each vertex being sorted by
+ * target id.
+ * <p>
+ * Edges and vertices are added as in {@link DirectedGraph}, then the graph is frozen, explicitly with {@link #freeze()} or by the first
+ * query. A frozen graph can't be modified anymore, and can be read concurrently.
+ * </p>
+ */
+public class CompactDirectedGraph<V, E extends Edge<V>> implements DirectedGraphAccessor<V, E> {
+
+  private EdgeFactory<V, E> edgeFactory;
+  private final Map<V, Integer> idsByVertex = new HashMap<V, Integer>();
+  private final ArrayList<V> vertices = new ArrayList<V>();
+  private List<E> pendingEdges = new ArrayList<E>();
+  private volatile boolean frozen = false;
+
+  private int[] outgoingOffsets;
+  private int[] outgoingTargets;
+  private List<E> outgoingEdges;
+  private int[] incomingOffsets;
+  private List<E> incomingEdges;
+
+  public CompactDirectedGraph() {
+  }
+
+  public CompactDirectedGraph(EdgeFactory<V, E> edgeFactory) {
+    this.edgeFactory = edgeFactory;
+  }
+
+  public static CompactDirectedGraph<String, StringEdge> createStringDirectedGraph() {
+    return new CompactDirectedGraph<String, StringEdge>(new StringEdgeFactory());
+  }
+
+  /**
+   * Copies the vertices and the edges of another graph, for example a {@link DirectedGraph} which is not modified anymore.
+   */
+  public static <V, E extends Edge<V>> CompactDirectedGraph<V, E> copyOf(DirectedGraphAccessor<V, E> graph) {
+    CompactDirectedGraph<V, E> copy = new CompactDirectedGraph<V, E>();
+    copy.addVertices(graph.getVertices());
+    for (V vertex : graph.getVertices()) {
+      for (E edge : graph.getOutgoingEdges(vertex)) {
+        copy.addEdge(edge);
+      }
+    }
+    copy.freeze();
+    return copy;
+  }
+
+  public CompactDirectedGraph<V, E> addEdge(V from, V to) {
+    checkEdgeFactory();
+    return addEdge(edgeFactory.createEdge(from, to));
+  }
+
+  public CompactDirectedGraph<V, E> addEdge(V from, V to, int weight) {
+    checkEdgeFactory();
+    return addEdge(edgeFactory.createEdge(from, to, weight));
+  }
+
+  private void checkEdgeFactory() {
+    if (edgeFactory == null) {
+      throw new IllegalStateException(
+          "EdgeFactory<V, E> has not been defined. Please use the 'public E addEdge(V from, V to, E edge)' method.");
+    }
+  }
+
+  public synchronized CompactDirectedGraph<V, E> addEdge(E edge) {
+    checkNotFrozen();
+    addVertex(edge.getFrom());
+    addVertex(edge.getTo());
+    pendingEdges.add(edge);
+    return this;
+  }
+
+  public synchronized void addVertex(V vertex) {
+    checkNotFrozen();
+    if ( !idsByVertex.containsKey(vertex)) {
+      idsByVertex.put(vertex, vertices.size());
+      vertices.add(vertex);
+    }
+  }
+
+  public void addVertices(Collection<V> vertices) {
+    for (V vertex : vertices) {
+      addVertex(vertex);
+    }
+  }
+
+  private void checkNotFrozen() {
+    if (frozen) {
+      throw new IllegalStateException("The graph is frozen and can't be modified anymore");
+    }
+  }
+
+  /**
+   * Builds the compact representation of the edges. Called by the first query if not called explicitly.
+   * 
+   * @throws IllegalStateException
+   *           if the same edge has been added twice
+   */
+  public synchronized void freeze() {
+    if (frozen) {
+      return;
+    }
+    int verticesCount = vertices.size();
+    int edgesCount = pendingEdges.size();
+    int[] from = new int[edgesCount];
+    int[] to = new int[edgesCount];
+    for (int i = 0; i < edgesCount; i++) {
+      E edge = pendingEdges.get(i);
+      from[i] = idsByVertex.get(edge.getFrom());
+      to[i] = idsByVertex.get(edge.getTo());
+    }
+
+    // counting sort by target : incoming edges, grouped by target
+    incomingOffsets = offsets(to, verticesCount);
+    int[] byTarget = new int[edgesCount];
+    int[] next = incomingOffsets.clone();
+    for (int i = 0; i < edgesCount; i++) {
+      byTarget[next[to[i]]++] = i;
+    }
+    incomingEdges = new ArrayList<E>(edgesCount);
+    for (int i = 0; i < edgesCount; i++) {
+      incomingEdges.add(pendingEdges.get(byTarget[i]));
+    }
+
+    // stable counting sort by source : outgoing edges, grouped by source and sorted by target
+    outgoingOffsets = offsets(from, verticesCount);
+    outgoingTargets = new int[edgesCount];
+    outgoingEdges = new ArrayList<E>(Collections.<E> nCopies(edgesCount, null));
+    next = outgoingOffsets.clone();
+    for (int i = 0; i < edgesCount; i++) {
+      int edge = byTarget[i];
+      int position = next[from[edge]]++;
+      outgoingTargets[position] = to[edge];
+      outgoingEdges.set(position, pendingEdges.get(edge));
+    }
+    for (int v = 0; v < verticesCount; v++) {
+      for (int i = outgoingOffsets[v] + 1; i < outgoingOffsets[v + 1]; i++) {
+        if (outgoingTargets[i] == outgoingTargets[i - 1]) {
+          throw new IllegalStateException("The graph already contains the edge : " + outgoingEdges.get(i));
+        }
+      }
+    }
+
+    pendingEdges = null;
+    vertices.trimToSize();
+    frozen = true;
+  }
+
+  private static int[] offsets(int[] ids, int verticesCount) {
+    int[] offsets = new int[verticesCount + 1];
+    for (int id : ids) {
+      offsets[id + 1]++;
+    }
+    for (int v = 0; v < verticesCount; v++) {
+      offsets[v + 1] += offsets[v];
+    }
+    return offsets;
+  }
+
+  private void checkFrozen() {
+    if ( !frozen) {
+      freeze();
+    }
+  }
+
+  private int idOf(Object vertex) {
+    Integer id = idsByVertex.get(vertex);
+    return id == null ? -1 : id;
+  }
+
+  public E getEdge(V from, V to) {
+    checkFrozen();
+    int fromId = idOf(from);
+    int toId = idOf(to);
+    if (fromId < 0 || toId < 0) {
+      return null;
+    }
+    int lower = outgoingOffsets[fromId];
+    int upper = outgoingOffsets[fromId + 1] - 1;
+    while (lower <= upper) {
+      int mid = (lower + upper) >>> 1;
+      if (outgoingTargets[mid] < toId) {
+        lower = mid + 1;
+      } else if (outgoingTargets[mid] > toId) {
+        upper = mid - 1;
+      } else {
+        return outgoingEdges.get(mid);
+      }
+    }
+    return null;
+  }
+
+  public boolean hasEdge(V from, V to) {
+    return getEdge(from, to) != null;
+  }
+
+  /**
+   * @return the vertices, in the order they have been added
+   */
+  public Set<V> getVertices() {
+    return new AbstractSet<V>() {
+      @Override
+      public Iterator<V> iterator() {
+        return Collections.unmodifiableList(vertices).iterator();
+      }
+
+      @Override
+      public int size() {
+        return vertices.size();
+      }
+
+      @Override
+      public boolean contains(Object vertex) {
+        return idsByVertex.containsKey(vertex);
+      }
+    };
+  }
+
+  public List<E> getEdges(Collection<V> vertices) {
+    List<E> result = new ArrayList<E>();
+    for (V vertex : vertices) {
+      result.addAll(getOutgoingEdges(vertex));
+    }
+    return result;
+  }
+
+  public List<E> getOutgoingEdges(V from) {
+    checkFrozen();
+    int id = idOf(from);
+    if (id < 0) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(outgoingEdges.subList(outgoingOffsets[id], outgoingOffsets[id + 1]));
+  }
+
+  public List<E> getIncomingEdges(V to) {
+    checkFrozen();
+    int id = idOf(to);
+    if (id < 0) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(incomingEdges.subList(incomingOffsets[id], incomingOffsets[id + 1]));
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Scalable heuristic for the feedback edge set problem, to be used when cycles are too numerous to be enumerated. This is the weighted
+ * greedy algorithm of Eades, Lin and Smyth : vertices are ordered by repeatedly removing sinks to the end of the order, sources to the
+ * beginning, and otherwise the vertex whose outgoing weight exceeds the most its incoming weight. The edges going backward in this order
+ * form the feedback edge set.
+ * <p>
+ * Runs in O(E log V). The result is not minimal, but removing it always leaves an acyclic graph.
+ * </p>
+ */
+public class GreedyFeedbackEdgeSetSolver<V> {
+
+  private final int size;
+  private final Edge[][] outgoingEdges;
+  private final int[][] outgoingTargets;
+  private final int[][] incomingSources;
+  private final int[][] incomingWeights;
+  private Set<Edge> feedbackEdges;
+  private int feedbackEdgesWeight;
+
+  public GreedyFeedbackEdgeSetSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
+    List<V> indexedVertices = new ArrayList<V>(new LinkedHashSet<V>(vertices));
+    this.size = indexedVertices.size();
+    Map<V, Integer> indexByVertex = new HashMap<V, Integer>(size * 2);
+    for (int i = 0; i < size; i++) {
+      indexByVertex.put(indexedVertices.get(i), i);
+    }
+    this.outgoingEdges = new Edge[size][];
+    this.outgoingTargets = new int[size][];
+    int[] incomingCounts = new int[size];
+    for (int v = 0; v < size; v++) {
+      List<Edge> edges = new ArrayList<Edge>();
+      List<Integer> targets = new ArrayList<Integer>();
+      for (Edge edge : graph.getOutgoingEdges(indexedVertices.get(v))) {
+        Integer to = indexByVertex.get(edge.getTo());
+        if (to != null) {
+          edges.add(edge);
+          targets.add(to);
+          incomingCounts[to]++;
+        }
+      }
+      outgoingEdges[v] = edges.toArray(new Edge[edges.size()]);
+      outgoingTargets[v] = new int[targets.size()];
+      for (int i = 0; i < targets.size(); i++) {
+        outgoingTargets[v][i] = targets.get(i);
+      }
+    }
+    this.incomingSources = new int[size][];
+    this.incomingWeights = new int[size][];
+    for (int v = 0; v < size; v++) {
+      incomingSources[v] = new int[incomingCounts[v]];
+      incomingWeights[v] = new int[incomingCounts[v]];
+      incomingCounts[v] = 0;
+    }
+    for (int v = 0; v < size; v++) {
+      for (int i = 0; i < outgoingTargets[v].length; i++) {
+        int to = outgoingTargets[v][i];
+        incomingSources[to][incomingCounts[to]] = v;
+        incomingWeights[to][incomingCounts[to]] = outgoingEdges[v][i].getWeight();
+        incomingCounts[to]++;
+      }
+    }
+    run();
+  }
+
+  private void run() {
+    int[] position = order();
+    feedbackEdges = new HashSet<Edge>();
+    feedbackEdgesWeight = 0;
+    for (int v = 0; v < size; v++) {
+      for (int i = 0; i < outgoingTargets[v].length; i++) {
+        if (position[outgoingTargets[v][i]] <= position[v]) {
+          Edge edge = outgoingEdges[v][i];
+          feedbackEdges.add(edge);
+          feedbackEdgesWeight += edge.getWeight();
+        }
+      }
+    }
+  }
+
+  private int[] order() {
+    int[] outgoingCount = new int[size];
+    int[] incomingCount = new int[size];
+    long[] delta = new long[size];
+    boolean[] removed = new boolean[size];
+    int[] sinks = new int[size];
+    int sinksSize = 0;
+    int[] sources = new int[size];
+    int sourcesSize = 0;
+    PriorityQueue<Candidate> candidates = new PriorityQueue<Candidate>();
+
+    for (int v = 0; v < size; v++) {
+      for (int i = 0; i < outgoingTargets[v].length; i++) {
+        int to = outgoingTargets[v][i];
+        if (to != v) {
+          outgoingCount[v]++;
+          incomingCount[to]++;
+          int weight = outgoingEdges[v][i].getWeight();
+          delta[v] += weight;
+          delta[to] -= weight;
+        }
+      }
+    }
+    for (int v = 0; v < size; v++) {
+      if (outgoingCount[v] == 0) {
+        sinks[sinksSize++] = v;
+      } else if (incomingCount[v] == 0) {
+        sources[sourcesSize++] = v;
+      } else {
+        candidates.add(new Candidate(v, delta[v]));
+      }
+    }
+
+    int[] position = new int[size];
+    int left = 0;
+    int right = size - 1;
+    while (left <= right) {
+      int v;
+      boolean toRight = false;
+      if (sinksSize > 0) {
+        v = sinks[--sinksSize];
+        toRight = true;
+      } else if (sourcesSize > 0) {
+        v = sources[--sourcesSize];
+      } else {
+        Candidate candidate = candidates.poll();
+        v = candidate.vertex;
+        if (removed[v] || candidate.delta != delta[v]) {
+          // outdated candidate
+          continue;
+        }
+      }
+      if (removed[v]) {
+        continue;
+      }
+      removed[v] = true;
+      position[v] = toRight ? right-- : left++;
+
+      for (int i = 0; i < outgoingTargets[v].length; i++) {
+        int to = outgoingTargets[v][i];
+        if ( !removed[to]) {
+          incomingCount[to]--;
+          delta[to] += outgoingEdges[v][i].getWeight();
+          sourcesSize = update(to, outgoingCount, incomingCount, delta, sinks, sources, sourcesSize, candidates, false);
+        }
+      }
+      for (int i = 0; i < incomingSources[v].length; i++) {
+        int from = incomingSources[v][i];
+        if ( !removed[from]) {
+          outgoingCount[from]--;
+          delta[from] -= incomingWeights[v][i];
+          sinksSize = update(from, outgoingCount, incomingCount, delta, sinks, sources, sinksSize, candidates, true);
+        }
+      }
+    }
+    return position;
+  }
+
+  /**
+   * Moves a neighbour of a removed vertex to the sinks or sources when it became one, or refreshes its priority otherwise.
+   * 
+   * @return the new size of the sinks (resp. sources) stack
+   */
+  private static int update(int v, int[] outgoingCount, int[] incomingCount, long[] delta, int[] sinks, int[] sources,
+      int stackSize, PriorityQueue<Candidate> candidates, boolean sink) {
+    if (sink && outgoingCount[v] == 0) {
+      sinks[stackSize] = v;
+      return stackSize + 1;
+    }
+    if ( !sink && incomingCount[v] == 0) {
+      sources[stackSize] = v;
+      return stackSize + 1;
+    }
+    candidates.add(new Candidate(v, delta[v]));
+    return stackSize;
+  }
+
+  public Set<Edge> getEdges() {
+    return feedbackEdges;
+  }
+
+  public int getWeightOfFeedbackEdgeSet() {
+    return feedbackEdgesWeight;
+  }
+
+  private static final class Candidate implements Comparable<Candidate> {
+    private final int vertex;
+    private final long delta;
+
+    Candidate(int vertex, long delta) {
+      this.vertex = vertex;
+      this.delta = delta;
+    }
+
+    public int compareTo(Candidate other) {
+      if (delta != other.delta) {
+        return delta > other.delta ? -1 : 1;
+      }
+      return vertex - other.vertex;
+    }
+  }
+}
@@ -0,0 +1,174 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Partitions a set of vertices into strongly connected components with the Tarjan algorithm, in linear time. Each cycle of the graph
+ * is contained in a single component, so cycles can be searched, or broken, component by component.
+ * <p>
+ * The depth-first search is iterative, so deep graphs do not overflow the stack.
+ * </p>
+ */
+public class StronglyConnectedComponents<V> {
+
+  private final DirectedGraphAccessor<V, ? extends Edge> graph;
+  private final List<V> vertices;
+  private final Map<V, Integer> indexByVertex;
+  private final List<Set<V>> components = new ArrayList<Set<V>>();
+
+  public StronglyConnectedComponents(DirectedGraphAccessor<V, ? extends Edge> graph) {
+    this(graph, graph.getVertices());
+  }
+
+  public StronglyConnectedComponents(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
+    this.graph = graph;
+    this.vertices = new ArrayList<V>(new LinkedHashSet<V>(vertices));
+    this.indexByVertex = new HashMap<V, Integer>(this.vertices.size() * 2);
+    for (int i = 0; i < this.vertices.size(); i++) {
+      indexByVertex.put(this.vertices.get(i), i);
+    }
+    run();
+  }
+
+  private void run() {
+    int size = vertices.size();
+    int[][] successors = new int[size][];
+    for (int v = 0; v < size; v++) {
+      successors[v] = getSuccessors(vertices.get(v));
+    }
+
+    int[] index = new int[size];
+    int[] lowLink = new int[size];
+    boolean[] onStack = new boolean[size];
+    int[] stack = new int[size];
+    int stackSize = 0;
+    int[] callStack = new int[size];
+    int[] nextSuccessor = new int[size];
+    int counter = 0;
+
+    for (int root = 0; root < size; root++) {
+      if (index[root] != 0) {
+        continue;
+      }
+      int depth = 0;
+      callStack[depth] = root;
+      index[root] = ++counter;
+      lowLink[root] = counter;
+      stack[stackSize++] = root;
+      onStack[root] = true;
+
+      while (depth >= 0) {
+        int v = callStack[depth];
+        if (nextSuccessor[v] < successors[v].length) {
+          int w = successors[v][nextSuccessor[v]++];
+          if (index[w] == 0) {
+            index[w] = ++counter;
+            lowLink[w] = counter;
+            stack[stackSize++] = w;
+            onStack[w] = true;
+            callStack[++depth] = w;
+          } else if (onStack[w]) {
+            lowLink[v] = Math.min(lowLink[v], index[w]);
+          }
+        } else {
+          if (lowLink[v] == index[v]) {
+            Set<V> component = new LinkedHashSet<V>();
+            int w;
+            do {
+              w = stack[--stackSize];
+              onStack[w] = false;
+              component.add(vertices.get(w));
+            } while (w != v);
+            components.add(component);
+          }
+          depth--;
+          if (depth >= 0) {
+            int parent = callStack[depth];
+            lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+          }
+        }
+      }
+    }
+  }
+
+  private int[] getSuccessors(V vertex) {
+    Collection<? extends Edge> edges = graph.getOutgoingEdges(vertex);
+    int[] successors = new int[edges.size()];
+    int count = 0;
+    for (Edge edge : edges) {
+      Integer to = indexByVertex.get(edge.getTo());
+      if (to != null) {
+        successors[count++] = to;
+      }
+    }
+    if (count < successors.length) {
+      int[] trimmed = new int[count];
+      System.arraycopy(successors, 0, trimmed, 0, count);
+      return trimmed;
+    }
+    return successors;
+  }
+
+  /**
+   * All the components, in reverse topological order : there is no edge from a component to a following one.
+   */
+  public List<Set<V>> getComponents() {
+    return Collections.unmodifiableList(components);
+  }
+
+  /**
+   * Components which contain at least one cycle : components of several vertices, and single vertices with an edge to themselves.
+   */
+  public List<Set<V>> getCyclicComponents() {
+    List<Set<V>> result = new ArrayList<Set<V>>();
+    for (Set<V> component : components) {
+      if (isCyclic(component)) {
+        result.add(component);
+      }
+    }
+    return result;
+  }
+
+  private boolean isCyclic(Set<V> component) {
+    if (component.size() > 1) {
+      return true;
+    }
+    V vertex = component.iterator().next();
+    return graph.hasEdge(vertex, vertex);
+  }
+
+  public boolean isAcyclicGraph() {
+    for (Set<V> component : components) {
+      if (isCyclic(component)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Alternative to {@link IncrementalCyclesAndFESSolver} for large graphs. The graph is first partitioned into strongly connected
+ * components, which are then solved independently, and in parallel : as each cycle is contained in a single component, the union of
+ * their feedback edge sets is a feedback edge set of the graph.
+ * <p>
+ * Small components are solved by searching their cycles with {@link IncrementalCyclesAndFESSolver}. Larger components, whose cycles
+ * are too numerous to be enumerated, are solved with {@link GreedyFeedbackEdgeSetSolver}.
+ * </p>
+ */
+public class StronglyConnectedComponentsFESSolver<V> {
+
+  public static final int DEFAULT_MAX_COMPONENT_SIZE_FOR_CYCLES_SEARCH = 20;
+
+  private final DirectedGraphAccessor<V, ? extends Edge> graph;
+  private final List<Set<V>> components;
+  private final int maxComponentSizeForCyclesSearch;
+  private final Set<Edge> feedbackEdges = new HashSet<Edge>();
+  private int feedbackEdgesWeight = 0;
+
+  public StronglyConnectedComponentsFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices) {
+    this(graph, vertices, Runtime.getRuntime().availableProcessors());
+  }
+
+  public StronglyConnectedComponentsFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, int threads) {
+    this(graph, vertices, threads, DEFAULT_MAX_COMPONENT_SIZE_FOR_CYCLES_SEARCH);
+  }
+
+  /**
+   * @param threads
+   *          maximum number of components solved concurrently
+   * @param maxComponentSizeForCyclesSearch
+   *          number of vertices above which the cycles of a component are not searched, and the heuristic is used instead
+   */
+  public StronglyConnectedComponentsFESSolver(DirectedGraphAccessor<V, ? extends Edge> graph, Collection<V> vertices, int threads,
+      int maxComponentSizeForCyclesSearch) {
+    this.graph = graph;
+    this.maxComponentSizeForCyclesSearch = maxComponentSizeForCyclesSearch;
+    this.components = new StronglyConnectedComponents<V>(graph, vertices).getCyclicComponents();
+    run(threads);
+  }
+
+  private void run(int threads) {
+    List<ComponentSolver> solvers = new ArrayList<ComponentSolver>();
+    for (Set<V> component : components) {
+      solvers.add(new ComponentSolver(component));
+    }
+    // largest components first, so that they do not end up alone at the end of the parallel execution
+    Collections.sort(solvers, new Comparator<ComponentSolver>() {
+      public int compare(ComponentSolver left, ComponentSolver right) {
+        return right.component.size() - left.component.size();
+      }
+    });
+
+    int poolSize = Math.min(threads, solvers.size());
+    if (poolSize <= 1) {
+      for (ComponentSolver solver : solvers) {
+        merge(solver.call());
+      }
+      return;
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(poolSize);
+    try {
+      for (Future<Set<Edge>> future : executor.invokeAll(solvers)) {
+        merge(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while searching feedback edges", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Fail to search feedback edges", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void merge(Set<Edge> edges) {
+    for (Edge edge : edges) {
+      if (feedbackEdges.add(edge)) {
+        feedbackEdgesWeight += edge.getWeight();
+      }
+    }
+  }
+
+  private final class ComponentSolver implements Callable<Set<Edge>> {
+    private final Set<V> component;
+
+    ComponentSolver(Set<V> component) {
+      this.component = component;
+    }
+
+    public Set<Edge> call() {
+      if (component.size() <= maxComponentSizeForCyclesSearch) {
+        return new IncrementalCyclesAndFESSolver<V>(graph, component).getFeedbackEdgeSet();
+      }
+      return new GreedyFeedbackEdgeSetSolver<V>(graph, component).getEdges();
+    }
+  }
+
+  public Set<Edge> getFeedbackEdgeSet() {
+    return feedbackEdges;
+  }
+
+  public int getWeightOfFeedbackEdgeSet() {
+    return feedbackEdgesWeight;
+  }
+
+  /**
+   * Strongly connected components which contain cycles, i.e. the tangles of the graph.
+   */
+  public List<Set<V>> getCyclicComponents() {
+    return components;
+  }
+
+  public boolean isAcyclicGraph() {
+    return components.isEmpty();
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares memory and read throughput of {@link DirectedGraph} and {@link CompactDirectedGraph}, on a random graph of
+ * {@value #VERTICES} vertices and {@value #EDGES_PER_VERTEX} edges per vertex. Vertices and edges are shared, so that only the
+ * graph structures are measured.
+ * Not executed during build, run it with "main".
+ */
+public final class CompactDirectedGraphBenchmark {
+
+  private static final int VERTICES = 50000;
+  private static final int EDGES_PER_VERTEX = 10;
+  private static final int ITERATIONS = 10;
+
+  private CompactDirectedGraphBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    List<String> vertices = new ArrayList<String>();
+    for (int i = 0; i < VERTICES; i++) {
+      vertices.add("org/sonar/File" + i);
+    }
+    List<StringEdge> edges = new ArrayList<StringEdge>();
+    Random random = new Random(42);
+    for (int i = 0; i < VERTICES; i++) {
+      for (int j = 0; j < EDGES_PER_VERTEX; j++) {
+        // distinct targets
+        edges.add(new StringEdge(vertices.get(i), vertices.get((i + 1 + j * (VERTICES / EDGES_PER_VERTEX) + random.nextInt(100))
+          % VERTICES)));
+      }
+    }
+
+    for (int i = 0; i < 3; i++) {
+      long before = usedMemory();
+      DirectedGraph<String, StringEdge> graph = new DirectedGraph<String, StringEdge>();
+      for (StringEdge edge : edges) {
+        graph.addEdge(edge);
+      }
+      System.out.println("DirectedGraph: " + (usedMemory() - before) / 1024 + " KB");
+      run(graph, vertices);
+      graph = null;
+
+      before = usedMemory();
+      CompactDirectedGraph<String, StringEdge> compactGraph = new CompactDirectedGraph<String, StringEdge>();
+      for (StringEdge edge : edges) {
+        compactGraph.addEdge(edge);
+      }
+      compactGraph.freeze();
+      System.out.println("CompactDirectedGraph: " + (usedMemory() - before) / 1024 + " KB");
+      run(compactGraph, vertices);
+    }
+  }
+
+  private static void run(DirectedGraphAccessor<String, StringEdge> graph, List<String> vertices) {
+    long start = System.nanoTime();
+    long weight = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      for (String vertex : vertices) {
+        for (StringEdge edge : graph.getOutgoingEdges(vertex)) {
+          weight += edge.getWeight();
+        }
+      }
+    }
+    print("  outgoing edges", start, weight);
+
+    start = System.nanoTime();
+    weight = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      for (String vertex : vertices) {
+        weight += graph.getIncomingEdges(vertex).size();
+      }
+    }
+    print("  incoming edges", start, weight);
+
+    start = System.nanoTime();
+    weight = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      for (int v = 0; v < vertices.size(); v++) {
+        if (graph.hasEdge(vertices.get(v), vertices.get((v + 1) % vertices.size()))) {
+          weight++;
+        }
+      }
+    }
+    print("  hasEdge", start, weight);
+
+    start = System.nanoTime();
+    weight = new StronglyConnectedComponents<String>(graph).getComponents().size();
+    System.out.println("  strongly connected components: " + (System.nanoTime() - start) / 1000000 + " ms (" + weight + ")");
+  }
+
+  private static long usedMemory() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+  }
+
+  private static void print(String name, long start, long result) {
+    System.out.println(name + ": " + (System.nanoTime() - start) / 1000000 / ITERATIONS + " ms/op (" + result + ")");
+  }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CompactDirectedGraphTest {
+
+  private CompactDirectedGraph<String, StringEdge> graph;
+
+  @Before
+  public void init() {
+    graph = CompactDirectedGraph.createStringDirectedGraph();
+    graph.addEdge("A", "B");
+    graph.addEdge("A", "C");
+    graph.addEdge("B", "C");
+  }
+
+  @Test
+  public void testGetVertices() {
+    assertThat(graph.getVertices().size(), is(3));
+    assertTrue(graph.getVertices().contains("A"));
+    assertFalse(graph.getVertices().contains("T"));
+    assertThat(graph.getVertices().iterator().next(), is("A"));
+  }
+
+  @Test
+  public void testGetEdge() {
+    graph.addEdge("A", "T", 5);
+    assertNull(graph.getEdge("T", "A"));
+    assertNull(graph.getEdge("A", "X"));
+    assertThat(graph.getEdge("A", "T").getWeight(), is(5));
+    assertThat(graph.getEdge("A", "C"), is(new StringEdge("A", "C")));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testAddEdgeThrowsException() {
+    graph.addEdge("B", "C");
+    graph.freeze();
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotModifyFrozenGraph() {
+    graph.hasEdge("A", "B");
+    graph.addEdge("C", "D");
+  }
+
+  @Test
+  public void testGetOutgoingEdges() {
+    assertThat(graph.getOutgoingEdges("A").size(), is(2));
+    assertTrue(graph.getOutgoingEdges("A").contains(new StringEdge("A", "B")));
+    assertTrue(graph.getOutgoingEdges("B").contains(new StringEdge("B", "C")));
+    assertThat(graph.getOutgoingEdges("C").size(), is(0));
+    assertThat(graph.getOutgoingEdges("X").size(), is(0));
+  }
+
+  @Test
+  public void testGetIncomingEdges() {
+    assertThat(graph.getIncomingEdges("C").size(), is(2));
+    assertTrue(graph.getIncomingEdges("C").contains(new StringEdge("A", "C")));
+    assertThat(graph.getIncomingEdges("A").size(), is(0));
+  }
+
+  @Test
+  public void testGetEdges() {
+    assertTrue(graph.getEdges(Arrays.asList("A")).containsAll(Arrays.asList(new StringEdge("A", "B"), new StringEdge("A", "C"))));
+    assertThat(graph.getEdges(Arrays.asList("A", "B")).size(), is(3));
+  }
+
+  @Test
+  public void testHasEdge() {
+    assertTrue(graph.hasEdge("A", "B"));
+    assertFalse(graph.hasEdge("C", "A"));
+  }
+
+  @Test
+  public void testAddVertices() {
+    graph.addVertices(Arrays.asList("X", "Y"));
+    assertThat(graph.getVertices().size(), is(5));
+    assertThat(graph.getOutgoingEdges("X").size(), is(0));
+    assertThat(graph.getIncomingEdges("Y").size(), is(0));
+  }
+
+  @Test
+  public void shouldCopyGraph() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B", 2).addEdge("B", "A");
+    dcg.addVertex("C");
+
+    CompactDirectedGraph<String, StringEdge> copy = CompactDirectedGraph.copyOf(dcg);
+    assertThat(copy.getVertices().size(), is(3));
+    assertThat(copy.getEdge("A", "B").getWeight(), is(2));
+    assertThat(copy.getIncomingEdges("A").size(), is(1));
+  }
+
+  @Test
+  public void shouldDetectCycles() {
+    CompactDirectedGraph<String, StringEdge> dcg = CompactDirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+    dcg.addEdge("C", "D").addEdge("D", "C");
+
+    CycleDetector<String> cycleDetector = new CycleDetector<String>(dcg);
+    assertThat(cycleDetector.detectCycles().size(), is(2));
+  }
+
+  @Test
+  public void shouldSortDsm() {
+    CompactDirectedGraph<String, StringEdge> dcg = CompactDirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("C", "B").addEdge("B", "A").addEdge("C", "A");
+
+    Dsm<String> dsm = new Dsm<String>(dcg);
+    DsmTopologicalSorter.sort(dsm);
+    assertThat(dsm.getVertex(0), is("C"));
+    assertThat(dsm.getVertex(1), is("B"));
+    assertThat(dsm.getVertex(2), is("A"));
+  }
+}
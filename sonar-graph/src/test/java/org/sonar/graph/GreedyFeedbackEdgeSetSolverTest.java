@@ -0,0 +1,75 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class GreedyFeedbackEdgeSetSolverTest {
+
+  @Test
+  public void testSimpleCycle() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B", 3).addEdge("B", "C", 2).addEdge("C", "A", 1);
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.getEdges().size(), is(1));
+    assertThat(solver.getEdges().contains(dcg.getEdge("C", "A")), is(true));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(1));
+  }
+
+  @Test
+  public void shouldBreakLightestEdgesOfMutualDependencies() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B", 10).addEdge("B", "A", 1);
+    dcg.addEdge("B", "C", 10).addEdge("C", "B", 2);
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.getEdges().contains(dcg.getEdge("B", "A")), is(true));
+    assertThat(solver.getEdges().contains(dcg.getEdge("C", "B")), is(true));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(3));
+  }
+
+  @Test
+  public void shouldBreakSelfLoops() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "A").addEdge("A", "B");
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.getEdges().size(), is(1));
+    assertThat(solver.getEdges().contains(dcg.getEdge("A", "A")), is(true));
+  }
+
+  @Test
+  public void shouldLeaveAnAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    for (int i = 0; i < 200; i++) {
+      for (int j = 1; j <= 3; j++) {
+        dcg.addEdge("V" + i, "V" + ((i * 7 + j * 13) % 200), 1 + (i + j) % 5);
+      }
+    }
+
+    GreedyFeedbackEdgeSetSolver<String> solver = new GreedyFeedbackEdgeSetSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.getEdges().isEmpty(), is(false));
+    assertThat(new CycleDetector<String>(dcg, solver.getEdges()).detectCycles().isEmpty(), is(true));
+  }
+}
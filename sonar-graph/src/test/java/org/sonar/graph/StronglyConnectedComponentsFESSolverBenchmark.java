@@ -0,0 +1,78 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import java.util.Random;
+
+/**
+ * Compares {@link IncrementalCyclesAndFESSolver} and {@link StronglyConnectedComponentsFESSolver} on a synthetic graph made of
+ * {@value #TANGLES} tangles of {@value #TANGLE_SIZE} vertices, linked without cycles.
+ * Not executed during build, run it with "main".
+ */
+public final class StronglyConnectedComponentsFESSolverBenchmark {
+
+  private static final int TANGLES = 4;
+  private static final int TANGLE_SIZE = 15;
+  private static final int EDGES_PER_VERTEX = 3;
+
+  private StronglyConnectedComponentsFESSolverBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    DirectedGraph<String, StringEdge> graph = DirectedGraph.createStringDirectedGraph();
+    Random random = new Random(42);
+    for (int t = 0; t < TANGLES; t++) {
+      for (int v = 0; v < TANGLE_SIZE; v++) {
+        for (int e = 0; e < EDGES_PER_VERTEX; e++) {
+          int to = random.nextInt(TANGLE_SIZE);
+          addEdge(graph, t + "." + v, t + "." + to, 1 + random.nextInt(10));
+        }
+        if (t > 0) {
+          addEdge(graph, t + "." + v, random.nextInt(t) + "." + random.nextInt(TANGLE_SIZE), 1 + random.nextInt(10));
+        }
+      }
+    }
+
+    for (int i = 0; i < 3; i++) {
+      long start = System.nanoTime();
+      IncrementalCyclesAndFESSolver<String> incremental = new IncrementalCyclesAndFESSolver<String>(graph, graph.getVertices());
+      print("incremental", start, incremental.getWeightOfFeedbackEdgeSet());
+
+      start = System.nanoTime();
+      StronglyConnectedComponentsFESSolver<String> components = new StronglyConnectedComponentsFESSolver<String>(graph, graph.getVertices());
+      print("components", start, components.getWeightOfFeedbackEdgeSet());
+
+      start = System.nanoTime();
+      GreedyFeedbackEdgeSetSolver<String> greedy = new GreedyFeedbackEdgeSetSolver<String>(graph, graph.getVertices());
+      print("greedy", start, greedy.getWeightOfFeedbackEdgeSet());
+    }
+  }
+
+  private static void addEdge(DirectedGraph<String, StringEdge> graph, String from, String to, int weight) {
+    if ( !from.equals(to) && !graph.hasEdge(from, to)) {
+      graph.addEdge(from, to, weight);
+    }
+  }
+
+  private static void print(String name, long start, int weight) {
+    System.out.println(name + ": " + (System.nanoTime() - start) / 1000000 + " ms (feedback edges weight: " + weight + ")");
+  }
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StronglyConnectedComponentsFESSolverTest {
+
+  @Test
+  public void testSimpleCase() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D").addEdge("D", "A");
+    dcg.addEdge("C", "A");
+    dcg.addEdge("B", "A");
+    dcg.addEdge("A", "E").addEdge("E", "C");
+    dcg.addEdge("E", "D");
+    dcg.addEdge("E", "F");
+    dcg.addEdge("F", "C");
+
+    StronglyConnectedComponentsFESSolver<String> solver = new StronglyConnectedComponentsFESSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.getCyclicComponents().size(), is(1));
+    assertThat(solver.getFeedbackEdgeSet().size(), is(2));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(2));
+    assertThat(solver.isAcyclicGraph(), is(false));
+  }
+
+  @Test
+  public void shouldSolveComponentsIndependently() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "D").addEdge("D", "A");
+    dcg.addEdge("D", "E");
+    dcg.addEdge("E", "F").addEdge("F", "G").addEdge("G", "E");
+    dcg.addEdge("H", "I").addEdge("I", "H", 2);
+
+    StronglyConnectedComponentsFESSolver<String> solver = new StronglyConnectedComponentsFESSolver<String>(dcg, dcg.getVertices(), 2);
+    assertThat(solver.getCyclicComponents().size(), is(3));
+    assertThat(solver.getFeedbackEdgeSet().size(), is(3));
+    assertThat(solver.getFeedbackEdgeSet().contains(dcg.getEdge("H", "I")), is(true));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(3));
+  }
+
+  @Test
+  public void shouldUseHeuristicOnLargeComponents() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    for (int i = 0; i < 100; i++) {
+      for (int j = 1; j <= 4; j++) {
+        dcg.addEdge("V" + i, "V" + ((i * 7 + j * 13) % 100));
+      }
+    }
+
+    StronglyConnectedComponentsFESSolver<String> solver = new StronglyConnectedComponentsFESSolver<String>(dcg, dcg.getVertices(), 1, 10);
+    assertThat(solver.getCyclicComponents().size(), is(1));
+    assertThat(new CycleDetector<String>(dcg, solver.getFeedbackEdgeSet()).detectCycles().isEmpty(), is(true));
+  }
+
+  @Test
+  public void testAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("A", "C");
+
+    StronglyConnectedComponentsFESSolver<String> solver = new StronglyConnectedComponentsFESSolver<String>(dcg, dcg.getVertices());
+    assertThat(solver.isAcyclicGraph(), is(true));
+    assertThat(solver.getFeedbackEdgeSet().isEmpty(), is(true));
+    assertThat(solver.getWeightOfFeedbackEdgeSet(), is(0));
+  }
+
+  @Test
+  public void shouldSortDsmWithFeedbackEdges() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B", 3).addEdge("B", "A", 1);
+    dcg.addEdge("B", "C").addEdge("C", "D").addEdge("D", "B");
+
+    StronglyConnectedComponentsFESSolver<String> solver = new StronglyConnectedComponentsFESSolver<String>(dcg, dcg.getVertices());
+    Dsm<String> dsm = new Dsm<String>(dcg, solver.getFeedbackEdgeSet());
+    DsmTopologicalSorter.sort(dsm);
+    assertThat(dsm.getVertex(0), is("A"));
+  }
+}
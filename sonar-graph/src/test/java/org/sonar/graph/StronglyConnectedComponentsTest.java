@@ -0,0 +1,100 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.graph;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class StronglyConnectedComponentsTest {
+
+  @Test
+  public void testComponents() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+    dcg.addEdge("C", "D").addEdge("D", "E").addEdge("E", "D");
+    dcg.addEdge("E", "F");
+
+    List<Set<String>> components = new StronglyConnectedComponents<String>(dcg).getComponents();
+    assertThat(components.size(), is(3));
+    // reverse topological order
+    assertThat(components.get(0), is(set("F")));
+    assertThat(components.get(1), is(set("D", "E")));
+    assertThat(components.get(2), is(set("A", "B", "C")));
+  }
+
+  @Test
+  public void testCyclicComponents() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "A");
+    dcg.addEdge("B", "C").addEdge("C", "C");
+    dcg.addEdge("C", "D");
+
+    StronglyConnectedComponents<String> components = new StronglyConnectedComponents<String>(dcg);
+    assertThat(components.getComponents().size(), is(3));
+    assertThat(components.getCyclicComponents().size(), is(2));
+    assertThat(components.getCyclicComponents().contains(set("C")), is(true));
+    assertThat(components.getCyclicComponents().contains(set("A", "B")), is(true));
+    assertThat(components.isAcyclicGraph(), is(false));
+  }
+
+  @Test
+  public void testAcyclicGraph() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("A", "C");
+
+    StronglyConnectedComponents<String> components = new StronglyConnectedComponents<String>(dcg);
+    assertThat(components.getComponents().size(), is(3));
+    assertThat(components.isAcyclicGraph(), is(true));
+  }
+
+  @Test
+  public void shouldIgnoreEdgesToOtherVertices() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    dcg.addEdge("A", "B").addEdge("B", "C").addEdge("C", "A");
+
+    StronglyConnectedComponents<String> components = new StronglyConnectedComponents<String>(dcg, Arrays.asList("A", "B"));
+    assertThat(components.getComponents().size(), is(2));
+    assertThat(components.isAcyclicGraph(), is(true));
+  }
+
+  @Test
+  public void shouldSupportDeepGraphs() {
+    DirectedGraph<String, StringEdge> dcg = DirectedGraph.createStringDirectedGraph();
+    for (int i = 0; i < 100000; i++) {
+      dcg.addEdge("V" + i, "V" + (i + 1));
+    }
+    dcg.addEdge("V100000", "V0");
+
+    List<Set<String>> components = new StronglyConnectedComponents<String>(dcg).getComponents();
+    assertThat(components.size(), is(1));
+    assertThat(components.get(0).size(), is(100001));
+  }
+
+  private static Set<String> set(String... vertices) {
+    return new HashSet<String>(Arrays.asList(vertices));
+  }
+}
@@ -22,6 +22,8 @@ package org.sonar.api.batch;
 import com.google.common.base.Predicates;
 import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import org.apache.commons.lang.ClassUtils;
 import org.sonar.api.BatchExtension;
 import org.sonar.api.batch.maven.DependsUponMavenPlugin;
@@ -30,6 +32,7 @@ import org.sonar.api.platform.ComponentContainer;
 import org.sonar.api.resources.Project;
 import org.sonar.api.utils.AnnotationUtils;
 import org.sonar.api.utils.dag.DirectAcyclicGraph;
+import org.sonar.api.utils.dag.Node;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
@@ -37,6 +40,8 @@ import java.lang.reflect.Modifier;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @since 1.11
@@ -112,6 +117,41 @@ public class BatchExtensionDictionnary {
   }
 
   public <T> Collection<T> sort(Collection<T> extensions) {
+    DirectAcyclicGraph dag = createDag(extensions);
+    List sortedList = dag.sort();
+
+    return Collections2.filter(sortedList, Predicates.in(extensions));
+  }
+
+  /**
+   * For each given extension, the extensions of the collection that must be executed before it, directly or not.
+   * Two extensions that do not depend on each other can be executed concurrently.
+   *
+   * @since 3.3
+   */
+  public <T> Map<T, Set<T>> getPrerequisites(Collection<T> extensions) {
+    DirectAcyclicGraph dag = createDag(extensions);
+    Map<T, Set<T>> result = Maps.newHashMap();
+    for (T extension : extensions) {
+      Set<T> prerequisites = Sets.newHashSet();
+      completePrerequisites(dag.add(extension), extensions, prerequisites, Sets.<Node>newHashSet());
+      result.put(extension, prerequisites);
+    }
+    return result;
+  }
+
+  private static <T> void completePrerequisites(Node node, Collection<T> extensions, Set<T> prerequisites, Set<Node> visited) {
+    for (Node dependency : node.getDependencies()) {
+      if (visited.add(dependency)) {
+        if (extensions.contains(dependency.getObject())) {
+          prerequisites.add((T) dependency.getObject());
+        }
+        completePrerequisites(dependency, extensions, prerequisites, visited);
+      }
+    }
+  }
+
+  private <T> DirectAcyclicGraph createDag(Collection<T> extensions) {
     DirectAcyclicGraph dag = new DirectAcyclicGraph();
 
     for (T extension : extensions) {
@@ -124,9 +164,7 @@ public class BatchExtensionDictionnary {
       }
       completePhaseDependencies(dag, extension);
     }
-    List sortedList = dag.sort();
-
-    return Collections2.filter(sortedList, Predicates.in(extensions));
+    return dag;
   }
 
   /**
@@ -22,8 +22,29 @@ package org.sonar.api.database.model;
 public interface MeasureMapper {
   void insert(MeasureModel measure);
 
+  /**
+   * Same as {@link #insert(MeasureModel)}, but the generated id is not loaded.
+   *
+   * @since 3.3
+   */
+  void batchInsert(MeasureModel measure);
+
+  /**
+   * Returns the greatest id if the measure has been inserted several times.
+   *
+   * @since 3.3
+   */
+  Long selectId(MeasureModel measure);
+
   void insertData(MeasureData data);
 
+  /**
+   * Same as {@link #insertData(MeasureData)}, but the generated id is not loaded.
+   *
+   * @since 3.3
+   */
+  void batchInsertData(MeasureData data);
+
   void deleteData(MeasureModel data);
 
   void update(MeasureModel measure);
@@ -1732,6 +1732,24 @@ public final class CoreMetrics {
       .setDomain(DOMAIN_DOCUMENTATION)
       .create();
 
+  /**
+   * @since 3.3
+   */
+  @Beta
+  public static final String LINE_HASHES_DATA_KEY = "line_hashes_data";
+
+  /**
+   * Hashes of the lines of file, used to track violations between analyses.
+   * 64-bit hashes of lines without whitespaces, packed in big-endian order and encoded in Base64.
+   *
+   * @since 3.3
+   */
+  @Beta
+  public static final Metric LINE_HASHES_DATA = new Metric.Builder(LINE_HASHES_DATA_KEY, "line_hashes_data", Metric.ValueType.DATA)
+      .setHidden(true)
+      .setDomain(DOMAIN_GENERAL)
+      .create();
+
   // --------------------------------------------------------------------------------------------------------------------
   //
   // OTHERS
@@ -20,6 +20,7 @@
 package org.sonar.api.profiles;
 
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.collections.Transformer;
 import org.apache.commons.lang.StringUtils;
@@ -33,6 +34,7 @@ import org.sonar.api.rules.RulePriority;
 import javax.persistence.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * This class is badly named. It should be "QualityProfile". Indeed it does not relate only to rules but to metric thresholds too.
@@ -94,6 +96,12 @@ public class RulesProfile implements Cloneable {
   @OneToMany(mappedBy = "rulesProfile", fetch = FetchType.LAZY)
   private List<ResourceModel> projects = Lists.newArrayList();
 
+  /**
+   * Built on first lookup, null when invalidated.
+   */
+  @Transient
+  private transient ActiveRulesIndex activeRulesIndex;
+
   /**
    * @deprecated use the factory method create()
    */
@@ -185,11 +193,13 @@ public class RulesProfile implements Cloneable {
 
   public RulesProfile removeActiveRule(ActiveRule activeRule) {
     activeRules.remove(activeRule);
+    activeRulesIndex = null;
     return this;
   }
 
   public RulesProfile addActiveRule(ActiveRule activeRule) {
     activeRules.add(activeRule);
+    activeRulesIndex = null;
     return this;
   }
 
@@ -198,6 +208,7 @@ public class RulesProfile implements Cloneable {
    */
   public void setActiveRules(List<ActiveRule> activeRules) {
     this.activeRules = activeRules;
+    activeRulesIndex = null;
   }
 
   /**
@@ -334,7 +345,7 @@ public class RulesProfile implements Cloneable {
   public List<ActiveRule> getActiveRulesByRepository(String repositoryKey) {
     List<ActiveRule> result = Lists.newArrayList();
     for (ActiveRule activeRule : activeRules) {
-      if (repositoryKey.equals(activeRule.getRepositoryKey()) && activeRule.isEnabled()) {
+      if (activeRule.isEnabled() && repositoryKey.equals(activeRule.getRepositoryKey())) {
         result.add(activeRule);
       }
     }
@@ -347,26 +358,48 @@ public class RulesProfile implements Cloneable {
    * @return an active rule from a plugin key and a rule key if the rule is activated, null otherwise
    */
   public ActiveRule getActiveRule(String repositoryKey, String ruleKey) {
-    for (ActiveRule activeRule : activeRules) {
-      if (StringUtils.equals(activeRule.getRepositoryKey(), repositoryKey) && StringUtils.equals(activeRule.getRuleKey(), ruleKey) && activeRule.isEnabled()) {
-        return activeRule;
+    ActiveRule activeRule = getActiveRulesIndex().getByRuleKey(repositoryKey, ruleKey);
+    if (activeRule != null && matchesRuleKey(activeRule, repositoryKey, ruleKey)) {
+      return activeRule;
+    }
+    // not indexed, or the list or its active rules were modified since the index was built
+    for (ActiveRule candidate : activeRules) {
+      if (matchesRuleKey(candidate, repositoryKey, ruleKey)) {
+        activeRulesIndex = null;
+        return candidate;
       }
     }
     return null;
   }
 
+  private static boolean matchesRuleKey(ActiveRule activeRule, String repositoryKey, String ruleKey) {
+    return activeRule.isEnabled() && StringUtils.equals(activeRule.getRepositoryKey(), repositoryKey)
+      && StringUtils.equals(activeRule.getRuleKey(), ruleKey);
+  }
+
   /**
    * Note: disabled rules are excluded.
    */
   public ActiveRule getActiveRuleByConfigKey(String repositoryKey, String configKey) {
-    for (ActiveRule activeRule : activeRules) {
-      if (StringUtils.equals(activeRule.getRepositoryKey(), repositoryKey) && StringUtils.equals(activeRule.getConfigKey(), configKey) && activeRule.isEnabled()) {
-        return activeRule;
+    ActiveRule activeRule = getActiveRulesIndex().getByConfigKey(repositoryKey, configKey);
+    if (activeRule != null && matchesConfigKey(activeRule, repositoryKey, configKey)) {
+      return activeRule;
+    }
+    // not indexed, or the list or its active rules were modified since the index was built
+    for (ActiveRule candidate : activeRules) {
+      if (matchesConfigKey(candidate, repositoryKey, configKey)) {
+        activeRulesIndex = null;
+        return candidate;
       }
     }
     return null;
   }
 
+  private static boolean matchesConfigKey(ActiveRule activeRule, String repositoryKey, String configKey) {
+    return activeRule.isEnabled() && StringUtils.equals(activeRule.getRepositoryKey(), repositoryKey)
+      && StringUtils.equals(activeRule.getConfigKey(), configKey);
+  }
+
   /**
    * Note: disabled rules are excluded.
    */
@@ -384,9 +417,19 @@ public class RulesProfile implements Cloneable {
     activeRule.setRulesProfile(this);
     activeRule.setSeverity(optionalSeverity == null ? rule.getSeverity() : optionalSeverity);
     activeRules.add(activeRule);
+    activeRulesIndex = null;
     return activeRule;
   }
 
+  private ActiveRulesIndex getActiveRulesIndex() {
+    ActiveRulesIndex index = activeRulesIndex;
+    if (index == null || !index.isUpToDate(activeRules)) {
+      index = new ActiveRulesIndex(activeRules);
+      activeRulesIndex = index;
+    }
+    return index;
+  }
+
   @Override
   public boolean equals(Object obj) {
     if (!(obj instanceof RulesProfile)) {
@@ -446,4 +489,62 @@ public class RulesProfile implements Cloneable {
   public static RulesProfile create() {
     return new RulesProfile();
   }
+
+  /**
+   * Positions of the enabled active rules by repository key, then by rule key and by config key, so that
+   * {@link #getActiveRule(String, String)} does not iterate the active rules of the profile for each violation. The index
+   * is invalidated by the methods modifying the profile. A rule is returned only if it is still at its indexed position,
+   * so that rules replaced in the list returned by {@link #getActiveRules(boolean)} are detected. Callers check that the
+   * returned rule still matches, and look for the rules which are not found in the list itself.
+   */
+  private static final class ActiveRulesIndex {
+    private final List<ActiveRule> activeRules;
+    private final int size;
+    private final Map<String, Map<String, Integer>> byRuleKey = Maps.newHashMap();
+    private final Map<String, Map<String, Integer>> byConfigKey = Maps.newHashMap();
+
+    ActiveRulesIndex(List<ActiveRule> activeRules) {
+      this.activeRules = activeRules;
+      this.size = activeRules.size();
+      int position = 0;
+      for (ActiveRule activeRule : activeRules) {
+        if (activeRule.isEnabled()) {
+          String repositoryKey = activeRule.getRepositoryKey();
+          // as with iteration of the list, the first active rule wins
+          putIfAbsent(byRuleKey, repositoryKey, activeRule.getRuleKey(), position);
+          putIfAbsent(byConfigKey, repositoryKey, activeRule.getConfigKey(), position);
+        }
+        position++;
+      }
+    }
+
+    boolean isUpToDate(List<ActiveRule> list) {
+      return activeRules == list && size == list.size();
+    }
+
+    ActiveRule getByRuleKey(String repositoryKey, String ruleKey) {
+      return get(byRuleKey, repositoryKey, ruleKey);
+    }
+
+    ActiveRule getByConfigKey(String repositoryKey, String configKey) {
+      return get(byConfigKey, repositoryKey, configKey);
+    }
+
+    private static void putIfAbsent(Map<String, Map<String, Integer>> map, String repositoryKey, String key, int position) {
+      Map<String, Integer> repositoryRules = map.get(repositoryKey);
+      if (repositoryRules == null) {
+        repositoryRules = Maps.newHashMap();
+        map.put(repositoryKey, repositoryRules);
+      }
+      if (!repositoryRules.containsKey(key)) {
+        repositoryRules.put(key, position);
+      }
+    }
+
+    private ActiveRule get(Map<String, Map<String, Integer>> map, String repositoryKey, String key) {
+      Map<String, Integer> repositoryRules = map.get(repositoryKey);
+      Integer position = repositoryRules != null ? repositoryRules.get(key) : null;
+      return position != null && position < activeRules.size() ? activeRules.get(position) : null;
+    }
+  }
 }
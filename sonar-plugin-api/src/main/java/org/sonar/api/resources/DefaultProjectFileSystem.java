@@ -23,6 +23,7 @@ import com.google.common.base.Predicate;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -33,7 +34,6 @@ import org.sonar.api.CoreProperties;
 import org.sonar.api.batch.FileFilter;
 import org.sonar.api.utils.Logs;
 import org.sonar.api.utils.SonarException;
-import org.sonar.api.utils.WildcardPattern;
 
 import javax.annotation.Nullable;
 import java.io.File;
@@ -61,6 +61,11 @@ public class DefaultProjectFileSystem implements ProjectFileSystem {
   private Languages languages;
   private List<IOFileFilter> filters = Lists.newArrayList();
 
+  /**
+   * Indexes of files by application of exclusion patterns, that is one for main files and one for test files.
+   */
+  private final Map<Boolean, FileIndex> fileIndexes = Maps.newHashMap();
+
   public DefaultProjectFileSystem(Project project, Languages languages) {
     this.project = project;
     this.languages = languages;
@@ -208,84 +213,30 @@ public class DefaultProjectFileSystem implements ProjectFileSystem {
     return !testFiles(lang.getKey()).isEmpty();
   }
 
-  List<InputFile> getFiles(List<File> directories, List<File> initialFiles, boolean applyExclusionPatterns, String... langs) {
-    List<InputFile> result = Lists.newArrayList();
+  /**
+   * Files are listed once, then the index is reused as long as directories, initial files and exclusion patterns
+   * do not change, for example when a directory is added. Files added to the directories in the meantime are ignored.
+   */
+  synchronized List<InputFile> getFiles(List<File> directories, List<File> initialFiles, boolean applyExclusionPatterns, String... langs) {
     if (directories == null) {
-      return result;
-    }
-
-    IOFileFilter suffixFilter = getFileSuffixFilter(langs);
-    WildcardPattern[] exclusionPatterns = getExclusionPatterns(applyExclusionPatterns);
-
-    IOFileFilter initialFilesFilter = TrueFileFilter.INSTANCE;
-    if (initialFiles != null && !initialFiles.isEmpty()) {
-      initialFilesFilter = new FileSelectionFilter(initialFiles);
+      return Lists.newArrayList();
     }
+    List<File> selectedFiles = (initialFiles != null ? initialFiles : Collections.<File>emptyList());
+    String[] exclusionPatterns = (applyExclusionPatterns ? project.getExclusionPatterns() : new String[0]);
 
-    for (File dir : directories) {
-      if (dir.exists()) {
-        IOFileFilter exclusionFilter = new ExclusionFilter(dir, exclusionPatterns);
-        IOFileFilter visibleFileFilter = HiddenFileFilter.VISIBLE;
-        List<IOFileFilter> fileFilters = Lists.newArrayList(visibleFileFilter, suffixFilter, exclusionFilter, initialFilesFilter);
-        fileFilters.addAll(this.filters);
-
-        IOFileFilter dotPrefixDirFilter = FileFilterUtils.notFileFilter(FileFilterUtils.prefixFileFilter("."));
-        List<File> files = (List<File>) FileUtils.listFiles(dir, new AndFileFilter(fileFilters), FileFilterUtils.and(HiddenFileFilter.VISIBLE, dotPrefixDirFilter));
-        for (File file : files) {
-          String relativePath = DefaultProjectFileSystem.getRelativePath(file, dir);
-          result.add(InputFileUtils.create(dir, relativePath));
-        }
-      }
+    FileIndex index = fileIndexes.get(applyExclusionPatterns);
+    if (index == null || !index.isIndexOf(directories, selectedFiles, exclusionPatterns)) {
+      index = new FileIndex(directories, selectedFiles, exclusionPatterns, filters, Runtime.getRuntime().availableProcessors());
+      fileIndexes.put(applyExclusionPatterns, index);
     }
-    return result;
+    return index.getFiles(getFileSuffixes(langs));
   }
 
-  private WildcardPattern[] getExclusionPatterns(boolean applyExclusionPatterns) {
-    WildcardPattern[] exclusionPatterns;
-    if (applyExclusionPatterns) {
-      exclusionPatterns = WildcardPattern.create(project.getExclusionPatterns());
-    } else {
-      exclusionPatterns = new WildcardPattern[0];
-    }
-    return exclusionPatterns;
-  }
-
-  private IOFileFilter getFileSuffixFilter(String... langKeys) {
-    IOFileFilter suffixFilter = FileFilterUtils.trueFileFilter();
+  private List<String> getFileSuffixes(String... langKeys) {
     if (langKeys != null && langKeys.length > 0) {
-      List<String> suffixes = Arrays.asList(languages.getSuffixes(langKeys));
-      if (!suffixes.isEmpty()) {
-        suffixFilter = new SuffixFileFilter(suffixes);
-      }
-    }
-    return suffixFilter;
-  }
-
-  private static class ExclusionFilter implements IOFileFilter {
-    File sourceDir;
-    WildcardPattern[] patterns;
-
-    ExclusionFilter(File sourceDir, WildcardPattern[] patterns) {
-      this.sourceDir = sourceDir;
-      this.patterns = patterns;
-    }
-
-    public boolean accept(File file) {
-      String relativePath = getRelativePath(file, sourceDir);
-      if (relativePath == null) {
-        return false;
-      }
-      for (WildcardPattern pattern : patterns) {
-        if (pattern.match(relativePath)) {
-          return false;
-        }
-      }
-      return true;
-    }
-
-    public boolean accept(File file, String name) {
-      return accept(file);
+      return Arrays.asList(languages.getSuffixes(langKeys));
     }
+    return Collections.emptyList();
   }
 
   static class FileSelectionFilter implements IOFileFilter {
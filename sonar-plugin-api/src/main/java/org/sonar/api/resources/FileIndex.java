@@ -0,0 +1,231 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.api.resources;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.apache.commons.io.filefilter.IOFileFilter;
+import org.sonar.api.utils.SonarException;
+import org.sonar.api.utils.WildcardPattern;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Files of some directories, listed once by several threads. Hidden files, files of hidden directories or of directories
+ * starting with "." and files rejected by exclusion patterns are not indexed. Files are then selected by suffix
+ * without listing the directories again. Files of a directory are sorted by relative path.
+ * <p>
+ * Filters, which may be provided by plugins, are not applied while listing: they are applied by the thread which selects
+ * files, and only to the files with the selected suffixes.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class FileIndex {
+
+  private static final Comparator<InputFile> BY_RELATIVE_PATH = new Comparator<InputFile>() {
+    public int compare(InputFile left, InputFile right) {
+      return left.getRelativePath().compareTo(right.getRelativePath());
+    }
+  };
+
+  private final List<File> directories;
+  private final List<File> initialFiles;
+  private final List<String> exclusionPatterns;
+  private final List<IOFileFilter> filters;
+  private final List<InputFile> files;
+  private final Map<List<String>, List<InputFile>> filesBySuffixes = Maps.newHashMap();
+
+  /**
+   * @param initialFiles if not empty, only these files are indexed
+   * @param exclusionPatterns patterns of relative paths of excluded files
+   */
+  FileIndex(List<File> directories, List<File> initialFiles, String[] exclusionPatterns, List<IOFileFilter> filters, int threads) {
+    this.directories = Lists.newArrayList(directories);
+    this.initialFiles = Lists.newArrayList(initialFiles);
+    this.exclusionPatterns = Arrays.asList(exclusionPatterns);
+    this.filters = Lists.newArrayList(filters);
+    IOFileFilter selectionFilter = null;
+    if (!initialFiles.isEmpty()) {
+      selectionFilter = new DefaultProjectFileSystem.FileSelectionFilter(initialFiles);
+    }
+    this.files = index(WildcardPattern.create(exclusionPatterns), selectionFilter, threads);
+  }
+
+  /**
+   * @return true if this index contains the files of these directories
+   */
+  boolean isIndexOf(List<File> directories, List<File> initialFiles, String[] exclusionPatterns) {
+    return this.directories.equals(directories) && this.initialFiles.equals(initialFiles)
+      && this.exclusionPatterns.equals(Arrays.asList(exclusionPatterns));
+  }
+
+  /**
+   * @param suffixes suffixes of file names. All the files are returned if empty.
+   */
+  synchronized List<InputFile> getFiles(List<String> suffixes) {
+    List<InputFile> result = filesBySuffixes.get(suffixes);
+    if (result == null) {
+      result = Lists.newArrayList();
+      for (InputFile file : files) {
+        if (hasSuffix(file.getFile().getName(), suffixes) && accept(file.getFile())) {
+          result.add(file);
+        }
+      }
+      filesBySuffixes.put(Lists.newArrayList(suffixes), result);
+    }
+    // callers are free to modify the returned list
+    return Lists.newArrayList(result);
+  }
+
+  private boolean accept(File file) {
+    for (IOFileFilter filter : filters) {
+      if (!filter.accept(file)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean hasSuffix(String filename, List<String> suffixes) {
+    if (suffixes.isEmpty()) {
+      return true;
+    }
+    for (String suffix : suffixes) {
+      if (filename.endsWith(suffix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private List<InputFile> index(WildcardPattern[] exclusions, IOFileFilter selectionFilter, int threads) {
+    List<InputFile> result = Lists.newArrayList();
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      for (File dir : directories) {
+        if (dir.exists()) {
+          result.addAll(new DirectoryWalk(dir, exclusions, selectionFilter, executor).execute());
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return result;
+  }
+
+  /**
+   * Each directory is listed by its own task, so that large trees are listed concurrently.
+   */
+  private static final class DirectoryWalk {
+    private final File basedir;
+    private final WildcardPattern[] exclusions;
+    // null if all the files are selected
+    private final IOFileFilter selectionFilter;
+    private final ExecutorService executor;
+    private final Queue<InputFile> files = new ConcurrentLinkedQueue<InputFile>();
+    private final AtomicInteger pendingDirectories = new AtomicInteger();
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+    private DirectoryWalk(File basedir, WildcardPattern[] exclusions, IOFileFilter selectionFilter, ExecutorService executor) {
+      this.basedir = basedir;
+      this.exclusions = exclusions;
+      this.selectionFilter = selectionFilter;
+      this.executor = executor;
+    }
+
+    List<InputFile> execute() {
+      submit(basedir);
+      try {
+        done.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new SonarException("Interrupted while listing the files of " + basedir, e);
+      }
+      if (failure.get() != null) {
+        throw failure.get();
+      }
+      List<InputFile> result = Lists.newArrayList(files);
+      Collections.sort(result, BY_RELATIVE_PATH);
+      return result;
+    }
+
+    private void submit(final File dir) {
+      pendingDirectories.incrementAndGet();
+      executor.execute(new Runnable() {
+        public void run() {
+          try {
+            list(dir);
+          } catch (RuntimeException e) {
+            failure.compareAndSet(null, e);
+          } finally {
+            // sub-directories are submitted before, so the counter can not be zero while some directories are not listed
+            if (pendingDirectories.decrementAndGet() == 0) {
+              done.countDown();
+            }
+          }
+        }
+      });
+    }
+
+    private void list(File dir) {
+      File[] children = dir.listFiles();
+      if (children == null) {
+        // not readable
+        return;
+      }
+      for (File child : children) {
+        if (child.isDirectory()) {
+          if (!child.isHidden() && !child.getName().startsWith(".")) {
+            submit(child);
+          }
+        } else if (!child.isHidden()) {
+          // null if the file is not in the directory
+          String relativePath = DefaultProjectFileSystem.getRelativePath(child, basedir);
+          if (relativePath != null && accept(child, relativePath)) {
+            files.add(InputFileUtils.create(basedir, relativePath));
+          }
+        }
+      }
+    }
+
+    private boolean accept(File file, String relativePath) {
+      for (WildcardPattern exclusion : exclusions) {
+        if (exclusion.match(relativePath)) {
+          return false;
+        }
+      }
+      return selectionFilter == null || selectionFilter.accept(file);
+    }
+  }
+}
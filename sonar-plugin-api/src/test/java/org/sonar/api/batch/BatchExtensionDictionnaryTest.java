@@ -29,6 +29,8 @@ import org.sonar.api.resources.Project;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertEquals;
@@ -91,6 +93,24 @@ public class BatchExtensionDictionnaryTest {
     assertThat(extensions.get(2), is(c));
   }
 
+  @Test
+  public void shouldComputeTransitivePrerequisites() {
+    BatchExtension a = new MethodDependentOf(null);
+    BatchExtension b = new MethodDependentOf(a);
+    BatchExtension c = new MethodDependentOf(b);
+    BatchExtension d = new MethodDependentOf(null);
+
+    BatchExtensionDictionnary selector = newSelector(a, b, c, d);
+    Map<BatchExtension, Set<BatchExtension>> prerequisites = selector.getPrerequisites(Lists.newArrayList(a, b, c, d));
+
+    assertThat(prerequisites.get(a).isEmpty(), is(true));
+    assertThat(prerequisites.get(b).size(), is(1));
+    assertThat(prerequisites.get(b), hasItem(a));
+    assertThat(prerequisites.get(c).size(), is(2));
+    assertThat(prerequisites.get(c), hasItems(a, b));
+    assertThat(prerequisites.get(d).isEmpty(), is(true));
+  }
+
   @Test
   public void useMethodAnnotationsToSortExtensions() {
     BatchExtension a = new GeneratesSomething("foo");
@@ -0,0 +1,72 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.api.profiles;
+
+import org.sonar.api.rules.Rule;
+
+/**
+ * Measures the lookup of active rules in profiles of different sizes. The cost by lookup should not depend on the size of the profile.
+ * Not executed during build, run it with "main".
+ */
+public final class RulesProfileBenchmark {
+
+  private static final int REPOSITORIES = 5;
+  private static final int[] SIZES = {10, 100, 1000, 10000};
+  private static final int LOOKUPS = 1000000;
+
+  private RulesProfileBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    for (int i = 0; i < 3; i++) {
+      for (int size : SIZES) {
+        run(createProfile(size), size);
+      }
+    }
+  }
+
+  private static RulesProfile createProfile(int size) {
+    RulesProfile profile = RulesProfile.create("benchmark", "java");
+    for (int i = 0; i < size; i++) {
+      profile.activateRule(Rule.create("repository" + (i % REPOSITORIES), "rule" + i, "Rule " + i).setConfigKey("config" + i), null);
+    }
+    return profile;
+  }
+
+  private static void run(RulesProfile profile, int size) {
+    String[] repositoryKeys = new String[size];
+    String[] ruleKeys = new String[size];
+    for (int i = 0; i < size; i++) {
+      repositoryKeys[i] = "repository" + (i % REPOSITORIES);
+      ruleKeys[i] = "rule" + i;
+    }
+
+    long start = System.nanoTime();
+    int found = 0;
+    for (int i = 0; i < LOOKUPS; i++) {
+      int index = i % size;
+      if (profile.getActiveRule(repositoryKeys[index], ruleKeys[index]) != null) {
+        found++;
+      }
+    }
+    System.out.println(size + " active rules: " + (System.nanoTime() - start) / LOOKUPS + " ns/lookup (" + found + " found)");
+  }
+
+}
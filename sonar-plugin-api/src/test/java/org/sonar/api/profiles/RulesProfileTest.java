@@ -20,11 +20,15 @@
 package org.sonar.api.profiles;
 
 import org.junit.Test;
+import org.sonar.api.rules.ActiveRule;
 import org.sonar.api.rules.Rule;
 import org.sonar.api.rules.RulePriority;
 
+import java.util.Arrays;
+
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertThat;
 
 public class RulesProfileTest {
@@ -55,6 +59,95 @@ public class RulesProfileTest {
     assertThat(profile.getActiveRule("repo", "key1").getSeverity(), is(RulePriority.MINOR));
   }
 
+  @Test
+  public void searchRulesByRepository() {
+    RulesProfile profile = RulesProfile.create();
+    ActiveRule activeRule1 = profile.activateRule(Rule.create("repo", "key1", "name1"), null);
+    profile.activateRule(Rule.create("other", "key2", "name2"), null);
+    ActiveRule activeRule3 = profile.activateRule(Rule.create("repo", "key3", "name3"), null);
+    profile.activateRule(Rule.create("repo", "key4", "name4").setEnabled(false), null);
+
+    assertThat(profile.getActiveRulesByRepository("repo"), is(Arrays.asList(activeRule1, activeRule3)));
+    assertThat(profile.getActiveRulesByRepository("unknown").isEmpty(), is(true));
+  }
+
+  @Test
+  public void firstActiveRuleShouldBeSelected() {
+    RulesProfile profile = RulesProfile.create();
+    ActiveRule disabled = profile.activateRule(Rule.create("repo", "key1", "name1").setEnabled(false), null);
+    ActiveRule first = profile.activateRule(Rule.create("repo", "key1", "name1"), null);
+    profile.activateRule(Rule.create("repo", "key1", "name1"), null);
+
+    assertSame(first, profile.getActiveRule("repo", "key1"));
+
+    disabled.getRule().setEnabled(true);
+    profile.removeActiveRule(first);
+    assertSame(disabled, profile.getActiveRule("repo", "key1"));
+  }
+
+  @Test
+  public void searchShouldSeeModificationsOfProfile() {
+    RulesProfile profile = RulesProfile.create();
+    assertNull(profile.getActiveRule("repo", "key1"));
+
+    ActiveRule activeRule = profile.activateRule(Rule.create("repo", "key1", "name1"), null);
+    assertSame(activeRule, profile.getActiveRule("repo", "key1"));
+
+    profile.removeActiveRule(activeRule);
+    assertNull(profile.getActiveRule("repo", "key1"));
+
+    profile.addActiveRule(activeRule);
+    assertSame(activeRule, profile.getActiveRule("repo", "key1"));
+
+    profile.setActiveRules(Arrays.<ActiveRule>asList());
+    assertNull(profile.getActiveRule("repo", "key1"));
+  }
+
+  @Test
+  public void searchShouldSeeModificationsOfActiveRules() {
+    RulesProfile profile = RulesProfile.create();
+    ActiveRule activeRule = profile.activateRule(Rule.create("repo", "key1", "name1").setConfigKey("config1"), null);
+    assertSame(activeRule, profile.getActiveRule("repo", "key1"));
+
+    // list modified directly
+    profile.getActiveRules(true).remove(activeRule);
+    assertNull(profile.getActiveRule("repo", "key1"));
+    profile.getActiveRules(true).add(activeRule);
+    assertSame(activeRule, profile.getActiveRuleByConfigKey("repo", "config1"));
+
+    activeRule.getRule().setEnabled(false);
+    assertNull(profile.getActiveRule("repo", "key1"));
+    assertNull(profile.getActiveRuleByConfigKey("repo", "config1"));
+    assertThat(profile.getActiveRulesByRepository("repo").isEmpty(), is(true));
+  }
+
+  @Test
+  public void searchShouldSeeActiveRulesModifiedAfterIndexing() {
+    RulesProfile profile = RulesProfile.create();
+    ActiveRule disabled = profile.activateRule(Rule.create("repo", "key1", "name1").setEnabled(false), null);
+    ActiveRule renamed = profile.activateRule(Rule.create("repo", "key2", "name2"), null);
+    profile.activateRule(Rule.create("repo", "key3", "name3"), null);
+    assertNull(profile.getActiveRule("repo", "key1"));
+    assertSame(renamed, profile.getActiveRule("repo", "key2"));
+
+    // enabled after indexing
+    disabled.getRule().setEnabled(true);
+    assertSame(disabled, profile.getActiveRule("repo", "key1"));
+
+    // key changed after indexing
+    renamed.getRule().setKey("newKey2").setConfigKey("newConfig2");
+    assertSame(renamed, profile.getActiveRule("repo", "newKey2"));
+    assertSame(renamed, profile.getActiveRuleByConfigKey("repo", "newConfig2"));
+    assertNull(profile.getActiveRule("repo", "key2"));
+
+    // replaced in the list, which keeps the same size
+    ActiveRule replacement = new ActiveRule(profile, Rule.create("repo", "key4", "name4"), null);
+    profile.getActiveRules(true).set(2, replacement);
+    assertSame(replacement, profile.getActiveRule("repo", "key4"));
+    assertNull(profile.getActiveRule("repo", "key3"));
+    assertThat(profile.getActiveRulesByRepository("repo"), is(Arrays.asList(disabled, renamed, replacement)));
+  }
+
   @Test
   public void defaultVersionIs1() {
     RulesProfile profile = RulesProfile.create();    
@@ -19,6 +19,8 @@
  */
 package org.sonar.api.resources;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
@@ -37,6 +39,7 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.*;
@@ -133,6 +136,28 @@ public class DefaultProjectFileSystemTest {
     assertThat(fs.getTestFiles(Java.INSTANCE), hasItem(named("BarTest.java")));
   }
 
+  @Test
+  public void shouldListFilesOnce() {
+    DefaultProjectFileSystem fs = newDefaultProjectFileSystem(project);
+
+    List<InputFile> files = fs.mainFiles(Java.KEY);
+    assertThat(files.size(), is(2));
+    assertThat(fs.mainFiles(Java.KEY).get(0), sameInstance(files.get(0)));
+    assertThat(fs.mainFiles().get(0), sameInstance(files.get(0)));
+  }
+
+  @Test
+  public void shouldListFilesAgainWhenSourceDirIsAdded() {
+    DefaultProjectFileSystem fs = newDefaultProjectFileSystem(project);
+    assertThat(fs.getSourceFiles().size(), is(2));
+
+    fs.addSourceDir(new File(fs.getBasedir(), "../sample-with-different-suffixes/src/main/java"));
+
+    assertThat(fs.getSourceFiles().size(), is(4));
+    assertThat(fs.getSourceFiles(), hasItem(named("foo.sql")));
+    assertThat(fs.getSourceFiles(Java.INSTANCE).size(), is(2));
+  }
+
   @Test
   public void createSonarWorkingDirectory() {
     DefaultProjectFileSystem fs = newDefaultProjectFileSystem(project);
@@ -216,6 +241,26 @@ public class DefaultProjectFileSystemTest {
     assertThat(fsWithFilter.getSourceFiles(), not(hasItem(named("Bar.java"))));
   }
 
+  @Test
+  public void shouldApplyExtendedFiltersToSelectedFilesInCallingThread() {
+    final List<String> filteredFiles = Lists.newArrayList();
+    final Set<Thread> filteringThreads = Sets.newHashSet();
+    FileFilter filter = new FileFilter() {
+      public boolean accept(File file) {
+        filteredFiles.add(file.getName());
+        filteringThreads.add(Thread.currentThread());
+        return true;
+      }
+    };
+    DefaultProjectFileSystem fs = new DefaultProjectFileSystem(project, new Languages(Java.INSTANCE), filter);
+    fs.addSourceDir(new File(fs.getBasedir(), "../sample-with-different-suffixes/src/main/java"));
+
+    assertThat(fs.getSourceFiles(Java.INSTANCE).size(), is(2));
+    assertThat(filteredFiles.size(), is(2));
+    assertThat(filteredFiles, not(hasItem("foo.sql")));
+    assertThat(filteringThreads, is(Collections.singleton(Thread.currentThread())));
+  }
+
   @Test
   public void testSelectiveFileFilter() {
     DefaultProjectFileSystem.FileSelectionFilter filter = new DefaultProjectFileSystem.FileSelectionFilter(
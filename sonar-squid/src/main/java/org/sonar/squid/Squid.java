@@ -20,17 +20,30 @@
 
 package org.sonar.squid;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.picocontainer.MutablePicoContainer;
 import org.picocontainer.containers.TransientPicoContainer;
 import org.sonar.graph.DirectedGraph;
 import org.sonar.graph.DirectedGraphAccessor;
+import org.sonar.squid.api.AnalysisException;
 import org.sonar.squid.api.CodeScanner;
 import org.sonar.squid.api.CodeVisitor;
+import org.sonar.squid.api.ParallelCodeScanner;
 import org.sonar.squid.api.Query;
 import org.sonar.squid.api.SourceCode;
 import org.sonar.squid.api.SourceCodeEdge;
@@ -45,12 +58,15 @@ import org.sonar.squid.measures.MetricDef;
 public class Squid implements DirectedGraphAccessor<SourceCode, SourceCodeEdge>, SourceCodeSearchEngine {
 
   private MutablePicoContainer pico;
+  private SquidConfiguration conf;
   private SourceProject project;
   private SquidIndex squidIndex;
   private DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
   private Set<CodeVisitor> externalCodeVisitors = new HashSet<CodeVisitor>();
+  private Set<Class<? extends CodeVisitor>> externalCodeVisitorClasses = new HashSet<Class<? extends CodeVisitor>>();
 
   public Squid(SquidConfiguration conf) {
+    this.conf = conf;
     pico = new TransientPicoContainer();
     pico.addComponent(conf);
     project = new SourceProject("Project");
@@ -72,6 +88,7 @@ public class Squid implements DirectedGraphAccessor<SourceCode, SourceCodeEdge>,
   public void registerVisitor(Class<? extends CodeVisitor> visitor) {
     addToPicocontainer(visitor);
     externalCodeVisitors.add(pico.getComponent(visitor));
+    externalCodeVisitorClasses.add(visitor);
   }
 
   public <SCANNER extends CodeScanner> SCANNER register(Class<SCANNER> scannerClass) {
@@ -90,6 +107,156 @@ public class Squid implements DirectedGraphAccessor<SourceCode, SourceCodeEdge>,
     return scanner;
   }
 
+  /**
+   * Scans inputs with a new instance of the scanner and of its visitors.
+   * <p>
+   * When several threads are configured, each thread has its own instances of the scanner, of its visitors and of the
+   * external visitors registered by class, and creates source code in its own project, index and graph. Inputs are
+   * shared between threads, and source code and edges of all threads are merged into this Squid at the end. So visitors
+   * must not depend on source code of other inputs, and source code created by several threads, for instance packages,
+   * keeps the measures of the first thread.
+   * </p>
+   *
+   * @since 3.3
+   */
+  public <INPUT> void scan(Class<? extends ParallelCodeScanner<?, INPUT>> scannerClass, Collection<INPUT> inputs) {
+    int threads = Math.min(conf.getThreads(), inputs.size());
+    if (threads <= 1) {
+      ParallelCodeScanner<?, INPUT> scanner = newScanner(new TransientPicoContainer(pico), scannerClass,
+          Collections.<Class<? extends CodeVisitor>> emptySet());
+      for (CodeVisitor externalVisitor : externalCodeVisitors) {
+        scanner.accept(externalVisitor);
+      }
+      scanner.scan(inputs);
+      return;
+    }
+    if (externalCodeVisitors.size() > externalCodeVisitorClasses.size()) {
+      throw new IllegalStateException("Visitors must be registered by class to scan in parallel.");
+    }
+
+    Queue<INPUT> queue = new ConcurrentLinkedQueue<INPUT>(inputs);
+    List<ScanWorker<INPUT>> workers = new ArrayList<ScanWorker<INPUT>>();
+    for (int i = 0; i < threads; i++) {
+      workers.add(newScanWorker(scannerClass, queue));
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<ScanWorker<INPUT>>> futures = executor.invokeAll(workers);
+      for (Future<ScanWorker<INPUT>> future : futures) {
+        merge(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Interrupted while scanning", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AnalysisException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private <INPUT> ScanWorker<INPUT> newScanWorker(Class<? extends ParallelCodeScanner<?, INPUT>> scannerClass, Queue<INPUT> queue) {
+    ScanWorker<INPUT> worker = new ScanWorker<INPUT>(queue);
+    MutablePicoContainer container = new TransientPicoContainer(pico);
+    container.addComponent(worker.index);
+    container.addComponent(worker.project);
+    container.addComponent(worker.graph);
+    worker.scanner = newScanner(container, scannerClass, externalCodeVisitorClasses);
+    return worker;
+  }
+
+  /**
+   * Visitors are always added to the given container, so that they don't depend on components of another container.
+   */
+  private static <SCANNER extends CodeScanner> SCANNER newScanner(MutablePicoContainer container, Class<SCANNER> scannerClass,
+      Collection<Class<? extends CodeVisitor>> externalVisitorClasses) {
+    container.addComponent(scannerClass);
+    SCANNER scanner = container.getComponent(scannerClass);
+    Set<Object> visitorClasses = new HashSet<Object>();
+    for (Object clazz : scanner.getVisitorClasses()) {
+      if (visitorClasses.add(clazz)) {
+        container.addComponent(clazz);
+      }
+      scanner.accept(container.<CodeVisitor> getComponent((Class) clazz));
+    }
+    for (Class<? extends CodeVisitor> clazz : externalVisitorClasses) {
+      if (visitorClasses.add(clazz)) {
+        container.addComponent(clazz);
+      }
+      scanner.accept(container.getComponent(clazz));
+    }
+    return scanner;
+  }
+
+  private void merge(ScanWorker<?> worker) {
+    mergeChildren(worker.project, project);
+    Map<SourceCodeEdge, SourceCodeEdge> mergedEdges = new IdentityHashMap<SourceCodeEdge, SourceCodeEdge>();
+    for (SourceCode vertex : worker.graph.getVertices()) {
+      graph.addVertex(resolve(vertex));
+      for (SourceCodeEdge edge : worker.graph.getOutgoingEdges(vertex)) {
+        mergeEdge(edge, worker.graph, mergedEdges);
+      }
+    }
+  }
+
+  private void mergeChildren(SourceCode from, SourceCode into) {
+    if ( !from.hasChildren()) {
+      return;
+    }
+    for (SourceCode child : new ArrayList<SourceCode>(from.getChildren())) {
+      SourceCode existing = squidIndex.search(child.getKey());
+      if (existing != null && existing.getParent() == into) {
+        mergeChildren(child, existing);
+      } else {
+        into.addChild(child);
+        indexDescendants(child);
+      }
+    }
+  }
+
+  private void indexDescendants(SourceCode sourceCode) {
+    if (sourceCode.hasChildren()) {
+      for (SourceCode child : sourceCode.getChildren()) {
+        squidIndex.index(child);
+        indexDescendants(child);
+      }
+    }
+  }
+
+  private SourceCode resolve(SourceCode sourceCode) {
+    SourceCode indexed = squidIndex.search(sourceCode.getKey());
+    return indexed != null ? indexed : sourceCode;
+  }
+
+  private SourceCodeEdge mergeEdge(SourceCodeEdge edge, DirectedGraph<SourceCode, SourceCodeEdge> workerGraph,
+      Map<SourceCodeEdge, SourceCodeEdge> mergedEdges) {
+    SourceCodeEdge merged = mergedEdges.get(edge);
+    if (merged != null) {
+      return merged;
+    }
+    SourceCode from = resolve(edge.getFrom());
+    SourceCode to = resolve(edge.getTo());
+    // root edges are not always edges of the graph
+    boolean inGraph = workerGraph.getEdge(edge.getFrom(), edge.getTo()) == edge;
+    merged = inGraph ? graph.getEdge(from, to) : null;
+    if (merged == null) {
+      merged = new SourceCodeEdge(from, to, edge.getUsage());
+      if (inGraph) {
+        graph.addEdge(merged);
+      }
+    }
+    mergedEdges.put(edge, merged);
+    if (edge.getRootEdges() != null) {
+      for (SourceCodeEdge rootEdge : edge.getRootEdges()) {
+        merged.addRootEdge(mergeEdge(rootEdge, workerGraph, mergedEdges));
+      }
+    }
+    return merged;
+  }
+
   /**
    * @deprecated use {@link #decorateSourceCodeTreeWith(MetricDef...)} instead
    */
@@ -100,7 +267,7 @@ public class Squid implements DirectedGraphAccessor<SourceCode, SourceCodeEdge>,
 
   public SourceProject decorateSourceCodeTreeWith(MetricDef... metrics) {
     SourceCodeTreeDecorator decorator = new SourceCodeTreeDecorator(project);
-    decorator.decorateWith(metrics);
+    decorator.decorateWith(conf.getThreads(), metrics);
     return project;
   }
 
@@ -150,4 +317,26 @@ public class Squid implements DirectedGraphAccessor<SourceCode, SourceCodeEdge>,
     graph = null;
     pico = null;
   }
+
+  private static final class ScanWorker<INPUT> implements Callable<ScanWorker<INPUT>> {
+    private final Queue<INPUT> inputs;
+    private final SourceProject project = new SourceProject("Project");
+    private final SquidIndex index = new SquidIndex();
+    private final DirectedGraph<SourceCode, SourceCodeEdge> graph = new DirectedGraph<SourceCode, SourceCodeEdge>();
+    private ParallelCodeScanner<?, INPUT> scanner;
+
+    ScanWorker(Queue<INPUT> inputs) {
+      this.inputs = inputs;
+      index.index(project);
+    }
+
+    public ScanWorker<INPUT> call() {
+      INPUT input = inputs.poll();
+      while (input != null) {
+        scanner.scan(Collections.singletonList(input));
+        input = inputs.poll();
+      }
+      return this;
+    }
+  }
 }
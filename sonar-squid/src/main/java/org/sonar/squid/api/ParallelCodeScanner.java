@@ -0,0 +1,35 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.squid.api;
+
+import java.util.Collection;
+
+/**
+ * Scanner of inputs, like source files, which can be executed by {@link org.sonar.squid.Squid#scan(Class, Collection)}.
+ * When several threads are configured, each thread has its own instance of the scanner and of its visitors.
+ *
+ * @since 3.3
+ */
+public abstract class ParallelCodeScanner<VISITOR extends CodeVisitor, INPUT> extends CodeScanner<VISITOR> {
+
+  public abstract void scan(Collection<INPUT> inputs);
+
+}
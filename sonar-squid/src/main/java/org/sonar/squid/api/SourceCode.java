@@ -161,6 +161,7 @@ public abstract class SourceCode implements Measurable, Comparable<SourceCode> {
       throw new IllegalStateException("It's not allowed to set the value of a calculated metric : " + metric.getName());
     }
     measures.setValue(metric, measure);
+    measureChanged(metric);
   }
 
   /**
@@ -172,6 +173,13 @@ public abstract class SourceCode implements Measurable, Comparable<SourceCode> {
 
   public void removeMeasure(MetricDef metric) {
     measures.removeMeasure(metric);
+    measureChanged(metric);
+  }
+
+  private void measureChanged(MetricDef metric) {
+    if (indexer instanceof MeasuresIndexer) {
+      ((MeasuresIndexer) indexer).measureChanged(this, metric);
+    }
   }
 
   public void setStartAtLine(int startAtLine) {
@@ -20,6 +20,14 @@
 
 package org.sonar.squid.api;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.sonar.squid.measures.MetricDef;
 
 public class SourceCodeTreeDecorator {
@@ -34,12 +42,55 @@ public class SourceCodeTreeDecorator {
     decorateWith(project, metrics);
   }
 
+  /**
+   * Subtrees of the children of the project are decorated concurrently, as aggregation of a subtree does not depend on
+   * other subtrees. The project itself is decorated at the end.
+   *
+   * @since 3.3
+   */
+  public void decorateWith(int threads, final MetricDef... metrics) {
+    if (threads <= 1 || !project.hasChildren()) {
+      decorateWith(metrics);
+      return;
+    }
+    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+    for (final SourceCode child : project.getChildren()) {
+      tasks.add(new Callable<Object>() {
+        public Object call() {
+          decorateWith(child, metrics);
+          return null;
+        }
+      });
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+    try {
+      for (Future<Object> future : executor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new AnalysisException("Interrupted while decorating source code tree", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new AnalysisException(e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+    aggregate(project, metrics);
+  }
+
   private void decorateWith(SourceCode sourceCode, MetricDef... metrics) {
     if (sourceCode.hasChildren()) {
       for (SourceCode child : sourceCode.getChildren()) {
         decorateWith(child, metrics);
       }
     }
+    aggregate(sourceCode, metrics);
+  }
+
+  private void aggregate(SourceCode sourceCode, MetricDef... metrics) {
     for (MetricDef metric : metrics) {
       if ( !metric.aggregateIfThereIsAlreadyAValue() && sourceCode.getDouble(metric) != 0) {
         continue;
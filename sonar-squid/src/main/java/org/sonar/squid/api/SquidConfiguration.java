@@ -26,6 +26,7 @@ public class SquidConfiguration {
 
   private Charset charset = Charset.defaultCharset();
   private boolean stopSquidOnException = false;
+  private int threads = 1;
 
   public SquidConfiguration() {
   }
@@ -46,4 +47,20 @@ public class SquidConfiguration {
     return stopSquidOnException;
   }
 
+  /**
+   * @since 3.3
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Number of threads used to scan inputs with a {@link ParallelCodeScanner} and to decorate the source code tree.
+   *
+   * @since 3.3
+   */
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
 }
\ No newline at end of file
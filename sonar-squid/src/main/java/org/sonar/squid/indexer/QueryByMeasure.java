@@ -50,6 +50,18 @@ public class QueryByMeasure implements Query {
     this.value = value;
   }
 
+  MetricDef getMetric() {
+    return metric;
+  }
+
+  Operator getOperator() {
+    return operator;
+  }
+
+  double getValue() {
+    return value;
+  }
+
   public boolean match(SourceCode unit) {
     switch (operator) {
       case EQUALS:
@@ -34,6 +34,10 @@ public class QueryByType implements Query {
     this.resourceType = resourceType;
   }
 
+  Class<? extends SourceCode> getResourceType() {
+    return resourceType;
+  }
+
   public boolean match(SourceCode unit) {
     return unit.isType(resourceType);
   }
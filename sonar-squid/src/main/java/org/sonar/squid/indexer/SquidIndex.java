@@ -20,24 +20,49 @@
 
 package org.sonar.squid.indexer;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.sonar.squid.api.MeasuresIndexer;
 import org.sonar.squid.api.Query;
 import org.sonar.squid.api.SourceCode;
-import org.sonar.squid.api.SourceCodeIndexer;
 import org.sonar.squid.api.SourceCodeSearchEngine;
+import org.sonar.squid.measures.MetricDef;
 
-public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
+/**
+ * Besides the index by key, source code is indexed by type, and lazily by value of measures. Queries by type,
+ * by parent and by measure use these indexes to select candidates, other queries are evaluated on all source code.
+ */
+public class SquidIndex implements MeasuresIndexer, SourceCodeSearchEngine {
 
   private Map<String, SourceCode> index = new TreeMap<String, SourceCode>();
+  private Map<Class<? extends SourceCode>, Set<SourceCode>> indexByType = new HashMap<Class<? extends SourceCode>, Set<SourceCode>>();
+
+  /**
+   * Built on first query by measure, and dropped when a measure or the index changes. Measures can be changed
+   * concurrently, for instance when the source code tree is decorated in parallel: an index built while a measure
+   * changed is used by the current query only.
+   */
+  private ConcurrentMap<MetricDef, MeasureIndex> indexByMeasure = new ConcurrentHashMap<MetricDef, MeasureIndex>();
+  private final AtomicLong modifications = new AtomicLong();
 
   public Collection<SourceCode> search(Query... query) {
+    Collection<SourceCode> candidates = selectCandidates(query);
     Set<SourceCode> result = new HashSet<SourceCode>();
-    for (SourceCode unit : index.values()) {
+    for (SourceCode unit : candidates) {
       if (isSquidUnitMatchQueries(unit, query)) {
         result.add(unit);
       }
@@ -45,6 +70,77 @@ public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
     return result;
   }
 
+  /**
+   * @return the smallest set of candidates given by indexes, or all source code if no query can use an index
+   */
+  private Collection<SourceCode> selectCandidates(Query... queries) {
+    Collection<SourceCode> candidates = index.values();
+    for (Query query : queries) {
+      Collection<SourceCode> indexed = searchIndex(query);
+      if (indexed != null && indexed.size() < candidates.size()) {
+        candidates = indexed;
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @return candidates for the query, or null if the query can not use an index
+   */
+  private Collection<SourceCode> searchIndex(Query query) {
+    if (query instanceof QueryByType) {
+      Set<SourceCode> units = indexByType.get(((QueryByType) query).getResourceType());
+      return units != null ? units : Collections.<SourceCode> emptySet();
+    }
+    if (query instanceof QueryByParent) {
+      return searchDescendants(((QueryByParent) query).getParent());
+    }
+    if (query instanceof QueryByMeasure) {
+      QueryByMeasure queryByMeasure = (QueryByMeasure) query;
+      if (queryByMeasure.getMetric().isCalculatedMetric() || Double.isNaN(queryByMeasure.getValue())) {
+        return null;
+      }
+      return getMeasureIndex(queryByMeasure.getMetric()).search(queryByMeasure.getOperator(), queryByMeasure.getValue());
+    }
+    return null;
+  }
+
+  private Collection<SourceCode> searchDescendants(SourceCode parent) {
+    SourceCode indexedParent = parent == null ? null : index.get(parent.getKey());
+    if (indexedParent == null) {
+      return null;
+    }
+    List<SourceCode> result = new ArrayList<SourceCode>();
+    LinkedList<SourceCode> queue = new LinkedList<SourceCode>();
+    queue.add(indexedParent);
+    while (!queue.isEmpty()) {
+      SourceCode unit = queue.removeFirst();
+      if (unit.hasChildren()) {
+        for (SourceCode child : unit.getChildren()) {
+          // children are not indexed when added to a parent which was not indexed yet
+          if (index.get(child.getKey()) == child) {
+            result.add(child);
+          }
+          queue.add(child);
+        }
+      }
+    }
+    return result;
+  }
+
+  private MeasureIndex getMeasureIndex(MetricDef metric) {
+    MeasureIndex measureIndex = indexByMeasure.get(metric);
+    if (measureIndex == null) {
+      long modificationsBefore = modifications.get();
+      measureIndex = new MeasureIndex(metric, index.values());
+      // modifications are counted before the index is dropped, so a change which is not seen here drops the new index
+      if (indexByMeasure.putIfAbsent(metric, measureIndex) == null && modifications.get() != modificationsBefore) {
+        indexByMeasure.remove(metric, measureIndex);
+      }
+    }
+    return measureIndex;
+  }
+
   private boolean isSquidUnitMatchQueries(SourceCode unit, Query... queries) {
     boolean match;
     for (Query query : queries) {
@@ -62,6 +158,109 @@ public class SquidIndex implements SourceCodeIndexer, SourceCodeSearchEngine {
 
   public void index(SourceCode sourceCode) {
     sourceCode.setSourceCodeIndexer(this);
-    index.put(sourceCode.getKey(), sourceCode);
+    SourceCode previous = index.put(sourceCode.getKey(), sourceCode);
+    if (previous != null) {
+      Set<SourceCode> sameType = indexByType.get(previous.getClass());
+      if (sameType != null) {
+        sameType.remove(previous);
+      }
+    }
+    Set<SourceCode> sameType = indexByType.get(sourceCode.getClass());
+    if (sameType == null) {
+      sameType = new HashSet<SourceCode>();
+      indexByType.put(sourceCode.getClass(), sameType);
+    }
+    sameType.add(sourceCode);
+    modifications.incrementAndGet();
+    indexByMeasure.clear();
+  }
+
+  public void measureChanged(SourceCode sourceCode, MetricDef metric) {
+    modifications.incrementAndGet();
+    if (!indexByMeasure.isEmpty()) {
+      indexByMeasure.remove(metric);
+    }
+  }
+
+  /**
+   * Source code sorted by value of a measure. Source code whose value is NaN is ignored, as it never matches a query.
+   */
+  private static final class MeasureIndex {
+    private final double[] values;
+    private final SourceCode[] units;
+
+    MeasureIndex(final MetricDef metric, Collection<SourceCode> all) {
+      List<SourceCode> sorted = new ArrayList<SourceCode>(all.size());
+      for (SourceCode unit : all) {
+        if (!Double.isNaN(unit.getDouble(metric))) {
+          sorted.add(unit);
+        }
+      }
+      Collections.sort(sorted, new Comparator<SourceCode>() {
+        public int compare(SourceCode left, SourceCode right) {
+          return Double.compare(left.getDouble(metric), right.getDouble(metric));
+        }
+      });
+      units = sorted.toArray(new SourceCode[sorted.size()]);
+      values = new double[units.length];
+      for (int i = 0; i < units.length; i++) {
+        values[i] = units[i].getDouble(metric);
+      }
+    }
+
+    Collection<SourceCode> search(QueryByMeasure.Operator operator, double value) {
+      switch (operator) {
+        case EQUALS:
+          return range(lowerBound(value), upperBound(value));
+        case GREATER_THAN:
+          return range(upperBound(value), units.length);
+        case GREATER_THAN_EQUALS:
+          return range(lowerBound(value), units.length);
+        case LESS_THAN:
+          return range(0, lowerBound(value));
+        case LESS_THAN_EQUALS:
+          return range(0, upperBound(value));
+        default:
+          throw new IllegalStateException("The operator value '" + operator + "' is unknown.");
+      }
+    }
+
+    private Collection<SourceCode> range(int from, int to) {
+      return Arrays.asList(units).subList(from, Math.max(from, to));
+    }
+
+    /**
+     * @return index of the first value greater or equal to the given value
+     */
+    private int lowerBound(double value) {
+      int lower = 0;
+      int upper = values.length;
+      while (lower < upper) {
+        int mid = (lower + upper) >>> 1;
+        if (Double.compare(values[mid], value) < 0) {
+          lower = mid + 1;
+        } else {
+          upper = mid;
+        }
+      }
+      return lower;
+    }
+
+    /**
+     * @return index of the first value strictly greater than the given value
+     */
+    private int upperBound(double value) {
+      int lower = 0;
+      int upper = values.length;
+      while (lower < upper) {
+        int mid = (lower + upper) >>> 1;
+        if (Double.compare(values[mid], value) <= 0) {
+          lower = mid + 1;
+        } else {
+          upper = mid;
+        }
+      }
+      return lower;
+    }
   }
 }
@@ -22,13 +22,27 @@ package org.sonar.squid.measures;
 
 import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Values of metrics which are constants of an enum, usually {@link Metric}, are stored in an array indexed by ordinal.
+ * The enum is given by the first value which is set. Data, and values of other metrics, are stored in a map which is
+ * allocated on first use.
+ */
 public class Measures {
 
-  private Map<MetricDef, Measure> measures = new IdentityHashMap<MetricDef, Measure>();
+  private static final Map<Class<?>, Integer> ENUM_SIZES = new ConcurrentHashMap<Class<?>, Integer>();
+
+  private Class<?> enumType;
+  private double[] values;
+  private Map<MetricDef, Measure> measures;
 
   public double getValue(MetricDef metric) {
-    Measure measure = measures.get(metric);
+    int index = indexOf(metric);
+    if (index >= 0) {
+      return values[index];
+    }
+    Measure measure = getMeasure(metric);
     if (measure == null) {
       return 0;
     }
@@ -36,7 +50,7 @@ public class Measures {
   }
 
   public Object getData(MetricDef metric) {
-    Measure measure = measures.get(metric);
+    Measure measure = getMeasure(metric);
     if (measure == null) {
       return null;
     }
@@ -44,14 +58,49 @@ public class Measures {
   }
 
   public void setValue(MetricDef metric, double measure) {
-    getMeasureOrCreateIt(metric).setValue(measure);
+    if (values == null && metric instanceof Enum) {
+      enumType = ((Enum<?>) metric).getDeclaringClass();
+      values = new double[enumSize(enumType)];
+    }
+    int index = indexOf(metric);
+    if (index >= 0) {
+      values[index] = measure;
+    } else {
+      getMeasureOrCreateIt(metric).setValue(measure);
+    }
   }
 
   public void setData(MetricDef metric, Object data) {
     getMeasureOrCreateIt(metric).setData(data);
   }
 
+  private int indexOf(MetricDef metric) {
+    if (values != null && metric instanceof Enum) {
+      Enum<?> constant = (Enum<?>) metric;
+      if (constant.getDeclaringClass() == enumType) {
+        return constant.ordinal();
+      }
+    }
+    return -1;
+  }
+
+  private static int enumSize(Class<?> enumType) {
+    Integer size = ENUM_SIZES.get(enumType);
+    if (size == null) {
+      size = enumType.getEnumConstants().length;
+      ENUM_SIZES.put(enumType, size);
+    }
+    return size;
+  }
+
+  private Measure getMeasure(MetricDef metric) {
+    return measures == null ? null : measures.get(metric);
+  }
+
   private Measure getMeasureOrCreateIt(MetricDef metric) {
+    if (measures == null) {
+      measures = new IdentityHashMap<MetricDef, Measure>(4);
+    }
     Measure measure = measures.get(metric);
     if (measure == null) {
       measure = new Measure(0);
@@ -61,9 +110,14 @@ public class Measures {
   }
 
   public void removeMeasure(MetricDef metric) {
-    measures.remove(metric);
+    int index = indexOf(metric);
+    if (index >= 0) {
+      values[index] = 0;
+    }
+    if (measures != null) {
+      measures.remove(metric);
+    }
   }
-
   private static final class Measure {
 
     private double value;
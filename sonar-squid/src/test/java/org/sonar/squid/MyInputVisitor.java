@@ -0,0 +1,74 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.squid;
+
+import org.sonar.graph.DirectedGraph;
+import org.sonar.squid.api.CodeVisitor;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeEdge;
+import org.sonar.squid.api.SourceCodeEdgeUsage;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.indexer.SquidIndex;
+import org.sonar.squid.measures.Metric;
+
+/**
+ * Creates a file for inputs like "package/file", which uses the package "common".
+ */
+public class MyInputVisitor implements CodeVisitor {
+
+  private final SquidIndex index;
+  private final SourceProject project;
+  private final DirectedGraph<SourceCode, SourceCodeEdge> graph;
+
+  public MyInputVisitor(SquidIndex index, SourceProject project, DirectedGraph<SourceCode, SourceCodeEdge> graph) {
+    this.index = index;
+    this.project = project;
+    this.graph = graph;
+  }
+
+  public void visitInput(String input) {
+    SourceCode sourcePackage = getOrCreatePackage(input.substring(0, input.indexOf('/')));
+    SourceCode common = getOrCreatePackage("common");
+    SourceCode file = new SourceFile(input);
+    sourcePackage.addChild(file);
+    file.setMeasure(Metric.LINES, 10);
+
+    SourceCodeEdge fileEdge = new SourceCodeEdge(file, common, SourceCodeEdgeUsage.USES);
+    graph.addEdge(fileEdge);
+    SourceCodeEdge packageEdge = graph.getEdge(sourcePackage, common);
+    if (packageEdge == null) {
+      graph.addEdge(new SourceCodeEdge(sourcePackage, common, SourceCodeEdgeUsage.USES, fileEdge));
+    } else {
+      packageEdge.addRootEdge(fileEdge);
+    }
+  }
+
+  private SourceCode getOrCreatePackage(String key) {
+    SourceCode sourcePackage = index.search(key);
+    if (sourcePackage == null) {
+      sourcePackage = new SourcePackage(key);
+      project.addChild(sourcePackage);
+    }
+    return sourcePackage;
+  }
+}
@@ -20,7 +20,21 @@
 
 package org.sonar.squid;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
+import org.sonar.squid.api.CodeVisitor;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceCodeEdge;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
+import org.sonar.squid.api.SquidConfiguration;
+import org.sonar.squid.indexer.QueryByType;
+import org.sonar.squid.measures.Metric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 
 public class SquidTest {
 
@@ -30,4 +44,64 @@ public class SquidTest {
     squid.register(MyCodeScanner.class);
     squid.register(MyCodeScanner.class);
   }
+
+  @Test
+  public void shouldScan() {
+    Squid squid = new Squid();
+    squid.scan(MyParallelCodeScanner.class, inputs());
+    assertScanned(squid);
+  }
+
+  @Test
+  public void shouldScanInParallel() {
+    Squid squid = new Squid(configuration(4));
+    squid.scan(MyParallelCodeScanner.class, inputs());
+    assertScanned(squid);
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotScanInParallelWithVisitorInstances() {
+    Squid squid = new Squid(configuration(4));
+    squid.registerVisitor(new CodeVisitor() {
+    });
+    squid.scan(MyParallelCodeScanner.class, inputs());
+  }
+
+  private void assertScanned(Squid squid) {
+    squid.decorateSourceCodeTreeWith(Metric.LINES);
+    assertEquals(100, squid.search(new QueryByType(SourceFile.class)).size());
+    assertEquals(11, squid.search(new QueryByType(SourcePackage.class)).size());
+    assertEquals(1000, squid.getProject().getInt(Metric.LINES));
+
+    SourceCode pack3 = squid.search("pack3");
+    SourceCode common = squid.search("common");
+    assertSame(squid.getProject(), pack3.getParent());
+    assertSame(pack3, squid.search("pack3/file7").getParent());
+    assertEquals(100, pack3.getInt(Metric.LINES));
+
+    SourceCodeEdge edge = squid.getEdge(pack3, common);
+    assertSame(pack3, edge.getFrom());
+    assertSame(common, edge.getTo());
+    assertEquals(10, edge.getWeight());
+    for (SourceCodeEdge rootEdge : edge.getRootEdges()) {
+      assertSame(pack3, rootEdge.getFrom().getParent());
+      assertSame(rootEdge, squid.getEdge(rootEdge.getFrom(), common));
+    }
+  }
+
+  private static SquidConfiguration configuration(int threads) {
+    SquidConfiguration conf = new SquidConfiguration();
+    conf.setThreads(threads);
+    return conf;
+  }
+
+  private static List<String> inputs() {
+    List<String> inputs = new ArrayList<String>();
+    for (int i = 0; i < 10; i++) {
+      for (int j = 0; j < 10; j++) {
+        inputs.add("pack" + i + "/file" + j);
+      }
+    }
+    return inputs;
+  }
 }
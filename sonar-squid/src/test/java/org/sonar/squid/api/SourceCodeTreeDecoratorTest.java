@@ -114,6 +114,25 @@ public class SourceCodeTreeDecoratorTest {
     assertEquals(3281, prj1.getInt(Metric.LINES));
   }
 
+  @Test
+  public void decorateSubtreesInParallel() {
+    SourceProject project = new SourceProject("project");
+    for (int i = 0; i < 10; i++) {
+      SourceCode sourcePackage = new SourcePackage("pack" + i);
+      project.addChild(sourcePackage);
+      for (int j = 0; j < 10; j++) {
+        SourceCode testClass = new SourceClass("pack" + i + "/class" + j);
+        sourcePackage.addChild(testClass);
+        createTestComplexityMethod(testClass, 2);
+        createTestComplexityMethod(testClass, 3);
+      }
+    }
+    new SourceCodeTreeDecorator(project).decorateWith(4, Metric.COMPLEXITY);
+
+    assertEquals(500, project.getInt(Metric.COMPLEXITY));
+    assertEquals(50, project.getChildren().iterator().next().getInt(Metric.COMPLEXITY));
+  }
+
   private void decorate(SourceProject project) {
     SourceCodeTreeDecorator decorator = new SourceCodeTreeDecorator(project);
     decorator.decorateWith(Metric.values());
@@ -0,0 +1,99 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.squid.indexer;
+
+import org.sonar.squid.api.SourceClass;
+import org.sonar.squid.api.SourceCode;
+import org.sonar.squid.api.SourceFile;
+import org.sonar.squid.api.SourcePackage;
+import org.sonar.squid.api.SourceProject;
+import org.sonar.squid.indexer.QueryByMeasure.Operator;
+import org.sonar.squid.measures.Metric;
+
+/**
+ * Measures queries on a synthetic tree of 100 packages, 100 files per package and 10 classes per file.
+ * Not executed during build, run it with "main".
+ */
+public final class SquidIndexBenchmark {
+
+  private static final int PACKAGES = 100;
+  private static final int FILES = 100;
+  private static final int CLASSES = 10;
+  private static final int ITERATIONS = 20;
+
+  private SquidIndexBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    SquidIndex index = new SquidIndex();
+    SourceProject project = new SourceProject("project");
+    index.index(project);
+    SourcePackage firstPackage = null;
+    for (int p = 0; p < PACKAGES; p++) {
+      SourcePackage sourcePackage = new SourcePackage("org/package" + p);
+      project.addChild(sourcePackage);
+      if (firstPackage == null) {
+        firstPackage = sourcePackage;
+      }
+      for (int f = 0; f < FILES; f++) {
+        SourceFile file = new SourceFile("org/package" + p + "/File" + f + ".java");
+        sourcePackage.addChild(file);
+        for (int c = 0; c < CLASSES; c++) {
+          SourceCode sourceClass = new SourceClass("org/package" + p + "/File" + f + "$Class" + c);
+          file.addChild(sourceClass);
+          sourceClass.setMeasure(Metric.COMPLEXITY, (p * FILES + f) * CLASSES + c);
+        }
+      }
+    }
+
+    for (int i = 0; i < 3; i++) {
+      run(index, firstPackage);
+    }
+  }
+
+  private static void run(SquidIndex index, SourcePackage firstPackage) {
+    long start = System.nanoTime();
+    int found = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      found += index.search(new QueryByType(SourceFile.class)).size();
+    }
+    print("by type", start, found);
+
+    start = System.nanoTime();
+    found = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      found += index.search(new QueryByParent(firstPackage), new QueryByType(SourceClass.class)).size();
+    }
+    print("by parent and type", start, found);
+
+    start = System.nanoTime();
+    found = 0;
+    for (int i = 0; i < ITERATIONS; i++) {
+      found += index.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.GREATER_THAN_EQUALS, 99000)).size();
+    }
+    print("by measure", start, found);
+  }
+
+  private static void print(String name, long start, int found) {
+    System.out.println(name + ": " + (System.nanoTime() - start) / 1000000 / ITERATIONS + " ms/op (" + found / ITERATIONS + " results)");
+  }
+
+}
@@ -109,4 +109,46 @@ public class SquidIndexTest {
     assertEquals(0, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.EQUALS, 6)).size());
     assertEquals(1, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.EQUALS, 2)).size());
   }
+
+  @Test
+  public void searchByMeasureAfterMeasureChanged() {
+    fileSquid.setMeasure(Metric.COMPLEXITY, 2);
+    assertEquals(1, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.GREATER_THAN, 1)).size());
+
+    file2Squid.setMeasure(Metric.COMPLEXITY, 5);
+    Collection<SourceCode> resources = indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.GREATER_THAN, 1));
+    assertEquals(2, resources.size());
+    assertTrue(resources.contains(file2Squid));
+
+    fileSquid.removeMeasure(Metric.COMPLEXITY);
+    resources = indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.GREATER_THAN, 1));
+    assertEquals(1, resources.size());
+    assertTrue(resources.contains(file2Squid));
+  }
+
+  @Test
+  public void searchByMeasureAfterSourceCodeAdded() {
+    classSquid.setMeasure(Metric.COMPLEXITY, 3);
+    assertEquals(1, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.EQUALS, 3)).size());
+
+    SourceCode otherClass = new SourceClass("org.sonar.squid.SquidConfiguration", "SquidConfiguration");
+    otherClass.setMeasure(Metric.COMPLEXITY, 3);
+    file2Squid.addChild(otherClass);
+    assertEquals(2, indexer.search(new QueryByMeasure(Metric.COMPLEXITY, Operator.EQUALS, 3)).size());
+  }
+
+  @Test
+  public void searchByParentAndByMeasure() {
+    classSquid.setMeasure(Metric.COMPLEXITY, 3);
+    project.setMeasure(Metric.COMPLEXITY, 3);
+    Collection<SourceCode> resources = indexer.search(new QueryByParent(packSquid), new QueryByMeasure(Metric.COMPLEXITY, Operator.GREATER_THAN, 2));
+    assertEquals(1, resources.size());
+    assertTrue(resources.contains(classSquid));
+  }
+
+  @Test
+  public void searchByParentNotIndexed() {
+    Collection<SourceCode> resources = indexer.search(new QueryByParent(new SourcePackage("org.sonar.unknown")));
+    assertEquals(0, resources.size());
+  }
 }
@@ -0,0 +1,192 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+
+package org.sonar.squid.measures;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Compares memory footprint and throughput of {@link Measures} with the storage in an identity map which was used before.
+ * Not executed during build, run it with "main".
+ */
+public final class MeasuresBenchmark {
+
+  private static final int SOURCE_CODES = 100000;
+  private static final Metric[] METRICS = {Metric.LINES, Metric.LINES_OF_CODE, Metric.BLANK_LINES, Metric.COMMENT_LINES,
+    Metric.STATEMENTS, Metric.COMPLEXITY, Metric.BRANCHES, Metric.METHODS, Metric.PUBLIC_API, Metric.ACCESSORS};
+  private static final int ITERATIONS = 20;
+
+  private MeasuresBenchmark() {
+  }
+
+  public static void main(String[] args) {
+    for (int i = 0; i < 3; i++) {
+      footprint("array", new Factory() {
+        public Object create() {
+          Measures measures = new Measures();
+          for (Metric metric : METRICS) {
+            measures.setValue(metric, 1);
+          }
+          return measures;
+        }
+      });
+      footprint("map", new Factory() {
+        public Object create() {
+          MapMeasures measures = new MapMeasures();
+          for (Metric metric : METRICS) {
+            measures.setValue(metric, 1);
+          }
+          return measures;
+        }
+      });
+    }
+
+    Measures[] arrayMeasures = new Measures[SOURCE_CODES];
+    MapMeasures[] mapMeasures = new MapMeasures[SOURCE_CODES];
+    for (int i = 0; i < SOURCE_CODES; i++) {
+      arrayMeasures[i] = new Measures();
+      mapMeasures[i] = new MapMeasures();
+    }
+    for (int i = 0; i < 3; i++) {
+      long start = System.nanoTime();
+      double sum = 0;
+      for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+        for (Measures measures : arrayMeasures) {
+          for (Metric metric : METRICS) {
+            measures.setValue(metric, measures.getValue(metric) + 1);
+          }
+          sum += measures.getValue(Metric.LINES);
+        }
+      }
+      print("array", start, sum);
+
+      start = System.nanoTime();
+      sum = 0;
+      for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+        for (MapMeasures measures : mapMeasures) {
+          for (Metric metric : METRICS) {
+            measures.setValue(metric, measures.getValue(metric) + 1);
+          }
+          sum += measures.getValue(Metric.LINES);
+        }
+      }
+      print("map", start, sum);
+    }
+  }
+
+  private static void footprint(String name, Factory factory) {
+    Object[] all = new Object[SOURCE_CODES];
+    long before = usedMemory();
+    for (int i = 0; i < SOURCE_CODES; i++) {
+      all[i] = factory.create();
+    }
+    long after = usedMemory();
+    System.out.println(name + ": " + (after - before) / SOURCE_CODES + " bytes per source code (" + all.length + ")");
+  }
+
+  private static long usedMemory() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+
+  private static void print(String name, long start, double sum) {
+    System.out.println(name + ": " + (System.nanoTime() - start) / 1000000 / ITERATIONS + " ms/op (" + sum + ")");
+  }
+
+  private interface Factory {
+    Object create();
+  }
+
+  /**
+   * Copy of {@link Measures} before values were stored in arrays.
+   */
+  private static final class MapMeasures {
+
+    private Map<MetricDef, Measure> measures = new IdentityHashMap<MetricDef, Measure>();
+
+    public double getValue(MetricDef metric) {
+      Measure measure = measures.get(metric);
+      if (measure == null) {
+        return 0;
+      }
+      return measure.getValue();
+    }
+
+    public Object getData(MetricDef metric) {
+      Measure measure = measures.get(metric);
+      if (measure == null) {
+        return null;
+      }
+      return measure.getData();
+    }
+
+    public void setValue(MetricDef metric, double measure) {
+      getMeasureOrCreateIt(metric).setValue(measure);
+    }
+
+    public void setData(MetricDef metric, Object data) {
+      getMeasureOrCreateIt(metric).setData(data);
+    }
+
+    private Measure getMeasureOrCreateIt(MetricDef metric) {
+      Measure measure = measures.get(metric);
+      if (measure == null) {
+        measure = new Measure(0);
+        measures.put(metric, measure);
+      }
+      return measure;
+    }
+
+    public void removeMeasure(MetricDef metric) {
+      measures.remove(metric);
+    }
+
+    private static final class Measure {
+
+      private double value;
+      private Object data;
+
+      private Measure(double value) {
+        this.value = value;
+      }
+
+      private double getValue() {
+        return value;
+      }
+
+      private void setValue(double value) {
+        this.value = value;
+      }
+
+      private Object getData() {
+        return data;
+      }
+
+      private void setData(Object data) {
+        this.data = data;
+      }
+    }
+  }
+
+}
@@ -51,4 +51,57 @@ public class MeasuresTest {
     assertEquals("blocks detail", measures.getData(Metric.LCOM4_BLOCKS));
   }
 
+  @Test
+  public void testSetValueAndData() {
+    measures.setData(Metric.LCOM4_BLOCKS, "blocks detail");
+    measures.setValue(Metric.LCOM4_BLOCKS, 2);
+    assertEquals(2, measures.getValue(Metric.LCOM4_BLOCKS), 0.1);
+    assertEquals("blocks detail", measures.getData(Metric.LCOM4_BLOCKS));
+  }
+
+  @Test
+  public void testRemoveMeasure() {
+    measures.setValue(Metric.ACCESSORS, 3);
+    measures.setData(Metric.ACCESSORS, "accessors detail");
+    measures.removeMeasure(Metric.ACCESSORS);
+    assertEquals(0, measures.getValue(Metric.ACCESSORS), 0.1);
+    assertNull(measures.getData(Metric.ACCESSORS));
+  }
+
+  @Test
+  public void testSetValuesOfSeveralMetricTypes() {
+    measures.setValue(OtherMetric.FIRST, 1);
+    measures.setValue(Metric.PACKAGES, 2);
+    measures.setValue(OtherMetric.SECOND, 3);
+    measures.setValue(Metric.CLASSES, 4);
+    assertEquals(1, measures.getValue(OtherMetric.FIRST), 0.1);
+    assertEquals(2, measures.getValue(Metric.PACKAGES), 0.1);
+    assertEquals(3, measures.getValue(OtherMetric.SECOND), 0.1);
+    assertEquals(4, measures.getValue(Metric.CLASSES), 0.1);
+  }
+
+  private static enum OtherMetric implements MetricDef {
+    FIRST, SECOND;
+
+    public String getName() {
+      return name();
+    }
+
+    public boolean isCalculatedMetric() {
+      return false;
+    }
+
+    public boolean aggregateIfThereIsAlreadyAValue() {
+      return true;
+    }
+
+    public boolean isThereAggregationFormula() {
+      return true;
+    }
+
+    public CalculatedMetricFormula getCalculatedMetricFormula() {
+      return null;
+    }
+  }
+
 }
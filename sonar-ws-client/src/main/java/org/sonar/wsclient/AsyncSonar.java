@@ -0,0 +1,240 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient;
+
+import org.sonar.wsclient.connectors.ConnectionException;
+import org.sonar.wsclient.connectors.HttpClient4Connector;
+import org.sonar.wsclient.services.Model;
+import org.sonar.wsclient.services.Query;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executes queries of a {@link Sonar} client in background threads. The underlying connector must support concurrent
+ * queries, for example {@link HttpClient4Connector} with a pool of connections, as created by {@link #create(String, int)}.
+ * <p>
+ * The number of queued queries is bounded: when the queue is full, the query is executed by the calling thread.
+ * The client must be closed with {@link #close()}. Queries submitted after that are rejected.
+ * </p>
+ *
+ * @since 3.3
+ */
+public class AsyncSonar {
+
+  private static final int QUEUE_SIZE_PER_THREAD = 100;
+
+  private final Sonar sonar;
+  private final ThreadPoolExecutor executor;
+  private HttpClient4Connector ownedConnector;
+
+  public AsyncSonar(Sonar sonar, int threads) {
+    this.sonar = sonar;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<Runnable>(threads * QUEUE_SIZE_PER_THREAD), new DaemonThreadFactory(),
+        new CallerRunsUnlessClosedPolicy());
+  }
+
+  public Sonar getSonar() {
+    return sonar;
+  }
+
+  /**
+   * @throws RejectedExecutionException if the client is closed
+   */
+  public <MODEL extends Model> Future<MODEL> find(final Query<MODEL> query) {
+    return submit(new Callable<MODEL>() {
+      public MODEL call() {
+        return sonar.find(query);
+      }
+    });
+  }
+
+  /**
+   * @throws RejectedExecutionException if the client is closed
+   */
+  public <MODEL extends Model> Future<List<MODEL>> findAll(final Query<MODEL> query) {
+    return submit(new Callable<List<MODEL>>() {
+      public List<MODEL> call() {
+        return sonar.findAll(query);
+      }
+    });
+  }
+
+  /**
+   * Executes the queries concurrently and waits for their results.
+   *
+   * @return results in the order of queries
+   * @throws ConnectionException if a query fails or is not executed within its timeout,
+   *                             see {@link org.sonar.wsclient.services.AbstractQuery#getTimeoutMilliseconds()},
+   *                             or if the client is closed before all the queries are executed
+   * @throws RejectedExecutionException if the client is closed
+   */
+  public <MODEL extends Model> List<List<MODEL>> findAll(List<? extends Query<MODEL>> queries) {
+    List<TimedTask<List<MODEL>>> tasks = new ArrayList<TimedTask<List<MODEL>>>(queries.size());
+    for (final Query<MODEL> query : queries) {
+      TimedTask<List<MODEL>> task = new TimedTask<List<MODEL>>(executor, query, new Callable<List<MODEL>>() {
+        public List<MODEL> call() {
+          return sonar.findAll(query);
+        }
+      });
+      executor.execute(task);
+      tasks.add(task);
+    }
+    List<List<MODEL>> result = new ArrayList<List<MODEL>>(tasks.size());
+    try {
+      for (TimedTask<List<MODEL>> task : tasks) {
+        result.add(task.await());
+      }
+    } finally {
+      for (TimedTask<List<MODEL>> task : tasks) {
+        task.cancel(true);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Stops the threads, and closes the connections if the client was created by {@link #create(String, int)}.
+   * Queries which are not started are cancelled and running queries are interrupted.
+   */
+  public void close() {
+    for (Runnable pending : executor.shutdownNow()) {
+      ((Future<?>) pending).cancel(false);
+    }
+    if (ownedConnector != null) {
+      ownedConnector.close();
+    }
+  }
+
+  private <T> Future<T> submit(Callable<T> callable) {
+    FutureTask<T> task = new FutureTask<T>(callable);
+    executor.execute(task);
+    return task;
+  }
+
+  /**
+   * Timeout of query is counted from the start of its execution, not from its submission.
+   */
+  private static final class TimedTask<T> extends FutureTask<T> {
+    private final ThreadPoolExecutor executor;
+    private final Query<?> query;
+    private volatile long startNanos = 0L;
+
+    TimedTask(ThreadPoolExecutor executor, Query<?> query, Callable<T> callable) {
+      super(callable);
+      this.executor = executor;
+      this.query = query;
+    }
+
+    @Override
+    public void run() {
+      startNanos = System.nanoTime();
+      super.run();
+    }
+
+    T await() {
+      long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(query.getTimeoutMilliseconds());
+      try {
+        while (true) {
+          if (timeoutNanos <= 0L) {
+            return get();
+          }
+          long waitNanos = startNanos == 0L ? timeoutNanos : startNanos + timeoutNanos - System.nanoTime();
+          try {
+            return get(Math.max(0L, waitNanos), TimeUnit.NANOSECONDS);
+          } catch (TimeoutException e) {
+            if (startNanos != 0L && System.nanoTime() - startNanos >= timeoutNanos) {
+              throw new ConnectionException("Timeout of query: " + query.getUrl(), e);
+            }
+            if (startNanos == 0L && executor.isShutdown()) {
+              // will never be started
+              throw new ConnectionException("Client is closed, query not executed: " + query.getUrl(), e);
+            }
+            // not started yet, or started while waiting
+          }
+        }
+      } catch (CancellationException e) {
+        throw new ConnectionException("Client is closed, query not executed: " + query.getUrl(), e);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ConnectionException("Interrupted query: " + query.getUrl(), e);
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new ConnectionException("Query: " + query.getUrl(), e.getCause());
+      }
+    }
+  }
+
+  /**
+   * Queries are executed by the calling thread when the queue is full, and rejected once the client is closed.
+   */
+  private static final class CallerRunsUnlessClosedPolicy implements RejectedExecutionHandler {
+    public void rejectedExecution(Runnable runnable, ThreadPoolExecutor executor) {
+      if (executor.isShutdown()) {
+        throw new RejectedExecutionException("Client is closed");
+      }
+      runnable.run();
+    }
+  }
+
+  private static final class DaemonThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "sonar-ws-client-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /**
+   * Creates a client which shares a pool of keep-alive connections between its threads.
+   */
+  public static AsyncSonar create(String host, int threads) {
+    return create(new Host(host), threads);
+  }
+
+  public static AsyncSonar create(String host, String username, String password, int threads) {
+    return create(new Host(host, username, password), threads);
+  }
+
+  private static AsyncSonar create(Host host, int threads) {
+    HttpClient4Connector connector = new HttpClient4Connector(host, threads, threads);
+    AsyncSonar client = new AsyncSonar(new Sonar(connector), threads);
+    client.ownedConnector = connector;
+    return client;
+  }
+}
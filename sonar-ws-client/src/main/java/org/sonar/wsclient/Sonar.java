@@ -19,13 +19,18 @@
  */
 package org.sonar.wsclient;
 
+import org.sonar.wsclient.connectors.ConnectionException;
 import org.sonar.wsclient.connectors.Connector;
 import org.sonar.wsclient.connectors.ConnectorFactory;
 import org.sonar.wsclient.services.*;
+import org.sonar.wsclient.unmarshallers.AbstractUnmarshaller;
+import org.sonar.wsclient.unmarshallers.TimeMachineUnmarshaller;
 import org.sonar.wsclient.unmarshallers.UnmarshalException;
 import org.sonar.wsclient.unmarshallers.Unmarshaller;
 import org.sonar.wsclient.unmarshallers.Unmarshallers;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.Collections;
 import java.util.List;
 
@@ -75,6 +80,64 @@ public class Sonar {
     return result;
   }
 
+  /**
+   * Same as {@link #findAll(Query)}, except that models are passed to the handler as soon as they are decoded
+   * from the response, so that the whole response is never loaded in memory. Recommended for large results,
+   * for example all the violations or files of a project. Models which can not be streamed, like {@link Server},
+   * are loaded with {@link #findAll(Query)} before being passed to the handler.
+   *
+   * @since 3.3
+   */
+  public <MODEL extends Model> void findAll(Query<MODEL> query, ResultHandler<MODEL> handler) {
+    Unmarshaller<MODEL> unmarshaller = Unmarshallers.forModel(query.getModelClass());
+    if (!(unmarshaller instanceof AbstractUnmarshaller)) {
+      for (MODEL model : findAll(query)) {
+        handler.handle(model);
+      }
+      return;
+    }
+    Reader json = connector.executeAsReader(query);
+    if (json != null) {
+      try {
+        ((AbstractUnmarshaller<MODEL>) unmarshaller).toModels(json, handler);
+      } catch (IOException e) {
+        throw new ConnectionException("Query: " + query.getUrl(), e);
+      } catch (UnmarshalException e) {
+        throw new UnmarshalException(query, "(streamed)", e);
+      } finally {
+        closeQuietly(json);
+      }
+    }
+  }
+
+  /**
+   * Streams the cells of a time machine, see {@link #findAll(Query, ResultHandler)}.
+   *
+   * @since 3.3
+   */
+  public void findAllCells(TimeMachineQuery query, ResultHandler<TimeMachineCell> handler) {
+    Reader json = connector.executeAsReader(query);
+    if (json != null) {
+      try {
+        new TimeMachineUnmarshaller().toCells(json, handler);
+      } catch (IOException e) {
+        throw new ConnectionException("Query: " + query.getUrl(), e);
+      } catch (UnmarshalException e) {
+        throw new UnmarshalException(query, "(streamed)", e);
+      } finally {
+        closeQuietly(json);
+      }
+    }
+  }
+
+  private static void closeQuietly(Reader reader) {
+    try {
+      reader.close();
+    } catch (IOException e) {
+      // ignored
+    }
+  }
+
   public <MODEL extends Model> MODEL create(CreateQuery<MODEL> query) {
     String json = connector.execute(query);
     MODEL result = null;
@@ -24,6 +24,9 @@ import org.sonar.wsclient.services.DeleteQuery;
 import org.sonar.wsclient.services.Query;
 import org.sonar.wsclient.services.UpdateQuery;
 
+import java.io.Reader;
+import java.io.StringReader;
+
 /**
  * @since 2.1
  */
@@ -52,4 +55,16 @@ public abstract class Connector {
    * @since 2.6
    */
   public abstract String execute(UpdateQuery<?> query);
+
+  /**
+   * Default implementation loads the whole response, connectors should read it from the connection.
+   *
+   * @return JSON response, which must be closed by caller, or null if 404 NOT FOUND error
+   * @throws ConnectionException if connection error or HTTP status not in (200, 404)
+   * @since 3.3
+   */
+  public Reader executeAsReader(Query<?> query) {
+    String json = execute(query);
+    return json != null ? new StringReader(json) : null;
+  }
 }
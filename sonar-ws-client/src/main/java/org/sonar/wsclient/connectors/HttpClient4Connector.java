@@ -20,14 +20,23 @@
 package org.sonar.wsclient.connectors;
 
 import java.io.IOException;
+import java.io.FilterReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.http.Header;
+import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
 import org.apache.http.HttpStatus;
 import org.apache.http.auth.AuthScheme;
 import org.apache.http.auth.AuthScope;
@@ -42,13 +51,23 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.protocol.ClientContext;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.auth.BasicScheme;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.CoreConnectionPNames;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.ExecutionContext;
 import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
@@ -60,14 +79,46 @@ import org.sonar.wsclient.services.Query;
 import org.sonar.wsclient.services.UpdateQuery;
 
 /**
+ * By default a new HTTP client is created for each query. Use {@link #HttpClient4Connector(Host, int, int)} to share
+ * a pool of keep-alive connections between queries, possibly executed by several threads. In this case the connector
+ * must be closed with {@link #close()}.
+ *
  * @since 2.1
  */
 public class HttpClient4Connector extends Connector {
 
   private Host server;
 
+  /**
+   * Shared client, or null if a client is created for each query.
+   */
+  private final DefaultHttpClient pooledClient;
+  private final ThreadSafeClientConnManager connectionManager;
+  private final AtomicLong executedRequests = new AtomicLong();
+
   public HttpClient4Connector(Host server) {
     this.server = server;
+    this.pooledClient = null;
+    this.connectionManager = null;
+  }
+
+  /**
+   * Creates a connector, which keeps connections alive and can be used concurrently.
+   *
+   * @param maxConnectionsPerRoute maximum number of connections to the server
+   * @param maxTotalConnections maximum number of connections, including redirections to other hosts
+   * @since 3.3
+   */
+  public HttpClient4Connector(Host server, int maxConnectionsPerRoute, int maxTotalConnections) {
+    this.server = server;
+    HttpParams params = new BasicHttpParams();
+    ConnManagerParams.setMaxTotalConnections(params, maxTotalConnections);
+    ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(maxConnectionsPerRoute));
+    SchemeRegistry schemeRegistry = new SchemeRegistry();
+    schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
+    schemeRegistry.register(new Scheme("https", SSLSocketFactory.getSocketFactory(), 443));
+    this.connectionManager = new ThreadSafeClientConnManager(params, schemeRegistry);
+    this.pooledClient = initClient(new DefaultHttpClient(connectionManager, params));
   }
 
   @Override
@@ -90,13 +141,107 @@ public class HttpClient4Connector extends Connector {
     return executeRequest(newDeleteMethod(query));
   }
 
+  /**
+   * The response is read from the connection. When connections are pooled, the connection is
+   * released when the reader is closed.
+   *
+   * @since 3.3
+   */
+  @Override
+  public Reader executeAsReader(Query<?> query) {
+    HttpGet request = newGetMethod(query);
+    final DefaultHttpClient client = pooledClient != null ? pooledClient : initClient(new DefaultHttpClient());
+    HttpEntity entity = null;
+    boolean streamed = false;
+    try {
+      executedRequests.incrementAndGet();
+      HttpResponse response = client.execute(request, createLocalContext());
+      entity = response.getEntity();
+      Reader reader = null;
+      if (entity != null) {
+        if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
+          String charset = EntityUtils.getContentCharSet(entity);
+          reader = new InputStreamReader(entity.getContent(), charset != null ? charset : HTTP.DEFAULT_CONTENT_CHARSET);
+          streamed = true;
+
+        } else if (response.getStatusLine().getStatusCode() != HttpStatus.SC_NOT_FOUND) {
+          throw new ConnectionException("HTTP error: " + response.getStatusLine().getStatusCode()
+              + ", msg: " + response.getStatusLine().getReasonPhrase()
+              + ", query: " + request.toString());
+        }
+      }
+      if (reader == null || pooledClient != null) {
+        return reader;
+      }
+      return new FilterReader(reader) {
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            client.getConnectionManager().shutdown();
+          }
+        }
+      };
+
+    } catch (IOException e) {
+      request.abort();
+      throw new ConnectionException("Query: " + request.getURI(), e);
+
+    } finally {
+      if (!streamed) {
+        if (pooledClient == null) {
+          client.getConnectionManager().shutdown();
+        } else {
+          consumeQuietly(entity);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return true if connections are kept alive between queries
+   * @since 3.3
+   */
+  public boolean isPooled() {
+    return pooledClient != null;
+  }
+
+  /**
+   * @return number of connections currently opened by the pool, 0 if connections are not pooled
+   * @since 3.3
+   */
+  public int getConnectionsInPool() {
+    return connectionManager != null ? connectionManager.getConnectionsInPool() : 0;
+  }
+
+  /**
+   * @return number of requests executed by this connector
+   * @since 3.3
+   */
+  public long getExecutedRequests() {
+    return executedRequests.get();
+  }
+
+  /**
+   * Closes the connections of the pool. Does nothing if connections are not pooled.
+   * @since 3.3
+   */
+  public void close() {
+    if (connectionManager != null) {
+      connectionManager.shutdown();
+    }
+  }
+
   private String executeRequest(HttpRequestBase request) {
     String json = null;
-    DefaultHttpClient client = createClient();
+    DefaultHttpClient client = pooledClient != null ? pooledClient : initClient(new DefaultHttpClient());
+    HttpEntity entity = null;
     try {
-      BasicHttpContext context = createLocalContext(client);
+      executedRequests.incrementAndGet();
+      BasicHttpContext context = createLocalContext();
       HttpResponse response = client.execute(request, context);
-      HttpEntity entity = response.getEntity();
+      entity = response.getEntity();
       if (entity != null) {
         if (response.getStatusLine().getStatusCode() == HttpStatus.SC_OK) {
           json = EntityUtils.toString(entity);
@@ -109,27 +254,46 @@ public class HttpClient4Connector extends Connector {
       }
 
     } catch (IOException e) {
+      request.abort();
       throw new ConnectionException("Query: " + request.getURI(), e);
 
     } finally {
-      client.getConnectionManager().shutdown();
+      if (pooledClient == null) {
+        client.getConnectionManager().shutdown();
+      } else {
+        // the connection is released to the pool only when the response is fully consumed
+        consumeQuietly(entity);
+      }
     }
     return json;
   }
 
-  private DefaultHttpClient createClient() {
-    DefaultHttpClient client = new DefaultHttpClient();
+  private static void consumeQuietly(HttpEntity entity) {
+    if (entity != null) {
+      try {
+        entity.consumeContent();
+      } catch (IOException e) {
+        // the connection is closed
+      }
+    }
+  }
+
+  private DefaultHttpClient initClient(DefaultHttpClient client) {
     HttpParams params = client.getParams();
     HttpConnectionParams.setConnectionTimeout(params, AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
     HttpConnectionParams.setSoTimeout(params, AbstractQuery.DEFAULT_TIMEOUT_MILLISECONDS);
     if (server.getUsername() != null) {
       client.getCredentialsProvider()
           .setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(server.getUsername(), server.getPassword()));
+      // Add as the first request interceptor
+      client.addRequestInterceptor(new PreemptiveAuth(), 0);
     }
+    client.addRequestInterceptor(new AcceptGzip());
+    client.addResponseInterceptor(new GunzipResponse());
     return client;
   }
 
-  private BasicHttpContext createLocalContext(DefaultHttpClient client) {
+  private BasicHttpContext createLocalContext() {
     BasicHttpContext localcontext = new BasicHttpContext();
 
     if (server.getUsername() != null) {
@@ -137,9 +301,6 @@ public class HttpClient4Connector extends Connector {
       // execution context
       BasicScheme basicAuth = new BasicScheme();
       localcontext.setAttribute("preemptive-auth", basicAuth);
-
-      // Add as the first request interceptor
-      client.addRequestInterceptor(new PreemptiveAuth(), 0);
     }
     return localcontext;
   }
@@ -189,6 +350,48 @@ public class HttpClient4Connector extends Connector {
     request.getParams().setParameter(CoreConnectionPNames.SO_TIMEOUT, query.getTimeoutMilliseconds());
   }
 
+  static final class AcceptGzip implements HttpRequestInterceptor {
+    public void process(HttpRequest request, HttpContext context) {
+      if (!request.containsHeader("Accept-Encoding")) {
+        request.addHeader("Accept-Encoding", "gzip");
+      }
+    }
+  }
+
+  static final class GunzipResponse implements HttpResponseInterceptor {
+    public void process(HttpResponse response, HttpContext context) {
+      HttpEntity entity = response.getEntity();
+      if (entity != null) {
+        Header encoding = entity.getContentEncoding();
+        if (encoding != null) {
+          for (HeaderElement element : encoding.getElements()) {
+            if ("gzip".equalsIgnoreCase(element.getName())) {
+              response.setEntity(new GzipDecompressingEntity(entity));
+              return;
+            }
+          }
+        }
+      }
+    }
+  }
+
+  static final class GzipDecompressingEntity extends HttpEntityWrapper {
+    GzipDecompressingEntity(HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new GZIPInputStream(wrappedEntity.getContent());
+    }
+
+    @Override
+    public long getContentLength() {
+      // unknown once decompressed
+      return -1;
+    }
+  }
+
   static final class PreemptiveAuth implements HttpRequestInterceptor {
     public void process(
         final HttpRequest request,
@@ -19,9 +19,13 @@
  */
 package org.sonar.wsclient.unmarshallers;
 
+import org.json.simple.parser.ParseException;
+import org.sonar.wsclient.ResultHandler;
 import org.sonar.wsclient.services.Model;
 import org.sonar.wsclient.services.WSUtils;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -54,5 +58,28 @@ public abstract class AbstractUnmarshaller<MODEL extends Model> implements Unmar
     return result;
   }
 
+  /**
+   * Decodes the models one by one from the stream, so that the whole response is never loaded in memory.
+   *
+   * @since 3.3
+   */
+  public final void toModels(Reader json, final ResultHandler<MODEL> handler) throws IOException {
+    parseElements(json, null, new JsonElementsParser.ElementHandler() {
+      public void handle(Object element) {
+        if (element != null) {
+          handler.handle(parse(element));
+        }
+      }
+    });
+  }
+
+  static void parseElements(Reader json, String arrayField, JsonElementsParser.ElementHandler handler) throws IOException {
+    try {
+      JsonElementsParser.parse(json, arrayField, handler);
+    } catch (ParseException e) {
+      throw new UnmarshalException("Invalid JSON: " + e);
+    }
+  }
+
   protected abstract MODEL parse(Object elt);
 }
@@ -0,0 +1,182 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient.unmarshallers;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.LinkedList;
+
+/**
+ * Decodes the elements of a JSON array one at a time from a stream. Only the element being decoded is kept in memory,
+ * as a json-simple tree, so that it can be converted by the usual unmarshallers.
+ * <p>
+ * The array is either the root of the document, or a field of the objects of the root array, for example
+ * the cells of <code>[{"cols": [...], "cells": [...]}]</code>.
+ * </p>
+ *
+ * @since 3.3
+ */
+final class JsonElementsParser implements ContentHandler {
+
+  interface ElementHandler {
+    void handle(Object element);
+  }
+
+  private final String arrayField;
+  private final ElementHandler handler;
+
+  /**
+   * Number of opened arrays and objects.
+   */
+  private int depth = 0;
+
+  /**
+   * Depth inside the array of elements, or -1 when out of this array.
+   */
+  private int elementsDepth = -1;
+
+  /**
+   * Last key of object entries, which are out of elements.
+   */
+  private String currentKey;
+
+  private final LinkedList<Object> containers = new LinkedList<Object>();
+  private final LinkedList<String> keys = new LinkedList<String>();
+
+  private JsonElementsParser(String arrayField, ElementHandler handler) {
+    this.arrayField = arrayField;
+    this.handler = handler;
+  }
+
+  /**
+   * @param arrayField null to decode elements of the root array, else name of the field of root objects
+   */
+  static void parse(Reader json, String arrayField, ElementHandler handler) throws IOException, ParseException {
+    new JSONParser().parse(json, new JsonElementsParser(arrayField, handler));
+  }
+
+  public void startJSON() {
+    // nothing to do
+  }
+
+  public void endJSON() {
+    // nothing to do
+  }
+
+  public boolean startObject() {
+    startContainer(new JSONObject());
+    return true;
+  }
+
+  public boolean endObject() {
+    endContainer();
+    return true;
+  }
+
+  public boolean startObjectEntry(String key) {
+    if (containers.isEmpty()) {
+      currentKey = key;
+    } else {
+      keys.addFirst(key);
+    }
+    return true;
+  }
+
+  public boolean endObjectEntry() {
+    if (containers.isEmpty()) {
+      currentKey = null;
+    } else {
+      keys.removeFirst();
+    }
+    return true;
+  }
+
+  public boolean startArray() {
+    if (containers.isEmpty() && depth != elementsDepth && isArrayOfElements()) {
+      depth++;
+      elementsDepth = depth;
+    } else {
+      startContainer(new JSONArray());
+    }
+    return true;
+  }
+
+  public boolean endArray() {
+    if (containers.isEmpty() && depth == elementsDepth) {
+      depth--;
+      elementsDepth = -1;
+    } else {
+      endContainer();
+    }
+    return true;
+  }
+
+  public boolean primitive(Object value) {
+    if (!containers.isEmpty()) {
+      add(value);
+    } else if (depth == elementsDepth) {
+      handler.handle(value);
+    }
+    return true;
+  }
+
+  private boolean isArrayOfElements() {
+    if (arrayField == null) {
+      return depth == 0;
+    }
+    return depth == 2 && arrayField.equals(currentKey);
+  }
+
+  private void startContainer(Object container) {
+    if (!containers.isEmpty()) {
+      add(container);
+      containers.addFirst(container);
+    } else if (depth == elementsDepth) {
+      containers.addFirst(container);
+    }
+    depth++;
+  }
+
+  private void endContainer() {
+    depth--;
+    if (!containers.isEmpty()) {
+      Object container = containers.removeFirst();
+      if (containers.isEmpty()) {
+        handler.handle(container);
+      }
+    }
+  }
+
+  private void add(Object value) {
+    Object parent = containers.getFirst();
+    if (parent instanceof JSONArray) {
+      ((JSONArray) parent).add(value);
+    } else {
+      ((JSONObject) parent).put(keys.getFirst(), value);
+    }
+  }
+
+}
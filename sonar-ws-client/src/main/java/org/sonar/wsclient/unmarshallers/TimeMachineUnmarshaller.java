@@ -19,11 +19,15 @@
  */
 package org.sonar.wsclient.unmarshallers;
 
+import org.sonar.wsclient.ResultHandler;
 import org.sonar.wsclient.services.TimeMachine;
 import org.sonar.wsclient.services.TimeMachineCell;
 import org.sonar.wsclient.services.TimeMachineColumn;
 import org.sonar.wsclient.services.WSUtils;
 
+import java.io.IOException;
+import java.io.Reader;
+
 public class TimeMachineUnmarshaller extends AbstractUnmarshaller<TimeMachine> {
 
   @Override
@@ -50,17 +54,37 @@ public class TimeMachineUnmarshaller extends AbstractUnmarshaller<TimeMachine> {
     int size = utils.getArraySize(cells);
     TimeMachineCell[] result = new TimeMachineCell[size];
     for (int i = 0; i < size; i++) {
-      Object cellJson = utils.getArrayElement(cells, i);
-      Object valuesJson = utils.getField(cellJson, "v");
-
-      Object[] resultValues = new Object[utils.getArraySize(valuesJson)];
-      for (int indexValue = 0; indexValue < utils.getArraySize(valuesJson); indexValue++) {
-        Object value = utils.getArrayElement(valuesJson, indexValue);
-        resultValues[indexValue] = value;
-      }
-      result[i] = new TimeMachineCell(utils.getDateTime(cellJson, "d"), resultValues);
+      result[i] = toCell(utils.getArrayElement(cells, i));
     }
     return result;
   }
 
+  private TimeMachineCell toCell(Object cellJson) {
+    WSUtils utils = WSUtils.getINSTANCE();
+    Object valuesJson = utils.getField(cellJson, "v");
+
+    Object[] resultValues = new Object[utils.getArraySize(valuesJson)];
+    for (int indexValue = 0; indexValue < utils.getArraySize(valuesJson); indexValue++) {
+      Object value = utils.getArrayElement(valuesJson, indexValue);
+      resultValues[indexValue] = value;
+    }
+    return new TimeMachineCell(utils.getDateTime(cellJson, "d"), resultValues);
+  }
+
+  /**
+   * Decodes the cells one by one from the stream, so that the whole response is never loaded in memory.
+   * Columns are ignored, they are given by the query.
+   *
+   * @since 3.3
+   */
+  public void toCells(Reader json, final ResultHandler<TimeMachineCell> handler) throws IOException {
+    parseElements(json, "cells", new JsonElementsParser.ElementHandler() {
+      public void handle(Object element) {
+        if (element != null) {
+          handler.handle(toCell(element));
+        }
+      }
+    });
+  }
+
 }
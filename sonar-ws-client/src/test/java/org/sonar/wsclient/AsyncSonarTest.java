@@ -0,0 +1,189 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mortbay.jetty.testing.ServletTester;
+import org.sonar.wsclient.connectors.ConnectionException;
+import org.sonar.wsclient.connectors.Connector;
+import org.sonar.wsclient.services.CreateQuery;
+import org.sonar.wsclient.services.DeleteQuery;
+import org.sonar.wsclient.services.Metric;
+import org.sonar.wsclient.services.MetricQuery;
+import org.sonar.wsclient.services.Query;
+import org.sonar.wsclient.services.Server;
+import org.sonar.wsclient.services.ServerQuery;
+import org.sonar.wsclient.services.UpdateQuery;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncSonarTest {
+
+  private static ServletTester tester;
+  private static String baseUrl;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    tester = new ServletTester();
+    tester.setContextPath("/");
+    tester.addServlet(ServerServlet.class, "/api/server/index");
+    tester.addServlet(MetricServlet.class, "/api/metrics");
+    baseUrl = tester.createSocketConnector(true);
+    tester.start();
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    tester.stop();
+  }
+
+  @Test
+  public void shouldFindInBackground() throws Exception {
+    AsyncSonar sonar = AsyncSonar.create(baseUrl, 2);
+    try {
+      Server server = sonar.find(new ServerQuery()).get();
+      assertThat(server.getVersion(), is("2.0"));
+    } finally {
+      sonar.close();
+    }
+  }
+
+  @Test
+  public void shouldReturnResultsInOrderOfQueries() {
+    AsyncSonar sonar = AsyncSonar.create(baseUrl, 3);
+    try {
+      List<Query<Metric>> queries = new ArrayList<Query<Metric>>();
+      for (int i = 0; i < 10; i++) {
+        queries.add(MetricQuery.all());
+      }
+      List<List<Metric>> results = sonar.findAll(queries);
+
+      assertThat(results.size(), is(10));
+      int expectedSize = sonar.getSonar().findAll(MetricQuery.all()).size();
+      for (List<Metric> metrics : results) {
+        assertThat(metrics.size(), is(expectedSize));
+      }
+    } finally {
+      sonar.close();
+    }
+  }
+
+  @Test
+  public void shouldCancelPendingQueriesOnClose() throws Exception {
+    BlockingConnector connector = new BlockingConnector();
+    AsyncSonar sonar = new AsyncSonar(new Sonar(connector), 1);
+    Future<Server> running = sonar.find(new ServerQuery());
+    assertThat(connector.started.await(10, TimeUnit.SECONDS), is(true));
+    Future<Server> pending = sonar.find(new ServerQuery());
+
+    sonar.close();
+
+    assertThat(pending.isCancelled(), is(true));
+    try {
+      running.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      // interrupted
+      assertThat(e.getCause(), instanceOf(ConnectionException.class));
+    }
+  }
+
+  @Test
+  public void shouldFailWhenQueriesArePendingOnClose() throws Exception {
+    BlockingConnector connector = new BlockingConnector();
+    final AsyncSonar sonar = new AsyncSonar(new Sonar(connector), 1);
+    ExecutorService caller = Executors.newSingleThreadExecutor();
+    Future<List<List<Metric>>> results = caller.submit(new Callable<List<List<Metric>>>() {
+      public List<List<Metric>> call() {
+        return sonar.findAll(Arrays.asList(MetricQuery.all(), MetricQuery.all()));
+      }
+    });
+    assertThat(connector.started.await(10, TimeUnit.SECONDS), is(true));
+
+    sonar.close();
+
+    try {
+      results.get(10, TimeUnit.SECONDS);
+      fail();
+    } catch (ExecutionException e) {
+      assertThat(e.getCause(), instanceOf(ConnectionException.class));
+    } finally {
+      caller.shutdown();
+    }
+  }
+
+  @Test(expected = RejectedExecutionException.class)
+  public void shouldRejectQueriesAfterClose() {
+    AsyncSonar sonar = AsyncSonar.create(baseUrl, 2);
+    sonar.close();
+
+    sonar.find(new ServerQuery());
+  }
+
+  /**
+   * Queries are blocked until the thread is interrupted.
+   */
+  static class BlockingConnector extends Connector {
+    final CountDownLatch started = new CountDownLatch(1);
+
+    @Override
+    public String execute(Query<?> query) {
+      started.countDown();
+      try {
+        new CountDownLatch(1).await();
+      } catch (InterruptedException e) {
+        throw new ConnectionException("Interrupted", e);
+      }
+      return null;
+    }
+
+    @Override
+    public String execute(CreateQuery<?> query) {
+      return execute((Query<?>) null);
+    }
+
+    @Override
+    public String execute(DeleteQuery query) {
+      return execute((Query<?>) null);
+    }
+
+    @Override
+    public String execute(UpdateQuery<?> query) {
+      return execute((Query<?>) null);
+    }
+  }
+}
@@ -19,17 +19,21 @@
  */
 package org.sonar.wsclient;
 
+import org.junit.After;
 import org.junit.AfterClass;
+import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.mortbay.jetty.testing.ServletTester;
 import org.sonar.wsclient.connectors.ConnectionException;
+import org.sonar.wsclient.connectors.Connector;
 import org.sonar.wsclient.connectors.HttpClient3Connector;
 import org.sonar.wsclient.connectors.HttpClient4Connector;
 import org.sonar.wsclient.services.*;
 import org.sonar.wsclient.unmarshallers.UnmarshalException;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 
@@ -45,10 +49,11 @@ public class SonarTest {
 
   private static ServletTester tester;
   private static String baseUrl;
+  private final String connectorType;
   private Sonar sonar;
 
-  public SonarTest(Sonar sonar) {
-    this.sonar = sonar;
+  public SonarTest(String connectorType) {
+    this.connectorType = connectorType;
   }
 
   /**
@@ -69,11 +74,32 @@ public class SonarTest {
     tester.start();
 
     return Arrays.asList(new Object[][]{
-        {new Sonar(new HttpClient4Connector(new Host(baseUrl)))},
-        {new Sonar(new HttpClient3Connector(new Host(baseUrl)))}
+        {"httpclient4"},
+        {"httpclient4-pooled"},
+        {"httpclient3"}
     });
   }
 
+  @Before
+  public void createSonar() {
+    Connector connector;
+    if ("httpclient4".equals(connectorType)) {
+      connector = new HttpClient4Connector(new Host(baseUrl));
+    } else if ("httpclient4-pooled".equals(connectorType)) {
+      connector = new HttpClient4Connector(new Host(baseUrl), 2, 4);
+    } else {
+      connector = new HttpClient3Connector(new Host(baseUrl));
+    }
+    sonar = new Sonar(connector);
+  }
+
+  @After
+  public void closeConnector() {
+    if (sonar.getConnector() instanceof HttpClient4Connector) {
+      ((HttpClient4Connector) sonar.getConnector()).close();
+    }
+  }
+
   @AfterClass
   public static void stopServer() throws Exception {
     tester.stop();
@@ -85,6 +111,17 @@ public class SonarTest {
     assertThat(metrics.size(), greaterThan(1));
   }
 
+  @Test
+  public void findAllWithHandler() {
+    final Collection<Metric> metrics = new ArrayList<Metric>();
+    sonar.findAll(MetricQuery.all(), new ResultHandler<Metric>() {
+      public void handle(Metric metric) {
+        metrics.add(metric);
+      }
+    });
+    assertThat(metrics.size(), is(sonar.findAll(MetricQuery.all()).size()));
+  }
+
   @Test
   public void findEmptyResults() {
     Query<Metric> query = new EmptyQuery();
@@ -111,6 +148,23 @@ public class SonarTest {
     assertThat(server.getVersion(), is("2.0"));
   }
 
+  @Test
+  public void findAllWithHandlerShouldNotStreamServer() {
+    final Collection<Server> servers = new ArrayList<Server>();
+    try {
+      sonar.findAll(new ServerQuery(), new ResultHandler<Server>() {
+        public void handle(Server server) {
+          servers.add(server);
+        }
+      });
+      fail();
+    } catch (UnmarshalException e) {
+      // same as findAll(ServerQuery): the server is a single model
+      assertThat(e.getMessage(), containsString("/api/server/index"));
+      assertThat(servers.size(), is(0));
+    }
+  }
+
   @Test
   public void shouldPropagateUnmarshalContext() {
     try {
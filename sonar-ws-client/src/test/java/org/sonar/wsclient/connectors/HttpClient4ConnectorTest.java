@@ -0,0 +1,306 @@
+/*
+ * Sonar, open source software quality management tool.
+ * Copyright (C) 2008-2012 SonarSource
+ * mailto:contact AT sonarsource DOT com
+ *
+ * Sonar is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * Sonar is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with Sonar; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02
+ */
+package org.sonar.wsclient.connectors;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.util.EntityUtils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mortbay.jetty.testing.ServletTester;
+import org.sonar.wsclient.Host;
+import org.sonar.wsclient.services.Metric;
+import org.sonar.wsclient.services.Query;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+public class HttpClient4ConnectorTest {
+
+  private static final String JSON = "[{\"key\":\"lines\"}]";
+
+  private static ServletTester tester;
+  private static String baseUrl;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    tester = new ServletTester();
+    tester.setContextPath("/");
+    tester.addServlet(GzipServlet.class, "/api/gzip");
+    tester.addServlet(BlockingServlet.class, "/api/blocking");
+    tester.addServlet(RedirectServlet.class, "/api/redirect");
+    baseUrl = tester.createSocketConnector(true);
+    // another port is another route for the connection pool
+    String otherBaseUrl = tester.createSocketConnector(true);
+    RedirectServlet.location = otherBaseUrl + "/api/blocking";
+    tester.start();
+  }
+
+  @AfterClass
+  public static void stopServer() throws Exception {
+    tester.stop();
+  }
+
+  @Before
+  public void resetServlets() {
+    BlockingServlet.reset();
+  }
+
+  @Test
+  public void shouldAcceptGzip() {
+    HttpRequest request = new BasicHttpRequest("GET", "/api/metrics");
+    new HttpClient4Connector.AcceptGzip().process(request, new BasicHttpContext());
+
+    assertThat(request.getFirstHeader("Accept-Encoding").getValue(), is("gzip"));
+  }
+
+  @Test
+  public void shouldNotOverrideAcceptedEncoding() {
+    HttpRequest request = new BasicHttpRequest("GET", "/api/metrics");
+    request.addHeader("Accept-Encoding", "identity");
+    new HttpClient4Connector.AcceptGzip().process(request, new BasicHttpContext());
+
+    assertThat(request.getHeaders("Accept-Encoding").length, is(1));
+    assertThat(request.getFirstHeader("Accept-Encoding").getValue(), is("identity"));
+  }
+
+  @Test
+  public void shouldGunzipResponse() throws Exception {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    ByteArrayEntity entity = new ByteArrayEntity(gzip(JSON));
+    entity.setContentEncoding("gzip");
+    response.setEntity(entity);
+    new HttpClient4Connector.GunzipResponse().process(response, new BasicHttpContext());
+
+    assertThat(response.getEntity().getContentLength(), is(-1L));
+    assertThat(EntityUtils.toString(response.getEntity()), is(JSON));
+  }
+
+  @Test
+  public void shouldNotGunzipPlainResponse() throws Exception {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+    ByteArrayEntity entity = new ByteArrayEntity(JSON.getBytes("UTF-8"));
+    response.setEntity(entity);
+    new HttpClient4Connector.GunzipResponse().process(response, new BasicHttpContext());
+
+    assertThat(response.getEntity() == entity, is(true));
+    assertThat(EntityUtils.toString(response.getEntity()), is(JSON));
+  }
+
+  @Test
+  public void shouldReadGzippedResponses() {
+    HttpClient4Connector connector = new HttpClient4Connector(new Host(baseUrl));
+    assertThat(connector.execute(new JsonQuery("/api/gzip")).trim(), is(JSON));
+
+    HttpClient4Connector pooledConnector = new HttpClient4Connector(new Host(baseUrl), 2, 4);
+    try {
+      assertThat(pooledConnector.execute(new JsonQuery("/api/gzip")).trim(), is(JSON));
+      assertThat(pooledConnector.execute(new JsonQuery("/api/gzip")).trim(), is(JSON));
+      // the connection was kept alive
+      assertThat(pooledConnector.getConnectionsInPool(), is(1));
+      assertThat(pooledConnector.getExecutedRequests(), is(2L));
+    } finally {
+      pooledConnector.close();
+    }
+  }
+
+  @Test
+  public void shouldLimitConnectionsPerRoute() throws Exception {
+    HttpClient4Connector connector = new HttpClient4Connector(new Host(baseUrl), 2, 10);
+    try {
+      List<Future<String>> results = executeConcurrently(connector, "/api/blocking", "/api/blocking", "/api/blocking", "/api/blocking");
+
+      assertThat(BlockingServlet.awaitRequests(2), is(true));
+      // other queries wait for a connection of the pool
+      assertThat(BlockingServlet.awaitRequests(3), is(false));
+      assertThat(connector.getConnectionsInPool(), lessThanOrEqualTo(2));
+
+      BlockingServlet.release();
+      for (Future<String> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS).trim(), is(JSON));
+      }
+      assertThat(BlockingServlet.maxConcurrentRequests.get(), is(2));
+    } finally {
+      connector.close();
+    }
+  }
+
+  @Test
+  public void shouldLimitTotalConnections() throws Exception {
+    HttpClient4Connector connector = new HttpClient4Connector(new Host(baseUrl), 2, 3);
+    try {
+      // redirected queries hold the two connections of the other route
+      List<Future<String>> results = executeConcurrently(connector, "/api/redirect", "/api/redirect");
+      assertThat(BlockingServlet.awaitRequests(2), is(true));
+      results.addAll(executeConcurrently(connector, "/api/blocking", "/api/blocking"));
+
+      assertThat(BlockingServlet.awaitRequests(3), is(true));
+      assertThat(BlockingServlet.awaitRequests(4), is(false));
+      assertThat(connector.getConnectionsInPool(), lessThanOrEqualTo(3));
+
+      BlockingServlet.release();
+      for (Future<String> result : results) {
+        assertThat(result.get(10, TimeUnit.SECONDS).trim(), is(JSON));
+      }
+      assertThat(BlockingServlet.maxConcurrentRequests.get(), is(3));
+    } finally {
+      connector.close();
+    }
+  }
+
+  private static List<Future<String>> executeConcurrently(final HttpClient4Connector connector, String... urls) {
+    ExecutorService executor = Executors.newFixedThreadPool(urls.length);
+    List<Future<String>> results = new ArrayList<Future<String>>();
+    for (final String url : urls) {
+      results.add(executor.submit(new Callable<String>() {
+        public String call() {
+          return connector.execute(new JsonQuery(url));
+        }
+      }));
+    }
+    executor.shutdown();
+    return results;
+  }
+
+  private static byte[] gzip(String s) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(bytes);
+    out.write(s.getBytes("UTF-8"));
+    out.close();
+    return bytes.toByteArray();
+  }
+
+  static class JsonQuery extends Query<Metric> {
+    private final String url;
+
+    JsonQuery(String url) {
+      this.url = url;
+    }
+
+    @Override
+    public String getUrl() {
+      return url;
+    }
+
+    @Override
+    public Class<Metric> getModelClass() {
+      return Metric.class;
+    }
+  }
+
+  public static class GzipServlet extends HttpServlet {
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      String acceptedEncoding = request.getHeader("Accept-Encoding");
+      if (acceptedEncoding != null && acceptedEncoding.contains("gzip")) {
+        response.setHeader("Content-Encoding", "gzip");
+        response.getOutputStream().write(gzip(JSON));
+      } else {
+        response.getWriter().print(JSON);
+      }
+    }
+  }
+
+  public static class RedirectServlet extends HttpServlet {
+    static String location;
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      response.sendRedirect(location);
+    }
+  }
+
+  /**
+   * Blocks requests until {@link #release()} is called.
+   */
+  public static class BlockingServlet extends HttpServlet {
+    static final AtomicInteger maxConcurrentRequests = new AtomicInteger();
+    private static final AtomicInteger concurrentRequests = new AtomicInteger();
+    private static final AtomicInteger receivedRequests = new AtomicInteger();
+    private static volatile CountDownLatch released;
+
+    static void reset() {
+      maxConcurrentRequests.set(0);
+      concurrentRequests.set(0);
+      receivedRequests.set(0);
+      released = new CountDownLatch(1);
+    }
+
+    /**
+     * @return true if this number of requests was received within a second
+     */
+    static boolean awaitRequests(int requests) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + 1000;
+      while (receivedRequests.get() < requests) {
+        if (System.currentTimeMillis() > deadline) {
+          return false;
+        }
+        Thread.sleep(10);
+      }
+      return true;
+    }
+
+    static void release() {
+      released.countDown();
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response) throws ServletException, IOException {
+      int running = concurrentRequests.incrementAndGet();
+      synchronized (maxConcurrentRequests) {
+        maxConcurrentRequests.set(Math.max(maxConcurrentRequests.get(), running));
+      }
+      receivedRequests.incrementAndGet();
+      try {
+        released.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        concurrentRequests.decrementAndGet();
+      }
+      response.getWriter().print(JSON);
+    }
+  }
+}
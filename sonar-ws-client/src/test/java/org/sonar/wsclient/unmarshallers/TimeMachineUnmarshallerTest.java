@@ -20,7 +20,13 @@
 package org.sonar.wsclient.unmarshallers;
 
 import org.junit.Test;
+import org.sonar.wsclient.ResultHandler;
 import org.sonar.wsclient.services.TimeMachine;
+import org.sonar.wsclient.services.TimeMachineCell;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.Matchers.is;
@@ -50,6 +56,22 @@ public class TimeMachineUnmarshallerTest extends UnmarshallerTestCase {
     assertThat((Double) timeMachine.getCells()[0].getValues()[1], is(80.0));
   }
 
+  @Test
+  public void shouldStreamCells() throws Exception {
+    final List<TimeMachineCell> cells = new ArrayList<TimeMachineCell>();
+    new TimeMachineUnmarshaller().toCells(new StringReader(loadFile("/timemachine/timemachine.json")), new ResultHandler<TimeMachineCell>() {
+      public void handle(TimeMachineCell cell) {
+        cells.add(cell);
+      }
+    });
+
+    assertThat(cells.size(), is(3));
+    assertThat(cells.get(0).getDate().getDate(), is(19));
+    assertThat(cells.get(2).getDate().getDate(), is(25));
+    assertThat((Double) cells.get(0).getValues()[0], is(21.0));
+    assertThat((Double) cells.get(0).getValues()[1], is(80.0));
+  }
+
   @Test
   public void shouldAcceptNullValues() throws Exception {
     TimeMachine timeMachine = new TimeMachineUnmarshaller().toModel(loadFile("/timemachine/null-values.json"));
@@ -26,9 +26,12 @@ import static org.hamcrest.core.IsNot.not;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
+import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.junit.Test;
+import org.sonar.wsclient.ResultHandler;
 import org.sonar.wsclient.services.Review;
 import org.sonar.wsclient.services.Violation;
 
@@ -60,6 +63,22 @@ public class ViolationUnmarshallerTest extends UnmarshallerTestCase {
     assertThat(violation.getReview(), nullValue());
   }
 
+  @Test
+  public void shouldStreamModels() throws Exception {
+    final List<Violation> violations = new ArrayList<Violation>();
+    new ViolationUnmarshaller().toModels(new StringReader(loadFile("/violations/violation-with-review.json")), new ResultHandler<Violation>() {
+      public void handle(Violation violation) {
+        violations.add(violation);
+      }
+    });
+
+    List<Violation> expected = new ViolationUnmarshaller().toModels(loadFile("/violations/violation-with-review.json"));
+    assertThat(violations.size(), is(expected.size()));
+    assertThat(violations.get(0).getId(), is(expected.get(0).getId()));
+    assertThat(violations.get(0).getRuleKey(), is(expected.get(0).getRuleKey()));
+    assertThat(violations.get(0).getReview().getId(), is(expected.get(0).getReview().getId()));
+  }
+
   @Test
   public void testViolationWithoutLineNumber() {
     Violation violation = new ViolationUnmarshaller().toModel(loadFile("/violations/violation-without-optional-fields.json"));